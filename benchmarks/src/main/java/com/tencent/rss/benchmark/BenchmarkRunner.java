@@ -0,0 +1,111 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+
+/**
+ * Run benchmarks with the standard JMH command line options and write a compact json report,
+ * the report of a previous run can be set by -Drss.benchmark.baseline to compare the scores, eg,
+ * java -Drss.benchmark.output=new.json -Drss.benchmark.baseline=old.json \
+ *   -cp benchmarks.jar com.tencent.rss.benchmark.BenchmarkRunner ShuffleBuffer
+ */
+public class BenchmarkRunner {
+
+  private static final String OUTPUT_PROPERTY = "rss.benchmark.output";
+  private static final String BASELINE_PROPERTY = "rss.benchmark.baseline";
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions options = new CommandLineOptions(args);
+    Collection<RunResult> runResults = new Runner(options).run();
+
+    ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    Map<String, Double> baseline = loadBaseline(mapper, System.getProperty(BASELINE_PROPERTY));
+    List<Map<String, Object>> report = new ArrayList<>();
+    for (RunResult runResult : runResults) {
+      report.add(toReport(runResult, baseline));
+    }
+
+    String output = System.getProperty(OUTPUT_PROPERTY);
+    if (output == null) {
+      System.out.println(mapper.writeValueAsString(report));
+    } else {
+      mapper.writeValue(new File(output), report);
+    }
+  }
+
+  private static Map<String, Object> toReport(RunResult runResult, Map<String, Double> baseline) {
+    BenchmarkParams params = runResult.getParams();
+    Result result = runResult.getPrimaryResult();
+    Map<String, String> paramValues = new TreeMap<>();
+    for (String key : params.getParamsKeys()) {
+      paramValues.put(key, params.getParam(key));
+    }
+    Map<String, Object> item = new LinkedHashMap<>();
+    item.put("benchmark", params.getBenchmark());
+    item.put("mode", params.getMode().shortLabel());
+    item.put("params", paramValues);
+    item.put("score", result.getScore());
+    item.put("scoreError", result.getScoreError());
+    item.put("unit", result.getScoreUnit());
+    Double baselineScore = baseline.get(getKey(params.getBenchmark(), paramValues));
+    if (baselineScore != null && baselineScore != 0) {
+      item.put("baselineScore", baselineScore);
+      // the sign depends on the mode, throughput is better when higher and time is better when lower
+      item.put("change", (result.getScore() - baselineScore) / baselineScore);
+    }
+    return item;
+  }
+
+  private static Map<String, Double> loadBaseline(ObjectMapper mapper, String path) throws Exception {
+    Map<String, Double> baseline = new HashMap<>();
+    if (path == null) {
+      return baseline;
+    }
+    List<Map<String, Object>> items = mapper.readValue(
+        new File(path), new TypeReference<List<Map<String, Object>>>() {});
+    for (Map<String, Object> item : items) {
+      @SuppressWarnings("unchecked")
+      Map<String, String> paramValues = new TreeMap<>((Map<String, String>) item.get("params"));
+      baseline.put(getKey((String) item.get("benchmark"), paramValues),
+          ((Number) item.get("score")).doubleValue());
+    }
+    return baseline;
+  }
+
+  private static String getKey(String benchmark, Map<String, String> paramValues) {
+    return benchmark + paramValues;
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.benchmark;
+
+import java.util.Random;
+
+import com.tencent.rss.common.ShufflePartitionedBlock;
+import com.tencent.rss.common.util.ChecksumUtils;
+import com.tencent.rss.common.util.Constants;
+
+public class BenchmarkUtils {
+
+  public static byte[] randomBytes(int size) {
+    byte[] data = new byte[size];
+    new Random(size).nextBytes(data);
+    return data;
+  }
+
+  // block id has the same layout as the one generated by client
+  public static long getBlockId(long partitionId, long taskAttemptId, long seqNo) {
+    return (seqNo << (Constants.PARTITION_ID_MAX_LENGTH + Constants.TASK_ATTEMPT_ID_MAX_LENGTH))
+        + (partitionId << Constants.TASK_ATTEMPT_ID_MAX_LENGTH) + taskAttemptId;
+  }
+
+  public static ShufflePartitionedBlock createBlock(long blockId, long taskAttemptId, byte[] data) {
+    return new ShufflePartitionedBlock(
+        data.length, data.length, ChecksumUtils.getCrc32(data), blockId, taskAttemptId, data);
+  }
+}
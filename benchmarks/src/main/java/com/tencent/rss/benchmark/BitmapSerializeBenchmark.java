@@ -0,0 +1,77 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import com.tencent.rss.common.util.RssUtils;
+
+/**
+ * Serialize and deserialize block id bitmaps, block ids are generated with the layout used by client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BitmapSerializeBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  private int cardinality;
+
+  @Param({"1000"})
+  private int taskNum;
+
+  private Roaring64NavigableMap bitmap;
+  private byte[] serializedBitmap;
+
+  @Setup
+  public void setUp() throws IOException {
+    bitmap = Roaring64NavigableMap.bitmapOf();
+    for (int i = 0; i < cardinality; i++) {
+      bitmap.addLong(BenchmarkUtils.getBlockId(i % 100, i % taskNum, i / taskNum));
+    }
+    serializedBitmap = RssUtils.serializeBitMap(bitmap);
+  }
+
+  @Benchmark
+  public byte[] serializeBitMap() throws IOException {
+    return RssUtils.serializeBitMap(bitmap);
+  }
+
+  @Benchmark
+  public Roaring64NavigableMap deserializeBitMap() throws IOException {
+    return RssUtils.deserializeBitMap(serializedBitmap);
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tencent.rss.common.ShuffleDataSegment;
+import com.tencent.rss.common.ShuffleIndexResult;
+import com.tencent.rss.common.util.RssUtils;
+import com.tencent.rss.storage.common.FileBasedShuffleSegment;
+import com.tencent.rss.storage.handler.impl.DataFileSegment;
+import com.tencent.rss.storage.util.ShuffleStorageUtils;
+
+/**
+ * Convert index data to segments on client side and merge segments on server side,
+ * mergeSegments sorts the input in place, so the cost of copying the list is included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexSegmentBenchmark {
+
+  // offset(long), length(int), uncompressLength(int), crc(long), blockId(long), taskAttemptId(long)
+  private static final int INDEX_ENTRY_LENGTH = 40;
+
+  @Param({"1000", "100000"})
+  private int segmentNum;
+
+  @Param({"32768"})
+  private int blockSize;
+
+  @Param({"14680064"})
+  private int readBufferSize;
+
+  private byte[] indexData;
+  private List<FileBasedShuffleSegment> segments;
+
+  @Setup
+  public void setUp() {
+    ByteBuffer byteBuffer = ByteBuffer.allocate(segmentNum * INDEX_ENTRY_LENGTH);
+    segments = new ArrayList<>(segmentNum);
+    long offset = 0;
+    for (int i = 0; i < segmentNum; i++) {
+      // blocks from different tasks are interleaved in the data file
+      long taskAttemptId = i % 100;
+      long blockId = BenchmarkUtils.getBlockId(0, taskAttemptId, i / 100);
+      byteBuffer.putLong(offset);
+      byteBuffer.putInt(blockSize);
+      byteBuffer.putInt(blockSize);
+      byteBuffer.putLong(i);
+      byteBuffer.putLong(blockId);
+      byteBuffer.putLong(taskAttemptId);
+      segments.add(new FileBasedShuffleSegment(blockId, offset, blockSize, blockSize, i, taskAttemptId));
+      offset += blockSize;
+    }
+    indexData = byteBuffer.array();
+  }
+
+  @Benchmark
+  public List<ShuffleDataSegment> transIndexDataToSegments() {
+    return RssUtils.transIndexDataToSegments(new ShuffleIndexResult(indexData), readBufferSize);
+  }
+
+  @Benchmark
+  public List<DataFileSegment> mergeSegments() {
+    return ShuffleStorageUtils.mergeSegments("benchmark", new ArrayList<>(segments), readBufferSize);
+  }
+}
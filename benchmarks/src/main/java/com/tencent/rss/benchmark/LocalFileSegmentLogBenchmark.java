@@ -0,0 +1,143 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tencent.rss.common.ShufflePartitionedBlock;
+import com.tencent.rss.storage.common.LocalStorage;
+import com.tencent.rss.storage.request.CreateShuffleWriteHandlerRequest;
+
+/**
+ * Flush one small block for every partition of a shuffle by some flush threads, with and without
+ * the segment log. The score is the latency of a flush including the creation of the write handler,
+ * and the number of files created is printed after every invocation. The storage path can be set
+ * by -Drss.benchmark.dir to test with the real disks, default is java.io.tmpdir.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LocalFileSegmentLogBenchmark {
+
+  private static final String APP_ID = "benchmarkApp";
+  private static final int PARTITION_NUM = 50000;
+
+  @Param({"4096"})
+  private int blockSize;
+
+  @Param({"false", "true"})
+  private boolean segmentLogEnabled;
+
+  @Param({"1", "8"})
+  private int flushThreadNum;
+
+  private ExecutorService flushExecutor;
+  private List<List<ShufflePartitionedBlock>> partitionBlocks;
+  private File baseDir;
+  private LocalStorage storage;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    flushExecutor = Executors.newFixedThreadPool(flushThreadNum);
+    byte[] data = BenchmarkUtils.randomBytes(blockSize);
+    partitionBlocks = new ArrayList<>(PARTITION_NUM);
+    for (int partitionId = 0; partitionId < PARTITION_NUM; partitionId++) {
+      partitionBlocks.add(Collections.singletonList(
+          BenchmarkUtils.createBlock(BenchmarkUtils.getBlockId(partitionId, 0, 0), 0, data)));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    flushExecutor.shutdownNow();
+  }
+
+  // the storage is recreated for every invocation to start with no file
+  @Setup(Level.Invocation)
+  public void setUpStorage() throws IOException {
+    File parent = new File(System.getProperty("rss.benchmark.dir", System.getProperty("java.io.tmpdir")));
+    parent.mkdirs();
+    baseDir = Files.createTempDirectory(parent.toPath(), "rss-benchmark").toFile();
+    storage = LocalStorage.newBuilder()
+        .basePath(new File(baseDir, "data").getAbsolutePath())
+        .capacity(1L)
+        .segmentLogEnabled(segmentLogEnabled)
+        .build();
+    storage.createMetadataIfNotExist(APP_ID + "/0");
+  }
+
+  @TearDown(Level.Invocation)
+  public void tearDownStorage() throws IOException {
+    storage.removeHandlers(APP_ID);
+    try (Stream<Path> paths = Files.walk(baseDir.toPath())) {
+      System.out.println("Files created: " + paths.filter(path -> path.toFile().isFile()).count());
+    }
+    FileUtils.deleteDirectory(baseDir);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(PARTITION_NUM)
+  public void flush() throws Exception {
+    List<Future<Void>> futures = new ArrayList<>(flushThreadNum);
+    for (int i = 0; i < flushThreadNum; i++) {
+      int threadIndex = i;
+      futures.add(flushExecutor.submit(() -> {
+        for (int partitionId = threadIndex; partitionId < PARTITION_NUM; partitionId += flushThreadNum) {
+          storage.getOrCreateWriteHandler(new CreateShuffleWriteHandlerRequest(
+              "LOCALFILE", APP_ID, 0, partitionId, partitionId, new String[] {storage.getBasePath()},
+              "benchmark", null, 1)).write(partitionBlocks.get(partitionId));
+        }
+        return null;
+      }));
+    }
+    for (Future<Void> future : futures) {
+      future.get();
+    }
+  }
+}
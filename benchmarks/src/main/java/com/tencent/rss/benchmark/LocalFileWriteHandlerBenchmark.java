@@ -0,0 +1,95 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tencent.rss.common.ShufflePartitionedBlock;
+import com.tencent.rss.storage.handler.impl.LocalFileWriteHandler;
+
+/**
+ * Write a flush event worth of blocks with LocalFileWriteHandler, the storage path can be set
+ * by -Drss.benchmark.dir to test with the real disks, default is java.io.tmpdir.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalFileWriteHandlerBenchmark {
+
+  @Param({"1024", "65536"})
+  private int blockSize;
+
+  @Param({"10", "1000"})
+  private int blockNum;
+
+  private File baseDir;
+  private LocalFileWriteHandler writeHandler;
+  private List<ShufflePartitionedBlock> blocks;
+
+  @Setup(Level.Trial)
+  public void setUpBlocks() {
+    byte[] data = BenchmarkUtils.randomBytes(blockSize);
+    blocks = new ArrayList<>(blockNum);
+    for (int i = 0; i < blockNum; i++) {
+      blocks.add(BenchmarkUtils.createBlock(BenchmarkUtils.getBlockId(0, 0, i), 0, data));
+    }
+  }
+
+  // files are recreated for every iteration to avoid filling up the disk
+  @Setup(Level.Iteration)
+  public void setUpHandler() throws IOException {
+    File parent = new File(System.getProperty("rss.benchmark.dir", System.getProperty("java.io.tmpdir")));
+    parent.mkdirs();
+    baseDir = Files.createTempDirectory(parent.toPath(), "rss-benchmark").toFile();
+    writeHandler = new LocalFileWriteHandler("benchmarkApp", 0, 0, 0, baseDir.getAbsolutePath(), "benchmark");
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDownHandler() throws IOException {
+    FileUtils.deleteDirectory(baseDir);
+  }
+
+  @Benchmark
+  public void write() throws IOException {
+    writeHandler.write(blocks);
+  }
+}
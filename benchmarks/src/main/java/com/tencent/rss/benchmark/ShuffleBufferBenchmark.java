@@ -0,0 +1,87 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tencent.rss.common.ShuffleDataResult;
+import com.tencent.rss.common.ShufflePartitionedBlock;
+import com.tencent.rss.common.ShufflePartitionedData;
+import com.tencent.rss.common.util.Constants;
+import com.tencent.rss.server.buffer.ShuffleBuffer;
+
+/**
+ * Read data from ShuffleBuffer, half of the blocks are in flushing status and the others are cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShuffleBufferBenchmark {
+
+  @Param({"1024", "32768"})
+  private int blockSize;
+
+  @Param({"100", "10000"})
+  private int blockNum;
+
+  @Param({"1048576"})
+  private int readBufferSize;
+
+  private ShuffleBuffer shuffleBuffer;
+  private long middleBlockId;
+
+  @Setup
+  public void setUp() {
+    shuffleBuffer = new ShuffleBuffer(Long.MAX_VALUE);
+    byte[] data = BenchmarkUtils.randomBytes(blockSize);
+    for (int i = 0; i < blockNum; i++) {
+      ShufflePartitionedBlock block = BenchmarkUtils.createBlock(BenchmarkUtils.getBlockId(0, 0, i), 0, data);
+      shuffleBuffer.append(new ShufflePartitionedData(0, new ShufflePartitionedBlock[]{block}));
+      if (i == blockNum / 2) {
+        middleBlockId = block.getBlockId();
+        shuffleBuffer.toFlushEvent("benchmarkApp", 0, 0, 0, () -> true);
+      }
+    }
+  }
+
+  @Benchmark
+  public ShuffleDataResult readFromFirstBlock() {
+    return shuffleBuffer.getShuffleData(Constants.INVALID_BLOCK_ID, readBufferSize);
+  }
+
+  @Benchmark
+  public ShuffleDataResult readFromMiddleBlock() {
+    return shuffleBuffer.getShuffleData(middleBlockId, readBufferSize);
+  }
+}
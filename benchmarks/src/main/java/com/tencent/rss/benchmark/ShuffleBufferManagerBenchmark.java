@@ -0,0 +1,107 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.tencent.rss.common.ShufflePartitionedBlock;
+import com.tencent.rss.common.ShufflePartitionedData;
+import com.tencent.rss.server.ShuffleServerConf;
+import com.tencent.rss.server.ShuffleServerMetrics;
+import com.tencent.rss.server.buffer.ShuffleBufferManager;
+
+/**
+ * Cache blocks to ShuffleBufferManager, buffers are registered and removed for every invocation,
+ * and the capacity is large enough that flush is never triggered.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShuffleBufferManagerBenchmark {
+
+  private static final String APP_ID = "benchmarkApp";
+  private static final int BLOCKS_PER_INVOCATION = 1000;
+
+  @Param({"1024", "65536"})
+  private int blockSize;
+
+  @Param({"1", "100", "1000"})
+  private int partitionNum;
+
+  private ShuffleBufferManager shuffleBufferManager;
+  private ShufflePartitionedData[] partitionedData;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    ShuffleServerMetrics.register();
+    ShuffleServerConf conf = new ShuffleServerConf();
+    conf.set(ShuffleServerConf.SERVER_BUFFER_CAPACITY, 4L * BLOCKS_PER_INVOCATION * (blockSize + 64));
+    conf.set(ShuffleServerConf.SERVER_MEMORY_SHUFFLE_HIGHWATERMARK_PERCENTAGE, 100.0);
+    conf.set(ShuffleServerConf.SERVER_MEMORY_SHUFFLE_LOWWATERMARK_PERCENTAGE, 0.0);
+    shuffleBufferManager = new ShuffleBufferManager(conf, null);
+    // the data is shared by blocks, only the accounted size grows
+    byte[] data = BenchmarkUtils.randomBytes(blockSize);
+    partitionedData = new ShufflePartitionedData[BLOCKS_PER_INVOCATION];
+    for (int i = 0; i < BLOCKS_PER_INVOCATION; i++) {
+      int partitionId = i % partitionNum;
+      ShufflePartitionedBlock block = BenchmarkUtils.createBlock(
+          BenchmarkUtils.getBlockId(partitionId, 0, i), 0, data);
+      partitionedData[i] = new ShufflePartitionedData(partitionId, new ShufflePartitionedBlock[]{block});
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void registerBuffers() {
+    for (int partitionId = 0; partitionId < partitionNum; partitionId++) {
+      shuffleBufferManager.registerBuffer(APP_ID, 0, partitionId, partitionId);
+    }
+  }
+
+  @TearDown(Level.Invocation)
+  public void removeBuffers() {
+    shuffleBufferManager.removeBuffer(APP_ID);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BLOCKS_PER_INVOCATION)
+  public void cacheShuffleData(Blackhole blackhole) {
+    for (ShufflePartitionedData data : partitionedData) {
+      blackhole.consume(shuffleBufferManager.cacheShuffleData(APP_ID, 0, false, data));
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import com.tencent.rss.common.PartitionRange;
+import com.tencent.rss.common.ShufflePartitionedBlock;
+import com.tencent.rss.common.ShufflePartitionedData;
+import com.tencent.rss.server.ShuffleFlushManager;
+import com.tencent.rss.server.ShuffleServerConf;
+import com.tencent.rss.server.ShuffleServerMetrics;
+import com.tencent.rss.server.ShuffleTaskManager;
+import com.tencent.rss.server.StatusCode;
+import com.tencent.rss.server.buffer.ShuffleBufferManager;
+import com.tencent.rss.server.storage.StorageManager;
+import com.tencent.rss.server.storage.StorageManagerFactory;
+import com.tencent.rss.storage.util.StorageType;
+
+/**
+ * Commit a shuffle whose cached blocks are all committed already, which is the common case when
+ * the last map task finishes. The blocks are cached and flushed to local files through the public
+ * cache and commit path in setup. The latency of commit should be independent of blockNum, the exact
+ * uncommitted block ids are built as the reference, it copies the bitmaps as commit did before.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ShuffleCommitBenchmark {
+
+  private static final String APP_ID = "benchmarkApp";
+  private static final int TASK_ATTEMPT_NUM = 1000;
+  // partitions whose blocks are cached and committed together in setup
+  private static final int PARTITIONS_PER_COMMIT = 10;
+
+  @Param({"100000", "10000000"})
+  private int blockNum;
+
+  private File baseDir;
+  private StorageManager storageManager;
+  private ShuffleTaskManager shuffleTaskManager;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    ShuffleServerMetrics.register();
+    baseDir = Files.createTempDirectory("rss-benchmark").toFile();
+    ShuffleServerConf conf = new ShuffleServerConf();
+    conf.set(ShuffleServerConf.RSS_STORAGE_TYPE, StorageType.LOCALFILE.name());
+    conf.set(ShuffleServerConf.RSS_STORAGE_BASE_PATH, baseDir.getAbsolutePath());
+    // the memory isn't released without shuffle server, so the buffer never reaches the watermark
+    conf.set(ShuffleServerConf.SERVER_BUFFER_CAPACITY, 1L << 40);
+    conf.set(ShuffleServerConf.SERVER_MEMORY_SHUFFLE_HIGHWATERMARK_PERCENTAGE, 100.0);
+    conf.set(ShuffleServerConf.SERVER_MEMORY_SHUFFLE_LOWWATERMARK_PERCENTAGE, 0.0);
+    storageManager = StorageManagerFactory.getInstance().createStorageManager("benchmark", conf);
+    ShuffleFlushManager shuffleFlushManager = new ShuffleFlushManager(conf, "benchmark", null, storageManager);
+    ShuffleBufferManager shuffleBufferManager = new ShuffleBufferManager(conf, shuffleFlushManager);
+    shuffleTaskManager = new ShuffleTaskManager(conf, shuffleFlushManager, shuffleBufferManager, storageManager);
+    int partitionNum = blockNum / TASK_ATTEMPT_NUM;
+    shuffleTaskManager.registerShuffle(
+        APP_ID, 0, Collections.singletonList(new PartitionRange(0, partitionNum - 1)));
+    // every task attempt writes one empty block to every partition
+    byte[] data = new byte[0];
+    for (int partitionId = 0; partitionId < partitionNum; partitionId++) {
+      ShufflePartitionedBlock[] blocks = new ShufflePartitionedBlock[TASK_ATTEMPT_NUM];
+      for (int taskAttemptId = 0; taskAttemptId < TASK_ATTEMPT_NUM; taskAttemptId++) {
+        blocks[taskAttemptId] = BenchmarkUtils.createBlock(
+            BenchmarkUtils.getBlockId(partitionId, taskAttemptId, 0), taskAttemptId, data);
+      }
+      shuffleTaskManager.cacheShuffleData(APP_ID, 0, true, new ShufflePartitionedData(partitionId, blocks));
+      shuffleTaskManager.updateCachedBlockIds(APP_ID, 0, blocks);
+      if ((partitionId + 1) % PARTITIONS_PER_COMMIT == 0 || partitionId == partitionNum - 1) {
+        commit();
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    shuffleTaskManager.removeResources(APP_ID);
+    storageManager.stop();
+    FileUtils.deleteDirectory(baseDir);
+  }
+
+  @Benchmark
+  public StatusCode commitShuffle() throws Exception {
+    return commit();
+  }
+
+  @Benchmark
+  public Roaring64NavigableMap uncommittedBlockIds() {
+    return shuffleTaskManager.getUncommittedBlockIds(APP_ID, 0);
+  }
+
+  private StatusCode commit() throws Exception {
+    StatusCode status = shuffleTaskManager.commitShuffle(APP_ID, 0);
+    if (status != StatusCode.SUCCESS) {
+      throw new IllegalStateException("Commit failed with " + status);
+    }
+    return status;
+  }
+}
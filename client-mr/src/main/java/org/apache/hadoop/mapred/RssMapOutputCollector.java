@@ -36,6 +36,7 @@ import org.apache.hadoop.mapreduce.TaskCounter;
 
 import com.tencent.rss.common.ShuffleServerInfo;
 import com.tencent.rss.common.exception.RssException;
+import com.tencent.rss.common.util.BlockIdLayout;
 import com.tencent.rss.common.util.ByteUnit;
 import com.tencent.rss.storage.util.StorageType;
 
@@ -63,7 +64,6 @@ public class RssMapOutputCollector<K extends Object, V extends Object>
     }
     partitions = jobConf.getNumReduceTasks();
     MapTask mapTask = context.getMapTask();
-    long taskAttemptId = RssMRUtils.convertTaskAttemptIdToLong(mapTask.getTaskID());
     int batch = jobConf.getInt(RssMRConfig.RSS_CLIENT_BATCH_TRIGGER_NUM,
         RssMRConfig.RSS_CLIENT_DEFAULT_BATCH_TRIGGER_NUM);
     RawComparator<K> comparator = jobConf.getOutputKeyComparator();
@@ -78,6 +78,8 @@ public class RssMapOutputCollector<K extends Object, V extends Object>
     int bitmapSplitNum = jobConf.getInt(RssMRConfig.RSS_CLIENT_BITMAP_NUM,
         RssMRConfig.RSS_CLIENT_DEFAULT_BITMAP_NUM);
     int numMaps = jobConf.getNumMapTasks();
+    BlockIdLayout blockIdLayout = RssMRUtils.getBlockIdLayout(jobConf);
+    long taskAttemptId = RssMRUtils.convertTaskAttemptIdToLong(mapTask.getTaskID(), numMaps, blockIdLayout);
     String storageType = jobConf.get(RssMRConfig.RSS_STORAGE_TYPE);
     if (StringUtils.isEmpty(storageType)) {
       throw new RssException("storage type mustn't be empty");
@@ -108,7 +110,8 @@ public class RssMapOutputCollector<K extends Object, V extends Object>
         bitmapSplitNum,
         maxSegmentSize,
         numMaps,
-        isMemoryShuffleEnabled(storageType));
+        isMemoryShuffleEnabled(storageType),
+        blockIdLayout);
   }
 
   private Map<Integer, List<ShuffleServerInfo>> createAssignmentMap(JobConf jobConf) {
@@ -176,6 +179,7 @@ public class RssMapOutputCollector<K extends Object, V extends Object>
   private boolean isMemoryShuffleEnabled(String storageType) {
     return StorageType.MEMORY_LOCALFILE.name().equals(storageType)
         || StorageType.MEMORY_HDFS.name().equals(storageType)
-        || StorageType.MEMORY_LOCALFILE_HDFS.name().equals(storageType);
+        || StorageType.MEMORY_LOCALFILE_HDFS.name().equals(storageType)
+        || StorageType.MEMORY_TMPFS_LOCALFILE.name().equals(storageType);
   }
 }
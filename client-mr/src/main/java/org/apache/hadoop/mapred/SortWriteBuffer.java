@@ -20,85 +20,177 @@ package org.apache.hadoop.mapred;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
 
 import com.google.common.collect.Lists;
 import org.apache.hadoop.io.RawComparator;
-import org.openjdk.jol.info.GraphLayout;
+import org.apache.hadoop.io.serializer.Serializer;
+import org.apache.hadoop.util.IndexedSortable;
+import org.apache.hadoop.util.QuickSort;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class SortWriteBuffer<K, V> extends OutputStream  {
+/**
+ * Serialized keys and values are stored in the segments, records are sorted by the
+ * metadata of offset and length with RawComparator, as MapOutputBuffer does.
+ */
+public class SortWriteBuffer<K, V> extends OutputStream implements IndexedSortable {
 
   private static final Logger LOG = LoggerFactory.getLogger(SortWriteBuffer.class);
+  // the metadata of a record is start of the record, key length, value length and
+  // the index of key copy which is -1 if the key isn't across the segments
+  private static final int META_START = 0;
+  private static final int META_KEY_LENGTH = 1;
+  private static final int META_VALUE_LENGTH = 2;
+  private static final int META_KEY_COPY = 3;
+  private static final int META_NUM = 4;
+  // the bytes of metadata for every record
+  public static final int RECORD_META_SIZE = META_NUM * 4;
+  private static final int INITIAL_RECORD_NUM = 64;
   private long copyTime = 0;
   private final List<WrappedBuffer> buffers = Lists.newArrayList();
-  private final List<Record<K>> records = Lists.newArrayList();
+  private int[] recordMeta = new int[INITIAL_RECORD_NUM * META_NUM];
+  private int recordNum = 0;
+  // the key across two segments is copied to be compared as a whole
+  private final List<byte[]> keyCopies = Lists.newArrayList();
   private int dataLength = 0;
-  private int totalKeyLength = 0;
   private long sortTime = 0;
   private final RawComparator<K> comparator;
+  private final Serializer<K> keySerializer;
+  private final Serializer<V> valSerializer;
   private long maxSegmentSize;
   private int partitionId;
 
-  public SortWriteBuffer(int partitionId, RawComparator<K> comparator, long maxSegmentSize) {
+  public SortWriteBuffer(
+      int partitionId,
+      RawComparator<K> comparator,
+      long maxSegmentSize,
+      Serializer<K> keySerializer,
+      Serializer<V> valSerializer) {
     this.partitionId = partitionId;
     this.comparator = comparator;
     this.maxSegmentSize = maxSegmentSize;
+    this.keySerializer = keySerializer;
+    this.valSerializer = valSerializer;
   }
 
-  public synchronized long addRecord(K key, long start, long end) {
-    long keyLength = GraphLayout.parseInstance(key).totalSize();
-    records.add(new Record<K>(key, start, end));
-    totalKeyLength += keyLength;
-    return keyLength;
+  /**
+   * Serialize the record to the buffer and return the length of serialized key and value.
+   */
+  public synchronized int addRecord(K key, V value) throws IOException {
+    keySerializer.open(this);
+    valSerializer.open(this);
+    int start = dataLength;
+    keySerializer.serialize(key);
+    int keyLength = dataLength - start;
+    valSerializer.serialize(value);
+    int valueLength = dataLength - start - keyLength;
+    if (recordMeta.length < (recordNum + 1) * META_NUM) {
+      recordMeta = Arrays.copyOf(recordMeta, recordMeta.length * 2);
+    }
+    int meta = recordNum * META_NUM;
+    recordMeta[meta + META_START] = start;
+    recordMeta[meta + META_KEY_LENGTH] = keyLength;
+    recordMeta[meta + META_VALUE_LENGTH] = valueLength;
+    recordMeta[meta + META_KEY_COPY] = -1;
+    if (keyLength == 0 || start / maxSegmentSize != (start + keyLength - 1) / maxSegmentSize) {
+      byte[] keyCopy = new byte[keyLength];
+      copy(start, start + keyLength, keyCopy, 0);
+      recordMeta[meta + META_KEY_COPY] = keyCopies.size();
+      keyCopies.add(keyCopy);
+    }
+    recordNum++;
+    return keyLength + valueLength;
   }
 
   public synchronized byte[] getData() {
     byte[] data = new byte[dataLength];
-    int offset = 0;
     long startSort = System.currentTimeMillis();
-    records.sort(new Comparator<Record<K>>() {
-      @Override
-      public int compare(Record<K> o1, Record<K> o2) {
-        return comparator.compare(o1.getKey(), o2.getKey());
-      }
-    });
+    new QuickSort().sort(this, 0, recordNum);
 
     long startCopy =  System.currentTimeMillis();
     sortTime += startCopy - startSort;
-    for (Record<K> record : records) {
-      int beginIndex = (int) (record.getStart() / maxSegmentSize);
-      int beginOffSet = (int) (record.getStart() % maxSegmentSize);
-      int endIndex = (int) (record.getEnd() / maxSegmentSize);
-      int endOffset = (int) (record.getEnd() % maxSegmentSize);
-      if (beginIndex == endIndex) {
-        int length = endOffset - beginOffSet;
-        System.arraycopy(buffers.get(beginIndex).getBuffer(), beginOffSet, data, offset, length);
-        offset += length;
-      } else {
-        int finalBeginOffset = beginOffSet;
-        for (int j = beginIndex; j <= endIndex; j++) {
-          int finalEndOffset = (int) ((j == endIndex) ? endOffset : maxSegmentSize);
-          int length = finalEndOffset - finalBeginOffset;
-          System.arraycopy(buffers.get(j).getBuffer(), finalBeginOffset, data, offset, length);
-          offset += length;
-          finalBeginOffset = 0;
-        }
-      }
+    int offset = 0;
+    for (int i = 0; i < recordNum; i++) {
+      int meta = i * META_NUM;
+      int start = recordMeta[meta + META_START];
+      int length = recordMeta[meta + META_KEY_LENGTH] + recordMeta[meta + META_VALUE_LENGTH];
+      copy(start, start + length, data, offset);
+      offset += length;
     }
 
     copyTime += System.currentTimeMillis() - startCopy;
     return data;
   }
 
+  @Override
+  public int compare(int i, int j) {
+    int metaI = i * META_NUM;
+    int metaJ = j * META_NUM;
+    return comparator.compare(
+        getKeyBuffer(metaI), getKeyOffset(metaI), recordMeta[metaI + META_KEY_LENGTH],
+        getKeyBuffer(metaJ), getKeyOffset(metaJ), recordMeta[metaJ + META_KEY_LENGTH]);
+  }
+
+  @Override
+  public void swap(int i, int j) {
+    int metaI = i * META_NUM;
+    int metaJ = j * META_NUM;
+    for (int k = 0; k < META_NUM; k++) {
+      int tmp = recordMeta[metaI + k];
+      recordMeta[metaI + k] = recordMeta[metaJ + k];
+      recordMeta[metaJ + k] = tmp;
+    }
+  }
+
+  private byte[] getKeyBuffer(int meta) {
+    int keyCopy = recordMeta[meta + META_KEY_COPY];
+    if (keyCopy >= 0) {
+      return keyCopies.get(keyCopy);
+    }
+    return buffers.get((int) (recordMeta[meta + META_START] / maxSegmentSize)).getBuffer();
+  }
+
+  private int getKeyOffset(int meta) {
+    if (recordMeta[meta + META_KEY_COPY] >= 0) {
+      return 0;
+    }
+    return (int) (recordMeta[meta + META_START] % maxSegmentSize);
+  }
+
+  // copy the data in [start, end) of the segments to dest
+  private void copy(int start, int end, byte[] dest, int destOffset) {
+    if (end <= start) {
+      return;
+    }
+    int beginIndex = (int) (start / maxSegmentSize);
+    int beginOffSet = (int) (start % maxSegmentSize);
+    int endIndex = (int) (end / maxSegmentSize);
+    int endOffset = (int) (end % maxSegmentSize);
+    if (beginIndex == endIndex) {
+      int length = endOffset - beginOffSet;
+      System.arraycopy(buffers.get(beginIndex).getBuffer(), beginOffSet, dest, destOffset, length);
+    } else {
+      int finalBeginOffset = beginOffSet;
+      for (int j = beginIndex; j <= endIndex; j++) {
+        int finalEndOffset = (int) ((j == endIndex) ? endOffset : maxSegmentSize);
+        int length = finalEndOffset - finalBeginOffset;
+        if (length > 0) {
+          System.arraycopy(buffers.get(j).getBuffer(), finalBeginOffset, dest, destOffset, length);
+        }
+        destOffset += length;
+        finalBeginOffset = 0;
+      }
+    }
+  }
+
   public int getDataLength() {
     return dataLength;
   }
 
-  public int getTotalKeyLength() {
-    return totalKeyLength;
+  public int getRecordNum() {
+    return recordNum;
   }
 
   public long getCopyTime() {
@@ -141,7 +233,7 @@ public class SortWriteBuffer<K, V> extends OutputStream  {
     }
     int index = (int) (dataLength / maxSegmentSize);
     int offset = (int) (dataLength % maxSegmentSize);
-    int srcPos = 0;
+    int srcPos = off;
     while (len > 0) {
       int copyLength = 0;
       if (offset + len > maxSegmentSize) {
@@ -158,31 +250,6 @@ public class SortWriteBuffer<K, V> extends OutputStream  {
     }
   }
 
-  private static final class Record<K> {
-
-    private K key;
-    private long start;
-    private long end;
-
-    Record(K key, long start, long end) {
-      this.key = key;
-      this.start = start;
-      this.end = end;
-    }
-
-    public K getKey() {
-      return key;
-    }
-
-    public long getStart() {
-      return start;
-    }
-
-    public long getEnd() {
-      return end;
-    }
-  }
-
   private static final class WrappedBuffer {
 
     private byte[] buffer;
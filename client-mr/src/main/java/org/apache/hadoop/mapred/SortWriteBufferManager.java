@@ -19,10 +19,9 @@
 package org.apache.hadoop.mapred;
 
 import java.io.IOException;
-import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -49,6 +48,7 @@ import com.tencent.rss.common.RssShuffleUtils;
 import com.tencent.rss.common.ShuffleBlockInfo;
 import com.tencent.rss.common.ShuffleServerInfo;
 import com.tencent.rss.common.exception.RssException;
+import com.tencent.rss.common.util.BlockIdLayout;
 import com.tencent.rss.common.util.ChecksumUtils;
 
 public class SortWriteBufferManager<K, V> {
@@ -63,6 +63,7 @@ public class SortWriteBufferManager<K, V> {
   private long uncompressedDataLen = 0;
   private long compressTime = 0;
   private final long taskAttemptId;
+  private boolean isResultReported = false;
   private final AtomicLong memoryUsedSize = new AtomicLong(0);
   private final int batch;
   private final AtomicLong inSendListBytes = new AtomicLong(0);
@@ -75,7 +76,6 @@ public class SortWriteBufferManager<K, V> {
   private final RawComparator<K> comparator;
   private final Set<Long> successBlockIds;
   private final Set<Long> failedBlockIds;
-  private final List<SortWriteBuffer<K, V>> waitSendBuffers = Lists.newLinkedList();
   private final String appId;
   private final ShuffleWriteClient shuffleWriteClient;
   private final long sendCheckTimeout;
@@ -86,6 +86,7 @@ public class SortWriteBufferManager<K, V> {
   private long maxSegmentSize;
   private final boolean isMemoryShuffleEnabled;
   private final int numMaps;
+  private final BlockIdLayout blockIdLayout;
   private long copyTime = 0;
   private long sortTime = 0;
   private final ExecutorService sendExecutorService = Executors.newFixedThreadPool(
@@ -116,6 +117,34 @@ public class SortWriteBufferManager<K, V> {
       long maxSegmentSize,
       int numMaps,
       boolean isMemoryShuffleEnabled) {
+    this(maxMemSize, taskAttemptId, batch, keySerializer, valSerializer, comparator, memoryThreshold,
+        appId, shuffleWriteClient, sendCheckInterval, sendCheckTimeout, partitionToServers, successBlockIds,
+        failedBlockIds, mapOutputByteCounter, mapOutputRecordCounter, bitmapSplitNum, maxSegmentSize,
+        numMaps, isMemoryShuffleEnabled, BlockIdLayout.DEFAULT);
+  }
+
+  public SortWriteBufferManager(
+      long maxMemSize,
+      long taskAttemptId,
+      int batch,
+      Serializer<K> keySerializer,
+      Serializer<V> valSerializer,
+      RawComparator<K> comparator,
+      double memoryThreshold,
+      String appId,
+      ShuffleWriteClient shuffleWriteClient,
+      long sendCheckInterval,
+      long sendCheckTimeout,
+      Map<Integer, List<ShuffleServerInfo>> partitionToServers,
+      Set<Long> successBlockIds,
+      Set<Long> failedBlockIds,
+      Counters.Counter mapOutputByteCounter,
+      Counters.Counter mapOutputRecordCounter,
+      int bitmapSplitNum,
+      long maxSegmentSize,
+      int numMaps,
+      boolean isMemoryShuffleEnabled,
+      BlockIdLayout blockIdLayout) {
     this.maxMemSize = maxMemSize;
     this.taskAttemptId = taskAttemptId;
     this.batch = batch;
@@ -136,6 +165,7 @@ public class SortWriteBufferManager<K, V> {
     this.maxSegmentSize = maxSegmentSize;
     this.numMaps = numMaps;
     this.isMemoryShuffleEnabled = isMemoryShuffleEnabled;
+    this.blockIdLayout = blockIdLayout;
   }
 
   // todo: Single Buffer should also have its size limit
@@ -149,23 +179,16 @@ public class SortWriteBufferManager<K, V> {
       memoryLock.unlock();;
     }
 
-    if (!buffers.containsKey(partitionId)) {
-      SortWriteBuffer<K, V> sortWriterBuffer = new SortWriteBuffer(partitionId, comparator, maxSegmentSize);
-      buffers.putIfAbsent(partitionId, sortWriterBuffer);
-      waitSendBuffers.add(sortWriterBuffer);
-    }
     SortWriteBuffer<K, V> buffer = buffers.get(partitionId);
-    keySerializer.open(buffer);
-    valSerializer.open(buffer);
-    long start = buffer.getDataLength();
-    valSerializer.serialize(value);
-    long end = buffer.getDataLength();
-    long keyLength = buffer.addRecord(key, start, end);
-    long length = end - start + keyLength;
+    if (buffer == null) {
+      buffer = new SortWriteBuffer<>(partitionId, comparator, maxSegmentSize, keySerializer, valSerializer);
+      buffers.put(partitionId, buffer);
+    }
+    int length = buffer.addRecord(key, value);
     if (length > maxMemSize) {
       throw new RssException("record is too big");
     }
-    memoryUsedSize.addAndGet(length);
+    memoryUsedSize.addAndGet(length + SortWriteBuffer.RECORD_META_SIZE);
     if (memoryUsedSize.get() > maxMemSize * memoryThreshold) {
       sendBuffersToServers();
     }
@@ -175,28 +198,23 @@ public class SortWriteBufferManager<K, V> {
 
   // Only for test
   void sendBuffersToServers() {
-    waitSendBuffers.sort(new Comparator<SortWriteBuffer<K, V>>() {
-      @Override
-      public int compare(SortWriteBuffer<K, V> o1, SortWriteBuffer<K, V> o2) {
-        return o1.getDataLength() - o2.getDataLength();
-      }
-    });
-    int sendSize = batch;
-    if (batch > waitSendBuffers.size()) {
-      sendSize = waitSendBuffers.size();
+    if (buffers.isEmpty()) {
+      return;
     }
-    List<SortWriteBuffer<K, V>> selectBuffers = Lists.newArrayList();
-    Iterator<SortWriteBuffer<K, V>> iterator = waitSendBuffers.iterator();
-    int index = 0;
-    while (iterator.hasNext() && index < sendSize) {
-      selectBuffers.add(iterator.next());
-      iterator.remove();
-      index++;
+    // select the largest buffers by a min heap of the batch size, they release the most memory
+    int sendSize = Math.min(batch, buffers.size());
+    PriorityQueue<SortWriteBuffer<K, V>> selectBuffers = new PriorityQueue<>(sendSize + 1,
+        (o1, o2) -> Integer.compare(o1.getDataLength(), o2.getDataLength()));
+    for (SortWriteBuffer<K, V> buffer : buffers.values()) {
+      selectBuffers.offer(buffer);
+      if (selectBuffers.size() > sendSize) {
+        selectBuffers.poll();
+      }
     }
     List<ShuffleBlockInfo> shuffleBlocks = Lists.newArrayList();
-    long keyLength = 0;
-    for (SortWriteBuffer buffer : selectBuffers) {
-      keyLength += buffer.getTotalKeyLength();
+    long metaLength = 0;
+    for (SortWriteBuffer<K, V> buffer : selectBuffers) {
+      metaLength += (long) buffer.getRecordNum() * SortWriteBuffer.RECORD_META_SIZE;
       buffers.remove(buffer.getPartitionId());
       ShuffleBlockInfo block = createShuffleBlock(buffer);
       shuffleBlocks.add(block);
@@ -206,7 +224,7 @@ public class SortWriteBufferManager<K, V> {
       }
       partitionToBlocks.get(block.getPartitionId()).add(block.getBlockId());
     }
-    long finalKeyLength = keyLength;
+    long finalMetaLength = metaLength;
     sendExecutorService.submit(new Runnable() {
       @Override
       public void run() {
@@ -225,7 +243,7 @@ public class SortWriteBufferManager<K, V> {
           try {
             memoryLock.lock();
             memoryUsedSize.addAndGet(-size);
-            memoryUsedSize.addAndGet(-finalKeyLength);
+            memoryUsedSize.addAndGet(-finalMetaLength);
             inSendListBytes.addAndGet(-size);
             full.signalAll();
           } finally {
@@ -237,7 +255,7 @@ public class SortWriteBufferManager<K, V> {
   }
 
   public void waitSendFinished() {
-    while (!waitSendBuffers.isEmpty()) {
+    while (!buffers.isEmpty()) {
       sendBuffersToServers();
     }
     long start = System.currentTimeMillis();
@@ -276,6 +294,7 @@ public class SortWriteBufferManager<K, V> {
     start = System.currentTimeMillis();
     shuffleWriteClient.reportShuffleResult(partitionToServers, appId, 0,
         taskAttemptId, partitionToBlocks, bitmapSplitNum);
+    isResultReported = true;
     LOG.info("Report shuffle result for task[{}] with bitmapNum[{}] cost {} ms",
         taskAttemptId, bitmapSplitNum, (System.currentTimeMillis() - start));
     LOG.info("Task uncompressed data length {} compress time cost {}, commit time cost {},"
@@ -294,7 +313,7 @@ public class SortWriteBufferManager<K, V> {
     final byte[] compressed = RssShuffleUtils.compressData(data);
     final long crc32 = ChecksumUtils.getCrc32(compressed);
     compressTime += System.currentTimeMillis() - start;
-    final long blockId = ClientUtils.getBlockId(partitionId, taskAttemptId, getNextSeqNo(partitionId));
+    final long blockId = ClientUtils.getBlockId(blockIdLayout, partitionId, taskAttemptId, getNextSeqNo(partitionId));
     uncompressedDataLen += data.length;
     // add memory to indicate bytes which will be sent to shuffle server
     inSendListBytes.addAndGet(wb.getDataLength());
@@ -345,5 +364,9 @@ public class SortWriteBufferManager<K, V> {
 
   public void freeAllResources() {
     sendExecutorService.shutdownNow();
+    if (!isResultReported) {
+      // the attempt is failed or killed before its result is reported, its blocks won't be read
+      shuffleWriteClient.abortTaskAttempt(partitionToServers, appId, 0, taskAttemptId);
+    }
   }
 }
@@ -52,12 +52,34 @@ public class RssMRConfig {
   public static final String RSS_CLIENT_MAX_SEGMENT_SIZE = "mapreduce.rss.client.max.buffer.size";
   public static final long RSS_CLIENT_DEFAULT_MAX_SEGMENT_SIZE = 3 * 1024;
   public static final String RSS_STORAGE_TYPE = "mapreduce.rss.storage.type";
+  // the layout of blockId for the job, the sum of the bits should be 63,
+  // it is fitted to the number of maps and reduces by app master if they are not set
+  public static final String RSS_CLIENT_BLOCKID_SEQUENCE_NO_BITS = "mapreduce.rss.client.blockId.sequenceNo.bits";
+  public static final String RSS_CLIENT_BLOCKID_PARTITION_ID_BITS = "mapreduce.rss.client.blockId.partitionId.bits";
+  public static final String RSS_CLIENT_BLOCKID_TASK_ATTEMPT_ID_BITS =
+      "mapreduce.rss.client.blockId.taskAttemptId.bits";
 
   public static final String RSS_PARTITION_NUM_PER_RANGE = "mapreduce.rss.partitionNum.per.range";
   public static final int RSS_PARTITION_NUM_PER_RANGE_DEFAULT_VALUE = 1;
   public static final String RSS_BASE_PATH = "mapreduce.rss.remote.storage.path";
   public static final String RSS_INDEX_READ_LIMIT = "mapreduce.rss.index.read.limit";
   public static final int RSS_INDEX_READ_LIMIT_DEFAULT_VALUE = 500;
+  // number of threads to decompress the fetched blocks of a reducer, the blocks are committed to merger in order
+  public static final String RSS_CLIENT_FETCH_DECOMPRESS_PARALLELISM =
+      "mapreduce.rss.client.fetch.decompress.parallelism";
+  public static final int RSS_CLIENT_FETCH_DECOMPRESS_PARALLELISM_DEFAULT_VALUE = 4;
+  // max uncompressed size of the blocks which are being decompressed or waiting to be committed
+  public static final String RSS_CLIENT_FETCH_MAX_INFLIGHT_SIZE = "mapreduce.rss.client.fetch.max.inflight.size";
+  public static final long RSS_CLIENT_FETCH_MAX_INFLIGHT_SIZE_DEFAULT_VALUE = 64L * 1024 * 1024;
+  // keep the slow start of reducers, they fetch the outputs of completed maps incrementally while maps are running
+  public static final String RSS_REDUCE_SLOW_START_ENABLED = "mapreduce.rss.reduce.slowstart.enabled";
+  public static final boolean RSS_REDUCE_SLOW_START_ENABLED_DEFAULT_VALUE = false;
+  public static final String RSS_REDUCE_SLOW_START_POLL_INTERVAL_MS = "mapreduce.rss.reduce.slowstart.poll.interval.ms";
+  public static final long RSS_REDUCE_SLOW_START_POLL_INTERVAL_MS_DEFAULT_VALUE = 2000;
+  // the fetch is started after the outputs of this ratio of maps are ready, so a partition isn't read too many times
+  public static final String RSS_REDUCE_SLOW_START_FETCH_BATCH_RATIO =
+      "mapreduce.rss.reduce.slowstart.fetch.batch.ratio";
+  public static final float RSS_REDUCE_SLOW_START_FETCH_BATCH_RATIO_DEFAULT_VALUE = 0.1f;
   public static String RSS_CLIENT_READ_BUFFER_SIZE = "mapreduce.rss.client.read.buffer.size";
   // When the size of read buffer reaches the half of JVM region (i.e., 32m),
   // it will incur humongous allocation, so we set it to 14m.
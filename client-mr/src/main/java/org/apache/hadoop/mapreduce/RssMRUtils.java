@@ -31,6 +31,8 @@ import com.tencent.rss.client.api.ShuffleWriteClient;
 import com.tencent.rss.client.factory.ShuffleClientFactory;
 import com.tencent.rss.common.ShuffleServerInfo;
 import com.tencent.rss.common.exception.RssException;
+import com.tencent.rss.common.util.BlockIdLayout;
+import com.tencent.rss.common.util.Constants;
 
 public class RssMRUtils {
 
@@ -48,6 +50,49 @@ public class RssMRUtils {
     return new TaskAttemptID(taskID, (int)(rssTaskAttemptId >> 32));
   }
 
+  // Encode TaskAttemptId as attemptId * numMaps + mapId, so the value is dense and
+  // fits in the taskAttemptId bits of blockId layout.
+  public static long convertTaskAttemptIdToLong(TaskAttemptID taskAttemptID, int numMaps,
+                                                BlockIdLayout blockIdLayout) {
+    int mapId = taskAttemptID.getTaskID().getId();
+    if (mapId < 0 || mapId >= numMaps) {
+      throw new RssException("TaskAttemptId " + taskAttemptID + " has mapId[" + mapId
+          + "] out of the number of maps[" + numMaps + "]");
+    }
+    if (taskAttemptID.getId() < 0) {
+      throw new RssException("TaskAttemptId " + taskAttemptID + " has invalid attemptId["
+          + taskAttemptID.getId() + "]");
+    }
+    long rssTaskAttemptId = (long)taskAttemptID.getId() * numMaps + mapId;
+    // the taskAttemptId would overlap the partitionId bits of blockId, e.g. the attempt ids are
+    // increased by the restart of app master, fail the task instead of writing wrong blockIds
+    if (rssTaskAttemptId > blockIdLayout.getMaxTaskAttemptId()) {
+      throw new RssException("TaskAttemptId " + taskAttemptID + " is converted to " + rssTaskAttemptId
+          + " which exceeds the max value " + blockIdLayout.getMaxTaskAttemptId() + " of " + blockIdLayout
+          + ", set more bits by " + RssMRConfig.RSS_CLIENT_BLOCKID_TASK_ATTEMPT_ID_BITS);
+    }
+    return rssTaskAttemptId;
+  }
+
+  public static TaskAttemptID createMRTaskAttemptId(JobID jobID, TaskType taskType,
+                                                    long rssTaskAttemptId, int numMaps) {
+    TaskID taskID = new TaskID(jobID, taskType, (int)(rssTaskAttemptId % numMaps));
+    return new TaskAttemptID(taskID, (int)(rssTaskAttemptId / numMaps));
+  }
+
+  public static BlockIdLayout getBlockIdLayout(JobConf jobConf) {
+    return BlockIdLayout.from(
+        jobConf.getInt(RssMRConfig.RSS_CLIENT_BLOCKID_SEQUENCE_NO_BITS, Constants.ATOMIC_INT_MAX_LENGTH),
+        jobConf.getInt(RssMRConfig.RSS_CLIENT_BLOCKID_PARTITION_ID_BITS, Constants.PARTITION_ID_MAX_LENGTH),
+        jobConf.getInt(RssMRConfig.RSS_CLIENT_BLOCKID_TASK_ATTEMPT_ID_BITS, Constants.TASK_ATTEMPT_ID_MAX_LENGTH));
+  }
+
+  public static void setBlockIdLayout(JobConf jobConf, BlockIdLayout blockIdLayout) {
+    jobConf.setInt(RssMRConfig.RSS_CLIENT_BLOCKID_SEQUENCE_NO_BITS, blockIdLayout.getSequenceNoBits());
+    jobConf.setInt(RssMRConfig.RSS_CLIENT_BLOCKID_PARTITION_ID_BITS, blockIdLayout.getPartitionIdBits());
+    jobConf.setInt(RssMRConfig.RSS_CLIENT_BLOCKID_TASK_ATTEMPT_ID_BITS, blockIdLayout.getTaskAttemptIdBits());
+  }
+
   public static ShuffleWriteClient createShuffleClient(JobConf jobConf) {
     int heartBeatThreadNum = jobConf.getInt(RssMRConfig.RSS_CLIENT_HEARTBEAT_THREAD_NUM,
         RssMRConfig.RSS_CLIENT_HEARTBEAT_THREAD_NUM_DEFAULT_VALUE);
@@ -21,11 +21,13 @@ package org.apache.hadoop.mapreduce.task.reduce;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.io.IOUtils;
 
+import com.tencent.rss.common.RssShuffleUtils;
 import com.tencent.rss.common.exception.RssException;
 
 // In MR shuffle, MapOutput encapsulates the logic to fetch map task's output data via http.
@@ -48,6 +50,18 @@ public class RssBypassWriter {
     }
   }
 
+  // Decompress the block to MapOutput, in-memory output is decompressed to its buffer without a copy.
+  public static void write(MapOutput mapOutput, ByteBuffer compressedData, int uncompressLength) {
+    if (mapOutput instanceof InMemoryMapOutput) {
+      byte[] memory = ((InMemoryMapOutput) mapOutput).getMemory();
+      RssShuffleUtils.decompressData(compressedData, memory, uncompressLength);
+    } else {
+      byte[] buffer = new byte[uncompressLength];
+      RssShuffleUtils.decompressData(compressedData, buffer, uncompressLength);
+      write(mapOutput, buffer);
+    }
+  }
+
   private static void write(InMemoryMapOutput inMemoryMapOutput, byte[] buffer) {
     byte[] memory = inMemoryMapOutput.getMemory();
     System.arraycopy(buffer, 0, memory, 0, buffer.length);
@@ -33,6 +33,7 @@ import org.apache.hadoop.mapreduce.TaskAttemptID;
 import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
 import com.tencent.rss.common.exception.RssException;
+import com.tencent.rss.common.util.BlockIdLayout;
 
 public class RssEventFetcher<K,V> {
   private static final Log LOG = LogFactory.getLog(RssEventFetcher.class);
@@ -45,8 +46,12 @@ public class RssEventFetcher<K,V> {
 
   private Set<TaskAttemptID> successMaps = new HashSet<TaskAttemptID>();
   private Set<TaskAttemptID> obsoleteMaps = new HashSet<TaskAttemptID>();
+  // the maps whose rss taskIds have been returned by fetchNewRssTaskIds
+  private Set<TaskAttemptID> fetchedMaps = new HashSet<TaskAttemptID>();
+  private Set<Integer> fetchedMapIndexes = new HashSet<Integer>();
   private int tipFailedCount = 0;
   private final int totalMapsCount;
+  private final BlockIdLayout blockIdLayout;
 
   public RssEventFetcher(TaskAttemptID reduce,
                          TaskUmbilicalProtocol umbilical,
@@ -54,6 +59,7 @@ public class RssEventFetcher<K,V> {
                          int maxEventsToFetch) {
     this.jobConf = jobConf;
     this.totalMapsCount = jobConf.getNumMapTasks();
+    this.blockIdLayout = RssMRUtils.getBlockIdLayout(jobConf);
     this.reduce = reduce;
     this.umbilical = umbilical;
     this.maxEventsToFetch = maxEventsToFetch;
@@ -73,14 +79,14 @@ public class RssEventFetcher<K,V> {
     String errMsg = "TaskAttemptIDs are inconsistent with map tasks";
     for (TaskAttemptID taskAttemptID: successMaps) {
       if (!obsoleteMaps.contains(taskAttemptID)) {
-        long rssTaskId = RssMRUtils.convertTaskAttemptIdToLong(taskAttemptID);
-        taskIdBitmap.addLong(rssTaskId);
         int mapIndex = taskAttemptID.getTaskID().getId();
         if (mapIndex < totalMapsCount) {
           mapIndexBitmap.addLong(mapIndex);
         } else {
           throw new IllegalStateException(errMsg);
         }
+        long rssTaskId = RssMRUtils.convertTaskAttemptIdToLong(taskAttemptID, totalMapsCount, blockIdLayout);
+        taskIdBitmap.addLong(rssTaskId);
       }
     }
     // each map should have only one success attempt
@@ -93,6 +99,53 @@ public class RssEventFetcher<K,V> {
     return taskIdBitmap;
   }
 
+  // Used when slow start is enabled, it polls the completion events and returns the rss taskIds
+  // of the maps which succeed since the last call. The outputs of fetched maps are merged already,
+  // so the reduce attempt fails if any of them becomes obsolete.
+  public Roaring64NavigableMap fetchNewRssTaskIds() {
+    try {
+      acceptMapCompletionEvents();
+    } catch (Exception e) {
+      throw new RssException("Reduce: " + reduce
+        + " fails to accept completion events due to: "
+        + e.getMessage());
+    }
+
+    for (TaskAttemptID taskAttemptID : obsoleteMaps) {
+      if (fetchedMaps.contains(taskAttemptID)) {
+        throw new RssException("Reduce: " + reduce
+          + " has fetched the output of obsolete map: " + taskAttemptID);
+      }
+    }
+
+    Roaring64NavigableMap taskIdBitmap = Roaring64NavigableMap.bitmapOf();
+    String errMsg = "TaskAttemptIDs are inconsistent with map tasks";
+    for (TaskAttemptID taskAttemptID : successMaps) {
+      if (obsoleteMaps.contains(taskAttemptID) || fetchedMaps.contains(taskAttemptID)) {
+        continue;
+      }
+      int mapIndex = taskAttemptID.getTaskID().getId();
+      // each map should have only one success attempt
+      if (mapIndex >= totalMapsCount || !fetchedMapIndexes.add(mapIndex)) {
+        throw new IllegalStateException(errMsg);
+      }
+      fetchedMaps.add(taskAttemptID);
+      taskIdBitmap.addLong(RssMRUtils.convertTaskAttemptIdToLong(taskAttemptID, totalMapsCount, blockIdLayout));
+    }
+    return taskIdBitmap;
+  }
+
+  // whether all maps succeed or fail according to the accepted completion events
+  public boolean isAllMapsCompleted() {
+    Set<Integer> succeededMapIndexes = new HashSet<Integer>();
+    for (TaskAttemptID taskAttemptID : successMaps) {
+      if (!obsoleteMaps.contains(taskAttemptID)) {
+        succeededMapIndexes.add(taskAttemptID.getTaskID().getId());
+      }
+    }
+    return succeededMapIndexes.size() + tipFailedCount >= totalMapsCount;
+  }
+
   public void resolve(TaskCompletionEvent event) {
     // Process the TaskCompletionEvents:
     // 1. Save the SUCCEEDED maps in knownOutputs to fetch the outputs.
@@ -125,7 +178,8 @@ public class RssEventFetcher<K,V> {
     }
   }
 
-  // Since slow start is disabled, the reducer can get all completed maps
+  // Since slow start is disabled, the reducer can get all completed maps,
+  // otherwise it gets the maps completed so far
   public void acceptMapCompletionEvents() throws IOException {
 
     TaskCompletionEvent[] events = null;
@@ -19,16 +19,24 @@
 package org.apache.hadoop.mapreduce.task.reduce;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.text.DecimalFormat;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.mapred.Counters;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.Reporter;
 import org.apache.hadoop.mapred.TaskStatus;
+import org.apache.hadoop.mapreduce.RssMRConfig;
 import org.apache.hadoop.mapreduce.TaskAttemptID;
 import org.apache.hadoop.mapreduce.TaskID;
 import org.apache.hadoop.mapreduce.TaskType;
@@ -36,7 +44,6 @@ import org.apache.hadoop.util.Progress;
 
 import com.tencent.rss.client.api.ShuffleReadClient;
 import com.tencent.rss.client.response.CompressedShuffleBlock;
-import com.tencent.rss.common.RssShuffleUtils;
 import com.tencent.rss.common.exception.RssException;
 import com.tencent.rss.common.util.ByteUnit;
 
@@ -73,13 +80,26 @@ public class RssFetcher<K,V> {
 
   private ShuffleReadClient shuffleReadClient;
   private long readTime = 0;
-  private long decompressTime = 0;
+  // decompression is done by multiple threads, it's the sum of their time
+  private final AtomicLong decompressTime = new AtomicLong(0);
   private long serializeTime = 0;
   private long copyTime = 0;  // the sum of readTime + decompressTime + serializeTime
   private long unCompressionLength = 0;
   private final TaskAttemptID reduceId;
   private int uniqueMapId = 0;
 
+  // blocks are read by the fetcher thread, decompressed by multiple threads to their MapOutput,
+  // and committed to merger in the order of read
+  private final int decompressParallelism;
+  // at most decompressParallelism blocks are pending, so the threads of the pool are bounded
+  private final ExecutorService decompressExecutor;
+  private final long maxInflightSize;
+  private final Deque<PendingBlock<K, V>> pendingBlocks = new ArrayDeque<>();
+  private long inflightSize = 0;
+  // the block which is read but can't get a MapOutput from merger yet
+  private CompressedShuffleBlock waitingBlock;
+  private boolean readFinished = false;
+
   RssFetcher(JobConf job, TaskAttemptID reduceId,
              TaskStatus status,
              MergeManager<K,V> merger,
@@ -87,6 +107,18 @@ public class RssFetcher<K,V> {
              Reporter reporter, ShuffleClientMetrics metrics,
              ShuffleReadClient shuffleReadClient,
              long totalBlockCount) {
+    this(job, reduceId, status, merger, progress, reporter, metrics, shuffleReadClient, totalBlockCount, 0);
+  }
+
+  // the fetchers of a reducer share the merger, firstUniqueMapId makes the ids of their faked map outputs unique
+  RssFetcher(JobConf job, TaskAttemptID reduceId,
+             TaskStatus status,
+             MergeManager<K,V> merger,
+             Progress progress,
+             Reporter reporter, ShuffleClientMetrics metrics,
+             ShuffleReadClient shuffleReadClient,
+             long totalBlockCount,
+             int firstUniqueMapId) {
     this.jobConf = job;
     this.reporter = reporter;
     this.status = status;
@@ -109,55 +141,56 @@ public class RssFetcher<K,V> {
 
     this.shuffleReadClient = shuffleReadClient;
     this.totalBlockCount = totalBlockCount;
+    this.uniqueMapId = firstUniqueMapId;
+    this.decompressParallelism = Math.max(1, job.getInt(RssMRConfig.RSS_CLIENT_FETCH_DECOMPRESS_PARALLELISM,
+        RssMRConfig.RSS_CLIENT_FETCH_DECOMPRESS_PARALLELISM_DEFAULT_VALUE));
+    this.decompressExecutor = Executors.newFixedThreadPool(decompressParallelism,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("rss-fetcher-decompress-%d").build());
+    this.maxInflightSize = job.getLong(RssMRConfig.RSS_CLIENT_FETCH_MAX_INFLIGHT_SIZE,
+        RssMRConfig.RSS_CLIENT_FETCH_MAX_INFLIGHT_SIZE_DEFAULT_VALUE);
   }
 
   public void fetchAllRssBlocks() throws IOException, InterruptedException {
-    while (!stopped) {
-      try {
-        // If merge is on, block
-        merger.waitForResource();
-        // Do shuffle
-        metrics.threadBusy();
-        copyFromRssServer();
-      } catch (Exception e) {
-        throw e;
-      } finally {
-        metrics.threadFree();
+    try {
+      while (!stopped) {
+        try {
+          // If merge is on, block
+          merger.waitForResource();
+          // Do shuffle
+          metrics.threadBusy();
+          copyFromRssServer();
+        } finally {
+          metrics.threadFree();
+        }
       }
+    } finally {
+      abortPendingBlocks();
+      decompressExecutor.shutdownNow();
     }
   }
 
   @VisibleForTesting
   public void copyFromRssServer() throws IOException {
-    // fetch a block
-    final long startFetch = System.currentTimeMillis();
-    CompressedShuffleBlock compressedBlock = shuffleReadClient.readShuffleBlockData();
-    ByteBuffer compressedData = null;
-    if (compressedBlock != null) {
-      compressedData = compressedBlock.getByteBuffer();
-    }
-    long fetchDuration = System.currentTimeMillis() - startFetch;
-    readTime += fetchDuration;
-
-    // uncompress the block
-    if (compressedData != null) {
-      final long startDecompress = System.currentTimeMillis();
-      byte[] uncompressedData = RssShuffleUtils.decompressData(
-        compressedData.array(), compressedBlock.getUncompressLength());
-      unCompressionLength += compressedBlock.getUncompressLength();
-      long decompressDuration = System.currentTimeMillis() - startDecompress;
-      decompressTime += decompressDuration;
+    // read blocks and submit them to decompress until the pipeline is full
+    while (!readFinished && pendingBlocks.size() < decompressParallelism && inflightSize < maxInflightSize) {
+      if (waitingBlock == null) {
+        final long startFetch = System.currentTimeMillis();
+        waitingBlock = shuffleReadClient.readShuffleBlockData();
+        readTime += System.currentTimeMillis() - startFetch;
+        if (waitingBlock == null) {
+          readFinished = true;
+          break;
+        }
+      }
 
       // Allocate a MapOutput (either in-memory or on-disk) to put uncompressed block
       // In Rss, a MapOutput is sent as multiple blocks, so the reducer needs to
       // treat each "block" as a faked "mapout".
       // To avoid name conflicts, we use getNextUniqueTaskAttemptID instead.
       // It will generate a unique TaskAttemptID(increased_seq++, 0).
-      final long startSerialization = System.currentTimeMillis();
-      TaskAttemptID mapId = getNextUniqueTaskAttemptID();
       MapOutput<K, V> mapOutput = null;
       try {
-        mapOutput = merger.reserve(mapId, compressedBlock.getUncompressLength(), 0);
+        mapOutput = merger.reserve(getNextUniqueTaskAttemptID(), waitingBlock.getUncompressLength(), 0);
       } catch (IOException ioe) {
         // kill this reduce attempt
         ioErrs.increment(1);
@@ -165,35 +198,23 @@ public class RssFetcher<K,V> {
       }
       // Check if we can shuffle *now* ...
       if (mapOutput == null) {
-        LOG.info("RssMRFetcher" + " - MergeManager returned status WAIT ...");
-        //Not an error but wait to process data.
-        return;
-      }
-
-      // write data to mapOutput
-      try {
-        RssBypassWriter.write(mapOutput, uncompressedData);
-        // let the merger knows this block is ready for merging
-        mapOutput.commit();
-        if (mapOutput instanceof OnDiskMapOutput) {
-          LOG.info("Reduce: " + reduceId + " allocates disk to accept block "
-            + " with byte sizes: " + uncompressedData.length);
+        uniqueMapId--;
+        if (pendingBlocks.isEmpty()) {
+          LOG.info("RssMRFetcher" + " - MergeManager returned status WAIT ...");
+          //Not an error but wait to process data.
+          return;
         }
-      } catch (Throwable t) {
-        ioErrs.increment(1);
-        mapOutput.abort();
-        throw new RssException("Reduce: " + reduceId + " cannot write block to "
-          + mapOutput.getClass().getSimpleName() + " due to: " + t.getClass().getName());
+        // commit the pending blocks to release the memory
+        break;
       }
-      long serializationDuration = System.currentTimeMillis() - startSerialization;
-      serializeTime += serializationDuration;
-
-      // update some status
-      copyBlockCount++;
-      copyTime += readTime + decompressTime + serializeTime;
-      updateStatus();
-      reporter.progress();
-    } else {
+      pendingBlocks.add(decompress(waitingBlock, mapOutput));
+      inflightSize += waitingBlock.getUncompressLength();
+      waitingBlock = null;
+    }
+
+    if (!pendingBlocks.isEmpty()) {
+      commit(pendingBlocks.poll());
+    } else if (readFinished) {
       // finish reading data, close related reader and check data consistent
       shuffleReadClient.close();
       shuffleReadClient.checkProcessedBlockIds();
@@ -206,6 +227,69 @@ public class RssFetcher<K,V> {
     }
   }
 
+  private PendingBlock<K, V> decompress(CompressedShuffleBlock compressedBlock, MapOutput<K, V> mapOutput) {
+    Future<?> future = decompressExecutor.submit(() -> {
+      final long startDecompress = System.currentTimeMillis();
+      RssBypassWriter.write(mapOutput, compressedBlock.getByteBuffer(), compressedBlock.getUncompressLength());
+      decompressTime.addAndGet(System.currentTimeMillis() - startDecompress);
+      return null;
+    });
+    return new PendingBlock<>(mapOutput, compressedBlock.getUncompressLength(), future);
+  }
+
+  private void commit(PendingBlock<K, V> pendingBlock) throws IOException {
+    MapOutput<K, V> mapOutput = pendingBlock.mapOutput;
+    final long startSerialization = System.currentTimeMillis();
+    try {
+      pendingBlock.future.get();
+      // let the merger knows this block is ready for merging
+      mapOutput.commit();
+      if (mapOutput instanceof OnDiskMapOutput) {
+        LOG.info("Reduce: " + reduceId + " allocates disk to accept block "
+          + " with byte sizes: " + pendingBlock.uncompressLength);
+      }
+    } catch (Throwable t) {
+      ioErrs.increment(1);
+      mapOutput.abort();
+      Throwable cause = t instanceof ExecutionException ? t.getCause() : t;
+      if (t instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      throw new RssException("Reduce: " + reduceId + " cannot write block to "
+        + mapOutput.getClass().getSimpleName() + " due to: " + cause.getClass().getName());
+    } finally {
+      inflightSize -= pendingBlock.uncompressLength;
+    }
+    long serializationDuration = System.currentTimeMillis() - startSerialization;
+    serializeTime += serializationDuration;
+    unCompressionLength += pendingBlock.uncompressLength;
+
+    // update some status
+    copyBlockCount++;
+    copyTime = readTime + decompressTime.get() + serializeTime;
+    updateStatus();
+    reporter.progress();
+  }
+
+  // the blocks which aren't committed are aborted when the fetcher fails
+  private void abortPendingBlocks() {
+    PendingBlock<K, V> pendingBlock;
+    while ((pendingBlock = pendingBlocks.poll()) != null) {
+      try {
+        pendingBlock.future.get();
+      } catch (Exception e) {
+        LOG.warn("Failed to decompress block of " + pendingBlock.mapOutput.getMapId(), e);
+      }
+      pendingBlock.mapOutput.abort();
+      inflightSize -= pendingBlock.uncompressLength;
+    }
+  }
+
+  @VisibleForTesting
+  ExecutorService getDecompressExecutor() {
+    return decompressExecutor;
+  }
+
   private TaskAttemptID getNextUniqueTaskAttemptID() {
     TaskID taskID = new TaskID(reduceId.getJobID(), TaskType.MAP, uniqueMapId++);
     return new TaskAttemptID(taskID, 0);
@@ -226,4 +310,16 @@ public class RssFetcher<K,V> {
       + mbpsFormat.format(transferRate) + " MB/s)");
   }
 
+  private static class PendingBlock<K, V> {
+
+    private final MapOutput<K, V> mapOutput;
+    private final int uncompressLength;
+    private final Future<?> future;
+
+    PendingBlock(MapOutput<K, V> mapOutput, int uncompressLength, Future<?> future) {
+      this.mapOutput = mapOutput;
+      this.uncompressLength = uncompressLength;
+      this.future = future;
+    }
+  }
 }
@@ -20,6 +20,7 @@ package org.apache.hadoop.mapreduce.task.reduce;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -78,6 +79,12 @@ public class RssShuffle<K, V> implements ShuffleConsumerPlugin<K, V>, ExceptionR
   private int indexReadLimit;
   private int readBufferSize;
 
+  private boolean slowStartEnabled;
+  private long slowStartPollIntervalMs;
+  private float slowStartFetchBatchRatio;
+  // the number of blocks fetched by the previous fetchers
+  private long fetchedBlockNum = 0;
+
   @Override
   public void init(ShuffleConsumerPlugin.Context context) {
     // mapreduce's builtin init
@@ -112,6 +119,12 @@ public class RssShuffle<K, V> implements ShuffleConsumerPlugin<K, V>, ExceptionR
     this.readBufferSize = (int)UnitConverter.byteStringAsBytes(
       jobConf.get(RssMRConfig.RSS_CLIENT_READ_BUFFER_SIZE,
         RssMRConfig.RSS_CLIENT_READ_BUFFER_SIZE_DEFAULT_VALUE));
+    this.slowStartEnabled = jobConf.getBoolean(RssMRConfig.RSS_REDUCE_SLOW_START_ENABLED,
+      RssMRConfig.RSS_REDUCE_SLOW_START_ENABLED_DEFAULT_VALUE);
+    this.slowStartPollIntervalMs = jobConf.getLong(RssMRConfig.RSS_REDUCE_SLOW_START_POLL_INTERVAL_MS,
+      RssMRConfig.RSS_REDUCE_SLOW_START_POLL_INTERVAL_MS_DEFAULT_VALUE);
+    this.slowStartFetchBatchRatio = jobConf.getFloat(RssMRConfig.RSS_REDUCE_SLOW_START_FETCH_BATCH_RATIO,
+      RssMRConfig.RSS_REDUCE_SLOW_START_FETCH_BATCH_RATIO_DEFAULT_VALUE);
    }
 
   protected MergeManager<K, V> createMergeManager(
@@ -136,33 +149,28 @@ public class RssShuffle<K, V> implements ShuffleConsumerPlugin<K, V>, ExceptionR
       serverInfoList.add(server);
     }
 
-    // just get blockIds from RSS servers
-    ShuffleWriteClient writeClient = RssMRUtils.createShuffleClient(jobConf);
-    Roaring64NavigableMap blockIdBitmap = writeClient.getShuffleResult(
-      clientType, serverInfoSet, appId, 0, reduceId.getTaskID().getId());
-    writeClient.close();
-
     // get map-completion events to generate RSS taskIDs
     final RssEventFetcher<K,V> eventFetcher =
       new RssEventFetcher<K,V>(reduceId, umbilical, jobConf, MAX_EVENTS_TO_FETCH);
-    Roaring64NavigableMap taskIdBitmap = eventFetcher.fetchAllRssTaskIds();
 
-    LOG.info("In reduce: " + reduceId
-      + ", RSS MR client has fetched blockIds and taskIds successfully");
+    if (slowStartEnabled) {
+      fetchIncrementally(eventFetcher, serverInfoSet, serverInfoList);
+    } else {
+      // just get blockIds from RSS servers
+      ShuffleWriteClient writeClient = RssMRUtils.createShuffleClient(jobConf);
+      Roaring64NavigableMap blockIdBitmap = writeClient.getShuffleResult(
+        clientType, serverInfoSet, appId, 0, reduceId.getTaskID().getId());
+      writeClient.close();
+
+      Roaring64NavigableMap taskIdBitmap = eventFetcher.fetchAllRssTaskIds();
 
-    // start fetcher to fetch blocks from RSS servers
-    if (!taskIdBitmap.isEmpty()) {
-      LOG.info("In reduce: " + reduceId
-        + ", Rss MR client starts to fetch blocks from RSS server");
-      CreateShuffleReadClientRequest request = new CreateShuffleReadClientRequest(
-        appId, 0, reduceId.getTaskID().getId(), storageType, basePath, indexReadLimit, readBufferSize,
-        partitionNumPerRange, partitionNum, blockIdBitmap, taskIdBitmap, serverInfoList, jobConf);
-      ShuffleReadClient shuffleReadClient = ShuffleClientFactory.getInstance().createShuffleReadClient(request);
-      RssFetcher fetcher = new RssFetcher(jobConf, reduceId, taskStatus, merger, copyPhase, reporter, metrics,
-        shuffleReadClient, blockIdBitmap.getLongCardinality());
-      fetcher.fetchAllRssBlocks();
       LOG.info("In reduce: " + reduceId
-        + ", Rss MR client fetches blocks from RSS server successfully");
+        + ", RSS MR client has fetched blockIds and taskIds successfully");
+
+      // start fetcher to fetch blocks from RSS servers
+      if (!taskIdBitmap.isEmpty()) {
+        fetchBlocks(serverInfoList, blockIdBitmap, taskIdBitmap);
+      }
     }
 
     copyPhase.complete();
@@ -191,6 +199,57 @@ public class RssShuffle<K, V> implements ShuffleConsumerPlugin<K, V>, ExceptionR
     return kvIter;
   }
 
+  // Fetch the outputs of the maps completed so far while the other maps are running,
+  // the blockIds of a map are reported to RSS servers before it succeeds.
+  private void fetchIncrementally(RssEventFetcher<K, V> eventFetcher, Set<ShuffleServerInfo> serverInfoSet,
+      List<ShuffleServerInfo> serverInfoList) throws IOException, InterruptedException {
+    long fetchBatchMaps = Math.max(1, (long) Math.ceil(jobConf.getNumMapTasks() * slowStartFetchBatchRatio));
+    Roaring64NavigableMap pendingTaskIdBitmap = Roaring64NavigableMap.bitmapOf();
+    ShuffleWriteClient writeClient = RssMRUtils.createShuffleClient(jobConf);
+    try {
+      while (true) {
+        pendingTaskIdBitmap.or(eventFetcher.fetchNewRssTaskIds());
+        boolean allMapsCompleted = eventFetcher.isAllMapsCompleted();
+        if (!pendingTaskIdBitmap.isEmpty()
+            && (allMapsCompleted || pendingTaskIdBitmap.getLongCardinality() >= fetchBatchMaps)) {
+          Roaring64NavigableMap blockIdBitmap = writeClient.getShuffleResult(
+            clientType, serverInfoSet, appId, 0, reduceId.getTaskID().getId(), pendingTaskIdBitmap);
+          LOG.info("In reduce: " + reduceId + ", RSS MR client has fetched " + blockIdBitmap.getLongCardinality()
+            + " blockIds of " + pendingTaskIdBitmap.getLongCardinality() + " completed maps");
+          if (!blockIdBitmap.isEmpty()) {
+            fetchBlocks(serverInfoList, blockIdBitmap, pendingTaskIdBitmap);
+          }
+          pendingTaskIdBitmap = Roaring64NavigableMap.bitmapOf();
+        }
+        if (allMapsCompleted) {
+          break;
+        }
+        // report progress to avoid the reduce attempt is timeout while waiting for maps
+        reporter.progress();
+        Thread.sleep(slowStartPollIntervalMs);
+      }
+    } finally {
+      writeClient.close();
+    }
+  }
+
+  private void fetchBlocks(List<ShuffleServerInfo> serverInfoList, Roaring64NavigableMap blockIdBitmap,
+      Roaring64NavigableMap taskIdBitmap) throws IOException, InterruptedException {
+    LOG.info("In reduce: " + reduceId
+      + ", Rss MR client starts to fetch blocks from RSS server");
+    CreateShuffleReadClientRequest request = new CreateShuffleReadClientRequest(
+      appId, 0, reduceId.getTaskID().getId(), storageType, basePath, indexReadLimit, readBufferSize,
+      partitionNumPerRange, partitionNum, blockIdBitmap, taskIdBitmap, serverInfoList, jobConf,
+      Collections.emptyList(), RssMRUtils.getBlockIdLayout(jobConf));
+    ShuffleReadClient shuffleReadClient = ShuffleClientFactory.getInstance().createShuffleReadClient(request);
+    RssFetcher fetcher = new RssFetcher(jobConf, reduceId, taskStatus, merger, copyPhase, reporter, metrics,
+      shuffleReadClient, blockIdBitmap.getLongCardinality(), (int) fetchedBlockNum);
+    fetcher.fetchAllRssBlocks();
+    fetchedBlockNum += blockIdBitmap.getLongCardinality();
+    LOG.info("In reduce: " + reduceId
+      + ", Rss MR client fetches blocks from RSS server successfully");
+  }
+
   @Override
   public void close() {
   }
@@ -48,6 +48,7 @@ import com.tencent.rss.client.factory.ShuffleClientFactory;
 import com.tencent.rss.common.PartitionRange;
 import com.tencent.rss.common.ShuffleAssignmentsInfo;
 import com.tencent.rss.common.ShuffleServerInfo;
+import com.tencent.rss.common.util.BlockIdLayout;
 import com.tencent.rss.common.util.Constants;
 
 public class RssMRAppMaster {
@@ -106,11 +107,20 @@ public class RssMRAppMaster {
         heartbeatInterval,
         TimeUnit.MILLISECONDS);
 
-    LOG.info("Start to register shuffle");
+    // fit the layout of blockId to the job if it isn't set, killed attempts aren't counted in
+    // the max attempts, so reserve more room for the attempt id
+    if (conf.get(RssMRConfig.RSS_CLIENT_BLOCKID_TASK_ATTEMPT_ID_BITS) == null) {
+      int numMaps = Math.max(conf.getInt(MRJobConfig.NUM_MAPS, 1), 1);
+      int maxAttempts = conf.getInt(MRJobConfig.MAP_MAX_ATTEMPTS, 4);
+      long maxTaskAttemptId = (long) numMaps * maxAttempts * 4 - 1;
+      RssMRUtils.setBlockIdLayout(conf, BlockIdLayout.forJob(Math.max(numReduceTasks, 1), maxTaskAttemptId));
+    }
+    BlockIdLayout blockIdLayout = RssMRUtils.getBlockIdLayout(conf);
+    LOG.info("Start to register shuffle with " + blockIdLayout);
     long start = System.currentTimeMillis();
     serverToPartitionRanges.entrySet().forEach(entry -> {
       client.registerShuffle(
-          entry.getKey(), applicationAttemptId.toString(), 0, entry.getValue());
+          entry.getKey(), applicationAttemptId.toString(), 0, entry.getValue(), null, null, blockIdLayout, null);
     });
     LOG.info("Finish register shuffle with " + (System.currentTimeMillis() - start) + " ms");
 
@@ -128,10 +138,13 @@ public class RssMRAppMaster {
       conf.set(RssMRConfig.RSS_ASSIGNMENT_PREFIX + entry.getKey(), StringUtils.join(servers, ","));
     });
 
-    // close slow start
-    if (conf.getFloat(MRJobConfig.COMPLETED_MAPS_FOR_REDUCE_SLOWSTART, 0.05f) != 1) {
+    // close slow start unless the reducers fetch the outputs of completed maps incrementally
+    boolean slowStartEnabled = conf.getBoolean(RssMRConfig.RSS_REDUCE_SLOW_START_ENABLED,
+        RssMRConfig.RSS_REDUCE_SLOW_START_ENABLED_DEFAULT_VALUE);
+    if (!slowStartEnabled && conf.getFloat(MRJobConfig.COMPLETED_MAPS_FOR_REDUCE_SLOWSTART, 0.05f) != 1) {
       conf.set(MRJobConfig.COMPLETED_MAPS_FOR_REDUCE_SLOWSTART, "1");
-      LOG.warn("close slow start, because RSS does not support it yet");
+      LOG.warn("close slow start, set " + RssMRConfig.RSS_REDUCE_SLOW_START_ENABLED
+          + " to true to fetch the outputs of completed maps incrementally");
     }
 
     String jobDirStr = conf.get(MRJobConfig.MAPREDUCE_JOB_DIR);
@@ -0,0 +1,220 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.hadoop.mapred;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.serializer.SerializationFactory;
+import org.apache.hadoop.io.serializer.Serializer;
+import org.apache.hadoop.mapreduce.RssMRConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Write small records to the buffers of partitions, the buffer is sorted and dropped when it
+ * reaches the buffer size as it is sent. The legacy buffer is the previous implementation which
+ * sizes every key by walking its object graph and sorts the key objects. Run it with
+ * mvn -Pmr -pl client-mr -am test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=org.apache.hadoop.mapred.SortWriteBufferBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SortWriteBufferBenchmark {
+
+  private static final int RECORD_POOL_SIZE = 65536;
+
+  @Param({"10000000"})
+  private int recordNum;
+
+  @Param({"10"})
+  private int keySize;
+
+  @Param({"20"})
+  private int valueSize;
+
+  @Param({"100"})
+  private int partitionNum;
+
+  @Param({"1048576"})
+  private int bufferSize;
+
+  private byte[][] keys;
+  private BytesWritable[] values;
+  private Serializer<BytesWritable> keySerializer;
+  private Serializer<BytesWritable> valSerializer;
+  private RawComparator<BytesWritable> comparator;
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(SortWriteBufferBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(0);
+    keys = new byte[RECORD_POOL_SIZE][];
+    values = new BytesWritable[RECORD_POOL_SIZE];
+    for (int i = 0; i < RECORD_POOL_SIZE; i++) {
+      keys[i] = new byte[keySize];
+      random.nextBytes(keys[i]);
+      byte[] value = new byte[valueSize];
+      random.nextBytes(value);
+      values[i] = new BytesWritable(value);
+    }
+    SerializationFactory serializationFactory = new SerializationFactory(new Configuration());
+    keySerializer = serializationFactory.getSerializer(BytesWritable.class);
+    valSerializer = serializationFactory.getSerializer(BytesWritable.class);
+    comparator = WritableComparator.get(BytesWritable.class);
+  }
+
+  @Benchmark
+  public long sortWriteBuffer() throws IOException {
+    SortWriteBuffer<BytesWritable, BytesWritable>[] buffers = new SortWriteBuffer[partitionNum];
+    long sentLength = 0;
+    for (int i = 0; i < recordNum; i++) {
+      int partitionId = i % partitionNum;
+      if (buffers[partitionId] == null) {
+        buffers[partitionId] = new SortWriteBuffer<>(partitionId, comparator,
+            RssMRConfig.RSS_CLIENT_DEFAULT_MAX_SEGMENT_SIZE, keySerializer, valSerializer);
+      }
+      SortWriteBuffer<BytesWritable, BytesWritable> buffer = buffers[partitionId];
+      buffer.addRecord(new BytesWritable(keys[i % RECORD_POOL_SIZE]), values[i % RECORD_POOL_SIZE]);
+      if (buffer.getDataLength() >= bufferSize) {
+        sentLength += buffer.getData().length;
+        buffers[partitionId] = null;
+      }
+    }
+    for (SortWriteBuffer<BytesWritable, BytesWritable> buffer : buffers) {
+      if (buffer != null) {
+        sentLength += buffer.getData().length;
+      }
+    }
+    return sentLength;
+  }
+
+  @Benchmark
+  public long legacySortWriteBuffer() throws IOException {
+    LegacySortWriteBuffer[] buffers = new LegacySortWriteBuffer[partitionNum];
+    long sentLength = 0;
+    for (int i = 0; i < recordNum; i++) {
+      int partitionId = i % partitionNum;
+      if (buffers[partitionId] == null) {
+        buffers[partitionId] = new LegacySortWriteBuffer();
+      }
+      LegacySortWriteBuffer buffer = buffers[partitionId];
+      buffer.addRecord(new BytesWritable(keys[i % RECORD_POOL_SIZE]), values[i % RECORD_POOL_SIZE]);
+      if (buffer.dataLength >= bufferSize) {
+        sentLength += buffer.getData().length;
+        buffers[partitionId] = null;
+      }
+    }
+    for (LegacySortWriteBuffer buffer : buffers) {
+      if (buffer != null) {
+        sentLength += buffer.getData().length;
+      }
+    }
+    return sentLength;
+  }
+
+  private final class LegacySortWriteBuffer extends OutputStream {
+
+    private final List<LegacyRecord> records = Lists.newArrayList();
+    private byte[] data = new byte[1024];
+    private int dataLength = 0;
+    private long totalKeyLength = 0;
+
+    void addRecord(BytesWritable key, BytesWritable value) throws IOException {
+      keySerializer.open(this);
+      valSerializer.open(this);
+      int start = dataLength;
+      valSerializer.serialize(value);
+      totalKeyLength += GraphLayout.parseInstance(key).totalSize();
+      records.add(new LegacyRecord(key, start, dataLength));
+    }
+
+    byte[] getData() {
+      records.sort((o1, o2) -> comparator.compare(o1.key, o2.key));
+      byte[] result = new byte[dataLength];
+      int offset = 0;
+      for (LegacyRecord record : records) {
+        int length = record.end - record.start;
+        System.arraycopy(data, record.start, result, offset, length);
+        offset += length;
+      }
+      return result;
+    }
+
+    @Override
+    public void write(int b) {
+      ensureCapacity(1);
+      data[dataLength++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      ensureCapacity(len);
+      System.arraycopy(b, off, data, dataLength, len);
+      dataLength += len;
+    }
+
+    private void ensureCapacity(int len) {
+      if (dataLength + len > data.length) {
+        data = Arrays.copyOf(data, Math.max(data.length * 2, dataLength + len));
+      }
+    }
+  }
+
+  private static final class LegacyRecord {
+
+    private final BytesWritable key;
+    private final int start;
+    private final int end;
+
+    LegacyRecord(BytesWritable key, int start, int end) {
+      this.key = key;
+      this.start = start;
+      this.end = end;
+    }
+  }
+}
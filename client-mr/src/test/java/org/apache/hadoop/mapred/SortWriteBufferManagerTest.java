@@ -33,12 +33,14 @@ import org.junit.Test;
 import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
 import com.tencent.rss.client.api.ShuffleWriteClient;
+import com.tencent.rss.client.response.PartitionShuffleResult;
 import com.tencent.rss.client.response.SendShuffleDataResult;
 import com.tencent.rss.common.PartitionRange;
 import com.tencent.rss.common.ShuffleAssignmentsInfo;
 import com.tencent.rss.common.ShuffleBlockInfo;
 import com.tencent.rss.common.ShuffleServerInfo;
 import com.tencent.rss.common.exception.RssException;
+import com.tencent.rss.common.util.BlockIdLayout;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -211,11 +213,30 @@ public class SortWriteBufferManagerTest {
 
     }
 
+    @Override
+    public void registerShuffle(ShuffleServerInfo shuffleServerInfo, String appId, int shuffleId,
+        List<PartitionRange> partitionRanges, String combinerClass, String serializerClass) {
+
+    }
+
+    @Override
+    public void registerShuffle(ShuffleServerInfo shuffleServerInfo, String appId, int shuffleId,
+        List<PartitionRange> partitionRanges, String combinerClass, String serializerClass,
+        BlockIdLayout blockIdLayout, String remoteStoragePath) {
+
+    }
+
     @Override
     public boolean sendCommit(Set<ShuffleServerInfo> shuffleServerInfoSet, String appId, int shuffleId, int numMaps) {
       return false;
     }
 
+    @Override
+    public void registerShuffleAssignment(String appId, int shuffleId,
+        Map<Integer, List<ShuffleServerInfo>> partitionToServers) {
+
+    }
+
     @Override
     public void registerCoordinators(String coordinators) {
 
@@ -236,6 +257,12 @@ public class SortWriteBufferManagerTest {
 
     }
 
+    @Override
+    public void abortTaskAttempt(Map<Integer, List<ShuffleServerInfo>> partitionToServers,
+        String appId, int shuffleId, long taskAttemptId) {
+
+    }
+
     @Override
     public ShuffleAssignmentsInfo getShuffleAssignments(String appId, int shuffleId, int partitionNum, int partitionNumPerRange, Set<String> requiredTags) {
       return null;
@@ -246,6 +273,18 @@ public class SortWriteBufferManagerTest {
       return null;
     }
 
+    @Override
+    public Roaring64NavigableMap getShuffleResult(String clientType, Set<ShuffleServerInfo> shuffleServerInfoSet,
+        String appId, int shuffleId, int partitionId, Roaring64NavigableMap taskIdBitmap) {
+      return null;
+    }
+
+    @Override
+    public PartitionShuffleResult getPartitionShuffleResult(String clientType,
+        Map<Integer, List<ShuffleServerInfo>> partitionToServers, String appId, int shuffleId, int partitionId) {
+      return null;
+    }
+
     @Override
     public void close() {
 
@@ -49,16 +49,13 @@ public class SortWriteBufferTest {
     Serializer<BytesWritable> valSerializer = serializationFactory.getSerializer(BytesWritable.class);
     SortWriteBuffer<BytesWritable, BytesWritable> buffer =
         new SortWriteBuffer<BytesWritable, BytesWritable>(
-            1, WritableComparator.get(BytesWritable.class), 1024L);
-    keySerializer.open(buffer);
-    valSerializer.open(buffer);
+            1, WritableComparator.get(BytesWritable.class), 1024L, keySerializer, valSerializer);
     long start = buffer.getDataLength();
-    keySerializer.serialize(key);
-    valSerializer.serialize(value);
+    assertEquals(16, buffer.addRecord(key, value));
     long end = buffer.getDataLength();
     assertEquals(16, end);
     assertEquals(0, start);
-    buffer.addRecord(key, 0, 16);
+    assertEquals(1, buffer.getRecordNum());
     assertEquals(16, buffer.getData().length);
     assertEquals(1, buffer.getPartitionId());
     byte[] result = buffer.getData();
@@ -73,44 +70,31 @@ public class SortWriteBufferTest {
     assertEquals(value, valueRead);
 
     buffer = new SortWriteBuffer<BytesWritable, BytesWritable>(
-        1, WritableComparator.get(BytesWritable.class), 528L);
-    keySerializer.open(buffer);
-    valSerializer.open(buffer);
+        1, WritableComparator.get(BytesWritable.class), 528L, keySerializer, valSerializer);
     start = buffer.getDataLength();
     assertEquals(0, start);
     keyStr = "key3";
     key = new BytesWritable(keyStr.getBytes());
-    keySerializer.serialize(key);
     byte[] valueBytes = new byte[200];
     Map<String, BytesWritable> valueMap = Maps.newConcurrentMap();
     Random random = new Random();
     random.nextBytes(valueBytes);
     value = new BytesWritable(valueBytes);
     valueMap.putIfAbsent(keyStr, value);
-    valSerializer.serialize(value);
-    end = buffer.getDataLength();
-    buffer.addRecord(key, start, end);
+    buffer.addRecord(key, value);
     keyStr = "key1";
     key = new BytesWritable(keyStr.getBytes());
     valueBytes = new byte[2032];
     random.nextBytes(valueBytes);
     value = new BytesWritable(valueBytes);
     valueMap.putIfAbsent(keyStr, value);
-    start = buffer.getDataLength();
-    keySerializer.serialize(key);
-    valSerializer.serialize(value);
-    end = buffer.getDataLength();
-    buffer.addRecord(key, start, end);
+    buffer.addRecord(key, value);
     keyStr = "key2";
     key = new BytesWritable(keyStr.getBytes());
     valueBytes = new byte[3100];
     value = new BytesWritable(valueBytes);
     valueMap.putIfAbsent(keyStr, value);
-    start = buffer.getDataLength();
-    keySerializer.serialize(key);
-    valSerializer.serialize(value);
-    end = buffer.getDataLength();
-    buffer.addRecord(key, start, end);
+    buffer.addRecord(key, value);
     result = buffer.getData();
     byteArrayInputStream = new ByteArrayInputStream(result);
     keyDeserializer.open(byteArrayInputStream);
@@ -124,4 +108,45 @@ public class SortWriteBufferTest {
       assertEquals(valueMap.get(tmpStr), valueRead);
     }
   }
+
+  @Test
+  public void testSortWithKeyAcrossSegments() throws IOException {
+    JobConf jobConf = new JobConf(new Configuration());
+    SerializationFactory serializationFactory = new SerializationFactory(jobConf);
+    Serializer<BytesWritable> keySerializer =  serializationFactory.getSerializer(BytesWritable.class);
+    Serializer<BytesWritable> valSerializer = serializationFactory.getSerializer(BytesWritable.class);
+    // the segment is smaller than a record, so most of the keys are across the segments
+    SortWriteBuffer<BytesWritable, BytesWritable> buffer = new SortWriteBuffer<BytesWritable, BytesWritable>(
+        1, WritableComparator.get(BytesWritable.class), 7L, keySerializer, valSerializer);
+    Random random = new Random();
+    Map<BytesWritable, BytesWritable> expected = Maps.newTreeMap();
+    int recordNum = 1000;
+    for (int i = 0; i < recordNum; i++) {
+      byte[] keyBytes = new byte[1 + random.nextInt(16)];
+      random.nextBytes(keyBytes);
+      byte[] valueBytes = new byte[random.nextInt(32)];
+      random.nextBytes(valueBytes);
+      BytesWritable key = new BytesWritable(keyBytes);
+      if (expected.containsKey(key)) {
+        continue;
+      }
+      BytesWritable value = new BytesWritable(valueBytes);
+      expected.put(key, value);
+      assertEquals(8 + keyBytes.length + valueBytes.length, buffer.addRecord(key, value));
+    }
+    assertEquals(expected.size(), buffer.getRecordNum());
+
+    byte[] result = buffer.getData();
+    assertEquals(buffer.getDataLength(), result.length);
+    Deserializer<BytesWritable> keyDeserializer = serializationFactory.getDeserializer(BytesWritable.class);
+    Deserializer<BytesWritable> valDeserializer = serializationFactory.getDeserializer(BytesWritable.class);
+    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(result);
+    keyDeserializer.open(byteArrayInputStream);
+    valDeserializer.open(byteArrayInputStream);
+    for (Map.Entry<BytesWritable, BytesWritable> entry : expected.entrySet()) {
+      assertEquals(entry.getKey(), keyDeserializer.deserialize(null));
+      assertEquals(entry.getValue(), valDeserializer.deserialize(null));
+    }
+    assertEquals(0, byteArrayInputStream.available());
+  }
 }
@@ -18,9 +18,15 @@
 
 package org.apache.hadoop.mapreduce;
 
+import org.apache.hadoop.mapred.JobConf;
 import org.junit.Test;
 
+import com.tencent.rss.common.exception.RssException;
+import com.tencent.rss.common.util.BlockIdLayout;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class RssMRUtilsTest {
 
@@ -35,4 +41,52 @@ public class RssMRUtilsTest {
     testId = RssMRUtils.convertTaskAttemptIdToLong(mrTaskAttemptId);
     assertEquals(taskAttemptId, testId);
   }
+
+  @Test
+  public void TaskAttemptIdWithLayoutTest() {
+    int numMaps = 100;
+    BlockIdLayout layout = BlockIdLayout.forJob(10, numMaps * 4 - 1);
+    JobID jobID = new JobID();
+    for (int attemptId = 0; attemptId < 4; attemptId++) {
+      for (int mapId = 0; mapId < numMaps; mapId++) {
+        TaskAttemptID mrTaskAttemptId = new TaskAttemptID(new TaskID(jobID, TaskType.MAP, mapId), attemptId);
+        long rssTaskAttemptId = RssMRUtils.convertTaskAttemptIdToLong(mrTaskAttemptId, numMaps, layout);
+        assertEquals(attemptId * numMaps + mapId, rssTaskAttemptId);
+        assertEquals(mrTaskAttemptId,
+            RssMRUtils.createMRTaskAttemptId(jobID, TaskType.MAP, rssTaskAttemptId, numMaps));
+      }
+    }
+    // the attempt which can't be stored in the layout is rejected
+    try {
+      RssMRUtils.convertTaskAttemptIdToLong(
+          new TaskAttemptID(new TaskID(jobID, TaskType.MAP, 0), 4), numMaps, layout);
+      fail();
+    } catch (RssException e) {
+      assertTrue(e.getMessage().contains("exceeds the max value"));
+    }
+    // the attempt of the restarted app master may have larger attempt id
+    try {
+      RssMRUtils.convertTaskAttemptIdToLong(
+          new TaskAttemptID(new TaskID(jobID, TaskType.MAP, numMaps - 1), 1000), numMaps, layout);
+      fail();
+    } catch (RssException e) {
+      assertTrue(e.getMessage().contains(RssMRConfig.RSS_CLIENT_BLOCKID_TASK_ATTEMPT_ID_BITS));
+    }
+    try {
+      RssMRUtils.convertTaskAttemptIdToLong(
+          new TaskAttemptID(new TaskID(jobID, TaskType.MAP, numMaps - 1), -1), numMaps, layout);
+      fail();
+    } catch (RssException e) {
+      assertTrue(e.getMessage().contains("invalid attemptId"));
+    }
+  }
+
+  @Test
+  public void blockIdLayoutTest() {
+    JobConf jobConf = new JobConf();
+    assertEquals(BlockIdLayout.DEFAULT, RssMRUtils.getBlockIdLayout(jobConf));
+    BlockIdLayout layout = BlockIdLayout.forJob(10, 399);
+    RssMRUtils.setBlockIdLayout(jobConf, layout);
+    assertEquals(layout, RssMRUtils.getBlockIdLayout(jobConf));
+  }
 }
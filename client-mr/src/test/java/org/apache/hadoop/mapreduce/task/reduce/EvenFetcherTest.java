@@ -34,6 +34,11 @@ import org.apache.hadoop.mapreduce.TaskType;
 import org.junit.Test;
 import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
+import com.tencent.rss.common.exception.RssException;
+import com.tencent.rss.common.util.BlockIdLayout;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.eq;
@@ -59,7 +64,8 @@ public class EvenFetcherTest {
     Roaring64NavigableMap expected = Roaring64NavigableMap.bitmapOf();
     for (int mapIndex = 0; mapIndex < mapTaskNum; mapIndex++) {
       long rssTaskId = RssMRUtils.convertTaskAttemptIdToLong(
-        new TaskAttemptID("12345", 1, TaskType.MAP, mapIndex, 0)
+        new TaskAttemptID("12345", 1, TaskType.MAP, mapIndex, 0),
+        mapTaskNum, BlockIdLayout.DEFAULT
       );
       expected.addLong(rssTaskId);
     }
@@ -93,7 +99,8 @@ public class EvenFetcherTest {
     Roaring64NavigableMap expected = Roaring64NavigableMap.bitmapOf();
     for (int mapIndex = 0; mapIndex < mapTaskNum; mapIndex++) {
       long rssTaskId = RssMRUtils.convertTaskAttemptIdToLong(
-        new TaskAttemptID("12345", 1, TaskType.MAP, mapIndex, 0)
+        new TaskAttemptID("12345", 1, TaskType.MAP, mapIndex, 0),
+        mapTaskNum, BlockIdLayout.DEFAULT
       );
       expected.addLong(rssTaskId);
     }
@@ -118,7 +125,8 @@ public class EvenFetcherTest {
     Roaring64NavigableMap expected = Roaring64NavigableMap.bitmapOf();
     for (int mapIndex = 0; mapIndex < mapTaskNum; mapIndex++) {
       long rssTaskId = RssMRUtils.convertTaskAttemptIdToLong(
-        new TaskAttemptID("12345", 1, TaskType.MAP, mapIndex, 0)
+        new TaskAttemptID("12345", 1, TaskType.MAP, mapIndex, 0),
+        mapTaskNum, BlockIdLayout.DEFAULT
       );
       expected.addLong(rssTaskId);
     }
@@ -148,7 +156,8 @@ public class EvenFetcherTest {
     Roaring64NavigableMap expected = Roaring64NavigableMap.bitmapOf();
     for (int mapIndex = 0; mapIndex < mapTaskNum; mapIndex++) {
       long rssTaskId = RssMRUtils.convertTaskAttemptIdToLong(
-        new TaskAttemptID("12345", 1, TaskType.MAP, mapIndex, 0)
+        new TaskAttemptID("12345", 1, TaskType.MAP, mapIndex, 0),
+        mapTaskNum, BlockIdLayout.DEFAULT
       );
       expected.addLong(rssTaskId);
     }
@@ -185,13 +194,15 @@ public class EvenFetcherTest {
     for (int mapIndex = 0; mapIndex < mapTaskNum; mapIndex++) {
       if (!tipFailed.contains(mapIndex) && !obsoleted.contains(mapIndex)) {
         long rssTaskId = RssMRUtils.convertTaskAttemptIdToLong(
-          new TaskAttemptID("12345", 1, TaskType.MAP, mapIndex, 0)
+          new TaskAttemptID("12345", 1, TaskType.MAP, mapIndex, 0),
+          mapTaskNum, BlockIdLayout.DEFAULT
         );
         expected.addLong(rssTaskId);
       }
       if (obsoleted.contains(mapIndex)) {
         long rssTaskId = RssMRUtils.convertTaskAttemptIdToLong(
-          new TaskAttemptID("12345", 1, TaskType.MAP, mapIndex, 1)
+          new TaskAttemptID("12345", 1, TaskType.MAP, mapIndex, 1),
+          mapTaskNum, BlockIdLayout.DEFAULT
         );
         expected.addLong(rssTaskId);
       }
@@ -201,6 +212,102 @@ public class EvenFetcherTest {
     validate(expected, taskIdBitmap);
   }
 
+  @Test
+  public void incrementalEventFetch() throws IOException {
+    int mapTaskNum = 10;
+    TaskAttemptID tid = new TaskAttemptID("12345", 1, TaskType.REDUCE, 1, 1);
+    JobConf jobConf = new JobConf();
+    jobConf.setNumMapTasks(mapTaskNum);
+    // the maps complete over time: 0-3 complete first, then nothing, then 4-9 where 7 fails
+    TaskUmbilicalProtocol umbilical = mock(TaskUmbilicalProtocol.class);
+    when(umbilical.getMapCompletionEvents(any(JobID.class),
+      eq(0), eq(MAX_EVENTS_TO_FETCH), eq(tid)))
+      .thenReturn(createEventsUpdate(
+        createEvent(0, 0, 0, TaskCompletionEvent.Status.SUCCEEDED),
+        createEvent(1, 1, 0, TaskCompletionEvent.Status.SUCCEEDED),
+        createEvent(2, 2, 0, TaskCompletionEvent.Status.SUCCEEDED),
+        createEvent(3, 3, 0, TaskCompletionEvent.Status.SUCCEEDED)));
+    when(umbilical.getMapCompletionEvents(any(JobID.class),
+      eq(4), eq(MAX_EVENTS_TO_FETCH), eq(tid)))
+      .thenReturn(createEventsUpdate())
+      .thenReturn(createEventsUpdate(
+        createEvent(4, 4, 0, TaskCompletionEvent.Status.SUCCEEDED),
+        createEvent(5, 5, 0, TaskCompletionEvent.Status.SUCCEEDED),
+        createEvent(6, 6, 0, TaskCompletionEvent.Status.SUCCEEDED),
+        createEvent(7, 7, 3, TaskCompletionEvent.Status.TIPFAILED),
+        createEvent(8, 8, 0, TaskCompletionEvent.Status.SUCCEEDED),
+        createEvent(9, 9, 0, TaskCompletionEvent.Status.SUCCEEDED)));
+    when(umbilical.getMapCompletionEvents(any(JobID.class),
+      eq(10), eq(MAX_EVENTS_TO_FETCH), eq(tid)))
+      .thenReturn(createEventsUpdate());
+
+    RssEventFetcher ef =
+      new RssEventFetcher(tid, umbilical, jobConf, MAX_EVENTS_TO_FETCH);
+    validate(getRssTaskIds(mapTaskNum, 0, 0, 1, 2, 3), ef.fetchNewRssTaskIds());
+    assertFalse(ef.isAllMapsCompleted());
+    assertTrue(ef.fetchNewRssTaskIds().isEmpty());
+    assertFalse(ef.isAllMapsCompleted());
+    validate(getRssTaskIds(mapTaskNum, 0, 4, 5, 6, 8, 9), ef.fetchNewRssTaskIds());
+    assertTrue(ef.isAllMapsCompleted());
+    assertTrue(ef.fetchNewRssTaskIds().isEmpty());
+  }
+
+  @Test
+  public void obsoleteEventIncrementalFetch() throws IOException {
+    int mapTaskNum = 3;
+    TaskAttemptID tid = new TaskAttemptID("12345", 1, TaskType.REDUCE, 1, 1);
+    JobConf jobConf = new JobConf();
+    jobConf.setNumMapTasks(mapTaskNum);
+    // map 1 is obsoleted before its output is fetched, the output of its new attempt is fetched,
+    // then map 0 is obsoleted after its output is fetched
+    TaskUmbilicalProtocol umbilical = mock(TaskUmbilicalProtocol.class);
+    when(umbilical.getMapCompletionEvents(any(JobID.class),
+      eq(0), eq(MAX_EVENTS_TO_FETCH), eq(tid)))
+      .thenReturn(createEventsUpdate(
+        createEvent(0, 0, 0, TaskCompletionEvent.Status.SUCCEEDED),
+        createEvent(1, 1, 0, TaskCompletionEvent.Status.SUCCEEDED),
+        createEvent(2, 1, 0, TaskCompletionEvent.Status.OBSOLETE),
+        createEvent(3, 1, 1, TaskCompletionEvent.Status.SUCCEEDED)));
+    when(umbilical.getMapCompletionEvents(any(JobID.class),
+      eq(4), eq(MAX_EVENTS_TO_FETCH), eq(tid)))
+      .thenReturn(createEventsUpdate(
+        createEvent(4, 0, 0, TaskCompletionEvent.Status.OBSOLETE)));
+
+    RssEventFetcher ef =
+      new RssEventFetcher(tid, umbilical, jobConf, MAX_EVENTS_TO_FETCH);
+    Roaring64NavigableMap expected = getRssTaskIds(mapTaskNum, 0, 0);
+    expected.or(getRssTaskIds(mapTaskNum, 1, 1));
+    validate(expected, ef.fetchNewRssTaskIds());
+    assertFalse(ef.isAllMapsCompleted());
+    try {
+      ef.fetchNewRssTaskIds();
+      fail();
+    } catch (RssException e) {
+      assertTrue(e.getMessage().contains("has fetched the output of obsolete map"));
+    }
+  }
+
+  private Roaring64NavigableMap getRssTaskIds(int mapTaskNum, int attempt, int... mapIndexes) {
+    Roaring64NavigableMap taskIds = Roaring64NavigableMap.bitmapOf();
+    for (int mapIndex : mapIndexes) {
+      taskIds.addLong(RssMRUtils.convertTaskAttemptIdToLong(
+        new TaskAttemptID("12345", 1, TaskType.MAP, mapIndex, attempt),
+        mapTaskNum, BlockIdLayout.DEFAULT));
+    }
+    return taskIds;
+  }
+
+  private TaskCompletionEvent createEvent(
+    int eventIdx, int mapIndex, int attempt, TaskCompletionEvent.Status status) {
+    return new TaskCompletionEvent(eventIdx,
+      new TaskAttemptID("12345", 1, TaskType.MAP, mapIndex, attempt),
+      mapIndex, true, status, "http://somehost:8888");
+  }
+
+  private MapTaskCompletionEventsUpdate createEventsUpdate(TaskCompletionEvent... events) {
+    return new MapTaskCompletionEventsUpdate(events, false);
+  }
+
   private void validate(Roaring64NavigableMap expected, Roaring64NavigableMap actual) {
     assert (expected.getLongCardinality() == actual.getLongCardinality());
     actual.forEach(taskId -> { assert(expected.contains(taskId)); });
@@ -45,11 +45,15 @@ import org.apache.hadoop.mapreduce.JobID;
 import org.apache.hadoop.mapreduce.TaskID;
 import org.apache.hadoop.mapreduce.TaskAttemptID;
 import org.apache.hadoop.mapreduce.MRConfig;
+import org.apache.hadoop.mapreduce.RssMRConfig;
 import org.apache.hadoop.mapreduce.TaskType;
 import org.apache.hadoop.util.Progress;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 import com.tencent.rss.client.api.ShuffleReadClient;
 import com.tencent.rss.client.response.CompressedShuffleBlock;
 import com.tencent.rss.common.RssShuffleUtils;
@@ -103,6 +107,114 @@ public class FetcherTest {
     validate(allValuesExpected, allValues);
   }
 
+  @Test
+  public void parallelDecompressTest() throws Throwable {
+    // every block is a slice of a shared buffer, the decompression must start from the position of block
+    List<String> expectedKeys = Lists.newArrayList();
+    List<CompressedShuffleBlock> blocks = createBlocks(50, expectedKeys);
+    JobConf conf = new JobConf(jobConf);
+    conf.setInt(RssMRConfig.RSS_CLIENT_FETCH_DECOMPRESS_PARALLELISM, 8);
+    MergeManagerImpl<Text, Text> manager = createMerger(conf);
+    RssFetcher fetcher = new RssFetcher(conf, reduceId1, taskStatus, manager, new Progress(),
+      reporter, metrics, new MockedShuffleReadClient(blocks.toArray(new CompressedShuffleBlock[0])), blocks.size());
+    fetcher.fetchAllRssBlocks();
+    assertEquals(expectedKeys, readKeys(manager.close()));
+    // the decompress threads of the fetcher are released when it finishes
+    assertTrue(fetcher.getDecompressExecutor().isShutdown());
+  }
+
+  @Test
+  public void limitInflightSizeTest() throws Throwable {
+    List<String> expectedKeys = Lists.newArrayList();
+    List<CompressedShuffleBlock> blocks = createBlocks(20, expectedKeys);
+    JobConf conf = new JobConf(jobConf);
+    conf.setInt(RssMRConfig.RSS_CLIENT_FETCH_DECOMPRESS_PARALLELISM, 4);
+    // only one block can be decompressed at the same time
+    conf.setLong(RssMRConfig.RSS_CLIENT_FETCH_MAX_INFLIGHT_SIZE, 1);
+    MergeManagerImpl<Text, Text> manager = createMerger(conf);
+    RssFetcher fetcher = new RssFetcher(conf, reduceId1, taskStatus, manager, new Progress(),
+      reporter, metrics, new MockedShuffleReadClient(blocks.toArray(new CompressedShuffleBlock[0])), blocks.size());
+    fetcher.fetchAllRssBlocks();
+    assertEquals(expectedKeys, readKeys(manager.close()));
+  }
+
+  @Test
+  public void mergerWaitTest() throws Throwable {
+    // the block which can't be reserved by merger must be retried instead of being dropped
+    List<String> expectedKeys = Lists.newArrayList();
+    List<CompressedShuffleBlock> blocks = createBlocks(30, expectedKeys);
+    JobConf conf = new JobConf(jobConf);
+    conf.setInt(RssMRConfig.RSS_CLIENT_FETCH_DECOMPRESS_PARALLELISM, 4);
+    MergeManagerImpl<Text, Text> manager = new MergeManagerImpl<Text, Text>(
+      reduceId1, conf, fs, lda, Reporter.NULL, null, null, null, null, null,
+      null, null, new Progress(), new MROutputFiles()) {
+      private int reserveNum = 0;
+
+      @Override
+      public synchronized MapOutput<Text, Text> reserve(
+          TaskAttemptID mapId, long requestedSize, int fetcher) throws IOException {
+        if (reserveNum++ % 3 == 2) {
+          return null;
+        }
+        return super.reserve(mapId, requestedSize, fetcher);
+      }
+    };
+    RssFetcher fetcher = new RssFetcher(conf, reduceId1, taskStatus, manager, new Progress(),
+      reporter, metrics, new MockedShuffleReadClient(blocks.toArray(new CompressedShuffleBlock[0])), blocks.size());
+    fetcher.fetchAllRssBlocks();
+    assertEquals(expectedKeys, readKeys(manager.close()));
+  }
+
+  private static MergeManagerImpl<Text, Text> createMerger(JobConf conf) {
+    return new MergeManagerImpl<Text, Text>(
+      reduceId1, conf, fs, lda, Reporter.NULL, null, null, null, null, null,
+      null, null, new Progress(), new MROutputFiles());
+  }
+
+  // all blocks are put in one buffer with gaps between them
+  private static List<CompressedShuffleBlock> createBlocks(
+      int blockNum, List<String> expectedKeys) throws IOException {
+    List<byte[]> compressedData = Lists.newArrayList();
+    List<Integer> uncompressLengths = Lists.newArrayList();
+    int totalLength = 0;
+    for (int i = 0; i < blockNum; i++) {
+      Map<String, String> map = new TreeMap<>();
+      for (int j = 0; j < 10; j++) {
+        String key = String.format("k%04d", j * blockNum + i);
+        map.put(key, "v" + key);
+        expectedKeys.add(key);
+      }
+      byte[] bytes = writeMapOutput(conf, map);
+      byte[] compressed = RssShuffleUtils.compressData(bytes);
+      compressedData.add(compressed);
+      uncompressLengths.add(bytes.length);
+      totalLength += compressed.length + 7;
+    }
+    expectedKeys.sort(String::compareTo);
+    byte[] buffer = new byte[totalLength];
+    List<CompressedShuffleBlock> blocks = Lists.newArrayList();
+    int offset = 0;
+    for (int i = 0; i < blockNum; i++) {
+      offset += 7;
+      byte[] compressed = compressedData.get(i);
+      System.arraycopy(compressed, 0, buffer, offset, compressed.length);
+      blocks.add(new CompressedShuffleBlock(
+          ByteBuffer.wrap(buffer, offset, compressed.length), uncompressLengths.get(i)));
+      offset += compressed.length;
+    }
+    return blocks;
+  }
+
+  private static List<String> readKeys(RawKeyValueIterator iterator) throws IOException {
+    List<String> keys = Lists.newArrayList();
+    while (iterator.next()) {
+      byte[] key = new byte[iterator.getKey().getLength()];
+      System.arraycopy(iterator.getKey().getData(), 0, key, 0, key.length);
+      keys.add(new Text(key).toString().trim());
+    }
+    return keys;
+  }
+
   private void validate(List<String> expected, List<String> actual) {
     assert(expected.size() == actual.size());
     for(int i = 0; i < expected.size(); i++) {
@@ -152,6 +264,10 @@ public class FetcherTest {
       });
     }
 
+    MockedShuffleReadClient(CompressedShuffleBlock... blocks) {
+      this.blocks = Lists.newArrayList(blocks);
+    }
+
     @Override
     public CompressedShuffleBlock readShuffleBlockData() {
       if (index < blocks.size()) {
@@ -22,6 +22,8 @@ import java.util.Set;
 
 import com.google.common.collect.Sets;
 
+import com.tencent.rss.common.util.Constants;
+
 public class RssClientConfig {
 
   public static String RSS_PARTITION_NUM_PER_RANGE = "spark.rss.partitionNum.per.range";
@@ -71,6 +73,15 @@ public class RssClientConfig {
   public static int RSS_CLIENT_SEND_THREAD_POOL_SIZE_DEFAULT_VALUE = 10;
   public static String RSS_CLIENT_SEND_THREAD_POOL_KEEPALIVE = "spark.rss.client.send.threadPool.keepalive";
   public static int RSS_CLIENT_SEND_THREAD_POOL_KEEPALIVE_DEFAULT_VALUE = 60;
+  // the combiner is loaded by shuffle server and extends RssShuffleCombiner
+  public static String RSS_CLIENT_COMBINER_CLASS = "spark.rss.client.combiner.class";
+  // the layout of blockId for the application, the sum of the bits should be 63
+  public static String RSS_CLIENT_BLOCKID_SEQUENCE_NO_BITS = "spark.rss.client.blockId.sequenceNo.bits";
+  public static int RSS_CLIENT_BLOCKID_SEQUENCE_NO_BITS_DEFAULT_VALUE = Constants.ATOMIC_INT_MAX_LENGTH;
+  public static String RSS_CLIENT_BLOCKID_PARTITION_ID_BITS = "spark.rss.client.blockId.partitionId.bits";
+  public static int RSS_CLIENT_BLOCKID_PARTITION_ID_BITS_DEFAULT_VALUE = Constants.PARTITION_ID_MAX_LENGTH;
+  public static String RSS_CLIENT_BLOCKID_TASK_ATTEMPT_ID_BITS = "spark.rss.client.blockId.taskAttemptId.bits";
+  public static int RSS_CLIENT_BLOCKID_TASK_ATTEMPT_ID_BITS_DEFAULT_VALUE = Constants.TASK_ATTEMPT_ID_MAX_LENGTH;
   public static String RSS_DATA_REPLICA = "spark.rss.data.replica";
   public static int RSS_DATA_REPLICA_DEFAULT_VALUE = 1;
   public static String RSS_DATA_REPLICA_WRITE = "spark.rss.data.replica.write";
@@ -0,0 +1,95 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.spark.shuffle;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+import org.apache.spark.SparkConf;
+import org.apache.spark.serializer.DeserializationStream;
+import org.apache.spark.serializer.SerializationStream;
+import org.apache.spark.serializer.Serializer;
+import org.apache.spark.serializer.SerializerInstance;
+import scala.Tuple2;
+import scala.collection.Iterator;
+import scala.reflect.ClassTag$;
+
+import com.tencent.rss.common.ShuffleCombiner;
+import com.tencent.rss.common.exception.RssException;
+
+/**
+ * Base class of the combiner which is loaded by shuffle server, it deserializes the records
+ * with the shuffle's serializer and merges the combiners of the same key.
+ * The implementation must be on the classpath of shuffle server and have a public constructor
+ * with serializer's class name as parameter.
+ */
+public abstract class RssShuffleCombiner implements ShuffleCombiner {
+
+  private final Serializer serializer;
+
+  public RssShuffleCombiner(String serializerClass) {
+    try {
+      this.serializer = (Serializer) Class.forName(serializerClass)
+          .getConstructor(SparkConf.class).newInstance(new SparkConf(false));
+    } catch (Exception e) {
+      throw new RssException("Can't create serializer[" + serializerClass + "] for combiner: " + e.getMessage());
+    }
+  }
+
+  /**
+   * The same as mergeCombiners of the shuffle dependency's aggregator.
+   */
+  protected abstract Object mergeCombiners(Object c1, Object c2);
+
+  @Override
+  public byte[] combine(List<byte[]> blocks) {
+    SerializerInstance instance = serializer.newInstance();
+    Map<Object, Object> keyToCombiner = Maps.newLinkedHashMap();
+    for (byte[] block : blocks) {
+      DeserializationStream deserializationStream = instance.deserializeStream(new ByteArrayInputStream(block));
+      Iterator<Tuple2<Object, Object>> iterator = deserializationStream.asKeyValueIterator();
+      while (iterator.hasNext()) {
+        Tuple2<Object, Object> record = iterator.next();
+        if (keyToCombiner.containsKey(record._1())) {
+          keyToCombiner.put(record._1(), mergeCombiners(keyToCombiner.get(record._1()), record._2()));
+        } else {
+          keyToCombiner.put(record._1(), record._2());
+        }
+      }
+      deserializationStream.close();
+    }
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    SerializationStream serializationStream = instance.serializeStream(outputStream);
+    // WriteBufferManager doesn't keep the header of stream, do the same here
+    serializationStream.flush();
+    outputStream.reset();
+    for (Map.Entry<Object, Object> entry : keyToCombiner.entrySet()) {
+      serializationStream.writeKey(entry.getKey(), ClassTag$.MODULE$.apply(entry.getKey().getClass()));
+      serializationStream.writeValue(entry.getValue(), ClassTag$.MODULE$.apply(entry.getValue().getClass()));
+    }
+    serializationStream.flush();
+    byte[] combined = outputStream.toByteArray();
+    serializationStream.close();
+    return combined;
+  }
+}
@@ -26,6 +26,7 @@ import com.google.common.collect.Sets;
 import org.apache.spark.ShuffleDependency;
 
 import com.tencent.rss.common.ShuffleServerInfo;
+import com.tencent.rss.common.util.BlockIdLayout;
 
 public class RssShuffleHandle<K, V, C> extends ShuffleHandle {
 
@@ -37,6 +38,8 @@ public class RssShuffleHandle<K, V, C> extends ShuffleHandle {
   private Set<ShuffleServerInfo> shuffleServersForData;
   // remoteStorage used for this job
   private String remoteStorage;
+  // the layout of blockId registered to shuffle servers, writers and readers use the same one
+  private BlockIdLayout blockIdLayout;
 
   public RssShuffleHandle(
       int shuffleId,
@@ -45,12 +48,24 @@ public class RssShuffleHandle<K, V, C> extends ShuffleHandle {
       ShuffleDependency<K, V, C> dependency,
       Map<Integer, List<ShuffleServerInfo>> partitionToServers,
       String remoteStorage) {
+    this(shuffleId, appId, numMaps, dependency, partitionToServers, remoteStorage, BlockIdLayout.DEFAULT);
+  }
+
+  public RssShuffleHandle(
+      int shuffleId,
+      String appId,
+      int numMaps,
+      ShuffleDependency<K, V, C> dependency,
+      Map<Integer, List<ShuffleServerInfo>> partitionToServers,
+      String remoteStorage,
+      BlockIdLayout blockIdLayout) {
     super(shuffleId);
     this.appId = appId;
     this.numMaps = numMaps;
     this.dependency = dependency;
     this.partitionToServers = partitionToServers;
     this.remoteStorage = remoteStorage;
+    this.blockIdLayout = blockIdLayout;
     shuffleServersForData = Sets.newHashSet();
     for (List<ShuffleServerInfo> ssis : partitionToServers.values()) {
       shuffleServersForData.addAll(ssis);
@@ -84,4 +99,8 @@ public class RssShuffleHandle<K, V, C> extends ShuffleHandle {
   public String getRemoteStorage() {
     return remoteStorage;
   }
+
+  public BlockIdLayout getBlockIdLayout() {
+    return blockIdLayout;
+  }
 }
@@ -29,6 +29,7 @@ import com.google.common.collect.Lists;
 import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.spark.ShuffleDependency;
 import org.apache.spark.SparkConf;
 import org.apache.spark.deploy.SparkHadoopUtil;
 import org.apache.spark.io.CompressionCodec;
@@ -39,6 +40,7 @@ import org.slf4j.LoggerFactory;
 import com.tencent.rss.client.api.CoordinatorClient;
 import com.tencent.rss.client.api.ShuffleWriteClient;
 import com.tencent.rss.client.factory.CoordinatorClientFactory;
+import com.tencent.rss.common.util.BlockIdLayout;
 import com.tencent.rss.storage.util.StorageType;
 
 public class RssSparkShuffleUtils {
@@ -131,6 +133,32 @@ public class RssSparkShuffleUtils {
 
   }
 
+  public static BlockIdLayout getBlockIdLayout(SparkConf sparkConf) {
+    return BlockIdLayout.from(
+        sparkConf.getInt(RssClientConfig.RSS_CLIENT_BLOCKID_SEQUENCE_NO_BITS,
+            RssClientConfig.RSS_CLIENT_BLOCKID_SEQUENCE_NO_BITS_DEFAULT_VALUE),
+        sparkConf.getInt(RssClientConfig.RSS_CLIENT_BLOCKID_PARTITION_ID_BITS,
+            RssClientConfig.RSS_CLIENT_BLOCKID_PARTITION_ID_BITS_DEFAULT_VALUE),
+        sparkConf.getInt(RssClientConfig.RSS_CLIENT_BLOCKID_TASK_ATTEMPT_ID_BITS,
+            RssClientConfig.RSS_CLIENT_BLOCKID_TASK_ATTEMPT_ID_BITS_DEFAULT_VALUE));
+  }
+
+  /**
+   * Get the combiner which will be registered to shuffle server, null if the shuffle can't be combined.
+   */
+  public static String getCombinerClass(SparkConf sparkConf, ShuffleDependency<?, ?, ?> dependency, int dataReplica) {
+    String combinerClass = sparkConf.get(RssClientConfig.RSS_CLIENT_COMBINER_CLASS, "");
+    if (StringUtils.isEmpty(combinerClass) || !dependency.mapSideCombine()) {
+      return null;
+    }
+    // every replica combines blocks separately, and the merged block ids will be different
+    if (dataReplica > 1) {
+      LOG.warn("Combiner[" + combinerClass + "] is ignored because data replica is " + dataReplica);
+      return null;
+    }
+    return combinerClass;
+  }
+
   public static String getSparkVersion() {
     return package$.MODULE$.SPARK_VERSION();
   }
@@ -42,6 +42,7 @@ import com.tencent.rss.common.RssShuffleUtils;
 import com.tencent.rss.common.ShuffleBlockInfo;
 import com.tencent.rss.common.ShuffleServerInfo;
 import com.tencent.rss.common.exception.RssException;
+import com.tencent.rss.common.util.BlockIdLayout;
 import com.tencent.rss.common.util.ChecksumUtils;
 
 public class WriteBufferManager extends MemoryConsumer {
@@ -60,6 +61,7 @@ public class WriteBufferManager extends MemoryConsumer {
   private long askExecutorMemory;
   private int shuffleId;
   private long taskAttemptId;
+  private BlockIdLayout blockIdLayout;
   private SerializerInstance instance;
   private ShuffleWriteMetrics shuffleWriteMetrics;
   // cache partition -> records
@@ -87,6 +89,19 @@ public class WriteBufferManager extends MemoryConsumer {
       Map<Integer, List<ShuffleServerInfo>> partitionToServers,
       TaskMemoryManager taskMemoryManager,
       ShuffleWriteMetrics shuffleWriteMetrics) {
+    this(shuffleId, taskAttemptId, bufferManagerOptions, serializer,
+        partitionToServers, taskMemoryManager, shuffleWriteMetrics, BlockIdLayout.DEFAULT);
+  }
+
+  public WriteBufferManager(
+      int shuffleId,
+      long taskAttemptId,
+      BufferManagerOptions bufferManagerOptions,
+      Serializer serializer,
+      Map<Integer, List<ShuffleServerInfo>> partitionToServers,
+      TaskMemoryManager taskMemoryManager,
+      ShuffleWriteMetrics shuffleWriteMetrics,
+      BlockIdLayout blockIdLayout) {
     super(taskMemoryManager, taskMemoryManager.pageSizeBytes(), MemoryMode.ON_HEAP);
     this.bufferSize = bufferManagerOptions.getBufferSize();
     this.spillSize = bufferManagerOptions.getBufferSpillThreshold();
@@ -94,6 +109,7 @@ public class WriteBufferManager extends MemoryConsumer {
     this.buffers = Maps.newHashMap();
     this.shuffleId = shuffleId;
     this.taskAttemptId = taskAttemptId;
+    this.blockIdLayout = blockIdLayout;
     this.partitionToServers = partitionToServers;
     this.shuffleWriteMetrics = shuffleWriteMetrics;
     this.serializerBufferSize = bufferManagerOptions.getSerializerBufferSize();
@@ -178,7 +194,7 @@ public class WriteBufferManager extends MemoryConsumer {
     final byte[] compressed = RssShuffleUtils.compressData(data);
     final long crc32 = ChecksumUtils.getCrc32(compressed);
     compressTime += System.currentTimeMillis() - start;
-    final long blockId = ClientUtils.getBlockId(partitionId, taskAttemptId, getNextSeqNo(partitionId));
+    final long blockId = ClientUtils.getBlockId(blockIdLayout, partitionId, taskAttemptId, getNextSeqNo(partitionId));
     uncompressedDataLen += data.length;
     shuffleWriteMetrics.incBytesWritten(compressed.length);
     // add memory to indicate bytes which will be sent to shuffle server
@@ -54,11 +54,13 @@ import scala.collection.Seq;
 
 import com.tencent.rss.client.api.ShuffleWriteClient;
 import com.tencent.rss.client.factory.ShuffleClientFactory;
+import com.tencent.rss.client.response.PartitionShuffleResult;
 import com.tencent.rss.client.response.SendShuffleDataResult;
 import com.tencent.rss.common.PartitionRange;
 import com.tencent.rss.common.ShuffleAssignmentsInfo;
 import com.tencent.rss.common.ShuffleBlockInfo;
 import com.tencent.rss.common.ShuffleServerInfo;
+import com.tencent.rss.common.util.BlockIdLayout;
 import com.tencent.rss.common.util.Constants;
 import com.tencent.rss.common.util.RssUtils;
 
@@ -218,10 +220,15 @@ public class RssShuffleManager implements ShuffleManager {
     Map<Integer, List<ShuffleServerInfo>> partitionToServers = response.getPartitionToServers();
 
     startHeartbeat();
-    registerShuffleServers(appId, shuffleId, response.getServerToPartitionRanges());
+    String combinerClass = RssSparkShuffleUtils.getCombinerClass(sparkConf, dependency, dataReplica);
+    String serializerClass = combinerClass == null ? null : dependency.serializer().getClass().getName();
+    BlockIdLayout blockIdLayout = RssSparkShuffleUtils.getBlockIdLayout(sparkConf);
+    registerShuffleServers(appId, shuffleId, response.getServerToPartitionRanges(), combinerClass, serializerClass,
+        blockIdLayout);
 
     LOG.info("RegisterShuffle with ShuffleId[" + shuffleId + "], partitionNum[" + partitionToServers.size() + "]");
-    return new RssShuffleHandle(shuffleId, appId, numMaps, dependency, partitionToServers, remoteStorage);
+    return new RssShuffleHandle(shuffleId, appId, numMaps, dependency, partitionToServers, remoteStorage,
+        blockIdLayout);
   }
 
   private void startHeartbeat() {
@@ -244,7 +251,8 @@ public class RssShuffleManager implements ShuffleManager {
 
   @VisibleForTesting
   protected void registerShuffleServers(String appId, int shuffleId,
-      Map<ShuffleServerInfo, List<PartitionRange>> serverToPartitionRanges) {
+      Map<ShuffleServerInfo, List<PartitionRange>> serverToPartitionRanges,
+      String combinerClass, String serializerClass, BlockIdLayout blockIdLayout) {
     if (serverToPartitionRanges == null || serverToPartitionRanges.isEmpty()) {
       return;
     }
@@ -254,7 +262,8 @@ public class RssShuffleManager implements ShuffleManager {
         .stream()
         .forEach(entry -> {
           shuffleWriteClient.registerShuffle(
-              entry.getKey(), appId, shuffleId, entry.getValue());
+              entry.getKey(), appId, shuffleId, entry.getValue(), combinerClass, serializerClass, blockIdLayout,
+              remoteStorage);
         });
     LOG.info("Finish register shuffleId[" + shuffleId + "] with " + (System.currentTimeMillis() - start) + " ms");
   }
@@ -279,10 +288,12 @@ public class RssShuffleManager implements ShuffleManager {
       String taskId = "" + context.taskAttemptId() + "_" + context.attemptNumber();
       BufferManagerOptions bufferOptions = new BufferManagerOptions(sparkConf);
       ShuffleWriteMetrics writeMetrics = context.taskMetrics().shuffleWriteMetrics();
+      shuffleWriteClient.registerShuffleAssignment(
+          rssHandle.getAppId(), shuffleId, rssHandle.getPartitionToServers());
       WriteBufferManager bufferManager = new WriteBufferManager(
           shuffleId, context.taskAttemptId(), bufferOptions, rssHandle.getDependency().serializer(),
           rssHandle.getPartitionToServers(), context.taskMemoryManager(),
-          writeMetrics);
+          writeMetrics, rssHandle.getBlockIdLayout());
       taskToBufferManager.put(taskId, bufferManager);
 
       return new RssShuffleWriter(rssHandle.getAppId(), shuffleId, taskId, context.taskAttemptId(), bufferManager,
@@ -320,9 +331,9 @@ public class RssShuffleManager implements ShuffleManager {
           + startPartition + "]");
       start = System.currentTimeMillis();
       Map<Integer, List<ShuffleServerInfo>> partitionToServers = rssShuffleHandle.getPartitionToServers();
-      Roaring64NavigableMap blockIdBitmap = shuffleWriteClient.getShuffleResult(
-          clientType, Sets.newHashSet(partitionToServers.get(startPartition)),
-          rssShuffleHandle.getAppId(), shuffleId, startPartition);
+      PartitionShuffleResult shuffleResult = shuffleWriteClient.getPartitionShuffleResult(
+          clientType, partitionToServers, rssShuffleHandle.getAppId(), shuffleId, startPartition);
+      Roaring64NavigableMap blockIdBitmap = shuffleResult.getBlockIdBitmap();
       LOG.info("Get shuffle blockId cost " + (System.currentTimeMillis() - start) + " ms, and get "
           + blockIdBitmap.getLongCardinality() + " blockIds for shuffleId[" + shuffleId + "], partitionId["
           + startPartition + "]");
@@ -331,7 +342,7 @@ public class RssShuffleManager implements ShuffleManager {
           rssShuffleHandle, shuffleRemoteStoragePath, indexReadLimit,
       RssSparkShuffleUtils.newHadoopConfiguration(sparkConf),
           storageType, (int) readBufferSize, partitionNumPerRange, partitionNum,
-          blockIdBitmap, taskIdBitmap);
+          blockIdBitmap, taskIdBitmap, shuffleResult.getSpareServerGroups());
     } else {
       throw new RuntimeException("Unexpected ShuffleHandle:" + handle.getClass().getName());
     }
@@ -18,6 +18,7 @@
 
 package org.apache.spark.shuffle.reader;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.hadoop.conf.Configuration;
@@ -44,6 +45,7 @@ import com.tencent.rss.client.api.ShuffleReadClient;
 import com.tencent.rss.client.factory.ShuffleClientFactory;
 import com.tencent.rss.client.request.CreateShuffleReadClientRequest;
 import com.tencent.rss.common.ShuffleServerInfo;
+import com.tencent.rss.common.util.BlockIdLayout;
 
 public class RssShuffleReader<K, C> implements ShuffleReader<K, C> {
 
@@ -66,7 +68,9 @@ public class RssShuffleReader<K, C> implements ShuffleReader<K, C> {
   private Roaring64NavigableMap blockIdBitmap;
   private Roaring64NavigableMap taskIdBitmap;
   private List<ShuffleServerInfo> shuffleServerInfoList;
+  private List<List<ShuffleServerInfo>> spareServerGroups;
   private Configuration hadoopConf;
+  private BlockIdLayout blockIdLayout;
 
   public RssShuffleReader(
       int startPartition,
@@ -82,6 +86,26 @@ public class RssShuffleReader<K, C> implements ShuffleReader<K, C> {
       int partitionNum,
       Roaring64NavigableMap blockIdBitmap,
       Roaring64NavigableMap taskIdBitmap) {
+    this(startPartition, endPartition, context, rssShuffleHandle, basePath, indexReadLimit, hadoopConf,
+        storageType, readBufferSize, partitionNumPerRange, partitionNum, blockIdBitmap, taskIdBitmap,
+        Collections.emptyList());
+  }
+
+  public RssShuffleReader(
+      int startPartition,
+      int endPartition,
+      TaskContext context,
+      RssShuffleHandle rssShuffleHandle,
+      String basePath,
+      int indexReadLimit,
+      Configuration hadoopConf,
+      String storageType,
+      int readBufferSize,
+      int partitionNumPerRange,
+      int partitionNum,
+      Roaring64NavigableMap blockIdBitmap,
+      Roaring64NavigableMap taskIdBitmap,
+      List<List<ShuffleServerInfo>> spareServerGroups) {
     this.appId = rssShuffleHandle.getAppId();
     this.startPartition = startPartition;
     this.endPartition = endPartition;
@@ -98,7 +122,9 @@ public class RssShuffleReader<K, C> implements ShuffleReader<K, C> {
     this.partitionNum = partitionNum;
     this.blockIdBitmap = blockIdBitmap;
     this.taskIdBitmap = taskIdBitmap;
+    this.spareServerGroups = spareServerGroups;
     this.hadoopConf = hadoopConf;
+    this.blockIdLayout = rssShuffleHandle.getBlockIdLayout();
     this.shuffleServerInfoList =
         (List<ShuffleServerInfo>) (rssShuffleHandle.getPartitionToServers().get(startPartition));
   }
@@ -109,7 +135,8 @@ public class RssShuffleReader<K, C> implements ShuffleReader<K, C> {
 
     CreateShuffleReadClientRequest request = new CreateShuffleReadClientRequest(
         appId, shuffleId, startPartition, storageType, basePath, indexReadLimit, readBufferSize,
-        partitionNumPerRange, partitionNum, blockIdBitmap, taskIdBitmap, shuffleServerInfoList, hadoopConf);
+        partitionNumPerRange, partitionNum, blockIdBitmap, taskIdBitmap, shuffleServerInfoList, hadoopConf,
+        spareServerGroups, blockIdLayout);
     ShuffleReadClient shuffleReadClient = ShuffleClientFactory.getInstance().createShuffleReadClient(request);
     RssShuffleDataIterator rssShuffleDataIterator = new RssShuffleDataIterator<K, C>(
         shuffleDependency.serializer(), shuffleReadClient,
@@ -125,7 +125,8 @@ public class RssShuffleWriter<K, V, C> extends ShuffleWriter<K, V> {
   private boolean isMemoryShuffleEnabled(String storageType) {
     return StorageType.MEMORY_LOCALFILE.name().equals(storageType)
         || StorageType.MEMORY_HDFS.name().equals(storageType)
-        || StorageType.MEMORY_LOCALFILE_HDFS.name().equals(storageType);
+        || StorageType.MEMORY_LOCALFILE_HDFS.name().equals(storageType)
+        || StorageType.MEMORY_TMPFS_LOCALFILE.name().equals(storageType);
   }
 
   /**
@@ -306,6 +307,8 @@ public class RssShuffleWriter<K, V, C> extends ShuffleWriter<K, V> {
           MapStatus mapStatus = MapStatus$.MODULE$.apply(blockManagerId, partitionLengths);
           return Option.apply(mapStatus);
       } else {
+        // the blocks of the failed or killed attempt won't be read, let the servers drop them
+        shuffleWriteClient.abortTaskAttempt(partitionToServers, appId, shuffleId, taskAttemptId);
         return Option.empty();
       }
     } finally {
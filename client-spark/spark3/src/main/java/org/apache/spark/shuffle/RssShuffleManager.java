@@ -57,11 +57,13 @@ import scala.collection.Seq;
 
 import com.tencent.rss.client.api.ShuffleWriteClient;
 import com.tencent.rss.client.factory.ShuffleClientFactory;
+import com.tencent.rss.client.response.PartitionShuffleResult;
 import com.tencent.rss.client.response.SendShuffleDataResult;
 import com.tencent.rss.common.PartitionRange;
 import com.tencent.rss.common.ShuffleAssignmentsInfo;
 import com.tencent.rss.common.ShuffleBlockInfo;
 import com.tencent.rss.common.ShuffleServerInfo;
+import com.tencent.rss.common.util.BlockIdLayout;
 import com.tencent.rss.common.util.Constants;
 import com.tencent.rss.common.util.RssUtils;
 
@@ -263,7 +265,11 @@ public class RssShuffleManager implements ShuffleManager {
     Map<Integer, List<ShuffleServerInfo>> partitionToServers = response.getPartitionToServers();
 
     startHeartbeat();
-    registerShuffleServers(id.get(), shuffleId, response.getServerToPartitionRanges());
+    String combinerClass = RssSparkShuffleUtils.getCombinerClass(sparkConf, dependency, dataReplica);
+    String serializerClass = combinerClass == null ? null : dependency.serializer().getClass().getName();
+    BlockIdLayout blockIdLayout = RssSparkShuffleUtils.getBlockIdLayout(sparkConf);
+    registerShuffleServers(id.get(), shuffleId, response.getServerToPartitionRanges(), combinerClass, serializerClass,
+        blockIdLayout);
 
     LOG.info("RegisterShuffle with ShuffleId[" + shuffleId + "], partitionNum[" + partitionToServers.size()
         + "], shuffleServerForResult: " + partitionToServers);
@@ -272,7 +278,8 @@ public class RssShuffleManager implements ShuffleManager {
         dependency.rdd().getNumPartitions(),
         dependency,
         partitionToServers,
-        remoteStorage);
+        remoteStorage,
+        blockIdLayout);
   }
 
   @Override
@@ -298,10 +305,12 @@ public class RssShuffleManager implements ShuffleManager {
     } else {
       writeMetrics = context.taskMetrics().shuffleWriteMetrics();
     }
+    shuffleWriteClient.registerShuffleAssignment(
+        rssHandle.getAppId(), shuffleId, rssHandle.getPartitionToServers());
     WriteBufferManager bufferManager = new WriteBufferManager(
         shuffleId, context.taskAttemptId(), bufferOptions, rssHandle.getDependency().serializer(),
         rssHandle.getPartitionToServers(), context.taskMemoryManager(),
-        writeMetrics);
+        writeMetrics, rssHandle.getBlockIdLayout());
     taskToBufferManager.put(taskId, bufferManager);
     LOG.info("RssHandle appId {} shuffleId {} ", rssHandle.getAppId(), rssHandle.getShuffleId());
     return new RssShuffleWriter(rssHandle.getAppId(), shuffleId, taskId, context.taskAttemptId(), bufferManager,
@@ -392,12 +401,14 @@ public class RssShuffleManager implements ShuffleManager {
     int shuffleId = rssShuffleHandle.getShuffleId();
     Map<Integer, List<ShuffleServerInfo>> partitionToServers =  rssShuffleHandle.getPartitionToServers();
     Map<Integer, Roaring64NavigableMap> partitionToExpectBlocks = new HashMap<>();
+    Map<Integer, List<List<ShuffleServerInfo>>> partitionToSpareServerGroups = new HashMap<>();
     for (int partition = startPartition; partition < endPartition; partition++) {
       long start = System.currentTimeMillis();
-      Roaring64NavigableMap blockIdBitmap = shuffleWriteClient.getShuffleResult(
-          clientType, Sets.newHashSet(partitionToServers.get(partition)),
-          rssShuffleHandle.getAppId(), shuffleId, partition);
+      PartitionShuffleResult shuffleResult = shuffleWriteClient.getPartitionShuffleResult(
+          clientType, partitionToServers, rssShuffleHandle.getAppId(), shuffleId, partition);
+      Roaring64NavigableMap blockIdBitmap = shuffleResult.getBlockIdBitmap();
       partitionToExpectBlocks.put(partition, blockIdBitmap);
+      partitionToSpareServerGroups.put(partition, shuffleResult.getSpareServerGroups());
       LOG.info("Get shuffle blockId cost " + (System.currentTimeMillis() - start) + " ms, and get "
           + blockIdBitmap.getLongCardinality() + " blockIds for shuffleId[" + shuffleId + "], partitionId["
           + partition + "]");
@@ -423,6 +434,7 @@ public class RssShuffleManager implements ShuffleManager {
         (int) readBufferSize,
         partitionNum,
         partitionToExpectBlocks,
+        partitionToSpareServerGroups,
         taskIdBitmap,
         readMetrics);
   }
@@ -543,7 +555,9 @@ public class RssShuffleManager implements ShuffleManager {
 
   @VisibleForTesting
   protected void registerShuffleServers(String appId, int shuffleId,
-                                        Map<ShuffleServerInfo, List<PartitionRange>> serverToPartitionRanges) {
+                                        Map<ShuffleServerInfo, List<PartitionRange>> serverToPartitionRanges,
+                                        String combinerClass, String serializerClass,
+                                        BlockIdLayout blockIdLayout) {
     if (serverToPartitionRanges == null || serverToPartitionRanges.isEmpty()) {
       return;
     }
@@ -556,7 +570,11 @@ public class RssShuffleManager implements ShuffleManager {
               entry.getKey(),
               appId,
               shuffleId,
-              entry.getValue());
+              entry.getValue(),
+              combinerClass,
+              serializerClass,
+              blockIdLayout,
+              remoteStorage);
         });
     LOG.info("Finish register shuffleId[" + shuffleId + "] with " + (System.currentTimeMillis() - start) + " ms");
   }
@@ -18,6 +18,7 @@
 
 package org.apache.spark.shuffle.reader;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -49,6 +50,7 @@ import com.tencent.rss.client.api.ShuffleReadClient;
 import com.tencent.rss.client.factory.ShuffleClientFactory;
 import com.tencent.rss.client.request.CreateShuffleReadClientRequest;
 import com.tencent.rss.common.ShuffleServerInfo;
+import com.tencent.rss.common.util.BlockIdLayout;
 
 public class RssShuffleReader<K, C> implements ShuffleReader<K, C> {
   private static final Logger LOG = LoggerFactory.getLogger(RssShuffleReader.class);
@@ -68,11 +70,13 @@ public class RssShuffleReader<K, C> implements ShuffleReader<K, C> {
   private int partitionNum;
   private String storageType;
   private Map<Integer, Roaring64NavigableMap> partitionToExpectBlocks;
+  private Map<Integer, List<List<ShuffleServerInfo>>> partitionToSpareServerGroups;
   private Roaring64NavigableMap taskIdBitmap;
   private Configuration hadoopConf;
   private int mapStartIndex;
   private int mapEndIndex;
   private ShuffleReadMetrics readMetrics;
+  private BlockIdLayout blockIdLayout;
 
   public RssShuffleReader(
       int startPartition,
@@ -90,6 +94,28 @@ public class RssShuffleReader<K, C> implements ShuffleReader<K, C> {
       Map<Integer, Roaring64NavigableMap> partitionToExpectBlocks,
       Roaring64NavigableMap taskIdBitmap,
       ShuffleReadMetrics readMetrics) {
+    this(startPartition, endPartition, mapStartIndex, mapEndIndex, context, rssShuffleHandle, basePath,
+        indexReadLimit, hadoopConf, storageType, readBufferSize, partitionNum, partitionToExpectBlocks,
+        Collections.emptyMap(), taskIdBitmap, readMetrics);
+  }
+
+  public RssShuffleReader(
+      int startPartition,
+      int endPartition,
+      int mapStartIndex,
+      int mapEndIndex,
+      TaskContext context,
+      RssShuffleHandle rssShuffleHandle,
+      String basePath,
+      int indexReadLimit,
+      Configuration hadoopConf,
+      String storageType,
+      int readBufferSize,
+      int partitionNum,
+      Map<Integer, Roaring64NavigableMap> partitionToExpectBlocks,
+      Map<Integer, List<List<ShuffleServerInfo>>> partitionToSpareServerGroups,
+      Roaring64NavigableMap taskIdBitmap,
+      ShuffleReadMetrics readMetrics) {
     this.appId = rssShuffleHandle.getAppId();
     this.startPartition = startPartition;
     this.endPartition = endPartition;
@@ -106,10 +132,12 @@ public class RssShuffleReader<K, C> implements ShuffleReader<K, C> {
     this.readBufferSize = readBufferSize;
     this.partitionNum = partitionNum;
     this.partitionToExpectBlocks = partitionToExpectBlocks;
+    this.partitionToSpareServerGroups = partitionToSpareServerGroups;
     this.taskIdBitmap = taskIdBitmap;
     this.hadoopConf = hadoopConf;
     this.readMetrics = readMetrics;
     this.partitionToShuffleServers = rssShuffleHandle.getPartitionToServers();
+    this.blockIdLayout = rssShuffleHandle.getBlockIdLayout();
   }
 
   @Override
@@ -189,9 +217,12 @@ public class RssShuffleReader<K, C> implements ShuffleReader<K, C> {
           continue;
         }
         List<ShuffleServerInfo> shuffleServerInfoList = partitionToShuffleServers.get(partition);
+        List<List<ShuffleServerInfo>> spareServerGroups =
+            partitionToSpareServerGroups.getOrDefault(partition, Lists.newArrayList());
         CreateShuffleReadClientRequest request = new CreateShuffleReadClientRequest(
             appId, shuffleId, partition, storageType, basePath, indexReadLimit, readBufferSize,
-            1, partitionNum, partitionToExpectBlocks.get(partition), taskIdBitmap, shuffleServerInfoList, hadoopConf);
+            1, partitionNum, partitionToExpectBlocks.get(partition), taskIdBitmap, shuffleServerInfoList, hadoopConf,
+            spareServerGroups, blockIdLayout);
         ShuffleReadClient shuffleReadClient = ShuffleClientFactory.getInstance().createShuffleReadClient(request);
         RssShuffleDataIterator iterator = new RssShuffleDataIterator<K, C>(
             shuffleDependency.serializer(), shuffleReadClient,
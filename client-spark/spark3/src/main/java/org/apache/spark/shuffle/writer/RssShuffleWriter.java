@@ -128,7 +128,8 @@ public class RssShuffleWriter<K, V, C> extends ShuffleWriter<K, V> {
   private boolean isMemoryShuffleEnabled(String storageType) {
     return StorageType.MEMORY_LOCALFILE.name().equals(storageType)
         || StorageType.MEMORY_HDFS.name().equals(storageType)
-        || StorageType.MEMORY_LOCALFILE_HDFS.name().equals(storageType);
+        || StorageType.MEMORY_LOCALFILE_HDFS.name().equals(storageType)
+        || StorageType.MEMORY_TMPFS_LOCALFILE.name().equals(storageType);
   }
 
   @Override
@@ -303,6 +304,8 @@ public class RssShuffleWriter<K, V, C> extends ShuffleWriter<K, V> {
         MapStatus mapStatus = MapStatus.apply(blockManagerId, partitionLengths, taskAttemptId);
         return Option.apply(mapStatus);
       } else {
+        // the blocks of the failed or killed attempt won't be read, let the servers drop them
+        shuffleWriteClient.abortTaskAttempt(partitionToServers, appId, shuffleId, taskAttemptId);
         return Option.empty();
       }
     } finally {
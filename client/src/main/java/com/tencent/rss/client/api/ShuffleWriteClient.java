@@ -24,11 +24,13 @@ import java.util.Set;
 
 import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
+import com.tencent.rss.client.response.PartitionShuffleResult;
 import com.tencent.rss.client.response.SendShuffleDataResult;
 import com.tencent.rss.common.PartitionRange;
 import com.tencent.rss.common.ShuffleAssignmentsInfo;
 import com.tencent.rss.common.ShuffleBlockInfo;
 import com.tencent.rss.common.ShuffleServerInfo;
+import com.tencent.rss.common.util.BlockIdLayout;
 
 public interface ShuffleWriteClient {
 
@@ -39,8 +41,21 @@ public interface ShuffleWriteClient {
   void registerShuffle(ShuffleServerInfo shuffleServerInfo,
       String appId, int shuffleId, List<PartitionRange> partitionRanges);
 
+  void registerShuffle(ShuffleServerInfo shuffleServerInfo, String appId, int shuffleId,
+      List<PartitionRange> partitionRanges, String combinerClass, String serializerClass);
+
+  // the blockIdLayout is used by shuffle server to parse the blockIds of the application,
+  // the remoteStoragePath is the remote storage assigned to the application by coordinator
+  void registerShuffle(ShuffleServerInfo shuffleServerInfo, String appId, int shuffleId,
+      List<PartitionRange> partitionRanges, String combinerClass, String serializerClass,
+      BlockIdLayout blockIdLayout, String remoteStoragePath);
+
   boolean sendCommit(Set<ShuffleServerInfo> shuffleServerInfoSet, String appId, int shuffleId, int numMaps);
 
+  // the assignment of shuffle is used to pick the spare servers for the skewed partitions
+  void registerShuffleAssignment(String appId, int shuffleId,
+      Map<Integer, List<ShuffleServerInfo>> partitionToServers);
+
   void registerCoordinators(String coordinators);
 
   Map<String, String> fetchClientConf(int timeoutMs);
@@ -55,11 +70,25 @@ public interface ShuffleWriteClient {
       Map<Integer, List<Long>> partitionToBlockIds,
       int bitmapNum);
 
+  // the task attempt won't report shuffle result, the servers can drop its buffered blocks
+  void abortTaskAttempt(
+      Map<Integer, List<ShuffleServerInfo>> partitionToServers,
+      String appId,
+      int shuffleId,
+      long taskAttemptId);
+
   ShuffleAssignmentsInfo getShuffleAssignments(String appId, int shuffleId, int partitionNum,
       int partitionNumPerRange, Set<String> requiredTags);
 
   Roaring64NavigableMap getShuffleResult(String clientType, Set<ShuffleServerInfo> shuffleServerInfoSet,
       String appId, int shuffleId, int partitionId);
 
+  // only the blockIds written by the task attempts in taskIdBitmap are returned
+  Roaring64NavigableMap getShuffleResult(String clientType, Set<ShuffleServerInfo> shuffleServerInfoSet,
+      String appId, int shuffleId, int partitionId, Roaring64NavigableMap taskIdBitmap);
+
+  PartitionShuffleResult getPartitionShuffleResult(String clientType,
+      Map<Integer, List<ShuffleServerInfo>> partitionToServers, String appId, int shuffleId, int partitionId);
+
   void close();
 }
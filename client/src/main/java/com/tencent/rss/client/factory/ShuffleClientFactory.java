@@ -47,6 +47,6 @@ public class ShuffleClientFactory {
         request.getPartitionId(), request.getIndexReadLimit(), request.getPartitionNumPerRange(),
         request.getPartitionNum(), request.getReadBufferSize(), request.getBasePath(),
         request.getBlockIdBitmap(), request.getTaskIdBitmap(), request.getShuffleServerInfoList(),
-        request.getHadoopConf());
+        request.getHadoopConf(), request.getSpareServerGroups(), request.getBlockIdLayout());
   }
 }
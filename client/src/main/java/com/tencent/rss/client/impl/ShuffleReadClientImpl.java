@@ -38,12 +38,13 @@ import com.tencent.rss.common.BufferSegment;
 import com.tencent.rss.common.ShuffleDataResult;
 import com.tencent.rss.common.ShuffleServerInfo;
 import com.tencent.rss.common.exception.RssException;
+import com.tencent.rss.common.util.BlockIdLayout;
 import com.tencent.rss.common.util.ChecksumUtils;
-import com.tencent.rss.common.util.Constants;
 import com.tencent.rss.common.util.RssUtils;
 import com.tencent.rss.storage.factory.ShuffleHandlerFactory;
 import com.tencent.rss.storage.handler.api.ClientReadHandler;
 import com.tencent.rss.storage.request.CreateShuffleReadHandlerRequest;
+import com.tencent.rss.storage.util.StorageType;
 
 public class ShuffleReadClientImpl implements ShuffleReadClient {
 
@@ -61,6 +62,9 @@ public class ShuffleReadClientImpl implements ShuffleReadClient {
   private AtomicLong copyTime = new AtomicLong(0);
   private AtomicLong crcCheckTime = new AtomicLong(0);
   private ClientReadHandler clientReadHandler;
+  // the handler of assigned servers is the first one, the rest are for the spare servers of skewed partition
+  private List<ClientReadHandler> clientReadHandlers = Lists.newArrayList();
+  private int readHandlerIndex = 0;
 
   public ShuffleReadClientImpl(
       String storageType,
@@ -76,6 +80,47 @@ public class ShuffleReadClientImpl implements ShuffleReadClient {
       Roaring64NavigableMap taskIdBitmap,
       List<ShuffleServerInfo> shuffleServerInfoList,
       Configuration hadoopConf) {
+    this(storageType, appId, shuffleId, partitionId, indexReadLimit, partitionNumPerRange, partitionNum,
+        readBufferSize, storageBasePath, blockIdBitmap, taskIdBitmap, shuffleServerInfoList, hadoopConf,
+        Lists.newArrayList());
+  }
+
+  public ShuffleReadClientImpl(
+      String storageType,
+      String appId,
+      int shuffleId,
+      int partitionId,
+      int indexReadLimit,
+      int partitionNumPerRange,
+      int partitionNum,
+      int readBufferSize,
+      String storageBasePath,
+      Roaring64NavigableMap blockIdBitmap,
+      Roaring64NavigableMap taskIdBitmap,
+      List<ShuffleServerInfo> shuffleServerInfoList,
+      Configuration hadoopConf,
+      List<List<ShuffleServerInfo>> spareServerGroups) {
+    this(storageType, appId, shuffleId, partitionId, indexReadLimit, partitionNumPerRange, partitionNum,
+        readBufferSize, storageBasePath, blockIdBitmap, taskIdBitmap, shuffleServerInfoList, hadoopConf,
+        spareServerGroups, BlockIdLayout.DEFAULT);
+  }
+
+  public ShuffleReadClientImpl(
+      String storageType,
+      String appId,
+      int shuffleId,
+      int partitionId,
+      int indexReadLimit,
+      int partitionNumPerRange,
+      int partitionNum,
+      int readBufferSize,
+      String storageBasePath,
+      Roaring64NavigableMap blockIdBitmap,
+      Roaring64NavigableMap taskIdBitmap,
+      List<ShuffleServerInfo> shuffleServerInfoList,
+      Configuration hadoopConf,
+      List<List<ShuffleServerInfo>> spareServerGroups,
+      BlockIdLayout blockIdLayout) {
     this.shuffleId = shuffleId;
     this.partitionId = partitionId;
     this.blockIdBitmap = blockIdBitmap;
@@ -95,10 +140,12 @@ public class ShuffleReadClientImpl implements ShuffleReadClient {
     request.setHadoopConf(hadoopConf);
     request.setExpectBlockIds(blockIdBitmap);
     request.setProcessBlockIds(processedBlockIds);
+    // let the shuffle server skip the data of unexpected tasks, eg, sub-partition read of AQE skew join
+    request.setExpectTaskIds(taskIdBitmap);
 
     List<Long> removeBlockIds = Lists.newArrayList();
     blockIdBitmap.forEach(bid -> {
-      if (!taskIdBitmap.contains(bid & Constants.MAX_TASK_ATTEMPT_ID)) {
+      if (!taskIdBitmap.contains(blockIdLayout.getTaskAttemptId(bid))) {
         removeBlockIds.add(bid);
       }
     });
@@ -115,6 +162,14 @@ public class ShuffleReadClientImpl implements ShuffleReadClient {
     }
 
     clientReadHandler = ShuffleHandlerFactory.getInstance().createShuffleReadHandler(request);
+    clientReadHandlers.add(clientReadHandler);
+    // all the files of partition are read by the first handler if data is only in hdfs
+    if (!StorageType.HDFS.name().equals(storageType)) {
+      for (List<ShuffleServerInfo> spareServers : spareServerGroups) {
+        request.setShuffleServerInfoList(spareServers);
+        clientReadHandlers.add(ShuffleHandlerFactory.getInstance().createShuffleReadHandler(request));
+      }
+    }
   }
 
   @Override
@@ -196,6 +251,12 @@ public class ShuffleReadClientImpl implements ShuffleReadClient {
   private int read() {
     long start = System.currentTimeMillis();
     ShuffleDataResult sdr = clientReadHandler.readShuffleData();
+    // data of skewed partition may be on the spare servers, read them after the current servers are consumed
+    while ((sdr == null || sdr.isEmpty()) && readHandlerIndex + 1 < clientReadHandlers.size()) {
+      readHandlerIndex++;
+      clientReadHandler = clientReadHandlers.get(readHandlerIndex);
+      sdr = clientReadHandler.readShuffleData();
+    }
     readDataTime.addAndGet(System.currentTimeMillis() - start);
     if (sdr == null) {
       return 0;
@@ -225,8 +286,8 @@ public class ShuffleReadClientImpl implements ShuffleReadClient {
 
   @Override
   public void close() {
-    if (clientReadHandler != null) {
-      clientReadHandler.close();
+    for (ClientReadHandler handler : clientReadHandlers) {
+      handler.close();
     }
   }
 
@@ -235,6 +296,6 @@ public class ShuffleReadClientImpl implements ShuffleReadClient {
     LOG.info("Metrics for shuffleId[" + shuffleId + "], partitionId[" + partitionId + "]"
         + ", read data cost " + readDataTime + " ms, copy data cost " + copyTime
         + " ms, crc check cost " + crcCheckTime + " ms");
-    clientReadHandler.logConsumedBlockInfo();
+    clientReadHandlers.forEach(ClientReadHandler::logConsumedBlockInfo);
   }
 }
@@ -22,10 +22,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -42,6 +45,7 @@ import com.tencent.rss.client.api.ShuffleServerClient;
 import com.tencent.rss.client.api.ShuffleWriteClient;
 import com.tencent.rss.client.factory.CoordinatorClientFactory;
 import com.tencent.rss.client.factory.ShuffleServerClientFactory;
+import com.tencent.rss.client.request.RssAbortTaskAttemptRequest;
 import com.tencent.rss.client.request.RssAppHeartBeatRequest;
 import com.tencent.rss.client.request.RssFetchClientConfRequest;
 import com.tencent.rss.client.request.RssFetchRemoteStorageRequest;
@@ -53,7 +57,9 @@ import com.tencent.rss.client.request.RssReportShuffleResultRequest;
 import com.tencent.rss.client.request.RssSendCommitRequest;
 import com.tencent.rss.client.request.RssSendShuffleDataRequest;
 import com.tencent.rss.client.response.ClientResponse;
+import com.tencent.rss.client.response.PartitionShuffleResult;
 import com.tencent.rss.client.response.ResponseStatusCode;
+import com.tencent.rss.client.response.RssAbortTaskAttemptResponse;
 import com.tencent.rss.client.response.RssAppHeartBeatResponse;
 import com.tencent.rss.client.response.RssFetchClientConfResponse;
 import com.tencent.rss.client.response.RssFetchRemoteStorageResponse;
@@ -65,15 +71,19 @@ import com.tencent.rss.client.response.RssReportShuffleResultResponse;
 import com.tencent.rss.client.response.RssSendCommitResponse;
 import com.tencent.rss.client.response.RssSendShuffleDataResponse;
 import com.tencent.rss.client.response.SendShuffleDataResult;
+import com.tencent.rss.client.util.ClientUtils;
 import com.tencent.rss.common.PartitionRange;
 import com.tencent.rss.common.ShuffleAssignmentsInfo;
 import com.tencent.rss.common.ShuffleBlockInfo;
 import com.tencent.rss.common.ShuffleServerInfo;
 import com.tencent.rss.common.exception.RssException;
+import com.tencent.rss.common.util.BlockIdLayout;
+import com.tencent.rss.common.util.RssUtils;
 
 public class ShuffleWriteClientImpl implements ShuffleWriteClient {
 
   private static final Logger LOG = LoggerFactory.getLogger(ShuffleWriteClientImpl.class);
+  private static final long RPC_TIMEOUT_DEFAULT_MS = 10 * 60 * 1000L;
   private String clientType;
   private int retryMax;
   private long retryIntervalMax;
@@ -81,18 +91,35 @@ public class ShuffleWriteClientImpl implements ShuffleWriteClient {
   private Set<ShuffleServerInfo> shuffleServerInfoSet = Sets.newConcurrentHashSet();
   private CoordinatorClientFactory coordinatorClientFactory;
   private ExecutorService heartBeatExecutorService;
+  // commit and report calls are sent to all servers of a shuffle concurrently
+  private ExecutorService rpcExecutorService;
+  private long rpcTimeoutMs;
   private int replica;
   private int replicaWrite;
   private int replicaRead;
+  // appId/shuffleId -> partitionId -> assigned servers
+  private Map<String, Map<Integer, List<ShuffleServerInfo>>> shuffleAssignments = Maps.newConcurrentMap();
+  // appId/shuffleId -> partitionId -> spare server groups in use, the last one receives the new blocks
+  private Map<String, Map<Integer, List<List<ShuffleServerInfo>>>> skewedPartitionServers =
+      Maps.newConcurrentMap();
 
   public ShuffleWriteClientImpl(String clientType, int retryMax, long retryIntervalMax, int heartBeatThreadNum,
                                 int replica, int replicaWrite, int replicaRead) {
+    this(clientType, retryMax, retryIntervalMax, heartBeatThreadNum, replica, replicaWrite, replicaRead,
+        RPC_TIMEOUT_DEFAULT_MS);
+  }
+
+  public ShuffleWriteClientImpl(String clientType, int retryMax, long retryIntervalMax, int heartBeatThreadNum,
+                                int replica, int replicaWrite, int replicaRead, long rpcTimeoutMs) {
     this.clientType = clientType;
     this.retryMax = retryMax;
     this.retryIntervalMax = retryIntervalMax;
     coordinatorClientFactory = new CoordinatorClientFactory(clientType);
     heartBeatExecutorService = Executors.newFixedThreadPool(heartBeatThreadNum,
         new ThreadFactoryBuilder().setDaemon(true).setNameFormat("client-heartbeat-%d").build());
+    rpcExecutorService = Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("client-rpc-%d").build());
+    this.rpcTimeoutMs = rpcTimeoutMs;
     this.replica = replica;
     this.replicaWrite = replicaWrite;
     this.replicaRead = replicaRead;
@@ -128,6 +155,8 @@ public class ShuffleWriteClientImpl implements ShuffleWriteClient {
             serverToBlockIds.get(ssi).forEach(block -> blockIdsTracker.get(block).incrementAndGet());
             LOG.info("Send: " + serverToBlockIds.get(ssi).size()
                 + " blocks to [" + ssi.getId() + "] successfully");
+            response.getSkewedPartitions().forEach((shuffleId, partitionIds) -> partitionIds.forEach(
+                partitionId -> onSkewedPartition(appId, shuffleId, partitionId, ssi)));
           } else {
             LOG.warn("Send: " + serverToBlockIds.get(ssi).size() + " blocks to [" + ssi.getId()
                 + "] failed with statusCode[" + response.getStatusCode() + "], ");
@@ -164,7 +193,7 @@ public class ShuffleWriteClientImpl implements ShuffleWriteClient {
     for (ShuffleBlockInfo sbi : shuffleBlockInfoList) {
       int partitionId = sbi.getPartitionId();
       int shuffleId = sbi.getShuffleId();
-      for (ShuffleServerInfo ssi : sbi.getShuffleServerInfos()) {
+      for (ShuffleServerInfo ssi : getTargetServers(appId, sbi)) {
         if (!serverToBlockIds.containsKey(ssi)) {
           serverToBlockIds.put(ssi, Lists.newArrayList());
         }
@@ -194,51 +223,173 @@ public class ShuffleWriteClientImpl implements ShuffleWriteClient {
     return new SendShuffleDataResult(successBlockIds, failedBlockIds);
   }
 
+  private List<ShuffleServerInfo> getTargetServers(String appId, ShuffleBlockInfo sbi) {
+    Map<Integer, List<List<ShuffleServerInfo>>> partitionToSpareServers =
+        skewedPartitionServers.get(RssUtils.generateShuffleKey(appId, sbi.getShuffleId()));
+    if (partitionToSpareServers != null) {
+      List<List<ShuffleServerInfo>> spareServerGroups = partitionToSpareServers.get(sbi.getPartitionId());
+      if (spareServerGroups != null && !spareServerGroups.isEmpty()) {
+        return spareServerGroups.get(spareServerGroups.size() - 1);
+      }
+    }
+    return sbi.getShuffleServerInfos();
+  }
+
+  // if the servers which receive the new blocks report that the partition is skewed,
+  // further blocks of the partition are sent to the next spare server group
+  private synchronized void onSkewedPartition(String appId, int shuffleId, int partitionId, ShuffleServerInfo ssi) {
+    String shuffleKey = RssUtils.generateShuffleKey(appId, shuffleId);
+    Map<Integer, List<ShuffleServerInfo>> partitionToServers = shuffleAssignments.get(shuffleKey);
+    if (partitionToServers == null || !partitionToServers.containsKey(partitionId)) {
+      LOG.debug("Ignore skewed partition because there is no assignment for appId[" + appId
+          + "], shuffleId[" + shuffleId + "], partitionId[" + partitionId + "]");
+      return;
+    }
+    List<List<ShuffleServerInfo>> usedGroups = skewedPartitionServers
+        .computeIfAbsent(shuffleKey, key -> Maps.newConcurrentMap())
+        .computeIfAbsent(partitionId, key -> Lists.newCopyOnWriteArrayList());
+    List<ShuffleServerInfo> currentServers = usedGroups.isEmpty()
+        ? partitionToServers.get(partitionId) : usedGroups.get(usedGroups.size() - 1);
+    if (!currentServers.contains(ssi)) {
+      return;
+    }
+    List<List<ShuffleServerInfo>> spareServerGroups =
+        ClientUtils.getSpareServerGroups(partitionToServers, partitionId);
+    if (usedGroups.size() >= spareServerGroups.size()) {
+      LOG.warn("There is no more spare server for skewed partition of appId[" + appId
+          + "], shuffleId[" + shuffleId + "], partitionId[" + partitionId + "]");
+      return;
+    }
+    List<ShuffleServerInfo> nextServers = spareServerGroups.get(usedGroups.size());
+    try {
+      for (ShuffleServerInfo spareServer : nextServers) {
+        registerShuffle(spareServer, appId, shuffleId,
+            Lists.newArrayList(new PartitionRange(partitionId, partitionId)));
+      }
+    } catch (Exception e) {
+      LOG.warn("Can't register skewed partition to spare servers " + nextServers, e);
+      return;
+    }
+    usedGroups.add(nextServers);
+    LOG.info("Partition of appId[" + appId + "], shuffleId[" + shuffleId + "], partitionId[" + partitionId
+        + "] is skewed, send further blocks to " + nextServers);
+  }
+
+  private Set<ShuffleServerInfo> getSpareServers(String appId, int shuffleId, int partitionId) {
+    Set<ShuffleServerInfo> spareServers = Sets.newHashSet();
+    Map<Integer, List<List<ShuffleServerInfo>>> partitionToSpareServers =
+        skewedPartitionServers.get(RssUtils.generateShuffleKey(appId, shuffleId));
+    if (partitionToSpareServers != null && partitionToSpareServers.containsKey(partitionId)) {
+      partitionToSpareServers.get(partitionId).forEach(spareServers::addAll);
+    }
+    return spareServers;
+  }
+
+  @Override
+  public void registerShuffleAssignment(String appId, int shuffleId,
+      Map<Integer, List<ShuffleServerInfo>> partitionToServers) {
+    shuffleAssignments.put(RssUtils.generateShuffleKey(appId, shuffleId), partitionToServers);
+  }
+
   @Override
   public boolean sendCommit(Set<ShuffleServerInfo> shuffleServerInfoSet, String appId, int shuffleId, int numMaps) {
-    AtomicInteger successfulCommit = new AtomicInteger(0);
-    shuffleServerInfoSet.stream().forEach(ssi -> {
-      RssSendCommitRequest request = new RssSendCommitRequest(appId, shuffleId);
-      String errorMsg = "Failed to commit shuffle data to " + ssi + " for shuffleId[" + shuffleId + "]";
-      long startTime = System.currentTimeMillis();
-      try {
-        RssSendCommitResponse response = getShuffleServerClient(ssi).sendCommit(request);
-        if (response.getStatusCode() == ResponseStatusCode.SUCCESS) {
-          int commitCount = response.getCommitCount();
-          LOG.info("Successfully sendCommit for appId[" + appId + "], shuffleId[" + shuffleId
-              + "] to ShuffleServer[" + ssi.getId() + "], cost "
-              + (System.currentTimeMillis() - startTime) + " ms, got committed maps["
-              + commitCount + "], map number of stage is " + numMaps);
-          if (commitCount >= numMaps) {
-            RssFinishShuffleResponse rfsResponse =
-                getShuffleServerClient(ssi).finishShuffle(new RssFinishShuffleRequest(appId, shuffleId));
-            if (rfsResponse.getStatusCode() != ResponseStatusCode.SUCCESS) {
-              String msg = "Failed to finish shuffle to " + ssi + " for shuffleId[" + shuffleId
-                  + "] with statusCode " + rfsResponse.getStatusCode();
-              LOG.error(msg);
-              throw new Exception(msg);
-            } else {
-              LOG.info("Successfully finish shuffle to " + ssi + " for shuffleId[" + shuffleId + "]");
-            }
+    // the spare servers of skewed partitions also need to be committed
+    Set<ShuffleServerInfo> commitServers = Sets.newHashSet(shuffleServerInfoSet);
+    Map<Integer, List<List<ShuffleServerInfo>>> partitionToSpareServers =
+        skewedPartitionServers.get(RssUtils.generateShuffleKey(appId, shuffleId));
+    if (partitionToSpareServers != null) {
+      for (Integer partitionId : partitionToSpareServers.keySet()) {
+        commitServers.addAll(getSpareServers(appId, shuffleId, partitionId));
+      }
+    }
+    List<Callable<Boolean>> callableList = Lists.newArrayList();
+    commitServers.forEach(ssi -> callableList.add(() -> sendCommit(ssi, appId, shuffleId, numMaps)));
+    List<Boolean> results = invokeAll(callableList,
+        "sendCommit for appId[" + appId + "], shuffleId[" + shuffleId + "]");
+    // check if every commit/finish call is successful
+    return results.stream().filter(Boolean.TRUE::equals).count() == commitServers.size();
+  }
+
+  private boolean sendCommit(ShuffleServerInfo ssi, String appId, int shuffleId, int numMaps) {
+    RssSendCommitRequest request = new RssSendCommitRequest(appId, shuffleId);
+    String errorMsg = "Failed to commit shuffle data to " + ssi + " for shuffleId[" + shuffleId + "]";
+    long startTime = System.currentTimeMillis();
+    try {
+      RssSendCommitResponse response = getShuffleServerClient(ssi).sendCommit(request);
+      if (response.getStatusCode() == ResponseStatusCode.SUCCESS) {
+        int commitCount = response.getCommitCount();
+        LOG.info("Successfully sendCommit for appId[" + appId + "], shuffleId[" + shuffleId
+            + "] to ShuffleServer[" + ssi.getId() + "], cost "
+            + (System.currentTimeMillis() - startTime) + " ms, got committed maps["
+            + commitCount + "], map number of stage is " + numMaps);
+        if (commitCount >= numMaps) {
+          RssFinishShuffleResponse rfsResponse =
+              getShuffleServerClient(ssi).finishShuffle(new RssFinishShuffleRequest(appId, shuffleId));
+          if (rfsResponse.getStatusCode() != ResponseStatusCode.SUCCESS) {
+            String msg = "Failed to finish shuffle to " + ssi + " for shuffleId[" + shuffleId
+                + "] with statusCode " + rfsResponse.getStatusCode();
+            LOG.error(msg);
+            throw new Exception(msg);
+          } else {
+            LOG.info("Successfully finish shuffle to " + ssi + " for shuffleId[" + shuffleId + "]");
           }
-        } else {
-          String msg = errorMsg + " with statusCode " + response.getStatusCode();
-          LOG.error(msg);
-          throw new Exception(msg);
         }
-        successfulCommit.incrementAndGet();
-      } catch (Exception e) {
-        LOG.error(errorMsg, e);
+      } else {
+        String msg = errorMsg + " with statusCode " + response.getStatusCode();
+        LOG.error(msg);
+        throw new Exception(msg);
       }
-    });
-    // check if every commit/finish call is successful
-    return successfulCommit.get() == shuffleServerInfoSet.size();
+      return true;
+    } catch (Exception e) {
+      LOG.error(errorMsg, e);
+      return false;
+    }
+  }
+
+  // Call the servers concurrently and wait for rpcTimeoutMs at most, the calls which don't finish in time
+  // are cancelled. The results are in the order of the callables, and they are null for the failed calls.
+  private <T> List<T> invokeAll(List<Callable<T>> callableList, String desc) {
+    List<T> results = Lists.newArrayList();
+    try {
+      List<Future<T>> futures = rpcExecutorService.invokeAll(callableList, rpcTimeoutMs, TimeUnit.MILLISECONDS);
+      for (Future<T> future : futures) {
+        if (future.isCancelled()) {
+          LOG.warn(desc + " isn't finished in " + rpcTimeoutMs + " ms");
+          results.add(null);
+          continue;
+        }
+        try {
+          results.add(future.get());
+        } catch (ExecutionException e) {
+          LOG.warn(desc + " is failed", e);
+          results.add(null);
+        }
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new RssException(desc + " is interrupted");
+    }
+    return results;
   }
 
   @Override
   public void registerShuffle(ShuffleServerInfo shuffleServerInfo,
       String appId, int shuffleId, List<PartitionRange> partitionRanges) {
-    RssRegisterShuffleRequest request = new RssRegisterShuffleRequest(appId, shuffleId, partitionRanges);
+    registerShuffle(shuffleServerInfo, appId, shuffleId, partitionRanges, null, null);
+  }
+
+  @Override
+  public void registerShuffle(ShuffleServerInfo shuffleServerInfo, String appId, int shuffleId,
+      List<PartitionRange> partitionRanges, String combinerClass, String serializerClass) {
+    registerShuffle(shuffleServerInfo, appId, shuffleId, partitionRanges, combinerClass, serializerClass, null, null);
+  }
+
+  @Override
+  public void registerShuffle(ShuffleServerInfo shuffleServerInfo, String appId, int shuffleId,
+      List<PartitionRange> partitionRanges, String combinerClass, String serializerClass,
+      BlockIdLayout blockIdLayout, String remoteStoragePath) {
+    RssRegisterShuffleRequest request = new RssRegisterShuffleRequest(
+        appId, shuffleId, partitionRanges, combinerClass, serializerClass, blockIdLayout, remoteStoragePath);
     RssRegisterShuffleResponse response = getShuffleServerClient(shuffleServerInfo).registerShuffle(request);
 
     String msg = "Error happened when registerShuffle with appId[" + appId + "], shuffleId[" + shuffleId
@@ -323,7 +474,10 @@ public class ShuffleWriteClientImpl implements ShuffleWriteClient {
     Map<ShuffleServerInfo, List<Integer>> groupedPartitions = Maps.newConcurrentMap();
     Map<Integer, Integer> partitionReportTracker = Maps.newConcurrentMap();
     for (Map.Entry<Integer, List<ShuffleServerInfo>> entry : partitionToServers.entrySet()) {
-      for (ShuffleServerInfo ssi : entry.getValue()) {
+      // block ids are also reported to the spare servers, then reader can find them from the spare servers
+      Set<ShuffleServerInfo> reportServers = Sets.newLinkedHashSet(entry.getValue());
+      reportServers.addAll(getSpareServers(appId, shuffleId, entry.getKey()));
+      for (ShuffleServerInfo ssi : reportServers) {
         if (!groupedPartitions.containsKey(ssi)) {
           groupedPartitions.putIfAbsent(ssi, Lists.newArrayList());
         }
@@ -331,6 +485,8 @@ public class ShuffleWriteClientImpl implements ShuffleWriteClient {
       }
       partitionReportTracker.putIfAbsent(entry.getKey(), 0);
     }
+    List<List<Integer>> reportedPartitions = Lists.newArrayList();
+    List<Callable<Boolean>> callableList = Lists.newArrayList();
     for (Map.Entry<ShuffleServerInfo, List<Integer>> entry : groupedPartitions.entrySet()) {
       Map<Integer, List<Long>> requestBlockIds = Maps.newHashMap();
       for (Integer partitionId : entry.getValue()) {
@@ -339,21 +495,32 @@ public class ShuffleWriteClientImpl implements ShuffleWriteClient {
       RssReportShuffleResultRequest request = new RssReportShuffleResultRequest(
           appId, shuffleId, taskAttemptId, requestBlockIds, bitmapNum);
       ShuffleServerInfo ssi = entry.getKey();
-      try {
-        RssReportShuffleResultResponse response = getShuffleServerClient(ssi).reportShuffleResult(request);
-        if (response.getStatusCode() == ResponseStatusCode.SUCCESS) {
-          LOG.info("Report shuffle result to " + ssi + " for appId[" + appId
-              + "], shuffleId[" + shuffleId + "] successfully");
-          for (Integer partitionId : entry.getValue()) {
-            partitionReportTracker.put(partitionId, partitionReportTracker.get(partitionId) + 1);
+      reportedPartitions.add(entry.getValue());
+      callableList.add(() -> {
+        try {
+          RssReportShuffleResultResponse response = getShuffleServerClient(ssi).reportShuffleResult(request);
+          if (response.getStatusCode() == ResponseStatusCode.SUCCESS) {
+            LOG.info("Report shuffle result to " + ssi + " for appId[" + appId
+                + "], shuffleId[" + shuffleId + "] successfully");
+            return true;
+          } else {
+            LOG.warn("Report shuffle result to " + ssi + " for appId[" + appId
+                + "], shuffleId[" + shuffleId + "] failed with " + response.getStatusCode());
           }
-        } else {
-          LOG.warn("Report shuffle result to " + ssi + " for appId[" + appId
-              + "], shuffleId[" + shuffleId + "] failed with " + response.getStatusCode());
+        } catch (Exception e) {
+          LOG.warn("Report shuffle result is failed to " + ssi
+              + " for appId[" + appId + "], shuffleId[" + shuffleId + "]");
+        }
+        return false;
+      });
+    }
+    List<Boolean> results = invokeAll(callableList,
+        "Report shuffle result for appId[" + appId + "], shuffleId[" + shuffleId + "]");
+    for (int i = 0; i < results.size(); i++) {
+      if (Boolean.TRUE.equals(results.get(i))) {
+        for (Integer partitionId : reportedPartitions.get(i)) {
+          partitionReportTracker.put(partitionId, partitionReportTracker.get(partitionId) + 1);
         }
-      } catch (Exception e) {
-        LOG.warn("Report shuffle result is failed to " + ssi
-            + " for appId[" + appId + "], shuffleId[" + shuffleId + "]");
       }
     }
     // quorum check
@@ -365,11 +532,92 @@ public class ShuffleWriteClientImpl implements ShuffleWriteClient {
     }
   }
 
+  @Override
+  public void abortTaskAttempt(
+      Map<Integer, List<ShuffleServerInfo>> partitionToServers,
+      String appId,
+      int shuffleId,
+      long taskAttemptId) {
+    Set<ShuffleServerInfo> abortServers = Sets.newHashSet();
+    for (Map.Entry<Integer, List<ShuffleServerInfo>> entry : partitionToServers.entrySet()) {
+      abortServers.addAll(entry.getValue());
+      abortServers.addAll(getSpareServers(appId, shuffleId, entry.getKey()));
+    }
+    RssAbortTaskAttemptRequest request = new RssAbortTaskAttemptRequest(appId, shuffleId, taskAttemptId);
+    // the abort is sent asynchronously, it's only to release the server memory earlier and the aborted task
+    // may be interrupted, readers skip the blocks of the attempt even if the abort is failed
+    try {
+      for (ShuffleServerInfo ssi : abortServers) {
+        rpcExecutorService.submit(() -> {
+          try {
+            RssAbortTaskAttemptResponse response = getShuffleServerClient(ssi).abortTaskAttempt(request);
+            if (response.getStatusCode() != ResponseStatusCode.SUCCESS) {
+              LOG.warn("Abort task attempt[" + taskAttemptId + "] to " + ssi + " for appId[" + appId
+                  + "], shuffleId[" + shuffleId + "] failed with " + response.getStatusCode());
+            }
+          } catch (Exception e) {
+            LOG.warn("Abort task attempt[" + taskAttemptId + "] is failed to " + ssi
+                + " for appId[" + appId + "], shuffleId[" + shuffleId + "]", e);
+          }
+        });
+      }
+    } catch (RejectedExecutionException e) {
+      // the client is closed, e.g. the executor is stopping
+      LOG.warn("Can't abort task attempt[" + taskAttemptId + "] for appId[" + appId
+          + "], shuffleId[" + shuffleId + "] because the client is closed");
+    }
+  }
+
   @Override
   public Roaring64NavigableMap getShuffleResult(String clientType, Set<ShuffleServerInfo> shuffleServerInfoSet,
       String appId, int shuffleId, int partitionId) {
+    return getShuffleResult(clientType, shuffleServerInfoSet, appId, shuffleId, partitionId, null, new AtomicBoolean());
+  }
+
+  @Override
+  public Roaring64NavigableMap getShuffleResult(String clientType, Set<ShuffleServerInfo> shuffleServerInfoSet,
+      String appId, int shuffleId, int partitionId, Roaring64NavigableMap taskIdBitmap) {
+    return getShuffleResult(
+        clientType, shuffleServerInfoSet, appId, shuffleId, partitionId, taskIdBitmap, new AtomicBoolean());
+  }
+
+  @Override
+  public PartitionShuffleResult getPartitionShuffleResult(String clientType,
+      Map<Integer, List<ShuffleServerInfo>> partitionToServers, String appId, int shuffleId, int partitionId) {
+    List<List<ShuffleServerInfo>> serverGroups = Lists.newArrayList();
+    List<ShuffleServerInfo> servers = partitionToServers.get(partitionId);
+    serverGroups.add(servers);
+    AtomicBoolean skewed = new AtomicBoolean(false);
+    Roaring64NavigableMap blockIdBitmap = getShuffleResult(
+        clientType, Sets.newHashSet(servers), appId, shuffleId, partitionId, null, skewed);
+    // follow the spare server groups as long as the last group reports the partition is skewed
+    for (List<ShuffleServerInfo> spareServers : ClientUtils.getSpareServerGroups(partitionToServers, partitionId)) {
+      if (!skewed.get()) {
+        break;
+      }
+      skewed.set(false);
+      Roaring64NavigableMap spareBlockIdBitmap;
+      try {
+        spareBlockIdBitmap = getShuffleResult(
+            clientType, Sets.newHashSet(spareServers), appId, shuffleId, partitionId, null, skewed);
+      } catch (Exception e) {
+        LOG.warn("Can't get shuffle result from spare servers " + spareServers + " for appId["
+            + appId + "], shuffleId[" + shuffleId + "], partitionId[" + partitionId + "]", e);
+        break;
+      }
+      if (spareBlockIdBitmap.isEmpty()) {
+        break;
+      }
+      blockIdBitmap.or(spareBlockIdBitmap);
+      serverGroups.add(spareServers);
+    }
+    return new PartitionShuffleResult(blockIdBitmap, serverGroups);
+  }
+
+  private Roaring64NavigableMap getShuffleResult(String clientType, Set<ShuffleServerInfo> shuffleServerInfoSet,
+      String appId, int shuffleId, int partitionId, Roaring64NavigableMap taskIdBitmap, AtomicBoolean skewed) {
     RssGetShuffleResultRequest request = new RssGetShuffleResultRequest(
-        appId, shuffleId, partitionId);
+        appId, shuffleId, partitionId, taskIdBitmap);
     boolean isSuccessful = false;
     Roaring64NavigableMap blockIdBitmap = Roaring64NavigableMap.bitmapOf();
     int successCnt = 0;
@@ -381,6 +629,9 @@ public class ShuffleWriteClientImpl implements ShuffleWriteClient {
           // merge into blockIds from multiple servers.
           Roaring64NavigableMap blockIdBitmapOfServer = response.getBlockIdBitmap();
           blockIdBitmap.or(blockIdBitmapOfServer);
+          if (response.isSkewed()) {
+            skewed.set(true);
+          }
           successCnt++;
           if (successCnt >= replicaRead) {
             isSuccessful = true;
@@ -450,6 +701,7 @@ public class ShuffleWriteClientImpl implements ShuffleWriteClient {
   @Override
   public void close() {
     heartBeatExecutorService.shutdownNow();
+    rpcExecutorService.shutdownNow();
     coordinatorClients.forEach(CoordinatorClient::close);
   }
 
@@ -20,10 +20,12 @@ package com.tencent.rss.client.request;
 
 import java.util.List;
 
+import com.google.common.collect.Lists;
 import org.apache.hadoop.conf.Configuration;
 import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
 import com.tencent.rss.common.ShuffleServerInfo;
+import com.tencent.rss.common.util.BlockIdLayout;
 
 public class CreateShuffleReadClientRequest {
 
@@ -40,6 +42,8 @@ public class CreateShuffleReadClientRequest {
   private Roaring64NavigableMap taskIdBitmap;
   private List<ShuffleServerInfo> shuffleServerInfoList;
   private Configuration hadoopConf;
+  private List<List<ShuffleServerInfo>> spareServerGroups = Lists.newArrayList();
+  private BlockIdLayout blockIdLayout = BlockIdLayout.DEFAULT;
 
   public CreateShuffleReadClientRequest(String appId, int shuffleId, int partitionId, String storageType,
       String basePath, int indexReadLimit, int readBufferSize, int partitionNumPerRange,
@@ -60,6 +64,29 @@ public class CreateShuffleReadClientRequest {
     this.hadoopConf = hadoopConf;
   }
 
+  public CreateShuffleReadClientRequest(String appId, int shuffleId, int partitionId, String storageType,
+      String basePath, int indexReadLimit, int readBufferSize, int partitionNumPerRange,
+      int partitionNum, Roaring64NavigableMap blockIdBitmap, Roaring64NavigableMap taskIdBitmap,
+      List<ShuffleServerInfo> shuffleServerInfoList, Configuration hadoopConf,
+      List<List<ShuffleServerInfo>> spareServerGroups) {
+    this(appId, shuffleId, partitionId, storageType, basePath, indexReadLimit, readBufferSize,
+        partitionNumPerRange, partitionNum, blockIdBitmap, taskIdBitmap, shuffleServerInfoList, hadoopConf);
+    this.spareServerGroups = spareServerGroups;
+  }
+
+  public CreateShuffleReadClientRequest(String appId, int shuffleId, int partitionId, String storageType,
+      String basePath, int indexReadLimit, int readBufferSize, int partitionNumPerRange,
+      int partitionNum, Roaring64NavigableMap blockIdBitmap, Roaring64NavigableMap taskIdBitmap,
+      List<ShuffleServerInfo> shuffleServerInfoList, Configuration hadoopConf,
+      List<List<ShuffleServerInfo>> spareServerGroups, BlockIdLayout blockIdLayout) {
+    this(appId, shuffleId, partitionId, storageType, basePath, indexReadLimit, readBufferSize,
+        partitionNumPerRange, partitionNum, blockIdBitmap, taskIdBitmap, shuffleServerInfoList, hadoopConf,
+        spareServerGroups);
+    if (blockIdLayout != null) {
+      this.blockIdLayout = blockIdLayout;
+    }
+  }
+
   public String getAppId() {
     return appId;
   }
@@ -111,4 +138,12 @@ public class CreateShuffleReadClientRequest {
   public Configuration getHadoopConf() {
     return hadoopConf;
   }
+
+  public List<List<ShuffleServerInfo>> getSpareServerGroups() {
+    return spareServerGroups;
+  }
+
+  public BlockIdLayout getBlockIdLayout() {
+    return blockIdLayout;
+  }
 }
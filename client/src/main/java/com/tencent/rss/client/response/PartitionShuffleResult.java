@@ -0,0 +1,49 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.client.response;
+
+import java.util.List;
+
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import com.tencent.rss.common.ShuffleServerInfo;
+
+public class PartitionShuffleResult {
+
+  private Roaring64NavigableMap blockIdBitmap;
+  // the assigned servers of partition are the first group, the rest are spare servers for skewed data
+  private List<List<ShuffleServerInfo>> serverGroups;
+
+  public PartitionShuffleResult(Roaring64NavigableMap blockIdBitmap, List<List<ShuffleServerInfo>> serverGroups) {
+    this.blockIdBitmap = blockIdBitmap;
+    this.serverGroups = serverGroups;
+  }
+
+  public Roaring64NavigableMap getBlockIdBitmap() {
+    return blockIdBitmap;
+  }
+
+  public List<List<ShuffleServerInfo>> getServerGroups() {
+    return serverGroups;
+  }
+
+  public List<List<ShuffleServerInfo>> getSpareServerGroups() {
+    return serverGroups.subList(1, serverGroups.size());
+  }
+}
@@ -18,28 +18,58 @@
 
 package com.tencent.rss.client.util;
 
-import com.tencent.rss.common.util.Constants;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.common.collect.Lists;
+
+import com.tencent.rss.common.ShuffleServerInfo;
+import com.tencent.rss.common.util.BlockIdLayout;
 
 public class ClientUtils {
 
-  // BlockId is long and composed by partitionId, executorId and AtomicInteger
+  // BlockId is long and composed by partitionId, executorId and AtomicInteger with the default layout
   // AtomicInteger is first 19 bit, max value is 2^19 - 1
   // partitionId is next 24 bit, max value is 2^24 - 1
   // taskAttemptId is rest of 20 bit, max value is 2^20 - 1
   public static Long getBlockId(long partitionId, long taskAttemptId, long atomicInt) {
-    if (atomicInt < 0 || atomicInt > Constants.MAX_SEQUENCE_NO) {
-      throw new RuntimeException("Can't support sequence[" + atomicInt
-          + "], the max value should be " + Constants.MAX_SEQUENCE_NO);
+    return getBlockId(BlockIdLayout.DEFAULT, partitionId, taskAttemptId, atomicInt);
+  }
+
+  public static Long getBlockId(BlockIdLayout layout, long partitionId, long taskAttemptId, long atomicInt) {
+    return layout.getBlockId(partitionId, taskAttemptId, atomicInt);
+  }
+
+  // Spare server groups are used for the data of skewed partition. They are picked from the servers of
+  // the shuffle which don't serve the partition, and every group has the same size as the replica,
+  // the result only depends on the assignment, so writer and reader get the same groups.
+  public static List<List<ShuffleServerInfo>> getSpareServerGroups(
+      Map<Integer, List<ShuffleServerInfo>> partitionToServers, int partitionId) {
+    List<List<ShuffleServerInfo>> spareServerGroups = Lists.newArrayList();
+    List<ShuffleServerInfo> servers = partitionToServers.get(partitionId);
+    if (servers == null || servers.isEmpty()) {
+      return spareServerGroups;
     }
-    if (partitionId < 0 || partitionId > Constants.MAX_PARTITION_ID) {
-      throw new RuntimeException("Can't support partitionId["
-          + partitionId + "], the max value should be " + Constants.MAX_PARTITION_ID);
+    TreeMap<String, ShuffleServerInfo> candidates = new TreeMap<>();
+    for (List<ShuffleServerInfo> assignedServers : partitionToServers.values()) {
+      for (ShuffleServerInfo ssi : assignedServers) {
+        if (!servers.contains(ssi)) {
+          candidates.put(ssi.getId() + "-" + ssi.getHost() + "-" + ssi.getPort(), ssi);
+        }
+      }
     }
-    if (taskAttemptId < 0 || taskAttemptId > Constants.MAX_TASK_ATTEMPT_ID) {
-      throw new RuntimeException("Can't support taskAttemptId["
-          + taskAttemptId + "], the max value should be " + Constants.MAX_TASK_ATTEMPT_ID);
+    List<ShuffleServerInfo> sortedCandidates = Lists.newArrayList(candidates.values());
+    int groupSize = servers.size();
+    int groupNum = sortedCandidates.size() / groupSize;
+    for (int i = 0; i < groupNum; i++) {
+      List<ShuffleServerInfo> group = Lists.newArrayList();
+      for (int j = 0; j < groupSize; j++) {
+        // start from different position to spread the skewed partitions
+        group.add(sortedCandidates.get((partitionId + i * groupSize + j) % sortedCandidates.size()));
+      }
+      spareServerGroups.add(group);
     }
-    return (atomicInt << (Constants.PARTITION_ID_MAX_LENGTH + Constants.TASK_ATTEMPT_ID_MAX_LENGTH))
-        + (partitionId << Constants.TASK_ATTEMPT_ID_MAX_LENGTH) + taskAttemptId;
+    return spareServerGroups;
   }
 }
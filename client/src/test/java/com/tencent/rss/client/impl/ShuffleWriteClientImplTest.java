@@ -18,23 +18,35 @@
 
 package com.tencent.rss.client.impl;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.tencent.rss.client.api.ShuffleServerClient;
 import com.tencent.rss.client.response.ResponseStatusCode;
+import com.tencent.rss.client.response.RssFinishShuffleResponse;
+import com.tencent.rss.client.response.RssReportShuffleResultResponse;
+import com.tencent.rss.client.response.RssSendCommitResponse;
 import com.tencent.rss.client.response.RssSendShuffleDataResponse;
 import com.tencent.rss.client.response.SendShuffleDataResult;
 import com.tencent.rss.common.ShuffleBlockInfo;
 import com.tencent.rss.common.ShuffleServerInfo;
+import com.tencent.rss.common.exception.RssException;
 
 import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.junit.Test;
 
 public class ShuffleWriteClientImplTest {
@@ -57,4 +69,79 @@ public class ShuffleWriteClientImplTest {
 
     assertTrue(result.getFailedBlockIds().contains(10L));
   }
+
+  @Test
+  public void sendCommitTest() {
+    ShuffleWriteClientImpl spyClient = spy(new ShuffleWriteClientImpl("GRPC", 3, 2000, 4, 1, 1, 1, 2000));
+    Map<ShuffleServerInfo, ShuffleServerClient> clients = Maps.newConcurrentMap();
+    doAnswer(invocation -> clients.get(invocation.getArgument(0))).when(spyClient).getShuffleServerClient(any());
+    Set<ShuffleServerInfo> servers = Sets.newHashSet();
+    for (int i = 0; i < 10; i++) {
+      ShuffleServerInfo ssi = new ShuffleServerInfo("id" + i, "host", i);
+      servers.add(ssi);
+      clients.put(ssi, createDelayedClient(100 + i * 50));
+    }
+
+    // the servers are committed concurrently, so it only waits for the slowest one
+    long start = System.currentTimeMillis();
+    assertTrue(spyClient.sendCommit(servers, "appId", 0, 1));
+    assertTrue(System.currentTimeMillis() - start < 1500);
+    clients.values().forEach(client -> verify(client).finishShuffle(any()));
+
+    // the server which doesn't respond in time fails the commit
+    ShuffleServerInfo slowServer = new ShuffleServerInfo("id10", "host", 10);
+    servers.add(slowServer);
+    clients.put(slowServer, createDelayedClient(10000));
+    start = System.currentTimeMillis();
+    assertFalse(spyClient.sendCommit(servers, "appId", 0, 1));
+    assertTrue(System.currentTimeMillis() - start < 5000);
+  }
+
+  @Test
+  public void reportShuffleResultTest() {
+    ShuffleWriteClientImpl spyClient = spy(new ShuffleWriteClientImpl("GRPC", 3, 2000, 4, 3, 2, 1, 1000));
+    Map<ShuffleServerInfo, ShuffleServerClient> clients = Maps.newConcurrentMap();
+    doAnswer(invocation -> clients.get(invocation.getArgument(0))).when(spyClient).getShuffleServerClient(any());
+    ShuffleServerInfo ssi1 = new ShuffleServerInfo("id1", "host", 1);
+    ShuffleServerInfo ssi2 = new ShuffleServerInfo("id2", "host", 2);
+    ShuffleServerInfo ssi3 = new ShuffleServerInfo("id3", "host", 3);
+    clients.put(ssi1, createDelayedClient(100));
+    clients.put(ssi2, createDelayedClient(300));
+    clients.put(ssi3, createDelayedClient(10000));
+    Map<Integer, List<ShuffleServerInfo>> partitionToServers = Maps.newHashMap();
+    partitionToServers.put(0, Lists.newArrayList(ssi1, ssi2, ssi3));
+    partitionToServers.put(1, Lists.newArrayList(ssi3, ssi2, ssi1));
+    Map<Integer, List<Long>> partitionToBlockIds = Maps.newHashMap();
+    partitionToBlockIds.put(0, Lists.newArrayList(1L, 2L));
+    partitionToBlockIds.put(1, Lists.newArrayList(3L));
+
+    // the quorum is reached without the slow server
+    long start = System.currentTimeMillis();
+    spyClient.reportShuffleResult(partitionToServers, "appId", 0, 0L, partitionToBlockIds, 1);
+    assertTrue(System.currentTimeMillis() - start < 3000);
+
+    clients.put(ssi2, createDelayedClient(10000));
+    try {
+      spyClient.reportShuffleResult(partitionToServers, "appId", 0, 0L, partitionToBlockIds, 1);
+      fail("Exception should be thrown");
+    } catch (RssException e) {
+      assertTrue(e.getMessage().startsWith("Quorum check of report shuffle result is failed"));
+    }
+  }
+
+  private ShuffleServerClient createDelayedClient(long delayMs) {
+    ShuffleServerClient client = mock(ShuffleServerClient.class);
+    RssSendCommitResponse commitResponse = new RssSendCommitResponse(ResponseStatusCode.SUCCESS);
+    commitResponse.setCommitCount(1);
+    when(client.sendCommit(any())).thenAnswer(invocation -> {
+      Thread.sleep(delayMs);
+      return commitResponse;
+    });
+    when(client.finishShuffle(any())).thenReturn(new RssFinishShuffleResponse(ResponseStatusCode.SUCCESS));
+    when(client.reportShuffleResult(any())).thenAnswer(invocation -> {
+      Thread.sleep(delayMs);
+      return new RssReportShuffleResultResponse(ResponseStatusCode.SUCCESS);
+    });
+    return client;
+  }
 }
@@ -0,0 +1,71 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.common;
+
+/**
+ * Cumulative write counters of a shuffle server against one remote storage path,
+ * they are reported to coordinator with heartbeat.
+ */
+public class RemoteStorageWriteInfo {
+
+  private final String path;
+  private final long writeBytes;
+  private final long writeTimeMs;
+  private final long writeCount;
+  private final long errorCount;
+
+  public RemoteStorageWriteInfo(
+      String path,
+      long writeBytes,
+      long writeTimeMs,
+      long writeCount,
+      long errorCount) {
+    this.path = path;
+    this.writeBytes = writeBytes;
+    this.writeTimeMs = writeTimeMs;
+    this.writeCount = writeCount;
+    this.errorCount = errorCount;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public long getWriteBytes() {
+    return writeBytes;
+  }
+
+  public long getWriteTimeMs() {
+    return writeTimeMs;
+  }
+
+  public long getWriteCount() {
+    return writeCount;
+  }
+
+  public long getErrorCount() {
+    return errorCount;
+  }
+
+  @Override
+  public String toString() {
+    return "RemoteStorageWriteInfo{path[" + path + "], writeBytes[" + writeBytes + "], writeTimeMs["
+        + writeTimeMs + "], writeCount[" + writeCount + "], errorCount[" + errorCount + "]}";
+  }
+}
@@ -42,6 +42,12 @@ public class RssShuffleUtils {
     return uncompressData;
   }
 
+  // decompress the data from its position to dest, the position of data isn't changed
+  public static void decompressData(ByteBuffer data, byte[] dest, int uncompressLength) {
+    LZ4FastDecompressor fastDecompressor = LZ4Factory.fastestInstance().fastDecompressor();
+    fastDecompressor.decompress(data, data.position(), ByteBuffer.wrap(dest), 0, uncompressLength);
+  }
+
   public static ByteBuffer decompressData(ByteBuffer data, int uncompressLength) {
     LZ4FastDecompressor fastDecompressor = LZ4Factory.fastestInstance().fastDecompressor();
     ByteBuffer uncompressData = ByteBuffer.allocateDirect(uncompressLength);
@@ -0,0 +1,38 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.common;
+
+import java.util.List;
+
+/**
+ * Server side combiner which is registered by client with registerShuffle and
+ * loaded by {@link com.tencent.rss.common.util.RssUtils#loadExtensions}.
+ * The implementation can have a constructor with the serializer's class name as the only
+ * parameter, or a default constructor.
+ */
+public interface ShuffleCombiner {
+
+  /**
+   * Combine the records of several blocks which belong to the same partition and task attempt.
+   *
+   * @param blocks uncompressed data of the blocks, every one is the serialized records of a block
+   * @return uncompressed serialized records of the combined block
+   */
+  byte[] combine(List<byte[]> blocks);
+}
@@ -188,6 +188,9 @@ public class ConfigUtils {
   public static Function<Integer, Boolean> positiveIntegerValidator2 =
       value -> value > 0;
 
+  public static Function<Integer, Boolean> non_negativeIntegerValidator =
+      value -> value >= 0;
+
   public static Function<Double, Boolean> percentageDoubleValidator =
       (Function<Double, Boolean>) value -> Double.compare(value, 100.0) <= 0 && Double.compare(value, 0.0) >= 0;
   
@@ -152,6 +152,54 @@ public class RssBaseConf extends RssConf {
       .defaultValue(1000)
       .withDescription("Thread number for grpc to process request");
 
+  public static final ConfigOption<Boolean> RPC_EXECUTOR_ISOLATION_ENABLE = ConfigOptions
+      .key("rss.rpc.executor.isolation.enable")
+      .booleanType()
+      .defaultValue(true)
+      .withDescription("If process control, write and read rpc in separate bounded executors, "
+          + "rpc will be rejected with RESOURCE_EXHAUSTED when the executor is full");
+
+  public static final ConfigOption<Integer> RPC_EXECUTOR_CONTROL_SIZE = ConfigOptions
+      .key("rss.rpc.executor.control.size")
+      .intType()
+      .checkValue(ConfigUtils.positiveIntegerValidator2, "The value must be positive integer")
+      .defaultValue(100)
+      .withDescription("Thread number for control rpc, eg, register, commit, report and heartbeat");
+
+  public static final ConfigOption<Integer> RPC_EXECUTOR_WRITE_SIZE = ConfigOptions
+      .key("rss.rpc.executor.write.size")
+      .intType()
+      .checkValue(ConfigUtils.positiveIntegerValidator2, "The value must be positive integer")
+      .defaultValue(500)
+      .withDescription("Thread number for write rpc");
+
+  public static final ConfigOption<Integer> RPC_EXECUTOR_READ_SIZE = ConfigOptions
+      .key("rss.rpc.executor.read.size")
+      .intType()
+      .checkValue(ConfigUtils.positiveIntegerValidator2, "The value must be positive integer")
+      .defaultValue(500)
+      .withDescription("Thread number for read rpc");
+
+  public static final ConfigOption<Integer> RPC_EXECUTOR_QUEUE_SIZE = ConfigOptions
+      .key("rss.rpc.executor.queue.size")
+      .intType()
+      .checkValue(ConfigUtils.positiveIntegerValidator2, "The value must be positive integer")
+      .defaultValue(1000)
+      .withDescription("Queue size of every rpc executor, rpc is rejected when the queue is full");
+
+  public static final ConfigOption<String> RPC_EXECUTOR_WRITE_METHODS = ConfigOptions
+      .key("rss.rpc.executor.write.methods")
+      .stringType()
+      .defaultValue("sendShuffleData,requireBuffer")
+      .withDescription("Rpc methods processed by write executor, separated by comma");
+
+  public static final ConfigOption<String> RPC_EXECUTOR_READ_METHODS = ConfigOptions
+      .key("rss.rpc.executor.read.methods")
+      .stringType()
+      .defaultValue("getLocalShuffleIndex,getLocalShuffleData,getMemoryShuffleData")
+      .withDescription("Rpc methods processed by read executor, separated by comma, "
+          + "methods not in write and read are processed by control executor");
+
   public static final ConfigOption<Boolean> RSS_JVM_METRICS_VERBOSE_ENABLE = ConfigOptions
       .key("rss.jvm.metrics.verbose.enable")
       .booleanType()
@@ -0,0 +1,164 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.common.rpc;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.ForwardingServerCallListener.SimpleForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.tencent.rss.common.config.RssBaseConf;
+
+/**
+ * Process the unary rpc in the bounded executor of its class, so that heavy write or read rpc
+ * can't starve the others. The executor of grpc server only deserializes the request, the method
+ * is invoked in onHalfClose, which is moved to control, write or read executor here.
+ */
+public class ExecutorIsolationInterceptor implements ServerInterceptor {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ExecutorIsolationInterceptor.class);
+
+  private final ExecutorService controlExecutor;
+  private final ExecutorService writeExecutor;
+  private final ExecutorService readExecutor;
+  private final Map<String, ExecutorService> methodToExecutor = Maps.newHashMap();
+
+  public ExecutorIsolationInterceptor(RssBaseConf conf) {
+    int queueSize = conf.getInteger(RssBaseConf.RPC_EXECUTOR_QUEUE_SIZE);
+    controlExecutor = createExecutor("Grpc-control-%d",
+        conf.getInteger(RssBaseConf.RPC_EXECUTOR_CONTROL_SIZE), queueSize);
+    writeExecutor = createExecutor("Grpc-write-%d",
+        conf.getInteger(RssBaseConf.RPC_EXECUTOR_WRITE_SIZE), queueSize);
+    readExecutor = createExecutor("Grpc-read-%d",
+        conf.getInteger(RssBaseConf.RPC_EXECUTOR_READ_SIZE), queueSize);
+    for (String method : splitMethods(conf.getString(RssBaseConf.RPC_EXECUTOR_WRITE_METHODS))) {
+      methodToExecutor.put(method, writeExecutor);
+    }
+    for (String method : splitMethods(conf.getString(RssBaseConf.RPC_EXECUTOR_READ_METHODS))) {
+      methodToExecutor.put(method, readExecutor);
+    }
+  }
+
+  private static Iterable<String> splitMethods(String methods) {
+    return Splitter.on(",").omitEmptyStrings().trimResults().split(methods == null ? "" : methods);
+  }
+
+  private static ExecutorService createExecutor(String nameFormat, int size, int queueSize) {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        size,
+        size,
+        10,
+        TimeUnit.MINUTES,
+        Queues.newLinkedBlockingQueue(queueSize),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat(nameFormat).build());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  @Override
+  public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+      ServerCall<ReqT, RespT> serverCall,
+      Metadata metadata,
+      ServerCallHandler<ReqT, RespT> serverCallHandler) {
+    String methodName = serverCall.getMethodDescriptor().getBareMethodName();
+    // the callbacks of a call are run one by one in the isolated executor once the call is half closed,
+    // otherwise onReady, onCancel or onComplete may run concurrently with the method
+    Executor callExecutor = MoreExecutors.newSequentialExecutor(getExecutor(methodName));
+    AtomicBoolean isHalfClosed = new AtomicBoolean(false);
+    AtomicBoolean isCancelled = new AtomicBoolean(false);
+    return new SimpleForwardingServerCallListener<ReqT>(serverCallHandler.startCall(serverCall, metadata)) {
+      @Override
+      public void onHalfClose() {
+        isHalfClosed.set(true);
+        try {
+          callExecutor.execute(() -> {
+            // the call may be cancelled by client when it is in queue
+            if (!isCancelled.get()) {
+              super.onHalfClose();
+            }
+          });
+        } catch (RejectedExecutionException e) {
+          isHalfClosed.set(false);
+          LOG.debug("Reject rpc {} because the executor is full", methodName);
+          serverCall.close(Status.RESOURCE_EXHAUSTED.withDescription(
+              "Too many pending " + methodName + " requests"), new Metadata());
+        }
+      }
+
+      @Override
+      public void onReady() {
+        runInOrder(super::onReady);
+      }
+
+      @Override
+      public void onCancel() {
+        isCancelled.set(true);
+        runInOrder(super::onCancel);
+      }
+
+      @Override
+      public void onComplete() {
+        runInOrder(super::onComplete);
+      }
+
+      private void runInOrder(Runnable callback) {
+        if (!isHalfClosed.get()) {
+          callback.run();
+          return;
+        }
+        try {
+          callExecutor.execute(callback);
+        } catch (RejectedExecutionException e) {
+          // the executor is only asked for a thread when no callback of the call is pending,
+          // so the callback can't overlap with the others if it runs in the current thread
+          callback.run();
+        }
+      }
+    };
+  }
+
+  @VisibleForTesting
+  ExecutorService getExecutor(String methodName) {
+    return methodToExecutor.getOrDefault(methodName, controlExecutor);
+  }
+
+  public void shutdown() {
+    controlExecutor.shutdownNow();
+    writeExecutor.shutdownNow();
+    readExecutor.shutdownNow();
+  }
+}
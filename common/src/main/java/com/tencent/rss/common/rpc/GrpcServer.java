@@ -19,15 +19,19 @@
 package com.tencent.rss.common.rpc;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Queues;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.grpc.BindableService;
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
+import io.grpc.ServerInterceptor;
 import io.grpc.ServerInterceptors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,11 +46,14 @@ public class GrpcServer implements ServerInterface {
 
   private final Server server;
   private final int port;
+  private final ExecutorIsolationInterceptor executorIsolationInterceptor;
 
   public GrpcServer(RssBaseConf conf, BindableService service, GRPCMetrics grpcMetrics) {
     this.port = conf.getInteger(RssBaseConf.RPC_SERVER_PORT);
     long maxInboundMessageSize = conf.getLong(RssBaseConf.RPC_MESSAGE_MAX_SIZE);
     int rpcExecutorSize = conf.getInteger(RssBaseConf.RPC_EXECUTOR_SIZE);
+    // grpc can't reject the call with status if its executor is full, so the queue is unbounded,
+    // the rpc is processed and rejected in the bounded executors of ExecutorIsolationInterceptor
     ExecutorService pool = new ThreadPoolExecutor(
         rpcExecutorSize,
         rpcExecutorSize * 2,
@@ -56,24 +63,24 @@ public class GrpcServer implements ServerInterface {
         new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Grpc-%d").build()
     );
 
+    List<ServerInterceptor> interceptors = Lists.newArrayList();
+    if (conf.getBoolean(RssBaseConf.RPC_EXECUTOR_ISOLATION_ENABLE)) {
+      executorIsolationInterceptor = new ExecutorIsolationInterceptor(conf);
+      interceptors.add(executorIsolationInterceptor);
+    } else {
+      executorIsolationInterceptor = null;
+    }
     boolean isMetricsEnabled = conf.getBoolean(RssBaseConf.RPC_METRICS_ENABLED);
     if (isMetricsEnabled) {
-      MonitoringServerInterceptor monitoringInterceptor =
-          new MonitoringServerInterceptor(grpcMetrics);
-      this.server = ServerBuilder
-          .forPort(port)
-          .addService(ServerInterceptors.intercept(service, monitoringInterceptor))
-          .executor(pool)
-          .maxInboundMessageSize((int)maxInboundMessageSize)
-          .build();
-    } else {
-      this.server = ServerBuilder
-          .forPort(port)
-          .addService(service)
-          .executor(pool)
-          .maxInboundMessageSize((int)maxInboundMessageSize)
-          .build();
+      // the last interceptor is called first, so rejected rpc is also monitored
+      interceptors.add(new MonitoringServerInterceptor(grpcMetrics));
     }
+    this.server = ServerBuilder
+        .forPort(port)
+        .addService(ServerInterceptors.intercept(service, interceptors))
+        .executor(pool)
+        .maxInboundMessageSize((int)maxInboundMessageSize)
+        .build();
   }
 
   public void start() throws IOException {
@@ -88,10 +95,18 @@ public class GrpcServer implements ServerInterface {
   public void stop() throws InterruptedException {
     if (server != null) {
       server.shutdown().awaitTermination(10, TimeUnit.SECONDS);
+      if (executorIsolationInterceptor != null) {
+        executorIsolationInterceptor.shutdown();
+      }
       LOG.info("GRPC server stopped!");
     }
   }
 
+  @VisibleForTesting
+  ExecutorIsolationInterceptor getExecutorIsolationInterceptor() {
+    return executorIsolationInterceptor;
+  }
+
   public void blockUntilShutdown() throws InterruptedException {
     if (server != null) {
       server.awaitTermination();
@@ -0,0 +1,154 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.common.util;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * The layout of blockId, it is long and composed by sequenceNo, partitionId and taskAttemptId
+ * from the high bits to the low bits, the sum of their lengths is 63.
+ * The layout is decided by the application and sent to shuffle server when register shuffle,
+ * so the applications with different layouts can share the same shuffle server.
+ */
+public class BlockIdLayout implements Serializable {
+
+  public static final int TOTAL_BITS = 63;
+  public static final BlockIdLayout DEFAULT = new BlockIdLayout(
+      Constants.ATOMIC_INT_MAX_LENGTH, Constants.PARTITION_ID_MAX_LENGTH, Constants.TASK_ATTEMPT_ID_MAX_LENGTH);
+
+  private final int sequenceNoBits;
+  private final int partitionIdBits;
+  private final int taskAttemptIdBits;
+  private final long maxSequenceNo;
+  private final long maxPartitionId;
+  private final long maxTaskAttemptId;
+
+  private BlockIdLayout(int sequenceNoBits, int partitionIdBits, int taskAttemptIdBits) {
+    if (sequenceNoBits <= 0 || partitionIdBits <= 0 || taskAttemptIdBits <= 0
+        || sequenceNoBits + partitionIdBits + taskAttemptIdBits != TOTAL_BITS) {
+      throw new IllegalArgumentException("Invalid blockId layout with sequenceNo[" + sequenceNoBits
+          + "] bits, partitionId[" + partitionIdBits + "] bits, taskAttemptId[" + taskAttemptIdBits
+          + "] bits, all of them should be positive and the sum should be " + TOTAL_BITS);
+    }
+    this.sequenceNoBits = sequenceNoBits;
+    this.partitionIdBits = partitionIdBits;
+    this.taskAttemptIdBits = taskAttemptIdBits;
+    this.maxSequenceNo = (1L << sequenceNoBits) - 1;
+    this.maxPartitionId = (1L << partitionIdBits) - 1;
+    this.maxTaskAttemptId = (1L << taskAttemptIdBits) - 1;
+  }
+
+  public static BlockIdLayout from(int sequenceNoBits, int partitionIdBits, int taskAttemptIdBits) {
+    return new BlockIdLayout(sequenceNoBits, partitionIdBits, taskAttemptIdBits);
+  }
+
+  /**
+   * Creates the layout which only uses the bits needed by partitionId and taskAttemptId,
+   * the rest bits are left to sequenceNo, so the blockIds are small and the bitmaps are dense.
+   */
+  public static BlockIdLayout forJob(int partitionNum, long maxTaskAttemptId) {
+    int partitionIdBits = getBits(Math.max(partitionNum - 1, 0));
+    int taskAttemptIdBits = getBits(maxTaskAttemptId);
+    return new BlockIdLayout(TOTAL_BITS - partitionIdBits - taskAttemptIdBits, partitionIdBits, taskAttemptIdBits);
+  }
+
+  // the number of bits to store the value, at least 1 bit
+  public static int getBits(long value) {
+    return Math.max(1, Long.SIZE - Long.numberOfLeadingZeros(value));
+  }
+
+  public long getBlockId(long partitionId, long taskAttemptId, long sequenceNo) {
+    if (sequenceNo < 0 || sequenceNo > maxSequenceNo) {
+      throw new RuntimeException("Can't support sequence[" + sequenceNo
+          + "], the max value should be " + maxSequenceNo);
+    }
+    if (partitionId < 0 || partitionId > maxPartitionId) {
+      throw new RuntimeException("Can't support partitionId["
+          + partitionId + "], the max value should be " + maxPartitionId);
+    }
+    if (taskAttemptId < 0 || taskAttemptId > maxTaskAttemptId) {
+      throw new RuntimeException("Can't support taskAttemptId["
+          + taskAttemptId + "], the max value should be " + maxTaskAttemptId);
+    }
+    return (sequenceNo << (partitionIdBits + taskAttemptIdBits))
+        + (partitionId << taskAttemptIdBits) + taskAttemptId;
+  }
+
+  public long getSequenceNo(long blockId) {
+    return blockId >>> (partitionIdBits + taskAttemptIdBits);
+  }
+
+  public long getPartitionId(long blockId) {
+    return (blockId >>> taskAttemptIdBits) & maxPartitionId;
+  }
+
+  public long getTaskAttemptId(long blockId) {
+    return blockId & maxTaskAttemptId;
+  }
+
+  public int getSequenceNoBits() {
+    return sequenceNoBits;
+  }
+
+  public int getPartitionIdBits() {
+    return partitionIdBits;
+  }
+
+  public int getTaskAttemptIdBits() {
+    return taskAttemptIdBits;
+  }
+
+  public long getMaxSequenceNo() {
+    return maxSequenceNo;
+  }
+
+  public long getMaxPartitionId() {
+    return maxPartitionId;
+  }
+
+  public long getMaxTaskAttemptId() {
+    return maxTaskAttemptId;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    BlockIdLayout that = (BlockIdLayout) o;
+    return sequenceNoBits == that.sequenceNoBits
+        && partitionIdBits == that.partitionIdBits
+        && taskAttemptIdBits == that.taskAttemptIdBits;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(sequenceNoBits, partitionIdBits, taskAttemptIdBits);
+  }
+
+  @Override
+  public String toString() {
+    return "BlockIdLayout{sequenceNoBits=" + sequenceNoBits + ", partitionIdBits=" + partitionIdBits
+        + ", taskAttemptIdBits=" + taskAttemptIdBits + "}";
+  }
+}
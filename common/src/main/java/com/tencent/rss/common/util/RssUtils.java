@@ -170,6 +170,15 @@ public class RssUtils {
         long crc = byteBuffer.getLong();
         long blockId = byteBuffer.getLong();
         long taskAttemptId = byteBuffer.getLong();
+        // The data of a partition range may be interleaved with other ranges in a shared segment log,
+        // and the index segments may be filtered by task attempt id in the shuffle server, so the data
+        // isn't continuous anymore, a new data segment is started when there is a gap.
+        if (fileOffset != -1 && offset != fileOffset + bufferOffset) {
+          dataFileSegments.add(new ShuffleDataSegment(fileOffset, bufferOffset, bufferSegments));
+          bufferSegments = Lists.newArrayList();
+          bufferOffset = 0;
+          fileOffset = -1;
+        }
         // The index file is written, read and parsed sequentially, so these parsed index segments
         // index a continuous shuffle data in the corresponding data file and the first segment's
         // offset field is the offset of these shuffle data in the data file.
@@ -201,6 +210,30 @@ public class RssUtils {
     return dataFileSegments;
   }
 
+  /**
+   * Keep the index segments which are written by the expected task attempts, the layout of an index
+   * segment is offset(8), length(4), uncompressLength(4), crc(8), blockId(8), taskAttemptId(8).
+   */
+  public static byte[] filterIndexData(byte[] indexData, Roaring64NavigableMap expectTaskIds) {
+    int segmentSize = 4 * Long.BYTES + 2 * Integer.BYTES;
+    int segmentNum = indexData.length / segmentSize;
+    ByteBuffer source = ByteBuffer.wrap(indexData);
+    ByteBuffer filtered = ByteBuffer.allocate(segmentNum * segmentSize);
+    for (int i = 0; i < segmentNum; i++) {
+      int position = i * segmentSize;
+      long taskAttemptId = source.getLong(position + segmentSize - Long.BYTES);
+      if (expectTaskIds.contains(taskAttemptId)) {
+        filtered.put(indexData, position, segmentSize);
+      }
+    }
+    if (filtered.position() == indexData.length) {
+      return indexData;
+    }
+    byte[] result = new byte[filtered.position()];
+    System.arraycopy(filtered.array(), 0, result, 0, result.length);
+    return result;
+  }
+
   public static String generateShuffleKey(String appId, int shuffleId) {
     return String.join(Constants.KEY_SPLIT_CHAR, appId, String.valueOf(shuffleId));
   }
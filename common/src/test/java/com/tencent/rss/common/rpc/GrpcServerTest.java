@@ -0,0 +1,180 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.common.rpc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.grpc.BindableService;
+import io.grpc.CallOptions;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ServerCalls;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.tencent.rss.common.config.RssBaseConf;
+
+public class GrpcServerTest {
+
+  private static final String SERVICE_NAME = "rss.test.TestService";
+  private static final int PORT = 19401;
+  private static final MethodDescriptor.Marshaller<String> MARSHALLER = new MethodDescriptor.Marshaller<String>() {
+    @Override
+    public InputStream stream(String value) {
+      return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String parse(InputStream stream) {
+      try {
+        return new String(ByteStreams.toByteArray(stream), StandardCharsets.UTF_8);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  };
+  private static final MethodDescriptor<String, String> SEND_METHOD = createMethod("sendShuffleData");
+  private static final MethodDescriptor<String, String> READ_METHOD = createMethod("getLocalShuffleData");
+  private static final MethodDescriptor<String, String> REGISTER_METHOD = createMethod("registerShuffle");
+
+  private final CountDownLatch sendLatch = new CountDownLatch(1);
+  private GrpcServer grpcServer;
+  private ManagedChannel channel;
+
+  private static MethodDescriptor<String, String> createMethod(String methodName) {
+    return MethodDescriptor.newBuilder(MARSHALLER, MARSHALLER)
+        .setType(MethodDescriptor.MethodType.UNARY)
+        .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE_NAME, methodName))
+        .build();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    // sendShuffleData is blocked until the latch is released
+    BindableService service = () -> ServerServiceDefinition.builder(SERVICE_NAME)
+        .addMethod(SEND_METHOD, ServerCalls.asyncUnaryCall((request, responseObserver) -> {
+          try {
+            sendLatch.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          responseObserver.onNext(request);
+          responseObserver.onCompleted();
+        }))
+        .addMethod(READ_METHOD, ServerCalls.asyncUnaryCall((request, responseObserver) -> {
+          responseObserver.onNext(request);
+          responseObserver.onCompleted();
+        }))
+        .addMethod(REGISTER_METHOD, ServerCalls.asyncUnaryCall((request, responseObserver) -> {
+          responseObserver.onNext(request);
+          responseObserver.onCompleted();
+        }))
+        .build();
+    RssBaseConf conf = new RssBaseConf();
+    conf.setInteger(RssBaseConf.RPC_SERVER_PORT, PORT);
+    conf.setInteger(RssBaseConf.RPC_EXECUTOR_SIZE, 10);
+    conf.setBoolean(RssBaseConf.RPC_METRICS_ENABLED, false);
+    conf.setBoolean(RssBaseConf.RPC_EXECUTOR_ISOLATION_ENABLE, true);
+    conf.setInteger(RssBaseConf.RPC_EXECUTOR_CONTROL_SIZE, 1);
+    conf.setInteger(RssBaseConf.RPC_EXECUTOR_WRITE_SIZE, 2);
+    conf.setInteger(RssBaseConf.RPC_EXECUTOR_READ_SIZE, 1);
+    conf.setInteger(RssBaseConf.RPC_EXECUTOR_QUEUE_SIZE, 2);
+    grpcServer = new GrpcServer(conf, service, null);
+    grpcServer.start();
+    channel = ManagedChannelBuilder.forAddress("localhost", PORT).usePlaintext().build();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    sendLatch.countDown();
+    channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    grpcServer.stop();
+  }
+
+  @Test
+  public void executorIsolationTest() throws Exception {
+    // 2 running and 2 queued write rpc saturate the write executor
+    List<ListenableFuture<String>> sendFutures = Lists.newArrayList();
+    for (int i = 0; i < 4; i++) {
+      sendFutures.add(ClientCalls.futureUnaryCall(channel.newCall(SEND_METHOD, CallOptions.DEFAULT), "send" + i));
+    }
+    waitUntilQueueIsFull();
+
+    // the next write rpc is rejected
+    try {
+      ClientCalls.blockingUnaryCall(channel, SEND_METHOD, CallOptions.DEFAULT, "send4");
+      fail("Write rpc should be rejected");
+    } catch (StatusRuntimeException e) {
+      assertEquals(Status.Code.RESOURCE_EXHAUSTED, e.getStatus().getCode());
+    }
+
+    // control and read rpc aren't affected
+    for (int i = 0; i < 10; i++) {
+      long start = System.currentTimeMillis();
+      assertEquals("read" + i, ClientCalls.blockingUnaryCall(channel, READ_METHOD,
+          CallOptions.DEFAULT.withDeadlineAfter(1, TimeUnit.SECONDS), "read" + i));
+      assertEquals("register" + i, ClientCalls.blockingUnaryCall(channel, REGISTER_METHOD,
+          CallOptions.DEFAULT.withDeadlineAfter(1, TimeUnit.SECONDS), "register" + i));
+      assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+    for (ListenableFuture<String> future : sendFutures) {
+      assertFalse(future.isDone());
+    }
+
+    // pending write rpc are finished after the executor is available
+    sendLatch.countDown();
+    for (int i = 0; i < sendFutures.size(); i++) {
+      assertEquals("send" + i, sendFutures.get(i).get(10, TimeUnit.SECONDS));
+    }
+    assertEquals("send5", ClientCalls.blockingUnaryCall(channel, SEND_METHOD, CallOptions.DEFAULT, "send5"));
+  }
+
+  private void waitUntilQueueIsFull() throws Exception {
+    ThreadPoolExecutor writeExecutor = (ThreadPoolExecutor) grpcServer.getExecutorIsolationInterceptor()
+        .getExecutor(SEND_METHOD.getBareMethodName());
+    long start = System.currentTimeMillis();
+    while (writeExecutor.getQueue().size() < 2) {
+      if (System.currentTimeMillis() - start > 10000) {
+        fail("Write executor isn't full");
+      }
+      Thread.sleep(10);
+    }
+  }
+}
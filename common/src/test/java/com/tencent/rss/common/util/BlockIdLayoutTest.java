@@ -0,0 +1,111 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class BlockIdLayoutTest {
+
+  @Test
+  public void defaultLayoutTest() {
+    BlockIdLayout layout = BlockIdLayout.DEFAULT;
+    assertEquals(Constants.MAX_SEQUENCE_NO, layout.getMaxSequenceNo());
+    assertEquals(Constants.MAX_PARTITION_ID, layout.getMaxPartitionId());
+    assertEquals(Constants.MAX_TASK_ATTEMPT_ID, layout.getMaxTaskAttemptId());
+    assertEquals(Long.MAX_VALUE, layout.getBlockId(
+        Constants.MAX_PARTITION_ID, Constants.MAX_TASK_ATTEMPT_ID, Constants.MAX_SEQUENCE_NO));
+    assertEquals(1759218709299300L, layout.getBlockId(100, 100, 100));
+    assertEquals(0L, layout.getBlockId(0, 0, 0));
+  }
+
+  @Test
+  public void encodeAndDecodeTest() {
+    BlockIdLayout[] layouts = new BlockIdLayout[] {
+        BlockIdLayout.DEFAULT,
+        BlockIdLayout.from(31, 12, 20),
+        BlockIdLayout.forJob(4, 15),
+        BlockIdLayout.forJob(1, 0)
+    };
+    for (BlockIdLayout layout : layouts) {
+      long[][] values = new long[][] {
+          {0, 0, 0},
+          {1, 1, 1},
+          {layout.getMaxPartitionId(), layout.getMaxTaskAttemptId(), layout.getMaxSequenceNo()},
+          {layout.getMaxPartitionId() / 2, layout.getMaxTaskAttemptId() / 3, layout.getMaxSequenceNo() / 5}
+      };
+      for (long[] value : values) {
+        long blockId = layout.getBlockId(value[0], value[1], value[2]);
+        assertEquals(value[0], layout.getPartitionId(blockId));
+        assertEquals(value[1], layout.getTaskAttemptId(blockId));
+        assertEquals(value[2], layout.getSequenceNo(blockId));
+      }
+    }
+  }
+
+  @Test
+  public void forJobTest() {
+    BlockIdLayout layout = BlockIdLayout.forJob(4, 15);
+    assertEquals(2, layout.getPartitionIdBits());
+    assertEquals(4, layout.getTaskAttemptIdBits());
+    assertEquals(57, layout.getSequenceNoBits());
+    assertEquals(layout, BlockIdLayout.from(57, 2, 4));
+    assertNotEquals(BlockIdLayout.DEFAULT, layout);
+
+    layout = BlockIdLayout.forJob(1, 0);
+    assertEquals(1, layout.getPartitionIdBits());
+    assertEquals(1, layout.getTaskAttemptIdBits());
+
+    layout = BlockIdLayout.forJob(5, 16);
+    assertEquals(3, layout.getPartitionIdBits());
+    assertEquals(5, layout.getTaskAttemptIdBits());
+  }
+
+  @Test
+  public void invalidLayoutTest() {
+    try {
+      BlockIdLayout.from(20, 24, 20);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals(true, e.getMessage().contains("the sum should be 63"));
+    }
+    try {
+      BlockIdLayout.from(0, 43, 20);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals(true, e.getMessage().contains("should be positive"));
+    }
+    BlockIdLayout layout = BlockIdLayout.forJob(4, 15);
+    try {
+      layout.getBlockId(4, 0, 0);
+      fail();
+    } catch (RuntimeException e) {
+      assertEquals(true, e.getMessage().contains("Can't support partitionId[4]"));
+    }
+    try {
+      layout.getBlockId(0, 16, 0);
+      fail();
+    } catch (RuntimeException e) {
+      assertEquals(true, e.getMessage().contains("Can't support taskAttemptId[16]"));
+    }
+  }
+}
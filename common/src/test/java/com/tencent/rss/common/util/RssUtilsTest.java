@@ -130,6 +130,39 @@ public class RssUtilsTest {
     assertTrue(RssUtils.transIndexDataToSegments(new ShuffleIndexResult(data), readBufferSize).isEmpty());
   }
 
+  @Test
+  public void testFilterIndexData() {
+    int[] dataSegmentLength = new int[]{32, 16, 10, 32, 6};
+    ByteBuffer byteBuffer = ByteBuffer.allocate(5 * 40);
+    long offset = 0;
+    for (int i = 0; i < dataSegmentLength.length; ++i) {
+      byteBuffer.putLong(offset);
+      byteBuffer.putInt(dataSegmentLength[i]);
+      byteBuffer.putInt(dataSegmentLength[i]);
+      byteBuffer.putLong(i);
+      byteBuffer.putLong(i);
+      byteBuffer.putLong(i);
+      offset += dataSegmentLength[i];
+    }
+    byte[] data = byteBuffer.array();
+    assertTrue(data == RssUtils.filterIndexData(data, Roaring64NavigableMap.bitmapOf(0, 1, 2, 3, 4)));
+    assertEquals(0, RssUtils.filterIndexData(data, Roaring64NavigableMap.bitmapOf(5)).length);
+
+    // the segments of task 2 and task 4 are removed, and there is a gap between the data of task 1 and task 3
+    byte[] filteredData = RssUtils.filterIndexData(data, Roaring64NavigableMap.bitmapOf(0, 1, 3));
+    assertEquals(3 * 40, filteredData.length);
+    List<ShuffleDataSegment> shuffleDataSegments =
+        RssUtils.transIndexDataToSegments(new ShuffleIndexResult(filteredData), 64);
+    assertEquals(2, shuffleDataSegments.size());
+    assertEquals(0, shuffleDataSegments.get(0).getOffset());
+    assertEquals(48, shuffleDataSegments.get(0).getLength());
+    assertEquals(2, shuffleDataSegments.get(0).getBufferSegments().size());
+    assertEquals(58, shuffleDataSegments.get(1).getOffset());
+    assertEquals(32, shuffleDataSegments.get(1).getLength());
+    assertEquals(3, shuffleDataSegments.get(1).getBufferSegments().get(0).getBlockId());
+    assertEquals(0, shuffleDataSegments.get(1).getBufferSegments().get(0).getOffset());
+  }
+
   @Test
   public void testLoadExtentions() {
     List<String> exts = Arrays.asList("Dummy");
@@ -35,6 +35,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.tencent.rss.common.RemoteStorageWriteInfo;
 import com.tencent.rss.common.util.Constants;
 
 public class ApplicationManager {
@@ -48,10 +49,24 @@ public class ApplicationManager {
   // store remote path -> application count for assignment strategy
   private Map<String, AtomicInteger> remoteStoragePathCounter = Maps.newConcurrentMap();
   private Set<String> availableRemoteStoragePath = Sets.newConcurrentHashSet();
+  // store remote path -> write load reported by shuffle servers
+  private Map<String, RemoteStorageLoad> remoteStorageLoads = Maps.newConcurrentMap();
+  // store remote path -> load score which is used for assignment strategy
+  private Map<String, Double> remoteStorageScores = Maps.newConcurrentMap();
+  private final long loadExpired;
+  private final double bandwidthWeight;
+  private final double errorWeight;
+  private final double latencyWeight;
+  private final double selectHysteresis;
   private ScheduledExecutorService scheduledExecutorService;
 
   public ApplicationManager(CoordinatorConf conf) {
     expired = conf.getLong(CoordinatorConf.COORDINATOR_APP_EXPIRED);
+    loadExpired = conf.getLong(CoordinatorConf.COORDINATOR_HEARTBEAT_TIMEOUT);
+    bandwidthWeight = conf.get(CoordinatorConf.COORDINATOR_REMOTE_STORAGE_SELECT_BANDWIDTH_WEIGHT);
+    errorWeight = conf.get(CoordinatorConf.COORDINATOR_REMOTE_STORAGE_SELECT_ERROR_WEIGHT);
+    latencyWeight = conf.get(CoordinatorConf.COORDINATOR_REMOTE_STORAGE_SELECT_LATENCY_WEIGHT);
+    selectHysteresis = conf.get(CoordinatorConf.COORDINATOR_REMOTE_STORAGE_SELECT_HYSTERESIS);
     // the thread for checking application status
     scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(
         new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ApplicationManager-%d").build());
@@ -99,44 +114,98 @@ public class ApplicationManager {
     }
   }
 
-  // the strategy of pick remote storage is according to assignment count
-  // todo: better strategy with workload balance
+  public void updateRemoteStorageLoad(String serverId, List<RemoteStorageWriteInfo> writeInfos) {
+    updateRemoteStorageLoad(serverId, writeInfos, System.currentTimeMillis());
+  }
+
+  @VisibleForTesting
+  void updateRemoteStorageLoad(String serverId, List<RemoteStorageWriteInfo> writeInfos, long timestamp) {
+    for (RemoteStorageWriteInfo info : writeInfos) {
+      if (StringUtils.isEmpty(info.getPath())) {
+        continue;
+      }
+      remoteStorageLoads.computeIfAbsent(info.getPath(), RemoteStorageLoad::new)
+          .update(serverId, info, timestamp);
+    }
+  }
+
+  // the strategy of pick remote storage is according to the load score of remote storage,
+  // paths with similar score are picked according to assignment count
   public String pickRemoteStoragePath(String appId) {
     if (appIdToRemoteStoragePath.containsKey(appId)) {
       return appIdToRemoteStoragePath.get(appId);
     }
 
-    // create list for sort
-    List<Map.Entry<String, AtomicInteger>> sizeList =
-            Lists.newArrayList(remoteStoragePathCounter.entrySet());
-
-    sizeList.sort((entry1, entry2) -> {
-      if (entry1 == null && entry2 == null) {
-        return 0;
+    Map<String, Double> scores = refreshRemoteStorageScores(System.currentTimeMillis());
+    double minScore = Double.MAX_VALUE;
+    for (double score : scores.values()) {
+      minScore = Math.min(minScore, score);
+    }
+    String pickedPath = null;
+    int pickedCount = Integer.MAX_VALUE;
+    for (Map.Entry<String, AtomicInteger> entry : remoteStoragePathCounter.entrySet()) {
+      Double score = scores.get(entry.getKey());
+      if (score == null || score > minScore + selectHysteresis) {
+        continue;
       }
-      if (entry1 == null) {
-        return -1;
+      int count = entry.getValue().get();
+      if (count < pickedCount) {
+        pickedPath = entry.getKey();
+        pickedCount = count;
       }
-      if (entry2 == null) {
-        return 1;
+    }
+
+    if (pickedPath != null && appIdToRemoteStoragePath.putIfAbsent(appId, pickedPath) == null) {
+      incRemoteStorageCounter(pickedPath);
+    }
+    return appIdToRemoteStoragePath.get(appId);
+  }
+
+  // score = bandwidthWeight * share of recent write bandwidth + errorWeight * recent error rate
+  //   + latencyWeight * (recent avg write time - min avg write time) / max avg write time,
+  // paths without recent writes have no latency penalty, the score is only updated when it changes
+  // more than selectHysteresis to avoid switching between remote storage paths back and forth
+  @VisibleForTesting
+  synchronized Map<String, Double> refreshRemoteStorageScores(long now) {
+    long expiredTime = now - loadExpired;
+    Map<String, Double> bandwidths = Maps.newHashMap();
+    Map<String, Double> avgWriteTimes = Maps.newHashMap();
+    double totalBandwidth = 0;
+    double minAvgWriteTime = Double.MAX_VALUE;
+    double maxAvgWriteTime = 0;
+    for (String path : availableRemoteStoragePath) {
+      RemoteStorageLoad load = remoteStorageLoads.get(path);
+      double bandwidth = load == null ? 0 : load.getWriteBandwidth(expiredTime);
+      bandwidths.put(path, bandwidth);
+      totalBandwidth += bandwidth;
+      double avgWriteTime = load == null ? 0 : load.getAvgWriteTime(expiredTime);
+      if (avgWriteTime > 0) {
+        avgWriteTimes.put(path, avgWriteTime);
+        minAvgWriteTime = Math.min(minAvgWriteTime, avgWriteTime);
+        maxAvgWriteTime = Math.max(maxAvgWriteTime, avgWriteTime);
       }
-      if (entry1.getValue().get() > entry2.getValue().get()) {
-        return 1;
-      } else if (entry1.getValue().get() == entry2.getValue().get()) {
-        return 0;
+    }
+    for (Map.Entry<String, Double> entry : bandwidths.entrySet()) {
+      String path = entry.getKey();
+      RemoteStorageLoad load = remoteStorageLoads.get(path);
+      double score = load == null ? 0 : errorWeight * load.getErrorRate(expiredTime);
+      if (totalBandwidth > 0) {
+        score += bandwidthWeight * entry.getValue() / totalBandwidth;
       }
-      return -1;
-    });
-
-    for (Map.Entry<String, AtomicInteger> entry : sizeList) {
-      String storagePath = entry.getKey();
-      if (availableRemoteStoragePath.contains(storagePath)) {
-        appIdToRemoteStoragePath.putIfAbsent(appId, storagePath);
-        incRemoteStorageCounter(storagePath);
-        break;
+      Double avgWriteTime = avgWriteTimes.get(path);
+      if (avgWriteTime != null) {
+        score += latencyWeight * (avgWriteTime - minAvgWriteTime) / maxAvgWriteTime;
+      }
+      Double lastScore = remoteStorageScores.get(path);
+      if (lastScore == null || Math.abs(score - lastScore) > selectHysteresis) {
+        if (lastScore != null) {
+          LOG.info("Update score of remote storage {} from {} to {}", path, lastScore, score);
+        }
+        remoteStorageScores.put(path, score);
       }
     }
-    return appIdToRemoteStoragePath.get(appId);
+    remoteStorageScores.keySet().retainAll(bandwidths.keySet());
+    return Maps.newHashMap(remoteStorageScores);
   }
 
   @VisibleForTesting
@@ -194,11 +263,25 @@ public class ApplicationManager {
     return remoteStoragePathCounter;
   }
 
+  @VisibleForTesting
+  protected Map<String, RemoteStorageLoad> getRemoteStorageLoads() {
+    return remoteStorageLoads;
+  }
+
   @VisibleForTesting
   public Set<String> getAvailableRemoteStoragePath() {
     return availableRemoteStoragePath;
   }
 
+  private void removeExpiredRemoteStorageLoad(long expiredTime) {
+    for (RemoteStorageLoad load : remoteStorageLoads.values()) {
+      load.removeExpiredServers(expiredTime);
+      if (load.isEmpty()) {
+        remoteStorageLoads.remove(load.getPath());
+      }
+    }
+  }
+
   private void statusCheck() {
     try {
       LOG.info("Start to check status for " + appIds.size() + " applications");
@@ -217,6 +300,7 @@ public class ApplicationManager {
         appIdToRemoteStoragePath.remove(appId);
       }
       CoordinatorMetrics.gaugeRunningAppNum.set(appIds.size());
+      removeExpiredRemoteStorageLoad(current - loadExpired);
     } catch (Exception e) {
       LOG.warn("Error happened in statusCheck", e);
     }
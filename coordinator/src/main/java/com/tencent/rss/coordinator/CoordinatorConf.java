@@ -107,6 +107,28 @@ public class CoordinatorConf extends RssBaseConf {
           .stringType()
           .noDefaultValue()
           .withDescription("all supported remote paths for RSS cluster, seperated by ','");
+  public static final ConfigOption<Double> COORDINATOR_REMOTE_STORAGE_SELECT_BANDWIDTH_WEIGHT = ConfigOptions
+      .key("rss.coordinator.remote.storage.select.bandwidth.weight")
+      .doubleType()
+      .defaultValue(1.0)
+      .withDescription("Weight of the share of recent write bandwidth when score remote storage path");
+  public static final ConfigOption<Double> COORDINATOR_REMOTE_STORAGE_SELECT_ERROR_WEIGHT = ConfigOptions
+      .key("rss.coordinator.remote.storage.select.error.weight")
+      .doubleType()
+      .defaultValue(2.0)
+      .withDescription("Weight of the recent write error rate when score remote storage path");
+  public static final ConfigOption<Double> COORDINATOR_REMOTE_STORAGE_SELECT_LATENCY_WEIGHT = ConfigOptions
+      .key("rss.coordinator.remote.storage.select.latency.weight")
+      .doubleType()
+      .defaultValue(1.0)
+      .withDescription("Weight of the recent average write latency above the fastest path "
+          + "when score remote storage path");
+  public static final ConfigOption<Double> COORDINATOR_REMOTE_STORAGE_SELECT_HYSTERESIS = ConfigOptions
+      .key("rss.coordinator.remote.storage.select.hysteresis")
+      .doubleType()
+      .defaultValue(0.1)
+      .withDescription("Score change of remote storage path smaller than it will be ignored, "
+          + "and paths with score difference smaller than it are balanced by application count");
   public static final ConfigOption<Integer> COORDINATOR_DYNAMIC_CLIENT_CONF_UPDATE_INTERVAL_SEC = ConfigOptions
       .key("rss.coordinator.dynamicClientConf.updateIntervalSec")
       .intType()
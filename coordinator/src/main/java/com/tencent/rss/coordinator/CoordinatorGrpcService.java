@@ -33,6 +33,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.tencent.rss.common.PartitionRange;
+import com.tencent.rss.common.RemoteStorageWriteInfo;
 import com.tencent.rss.proto.CoordinatorServerGrpc;
 import com.tencent.rss.proto.RssProtos.AccessClusterRequest;
 import com.tencent.rss.proto.RssProtos.AccessClusterResponse;
@@ -135,6 +136,10 @@ public class CoordinatorGrpcService extends CoordinatorServerGrpc.CoordinatorSer
       StreamObserver<ShuffleServerHeartBeatResponse> responseObserver) {
     final ServerNode serverNode = toServerNode(request);
     coordinatorServer.getClusterManager().add(serverNode);
+    if (request.getRemoteStorageWriteInfoCount() > 0) {
+      coordinatorServer.getApplicationManager().updateRemoteStorageLoad(
+          serverNode.getId(), toRemoteStorageWriteInfos(request));
+    }
     final ShuffleServerHeartBeatResponse response = ShuffleServerHeartBeatResponse
         .newBuilder()
         .setRetMsg("")
@@ -297,6 +302,17 @@ public class CoordinatorGrpcService extends CoordinatorServerGrpc.CoordinatorSer
     }
   }
 
+  private List<RemoteStorageWriteInfo> toRemoteStorageWriteInfos(ShuffleServerHeartBeatRequest request) {
+    return request.getRemoteStorageWriteInfoList().stream()
+        .map(info -> new RemoteStorageWriteInfo(
+            info.getPath(),
+            info.getWriteBytes(),
+            info.getWriteTimeMs(),
+            info.getWriteCount(),
+            info.getErrorCount()))
+        .collect(Collectors.toList());
+  }
+
   private ServerNode toServerNode(ShuffleServerHeartBeatRequest request) {
     boolean isHealthy = true;
     if (request.hasIsHealthy()) {
@@ -0,0 +1,155 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.coordinator;
+
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+import com.tencent.rss.common.RemoteStorageWriteInfo;
+
+/**
+ * Write load of one remote storage path, it is aggregated from the heartbeats of all shuffle servers.
+ * Shuffle server reports cumulative counters, and the load between the last two reports
+ * of every server is kept as its recent sample.
+ */
+public class RemoteStorageLoad {
+
+  private final String path;
+  // shuffle server id -> last reported counters
+  private final Map<String, Report> lastReports = Maps.newHashMap();
+  // shuffle server id -> load between the last two reports
+  private final Map<String, Sample> recentSamples = Maps.newHashMap();
+
+  public RemoteStorageLoad(String path) {
+    this.path = path;
+  }
+
+  public synchronized void update(String serverId, RemoteStorageWriteInfo info, long timestamp) {
+    Report previous = lastReports.put(serverId, new Report(info, timestamp));
+    if (previous == null || timestamp <= previous.timestamp) {
+      return;
+    }
+    RemoteStorageWriteInfo last = previous.info;
+    if (info.getWriteBytes() < last.getWriteBytes()
+        || info.getWriteCount() < last.getWriteCount()
+        || info.getErrorCount() < last.getErrorCount()) {
+      // counters are reset because of shuffle server restart, wait for the next report
+      recentSamples.remove(serverId);
+      return;
+    }
+    recentSamples.put(serverId, new Sample(
+        info.getWriteBytes() - last.getWriteBytes(),
+        info.getWriteTimeMs() - last.getWriteTimeMs(),
+        info.getWriteCount() - last.getWriteCount(),
+        info.getErrorCount() - last.getErrorCount(),
+        timestamp - previous.timestamp,
+        timestamp));
+  }
+
+  /**
+   * @return sum of write bandwidth (bytes/s) of all servers which reported after expiredTime
+   */
+  public synchronized double getWriteBandwidth(long expiredTime) {
+    double bandwidth = 0;
+    for (Sample sample : recentSamples.values()) {
+      if (sample.timestamp > expiredTime) {
+        bandwidth += sample.writeBytes * 1000.0 / sample.intervalMs;
+      }
+    }
+    return bandwidth;
+  }
+
+  /**
+   * @return ratio of failed writes of all servers which reported after expiredTime
+   */
+  public synchronized double getErrorRate(long expiredTime) {
+    long writeCount = 0;
+    long errorCount = 0;
+    for (Sample sample : recentSamples.values()) {
+      if (sample.timestamp > expiredTime) {
+        writeCount += sample.writeCount;
+        errorCount += sample.errorCount;
+      }
+    }
+    if (writeCount + errorCount == 0) {
+      return 0;
+    }
+    return (double) errorCount / (writeCount + errorCount);
+  }
+
+  /**
+   * @return average time (ms) of successful writes of all servers which reported after expiredTime
+   */
+  public synchronized double getAvgWriteTime(long expiredTime) {
+    long writeCount = 0;
+    long writeTimeMs = 0;
+    for (Sample sample : recentSamples.values()) {
+      if (sample.timestamp > expiredTime) {
+        writeCount += sample.writeCount;
+        writeTimeMs += sample.writeTimeMs;
+      }
+    }
+    if (writeCount == 0) {
+      return 0;
+    }
+    return (double) writeTimeMs / writeCount;
+  }
+
+  public synchronized void removeExpiredServers(long expiredTime) {
+    lastReports.entrySet().removeIf(entry -> entry.getValue().timestamp <= expiredTime);
+    recentSamples.entrySet().removeIf(entry -> entry.getValue().timestamp <= expiredTime);
+  }
+
+  public synchronized boolean isEmpty() {
+    return lastReports.isEmpty();
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  private static class Report {
+    private final RemoteStorageWriteInfo info;
+    private final long timestamp;
+
+    Report(RemoteStorageWriteInfo info, long timestamp) {
+      this.info = info;
+      this.timestamp = timestamp;
+    }
+  }
+
+  private static class Sample {
+    private final long writeBytes;
+    private final long writeTimeMs;
+    private final long writeCount;
+    private final long errorCount;
+    private final long intervalMs;
+    private final long timestamp;
+
+    Sample(long writeBytes, long writeTimeMs, long writeCount, long errorCount, long intervalMs, long timestamp) {
+      this.writeBytes = writeBytes;
+      this.writeTimeMs = writeTimeMs;
+      this.writeCount = writeCount;
+      this.errorCount = errorCount;
+      this.intervalMs = intervalMs;
+      this.timestamp = timestamp;
+    }
+  }
+}
@@ -18,16 +18,20 @@
 
 package com.tencent.rss.coordinator;
 
+import java.util.Map;
 import java.util.Set;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.tencent.rss.common.RemoteStorageWriteInfo;
 import com.tencent.rss.common.util.Constants;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class ApplicationManagerTest {
 
@@ -163,4 +167,95 @@ public class ApplicationManagerTest {
     assertEquals(0, applicationManager.getAvailableRemoteStoragePath().size());
     assertEquals(0, applicationManager.getRemoteStoragePathCounter().size());
   }
+
+  @Test
+  public void pickByRemoteStorageLoadTest() {
+    String remoteStoragePath = remotePath1 + Constants.COMMA_SPLIT_CHAR + remotePath2
+        + Constants.COMMA_SPLIT_CHAR + remotePath3;
+    applicationManager.refreshRemoteStorage(remoteStoragePath);
+    long mb = 1024L * 1024L;
+    long now = System.currentTimeMillis();
+
+    // remotePath1 is written with 10MB/s, remotePath2 is written with 0.5MB/s, remotePath3 has no load
+    reportLoad("server1", remotePath1, now - 20000, 0, 0, 0);
+    reportLoad("server1", remotePath1, now - 10000, 100 * mb, 100, 0);
+    reportLoad("server2", remotePath2, now - 20000, 0, 0, 0);
+    reportLoad("server2", remotePath2, now - 10000, 5 * mb, 5, 0);
+    // remotePath2 and remotePath3 have similar score, they are balanced by application count
+    Set<String> pickedPaths = Sets.newHashSet(
+        applicationManager.pickRemoteStoragePath("testApp1"),
+        applicationManager.pickRemoteStoragePath("testApp2"));
+    assertEquals(Sets.newHashSet(remotePath2, remotePath3), pickedPaths);
+    assertEquals(0, applicationManager.getRemoteStoragePathCounter().get(remotePath1).get());
+
+    // remotePath3 has 50% write errors
+    reportLoad("server3", remotePath3, now - 20000, 0, 0, 0);
+    reportLoad("server3", remotePath3, now - 10000, mb, 5, 5);
+    assertEquals(remotePath2, applicationManager.pickRemoteStoragePath("testApp3"));
+
+    // load of remotePath1 is gone and remotePath2 become busy, new application should be rebalanced
+    reportLoad("server1", remotePath1, now - 5000, 100 * mb, 100, 0);
+    reportLoad("server2", remotePath2, now - 5000, 55 * mb, 55, 0);
+    assertEquals(remotePath1, applicationManager.pickRemoteStoragePath("testApp4"));
+    assertEquals(remotePath1, applicationManager.pickRemoteStoragePath("testApp5"));
+
+    // small change of load won't update the score because of hysteresis
+    Map<String, Double> scores = applicationManager.refreshRemoteStorageScores(now);
+    assertTrue(scores.get(remotePath2) > 0.9);
+    reportLoad("server2", remotePath2, now - 1000, 63 * mb, 63, 0);
+    assertEquals(scores, applicationManager.refreshRemoteStorageScores(now));
+
+    // remove all remote storage
+    applicationManager.refreshRemoteStorage("");
+    assertTrue(applicationManager.refreshRemoteStorageScores(now).isEmpty());
+  }
+
+  @Test
+  public void pickByRemoteStorageLatencyTest() {
+    String remoteStoragePath = remotePath1 + Constants.COMMA_SPLIT_CHAR + remotePath2;
+    applicationManager.refreshRemoteStorage(remoteStoragePath);
+    long mb = 1024L * 1024L;
+    long now = System.currentTimeMillis();
+
+    // both paths are written with the same bandwidth, but the writes of remotePath1 are 10 times slower
+    reportLoad("server1", remotePath1, now - 20000, 0, 0, 0, 0);
+    reportLoad("server1", remotePath1, now - 10000, 10 * mb, 10, 0, 1000);
+    reportLoad("server2", remotePath2, now - 20000, 0, 0, 0, 0);
+    reportLoad("server2", remotePath2, now - 10000, 10 * mb, 10, 0, 100);
+    Map<String, Double> scores = applicationManager.refreshRemoteStorageScores(now);
+    assertEquals(0.5 + 0.9, scores.get(remotePath1), 0.0001);
+    assertEquals(0.5, scores.get(remotePath2), 0.0001);
+    assertEquals(remotePath2, applicationManager.pickRemoteStoragePath("testApp1"));
+    assertEquals(remotePath2, applicationManager.pickRemoteStoragePath("testApp2"));
+  }
+
+  @Test
+  public void reportLoadOfAssignedPathTest() {
+    applicationManager.refreshRemoteStorage(remotePath1 + Constants.COMMA_SPLIT_CHAR + remotePath2);
+    long mb = 1024L * 1024L;
+    long now = System.currentTimeMillis();
+    String assignedPath = applicationManager.pickRemoteStoragePath("testApp1");
+    String otherPath = remotePath1.equals(assignedPath) ? remotePath2 : remotePath1;
+    Map<String, Double> scores = applicationManager.refreshRemoteStorageScores(now);
+    assertEquals(0, scores.get(assignedPath), 0.0001);
+
+    // shuffle server reports the load of testApp1 under the path assigned to it
+    reportLoad("server1", assignedPath, now - 20000, 0, 0, 0);
+    reportLoad("server1", assignedPath, now - 10000, 10 * mb, 10, 5);
+    scores = applicationManager.refreshRemoteStorageScores(now);
+    assertTrue(scores.get(assignedPath) > 0.5);
+    assertEquals(0, scores.get(otherPath), 0.0001);
+    assertEquals(otherPath, applicationManager.pickRemoteStoragePath("testApp2"));
+  }
+
+  private void reportLoad(
+      String serverId, String path, long timestamp, long writeBytes, long writeCount, long errorCount) {
+    reportLoad(serverId, path, timestamp, writeBytes, writeCount, errorCount, writeCount * 10);
+  }
+
+  private void reportLoad(String serverId, String path, long timestamp, long writeBytes,
+      long writeCount, long errorCount, long writeTimeMs) {
+    applicationManager.updateRemoteStorageLoad(serverId, Lists.newArrayList(
+        new RemoteStorageWriteInfo(path, writeBytes, writeTimeMs, writeCount, errorCount)), timestamp);
+  }
 }
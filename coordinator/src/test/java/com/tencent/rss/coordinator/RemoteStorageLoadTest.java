@@ -0,0 +1,62 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.coordinator;
+
+import org.junit.Test;
+
+import com.tencent.rss.common.RemoteStorageWriteInfo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RemoteStorageLoadTest {
+
+  private String remotePath = "hdfs://path1";
+
+  @Test
+  public void updateTest() {
+    RemoteStorageLoad load = new RemoteStorageLoad(remotePath);
+    // the first report is baseline only
+    load.update("server1", new RemoteStorageWriteInfo(remotePath, 1000, 10, 1, 0), 1000);
+    assertEquals(0, load.getWriteBandwidth(0), 0.0001);
+    assertFalse(load.isEmpty());
+
+    load.update("server1", new RemoteStorageWriteInfo(remotePath, 3000, 50, 5, 1), 3000);
+    load.update("server2", new RemoteStorageWriteInfo(remotePath, 0, 0, 0, 0), 2000);
+    load.update("server2", new RemoteStorageWriteInfo(remotePath, 4000, 30, 3, 0), 3000);
+    // server1: 2000 bytes in 2s, server2: 4000 bytes in 1s
+    assertEquals(5000, load.getWriteBandwidth(0), 0.0001);
+    // 1 error in 8 writes
+    assertEquals(1.0 / 8, load.getErrorRate(0), 0.0001);
+    assertEquals(70.0 / 7, load.getAvgWriteTime(0), 0.0001);
+
+    // counters are reset after server2 restart
+    load.update("server2", new RemoteStorageWriteInfo(remotePath, 100, 1, 1, 0), 4000);
+    assertEquals(1000, load.getWriteBandwidth(0), 0.0001);
+
+    // only recent samples are used
+    assertEquals(0, load.getWriteBandwidth(3000), 0.0001);
+    assertEquals(0, load.getErrorRate(3000), 0.0001);
+    load.removeExpiredServers(3000);
+    assertFalse(load.isEmpty());
+    load.removeExpiredServers(4000);
+    assertTrue(load.isEmpty());
+  }
+}
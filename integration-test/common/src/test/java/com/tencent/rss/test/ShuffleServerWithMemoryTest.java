@@ -302,6 +302,65 @@ public class ShuffleServerWithMemoryTest extends ShuffleReadWriteBase {
     assertNull(sdr);
   }
 
+  @Test
+  public void memoryReadWithSpeculativeAttemptsTest() throws Exception {
+    String testAppId = "memoryReadWithSpeculativeAttemptsTest";
+    int shuffleId = 0;
+    int partitionId = 0;
+    RssRegisterShuffleRequest rrsr = new RssRegisterShuffleRequest(testAppId, 0,
+        Lists.newArrayList(new PartitionRange(0, 0)));
+    shuffleServerClient.registerShuffle(rrsr);
+    Roaring64NavigableMap expectBlockIds = Roaring64NavigableMap.bitmapOf();
+    Roaring64NavigableMap speculativeBlockIds = Roaring64NavigableMap.bitmapOf();
+    Map<Long, byte[]> dataMap = Maps.newHashMap();
+    // attempt 0 and the speculative attempt 1 write the same map output, attempt 0 wins
+    List<ShuffleBlockInfo> blocks = createShuffleBlockList(
+        shuffleId, partitionId, 0, 2, 10, expectBlockIds, dataMap, mockSSI);
+    List<ShuffleBlockInfo> speculativeBlocks = createShuffleBlockList(
+        shuffleId, partitionId, 1, 2, 10, speculativeBlockIds, dataMap, mockSSI);
+    List<ShuffleBlockInfo> allBlocks = Lists.newArrayList(blocks.get(0), speculativeBlocks.get(0),
+        speculativeBlocks.get(1), blocks.get(1));
+    Map<Integer, List<ShuffleBlockInfo>> partitionToBlocks = Maps.newHashMap();
+    partitionToBlocks.put(partitionId, allBlocks);
+    Map<Integer, Map<Integer, List<ShuffleBlockInfo>>> shuffleToBlocks = Maps.newHashMap();
+    shuffleToBlocks.put(shuffleId, partitionToBlocks);
+    shuffleServerClient.sendShuffleData(new RssSendShuffleDataRequest(testAppId, 3, 1000, shuffleToBlocks));
+    assertEquals(4, shuffleServers.get(0).getShuffleBufferManager()
+        .getShuffleBuffer(testAppId, shuffleId, 0).getBlocks().size());
+
+    // without the expected block ids, the blocks of the speculative attempt are returned too
+    MemoryQuorumClientReadHandler memoryQuorumClientReadHandler = new MemoryQuorumClientReadHandler(
+        testAppId, shuffleId, partitionId, 1000, Lists.newArrayList(shuffleServerClient));
+    ShuffleDataResult sdr = memoryQuorumClientReadHandler.readShuffleData();
+    assertEquals(4, sdr.getBufferSegments().size());
+
+    // the server skips the blocks of the speculative attempt
+    memoryQuorumClientReadHandler = new MemoryQuorumClientReadHandler(
+        testAppId, shuffleId, partitionId, 1000, Lists.newArrayList(shuffleServerClient), expectBlockIds, null);
+    sdr = memoryQuorumClientReadHandler.readShuffleData();
+    Map<Long, byte[]> expectedData = Maps.newHashMap();
+    expectedData.put(blocks.get(0).getBlockId(), blocks.get(0).getData());
+    expectedData.put(blocks.get(1).getBlockId(), blocks.get(1).getData());
+    validateResult(expectedData, sdr);
+    assertEquals(20, sdr.getData().length);
+    sdr = memoryQuorumClientReadHandler.readShuffleData();
+    assertEquals(0, sdr.getBufferSegments().size());
+
+    // read block by block, the speculative blocks between them are skipped
+    memoryQuorumClientReadHandler = new MemoryQuorumClientReadHandler(
+        testAppId, shuffleId, partitionId, 1, Lists.newArrayList(shuffleServerClient), expectBlockIds, null);
+    sdr = memoryQuorumClientReadHandler.readShuffleData();
+    expectedData.clear();
+    expectedData.put(blocks.get(0).getBlockId(), blocks.get(0).getData());
+    validateResult(expectedData, sdr);
+    sdr = memoryQuorumClientReadHandler.readShuffleData();
+    expectedData.clear();
+    expectedData.put(blocks.get(1).getBlockId(), blocks.get(1).getData());
+    validateResult(expectedData, sdr);
+    sdr = memoryQuorumClientReadHandler.readShuffleData();
+    assertEquals(0, sdr.getBufferSegments().size());
+  }
+
   protected void validateResult(
       Map<Long, byte[]> expectedData,
       ShuffleDataResult sdr) {
@@ -0,0 +1,139 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import com.tencent.rss.client.impl.ShuffleReadClientImpl;
+import com.tencent.rss.client.impl.ShuffleWriteClientImpl;
+import com.tencent.rss.client.response.PartitionShuffleResult;
+import com.tencent.rss.client.response.SendShuffleDataResult;
+import com.tencent.rss.client.util.ClientType;
+import com.tencent.rss.common.PartitionRange;
+import com.tencent.rss.common.ShuffleBlockInfo;
+import com.tencent.rss.common.ShuffleServerInfo;
+import com.tencent.rss.coordinator.CoordinatorConf;
+import com.tencent.rss.server.ShuffleServerConf;
+import com.tencent.rss.storage.util.StorageType;
+
+public class SkewedPartitionTest extends ShuffleReadWriteBase {
+
+  private static List<ShuffleServerInfo> shuffleServerInfos = Lists.newArrayList();
+  private ShuffleWriteClientImpl shuffleWriteClientImpl;
+
+  @BeforeClass
+  public static void setupServers() throws Exception {
+    CoordinatorConf coordinatorConf = getCoordinatorConf();
+    createCoordinatorServer(coordinatorConf);
+    File tmpDir = Files.createTempDir();
+    tmpDir.deleteOnExit();
+    for (int i = 0; i < 3; i++) {
+      ShuffleServerConf shuffleServerConf = getShuffleServerConf();
+      File dataDir = new File(tmpDir, "data" + i);
+      shuffleServerConf.setString("rss.storage.type", StorageType.LOCALFILE.name());
+      shuffleServerConf.setString("rss.storage.basePath", dataDir.getAbsolutePath());
+      shuffleServerConf.setInteger("rss.rpc.server.port", SHUFFLE_SERVER_PORT + i);
+      shuffleServerConf.setInteger("rss.jetty.http.port", 18080 + i);
+      // every partition larger than 1k is treated as skewed
+      shuffleServerConf.setLong("rss.server.partition.skew.threshold.size", 1024L);
+      createShuffleServer(shuffleServerConf);
+    }
+    startServers();
+    for (int i = 0; i < 3; i++) {
+      shuffleServerInfos.add(new ShuffleServerInfo("127.0.0.1-" + (SHUFFLE_SERVER_PORT + i),
+          shuffleServers.get(i).getIp(), SHUFFLE_SERVER_PORT + i));
+    }
+  }
+
+  @Before
+  public void createClient() {
+    shuffleWriteClientImpl = new ShuffleWriteClientImpl(ClientType.GRPC.name(), 3, 1000, 1,
+        1, 1, 1);
+  }
+
+  @After
+  public void closeClient() {
+    shuffleWriteClientImpl.close();
+  }
+
+  @Test
+  public void skewedPartitionTest() throws Exception {
+    String testAppId = "skewedPartitionTest";
+    Map<Integer, List<ShuffleServerInfo>> partitionToServers = Maps.newHashMap();
+    for (int i = 0; i < 3; i++) {
+      partitionToServers.put(i, Lists.newArrayList(shuffleServerInfos.get(i)));
+      shuffleWriteClientImpl.registerShuffle(shuffleServerInfos.get(i),
+          testAppId, 0, Lists.newArrayList(new PartitionRange(i, i)));
+    }
+    shuffleWriteClientImpl.registerShuffleAssignment(testAppId, 0, partitionToServers);
+
+    Map<Long, byte[]> expectedData = Maps.newHashMap();
+    Roaring64NavigableMap blockIdBitmap = Roaring64NavigableMap.bitmapOf();
+    Roaring64NavigableMap taskIdBitmap = Roaring64NavigableMap.bitmapOf(0);
+    // most of the data belongs to partition 0, every batch is larger than the skew threshold
+    List<Long> blockIds = Lists.newArrayList();
+    for (int batch = 0; batch < 4; batch++) {
+      List<ShuffleBlockInfo> blocks = createShuffleBlockList(
+          0, 0, 0, 5, 512, blockIdBitmap, expectedData, partitionToServers.get(0));
+      SendShuffleDataResult result = shuffleWriteClientImpl.sendShuffleData(testAppId, blocks);
+      assertTrue(result.getFailedBlockIds().isEmpty());
+      blockIds.addAll(result.getSuccessBlockIds());
+    }
+    assertEquals(20, blockIds.size());
+
+    Map<Integer, List<Long>> partitionToBlockIds = Maps.newHashMap();
+    partitionToBlockIds.put(0, blockIds);
+    shuffleWriteClientImpl.reportShuffleResult(partitionToServers, testAppId, 0, 0, partitionToBlockIds, 1);
+    assertTrue(shuffleWriteClientImpl.sendCommit(Sets.newHashSet(shuffleServerInfos), testAppId, 0, 1));
+
+    // block ids are reported to the assigned server and all the spare servers in use
+    Roaring64NavigableMap assignedResult = shuffleWriteClientImpl.getShuffleResult(ClientType.GRPC.name(),
+        Sets.newHashSet(partitionToServers.get(0)), testAppId, 0, 0);
+    assertEquals(blockIdBitmap, assignedResult);
+
+    // the reader follows the spare servers and finds all the blocks
+    PartitionShuffleResult shuffleResult = shuffleWriteClientImpl.getPartitionShuffleResult(
+        ClientType.GRPC.name(), partitionToServers, testAppId, 0, 0);
+    assertEquals(blockIdBitmap, shuffleResult.getBlockIdBitmap());
+    assertEquals(3, shuffleResult.getServerGroups().size());
+    assertEquals(2, shuffleResult.getSpareServerGroups().size());
+
+    ShuffleReadClientImpl readClient = new ShuffleReadClientImpl(StorageType.LOCALFILE.name(), testAppId, 0, 0,
+        100, 1, 3, 1000, "", shuffleResult.getBlockIdBitmap(), taskIdBitmap,
+        partitionToServers.get(0), null, shuffleResult.getSpareServerGroups());
+    validateResult(readClient, expectedData);
+    readClient.checkProcessedBlockIds();
+    readClient.close();
+  }
+}
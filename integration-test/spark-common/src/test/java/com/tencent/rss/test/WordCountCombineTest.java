@@ -0,0 +1,130 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.test;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import com.google.common.io.Files;
+import org.apache.spark.SparkConf;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.shuffle.RssClientConfig;
+import org.apache.spark.shuffle.RssShuffleCombiner;
+import org.apache.spark.sql.SparkSession;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scala.Tuple2;
+
+import com.tencent.rss.coordinator.CoordinatorConf;
+import com.tencent.rss.server.ShuffleServerConf;
+import com.tencent.rss.server.ShuffleServerMetrics;
+import com.tencent.rss.storage.util.StorageType;
+
+public class WordCountCombineTest extends SparkIntegrationTestBase {
+
+  private static final Logger LOG = LoggerFactory.getLogger(WordCountCombineTest.class);
+
+  @BeforeClass
+  public static void setupServers() throws Exception {
+    CoordinatorConf coordinatorConf = getCoordinatorConf();
+    createCoordinatorServer(coordinatorConf);
+    ShuffleServerConf shuffleServerConf = getShuffleServerConf();
+    File tmpDir = Files.createTempDir();
+    tmpDir.deleteOnExit();
+    File dataDir1 = new File(tmpDir, "data1");
+    File dataDir2 = new File(tmpDir, "data2");
+    String basePath = dataDir1.getAbsolutePath() + "," + dataDir2.getAbsolutePath();
+    // blocks are kept in memory and combined when the map task attempts report shuffle result
+    shuffleServerConf.set(ShuffleServerConf.RSS_STORAGE_TYPE, StorageType.MEMORY_LOCALFILE.name());
+    shuffleServerConf.set(ShuffleServerConf.RSS_STORAGE_BASE_PATH, basePath);
+    shuffleServerConf.set(ShuffleServerConf.SERVER_BUFFER_COMBINE_ENABLE, true);
+    shuffleServerConf.set(ShuffleServerConf.SERVER_BUFFER_COMBINE_THRESHOLD_SIZE, 1L);
+    createShuffleServer(shuffleServerConf);
+    startServers();
+  }
+
+  @Test
+  public void wordCountTest() throws Exception {
+    double combinedBlockNum = ShuffleServerMetrics.counterTotalCombinedBlockNum.get();
+    double savedDataSize = ShuffleServerMetrics.counterTotalCombineSavedDataSize.get();
+    run();
+    double combinedBlockDelta = ShuffleServerMetrics.counterTotalCombinedBlockNum.get() - combinedBlockNum;
+    double savedDataDelta = ShuffleServerMetrics.counterTotalCombineSavedDataSize.get() - savedDataSize;
+    LOG.info("Combine " + combinedBlockDelta + " blocks and save " + savedDataDelta + " bytes");
+    assertTrue(combinedBlockDelta > 0);
+    assertTrue(savedDataDelta > 0);
+  }
+
+  @Override
+  public String generateTestFile() throws Exception {
+    String tempDir = java.nio.file.Files.createTempDirectory("rss").toString();
+    File file = new File(tempDir, "wordcount.txt");
+    file.deleteOnExit();
+    Random random = new Random();
+    try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+      for (int i = 0; i < 2000; i++) {
+        StringBuilder line = new StringBuilder();
+        for (int j = 0; j < 100; j++) {
+          line.append("word").append(random.nextInt(200)).append(" ");
+        }
+        writer.println(line.toString().trim());
+      }
+    }
+    return file.getAbsolutePath();
+  }
+
+  @Override
+  public void updateSparkConfCustomer(SparkConf sparkConf) {
+    sparkConf.set(RssClientConfig.RSS_STORAGE_TYPE, StorageType.MEMORY_LOCALFILE.name());
+    sparkConf.set(RssClientConfig.RSS_CLIENT_COMBINER_CLASS, WordCountCombiner.class.getName());
+    // small buffer to send many blocks with the same words from every map task attempt
+    sparkConf.set(RssClientConfig.RSS_WRITER_BUFFER_SIZE, "4k");
+    sparkConf.set(RssClientConfig.RSS_WRITER_BUFFER_SEGMENT_SIZE, "1k");
+  }
+
+  @Override
+  Map runTest(SparkSession spark, String fileName) throws Exception {
+    JavaSparkContext jsc = new JavaSparkContext(spark.sparkContext());
+    return jsc.textFile(fileName, 4)
+        .flatMap(line -> Arrays.asList(line.split(" ")).iterator())
+        .mapToPair(word -> new Tuple2<>(word, 1))
+        .reduceByKey((c1, c2) -> c1 + c2, 4)
+        .collectAsMap();
+  }
+
+  public static class WordCountCombiner extends RssShuffleCombiner {
+
+    public WordCountCombiner(String serializerClass) {
+      super(serializerClass);
+    }
+
+    @Override
+    protected Object mergeCombiners(Object c1, Object c2) {
+      return (Integer) c1 + (Integer) c2;
+    }
+  }
+}
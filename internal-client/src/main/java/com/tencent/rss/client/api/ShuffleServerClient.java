@@ -18,6 +18,7 @@
 
 package com.tencent.rss.client.api;
 
+import com.tencent.rss.client.request.RssAbortTaskAttemptRequest;
 import com.tencent.rss.client.request.RssAppHeartBeatRequest;
 import com.tencent.rss.client.request.RssFinishShuffleRequest;
 import com.tencent.rss.client.request.RssGetInMemoryShuffleDataRequest;
@@ -28,6 +29,7 @@ import com.tencent.rss.client.request.RssRegisterShuffleRequest;
 import com.tencent.rss.client.request.RssReportShuffleResultRequest;
 import com.tencent.rss.client.request.RssSendCommitRequest;
 import com.tencent.rss.client.request.RssSendShuffleDataRequest;
+import com.tencent.rss.client.response.RssAbortTaskAttemptResponse;
 import com.tencent.rss.client.response.RssAppHeartBeatResponse;
 import com.tencent.rss.client.response.RssFinishShuffleResponse;
 import com.tencent.rss.client.response.RssGetInMemoryShuffleDataResponse;
@@ -53,6 +55,8 @@ public interface ShuffleServerClient {
 
   RssReportShuffleResultResponse reportShuffleResult(RssReportShuffleResultRequest request);
 
+  RssAbortTaskAttemptResponse abortTaskAttempt(RssAbortTaskAttemptRequest request);
+
   RssGetShuffleResultResponse getShuffleResult(RssGetShuffleResultRequest request);
 
   RssGetShuffleIndexResponse getShuffleIndex(RssGetShuffleIndexRequest request);
@@ -49,6 +49,7 @@ import com.tencent.rss.client.response.RssFetchRemoteStorageResponse;
 import com.tencent.rss.client.response.RssGetShuffleAssignmentsResponse;
 import com.tencent.rss.client.response.RssSendHeartBeatResponse;
 import com.tencent.rss.common.PartitionRange;
+import com.tencent.rss.common.RemoteStorageWriteInfo;
 import com.tencent.rss.common.ShuffleServerInfo;
 import com.tencent.rss.common.exception.RssException;
 import com.tencent.rss.proto.CoordinatorServerGrpc;
@@ -112,10 +113,11 @@ public class CoordinatorGrpcClient extends GrpcClient implements CoordinatorClie
       int eventNumInFlush,
       long timeout,
       Set<String> tags,
-      boolean isHealthy) {
+      boolean isHealthy,
+      List<RemoteStorageWriteInfo> remoteStorageWriteInfos) {
     ShuffleServerId serverId =
         ShuffleServerId.newBuilder().setId(id).setIp(ip).setPort(port).build();
-    ShuffleServerHeartBeatRequest request =
+    ShuffleServerHeartBeatRequest.Builder builder =
         ShuffleServerHeartBeatRequest.newBuilder()
             .setServerId(serverId)
             .setUsedMemory(usedMemory)
@@ -123,8 +125,19 @@ public class CoordinatorGrpcClient extends GrpcClient implements CoordinatorClie
             .setAvailableMemory(availableMemory)
             .setEventNumInFlush(eventNumInFlush)
             .addAllTags(tags)
-            .setIsHealthy(BoolValue.newBuilder().setValue(isHealthy).build())
-            .build();
+            .setIsHealthy(BoolValue.newBuilder().setValue(isHealthy).build());
+    if (remoteStorageWriteInfos != null) {
+      for (RemoteStorageWriteInfo info : remoteStorageWriteInfos) {
+        builder.addRemoteStorageWriteInfo(RssProtos.RemoteStorageWriteInfo.newBuilder()
+            .setPath(info.getPath())
+            .setWriteBytes(info.getWriteBytes())
+            .setWriteTimeMs(info.getWriteTimeMs())
+            .setWriteCount(info.getWriteCount())
+            .setErrorCount(info.getErrorCount())
+            .build());
+      }
+    }
+    ShuffleServerHeartBeatRequest request = builder.build();
 
     StatusCode status;
     ShuffleServerHeartBeatResponse response = null;
@@ -178,7 +191,8 @@ public class CoordinatorGrpcClient extends GrpcClient implements CoordinatorClie
         request.getEventNumInFlush(),
         request.getTimeout(),
         request.getTags(),
-        request.isHealthy());
+        request.isHealthy(),
+        request.getRemoteStorageWriteInfos());
 
     RssSendHeartBeatResponse response;
     StatusCode statusCode = rpcResponse.getStatus();
@@ -18,18 +18,25 @@
 
 package com.tencent.rss.client.impl.grpc;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.tencent.rss.client.api.ShuffleServerClient;
+import com.tencent.rss.client.request.RssAbortTaskAttemptRequest;
 import com.tencent.rss.client.request.RssAppHeartBeatRequest;
 import com.tencent.rss.client.request.RssFinishShuffleRequest;
 import com.tencent.rss.client.request.RssGetInMemoryShuffleDataRequest;
@@ -41,6 +48,7 @@ import com.tencent.rss.client.request.RssReportShuffleResultRequest;
 import com.tencent.rss.client.request.RssSendCommitRequest;
 import com.tencent.rss.client.request.RssSendShuffleDataRequest;
 import com.tencent.rss.client.response.ResponseStatusCode;
+import com.tencent.rss.client.response.RssAbortTaskAttemptResponse;
 import com.tencent.rss.client.response.RssAppHeartBeatResponse;
 import com.tencent.rss.client.response.RssFinishShuffleResponse;
 import com.tencent.rss.client.response.RssGetInMemoryShuffleDataResponse;
@@ -55,6 +63,11 @@ import com.tencent.rss.common.BufferSegment;
 import com.tencent.rss.common.PartitionRange;
 import com.tencent.rss.common.ShuffleBlockInfo;
 import com.tencent.rss.common.exception.RssException;
+import com.tencent.rss.common.util.BlockIdLayout;
+import com.tencent.rss.common.util.RssUtils;
+import com.tencent.rss.proto.RssProtos;
+import com.tencent.rss.proto.RssProtos.AbortTaskAttemptRequest;
+import com.tencent.rss.proto.RssProtos.AbortTaskAttemptResponse;
 import com.tencent.rss.proto.RssProtos.AppHeartBeatRequest;
 import com.tencent.rss.proto.RssProtos.AppHeartBeatResponse;
 import com.tencent.rss.proto.RssProtos.FinishShuffleRequest;
@@ -112,10 +125,23 @@ public class ShuffleServerGrpcClient extends GrpcClient implements ShuffleServer
     return "Shuffle server grpc client ref " + host + ":" + port;
   }
 
-  private ShuffleRegisterResponse doRegisterShuffle(String appId, int shuffleId, List<PartitionRange> partitionRanges) {
-    ShuffleRegisterRequest request = ShuffleRegisterRequest.newBuilder().setAppId(appId)
-        .setShuffleId(shuffleId).addAllPartitionRanges(toShufflePartitionRanges(partitionRanges)).build();
-    return blockingStub.registerShuffle(request);
+  private ShuffleRegisterResponse doRegisterShuffle(String appId, int shuffleId, List<PartitionRange> partitionRanges,
+      String combinerClass, String serializerClass, BlockIdLayout blockIdLayout, String remoteStoragePath) {
+    ShuffleRegisterRequest.Builder builder = ShuffleRegisterRequest.newBuilder().setAppId(appId)
+        .setShuffleId(shuffleId).addAllPartitionRanges(toShufflePartitionRanges(partitionRanges));
+    if (combinerClass != null && serializerClass != null) {
+      builder.setCombinerClass(combinerClass).setSerializerClass(serializerClass);
+    }
+    if (blockIdLayout != null) {
+      builder.setBlockIdLayout(RssProtos.BlockIdLayout.newBuilder()
+          .setSequenceNoBits(blockIdLayout.getSequenceNoBits())
+          .setPartitionIdBits(blockIdLayout.getPartitionIdBits())
+          .setTaskAttemptIdBits(blockIdLayout.getTaskAttemptIdBits()));
+    }
+    if (remoteStoragePath != null) {
+      builder.setRemoteStoragePath(remoteStoragePath);
+    }
+    return blockingStub.registerShuffle(builder.build());
   }
 
   private ShuffleCommitResponse doSendCommit(String appId, int shuffleId) {
@@ -142,7 +168,15 @@ public class ShuffleServerGrpcClient extends GrpcClient implements ShuffleServer
   }
 
   public long requirePreAllocation(int requireSize, int retryMax, long retryIntervalMax) {
-    RequireBufferRequest rpcRequest = RequireBufferRequest.newBuilder().setRequireSize(requireSize).build();
+    return requirePreAllocation(null, requireSize, retryMax, retryIntervalMax);
+  }
+
+  public long requirePreAllocation(String appId, int requireSize, int retryMax, long retryIntervalMax) {
+    RequireBufferRequest.Builder builder = RequireBufferRequest.newBuilder().setRequireSize(requireSize);
+    if (appId != null) {
+      builder.setAppId(appId);
+    }
+    RequireBufferRequest rpcRequest = builder.build();
     RequireBufferResponse rpcResponse = blockingStub.requireBuffer(rpcRequest);
     int retry = 0;
     long result = FAILED_REQUIRE_ID;
@@ -177,7 +211,11 @@ public class ShuffleServerGrpcClient extends GrpcClient implements ShuffleServer
     ShuffleRegisterResponse rpcResponse = doRegisterShuffle(
         request.getAppId(),
         request.getShuffleId(),
-        request.getPartitionRanges());
+        request.getPartitionRanges(),
+        request.getCombinerClass(),
+        request.getSerializerClass(),
+        request.getBlockIdLayout(),
+        request.getRemoteStoragePath());
 
     RssRegisterShuffleResponse response;
     StatusCode statusCode = rpcResponse.getStatus();
@@ -201,6 +239,7 @@ public class ShuffleServerGrpcClient extends GrpcClient implements ShuffleServer
     Map<Integer, Map<Integer, List<ShuffleBlockInfo>>> shuffleIdToBlocks = request.getShuffleIdToBlocks();
 
     List<ShuffleBlockInfo> shuffleBlockInfos = Lists.newArrayList();
+    Map<Integer, Set<Integer>> skewedPartitions = Maps.newHashMap();
     boolean isSuccessful = true;
 
     // prepare rpc request based on shuffleId -> partitionId -> blocks
@@ -227,7 +266,7 @@ public class ShuffleServerGrpcClient extends GrpcClient implements ShuffleServer
             .build());
       }
 
-      long requireId = requirePreAllocation(size, request.getRetryMax(), request.getRetryIntervalMax());
+      long requireId = requirePreAllocation(appId, size, request.getRetryMax(), request.getRetryIntervalMax());
       if (requireId != FAILED_REQUIRE_ID) {
         SendShuffleDataRequest rpcRequest = SendShuffleDataRequest.newBuilder()
             .setAppId(appId)
@@ -249,6 +288,9 @@ public class ShuffleServerGrpcClient extends GrpcClient implements ShuffleServer
           isSuccessful = false;
           break;
         }
+        if (response.getSkewedPartitionIdsCount() > 0) {
+          skewedPartitions.put(stb.getKey(), Sets.newHashSet(response.getSkewedPartitionIdsList()));
+        }
       } else {
         isSuccessful = false;
         break;
@@ -258,6 +300,7 @@ public class ShuffleServerGrpcClient extends GrpcClient implements ShuffleServer
     RssSendShuffleDataResponse response;
     if (isSuccessful) {
       response = new RssSendShuffleDataResponse(ResponseStatusCode.SUCCESS);
+      response.setSkewedPartitions(skewedPartitions);
     } else {
       response = new RssSendShuffleDataResponse(ResponseStatusCode.INTERNAL_ERROR);
     }
@@ -331,6 +374,28 @@ public class ShuffleServerGrpcClient extends GrpcClient implements ShuffleServer
     return response;
   }
 
+  @Override
+  public RssAbortTaskAttemptResponse abortTaskAttempt(RssAbortTaskAttemptRequest request) {
+    AbortTaskAttemptRequest rpcRequest = AbortTaskAttemptRequest.newBuilder()
+        .setAppId(request.getAppId())
+        .setShuffleId(request.getShuffleId())
+        .setTaskAttemptId(request.getTaskAttemptId())
+        .build();
+    AbortTaskAttemptResponse rpcResponse = blockingStub.abortTaskAttempt(rpcRequest);
+
+    RssAbortTaskAttemptResponse response;
+    if (rpcResponse.getStatus() != StatusCode.SUCCESS) {
+      String msg = "Can't abort task attempt to " + host + ":" + port
+          + " for [appId=" + request.getAppId() + ", shuffleId=" + request.getShuffleId()
+          + ", taskAttemptId=" + request.getTaskAttemptId() + "], errorMsg:" + rpcResponse.getRetMsg();
+      LOG.error(msg);
+      throw new RssException(msg);
+    } else {
+      response = new RssAbortTaskAttemptResponse(ResponseStatusCode.SUCCESS);
+    }
+    return response;
+  }
+
   @Override
   public RssReportShuffleResultResponse reportShuffleResult(RssReportShuffleResultRequest request) {
     List<PartitionToBlockIds> partitionToBlockIds = Lists.newArrayList();
@@ -393,6 +458,7 @@ public class ShuffleServerGrpcClient extends GrpcClient implements ShuffleServer
         .setAppId(request.getAppId())
         .setShuffleId(request.getShuffleId())
         .setPartitionId(request.getPartitionId())
+        .setSerializedTaskIdBitmap(serializeBitmap(request.getTaskIdBitmap()))
         .build();
     GetShuffleResultResponse rpcResponse = blockingStub
       .withDeadlineAfter(rpcTimeout, TimeUnit.MILLISECONDS)
@@ -405,6 +471,7 @@ public class ShuffleServerGrpcClient extends GrpcClient implements ShuffleServer
         try {
           response = new RssGetShuffleResultResponse(ResponseStatusCode.SUCCESS,
               rpcResponse.getSerializedBitmap().toByteArray());
+          response.setSkewed(rpcResponse.getSkewed());
         } catch (Exception e) {
           throw new RuntimeException(e);
         }
@@ -465,6 +532,7 @@ public class ShuffleServerGrpcClient extends GrpcClient implements ShuffleServer
         .setPartitionId(request.getPartitionId())
         .setPartitionNumPerRange(request.getPartitionNumPerRange())
         .setPartitionNum(request.getPartitionNum())
+        .setSerializedTaskIdBitmap(serializeBitmap(request.getExpectTaskIds()))
         .build();
     long start = System.currentTimeMillis();
     GetLocalShuffleIndexResponse rpcResponse = blockingStub.getLocalShuffleIndex(rpcRequest);
@@ -500,6 +568,8 @@ public class ShuffleServerGrpcClient extends GrpcClient implements ShuffleServer
         .setPartitionId(request.getPartitionId())
         .setLastBlockId(request.getLastBlockId())
         .setReadBufferSize(request.getReadBufferSize())
+        .setSerializedTaskIdBitmap(serializeBitmap(request.getExpectTaskIds()))
+        .setSerializedExpectedBlockIdBitmap(serializeBitmap(request.getExpectBlockIds()))
         .build();
 
     long start = System.currentTimeMillis();
@@ -552,6 +622,17 @@ public class ShuffleServerGrpcClient extends GrpcClient implements ShuffleServer
     return ret;
   }
 
+  private ByteString serializeBitmap(Roaring64NavigableMap bitmap) {
+    if (bitmap == null) {
+      return ByteString.EMPTY;
+    }
+    try {
+      return UnsafeByteOperations.unsafeWrap(RssUtils.serializeBitMap(bitmap));
+    } catch (IOException e) {
+      throw new RssException("Can't serialize the bitmap due to " + e.getMessage());
+    }
+  }
+
   @VisibleForTesting
   public void adjustTimeout(long timeout) {
     rpcTimeout = timeout;
@@ -18,20 +18,32 @@
 
 package com.tencent.rss.client.request;
 
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
 public class RssGetInMemoryShuffleDataRequest {
   private final String appId;
   private final int shuffleId;
   private final int partitionId;
   private final long lastBlockId;
   private final int readBufferSize;
+  private final Roaring64NavigableMap expectBlockIds;
+  private final Roaring64NavigableMap expectTaskIds;
 
   public RssGetInMemoryShuffleDataRequest(
       String appId, int shuffleId, int partitionId, long lastBlockId, int readBufferSize) {
+    this(appId, shuffleId, partitionId, lastBlockId, readBufferSize, null, null);
+  }
+
+  public RssGetInMemoryShuffleDataRequest(
+      String appId, int shuffleId, int partitionId, long lastBlockId, int readBufferSize,
+      Roaring64NavigableMap expectBlockIds, Roaring64NavigableMap expectTaskIds) {
     this.appId = appId;
     this.shuffleId = shuffleId;
     this.partitionId = partitionId;
     this.lastBlockId = lastBlockId;
     this.readBufferSize = readBufferSize;
+    this.expectBlockIds = expectBlockIds;
+    this.expectTaskIds = expectTaskIds;
   }
 
   public String getAppId() {
@@ -53,4 +65,12 @@ public class RssGetInMemoryShuffleDataRequest {
   public int getReadBufferSize() {
     return readBufferSize;
   }
+
+  public Roaring64NavigableMap getExpectBlockIds() {
+    return expectBlockIds;
+  }
+
+  public Roaring64NavigableMap getExpectTaskIds() {
+    return expectTaskIds;
+  }
 }
@@ -18,6 +18,8 @@
 
 package com.tencent.rss.client.request;
 
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
 public class RssGetShuffleIndexRequest {
 
   private final String appId;
@@ -25,6 +27,7 @@ public class RssGetShuffleIndexRequest {
   private final int partitionId;
   private final int partitionNumPerRange;
   private final int partitionNum;
+  private final Roaring64NavigableMap expectTaskIds;
 
   public RssGetShuffleIndexRequest(
       String appId,
@@ -32,11 +35,22 @@ public class RssGetShuffleIndexRequest {
       int partitionId,
       int partitionNumPerRange,
       int partitionNum) {
+    this(appId, shuffleId, partitionId, partitionNumPerRange, partitionNum, null);
+  }
+
+  public RssGetShuffleIndexRequest(
+      String appId,
+      int shuffleId,
+      int partitionId,
+      int partitionNumPerRange,
+      int partitionNum,
+      Roaring64NavigableMap expectTaskIds) {
     this.appId = appId;
     this.shuffleId = shuffleId;
     this.partitionId = partitionId;
     this.partitionNumPerRange = partitionNumPerRange;
     this.partitionNum = partitionNum;
+    this.expectTaskIds = expectTaskIds;
   }
 
   public String getAppId() {
@@ -59,4 +73,8 @@ public class RssGetShuffleIndexRequest {
     return partitionNum;
   }
 
+  public Roaring64NavigableMap getExpectTaskIds() {
+    return expectTaskIds;
+  }
+
 }
@@ -18,16 +18,25 @@
 
 package com.tencent.rss.client.request;
 
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
 public class RssGetShuffleResultRequest {
 
   private String appId;
   private int shuffleId;
   private int partitionId;
+  private Roaring64NavigableMap taskIdBitmap;
 
   public RssGetShuffleResultRequest(String appId, int shuffleId, int partitionId) {
+    this(appId, shuffleId, partitionId, null);
+  }
+
+  public RssGetShuffleResultRequest(String appId, int shuffleId, int partitionId,
+      Roaring64NavigableMap taskIdBitmap) {
     this.appId = appId;
     this.shuffleId = shuffleId;
     this.partitionId = partitionId;
+    this.taskIdBitmap = taskIdBitmap;
   }
 
   public String getAppId() {
@@ -41,4 +50,8 @@ public class RssGetShuffleResultRequest {
   public int getPartitionId() {
     return partitionId;
   }
+
+  public Roaring64NavigableMap getTaskIdBitmap() {
+    return taskIdBitmap;
+  }
 }
@@ -21,17 +21,56 @@ package com.tencent.rss.client.request;
 import java.util.List;
 
 import com.tencent.rss.common.PartitionRange;
+import com.tencent.rss.common.util.BlockIdLayout;
 
 public class RssRegisterShuffleRequest {
 
   private String appId;
   private int shuffleId;
   private List<PartitionRange> partitionRanges;
+  private String combinerClass;
+  private String serializerClass;
+  private BlockIdLayout blockIdLayout;
+  private String remoteStoragePath;
 
   public RssRegisterShuffleRequest(String appId, int shuffleId, List<PartitionRange> partitionRanges) {
+    this(appId, shuffleId, partitionRanges, null, null);
+  }
+
+  public RssRegisterShuffleRequest(
+      String appId,
+      int shuffleId,
+      List<PartitionRange> partitionRanges,
+      String combinerClass,
+      String serializerClass) {
+    this(appId, shuffleId, partitionRanges, combinerClass, serializerClass, null);
+  }
+
+  public RssRegisterShuffleRequest(
+      String appId,
+      int shuffleId,
+      List<PartitionRange> partitionRanges,
+      String combinerClass,
+      String serializerClass,
+      BlockIdLayout blockIdLayout) {
+    this(appId, shuffleId, partitionRanges, combinerClass, serializerClass, blockIdLayout, null);
+  }
+
+  public RssRegisterShuffleRequest(
+      String appId,
+      int shuffleId,
+      List<PartitionRange> partitionRanges,
+      String combinerClass,
+      String serializerClass,
+      BlockIdLayout blockIdLayout,
+      String remoteStoragePath) {
     this.appId = appId;
     this.shuffleId = shuffleId;
     this.partitionRanges = partitionRanges;
+    this.combinerClass = combinerClass;
+    this.serializerClass = serializerClass;
+    this.blockIdLayout = blockIdLayout;
+    this.remoteStoragePath = remoteStoragePath;
   }
 
   public String getAppId() {
@@ -45,4 +84,20 @@ public class RssRegisterShuffleRequest {
   public List<PartitionRange> getPartitionRanges() {
     return partitionRanges;
   }
+
+  public String getCombinerClass() {
+    return combinerClass;
+  }
+
+  public String getSerializerClass() {
+    return serializerClass;
+  }
+
+  public BlockIdLayout getBlockIdLayout() {
+    return blockIdLayout;
+  }
+
+  public String getRemoteStoragePath() {
+    return remoteStoragePath;
+  }
 }
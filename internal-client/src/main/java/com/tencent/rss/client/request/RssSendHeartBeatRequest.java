@@ -18,8 +18,11 @@
 
 package com.tencent.rss.client.request;
 
+import java.util.List;
 import java.util.Set;
 
+import com.tencent.rss.common.RemoteStorageWriteInfo;
+
 public class RssSendHeartBeatRequest {
 
   private final String shuffleServerId;
@@ -32,6 +35,7 @@ public class RssSendHeartBeatRequest {
   private final Set<String> tags;
   private final long timeout;
   private final boolean isHealthy;
+  private final List<RemoteStorageWriteInfo> remoteStorageWriteInfos;
 
   public RssSendHeartBeatRequest(
       String shuffleServerId,
@@ -43,7 +47,8 @@ public class RssSendHeartBeatRequest {
       int eventNumInFlush,
       long timeout,
       Set<String> tags,
-      boolean isHealthy) {
+      boolean isHealthy,
+      List<RemoteStorageWriteInfo> remoteStorageWriteInfos) {
     this.shuffleServerId = shuffleServerId;
     this.shuffleServerIp = shuffleServerIp;
     this.shuffleServerPort = shuffleServerPort;
@@ -54,6 +59,7 @@ public class RssSendHeartBeatRequest {
     this.tags = tags;
     this.timeout = timeout;
     this.isHealthy = isHealthy;
+    this.remoteStorageWriteInfos = remoteStorageWriteInfos;
   }
 
   public String getShuffleServerId() {
@@ -95,4 +101,8 @@ public class RssSendHeartBeatRequest {
   public boolean isHealthy() {
     return isHealthy;
   }
+
+  public List<RemoteStorageWriteInfo> getRemoteStorageWriteInfos() {
+    return remoteStorageWriteInfos;
+  }
 }
@@ -27,6 +27,7 @@ import com.tencent.rss.common.util.RssUtils;
 public class RssGetShuffleResultResponse extends ClientResponse {
 
   private Roaring64NavigableMap blockIdBitmap;
+  private boolean skewed;
 
   public RssGetShuffleResultResponse(ResponseStatusCode statusCode, byte[] serializedBitmap) throws IOException {
     super(statusCode);
@@ -36,4 +37,12 @@ public class RssGetShuffleResultResponse extends ClientResponse {
   public Roaring64NavigableMap getBlockIdBitmap() {
     return blockIdBitmap;
   }
+
+  public boolean isSkewed() {
+    return skewed;
+  }
+
+  public void setSkewed(boolean skewed) {
+    this.skewed = skewed;
+  }
 }
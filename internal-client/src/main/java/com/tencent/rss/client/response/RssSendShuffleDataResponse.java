@@ -19,11 +19,17 @@
 package com.tencent.rss.client.response;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Maps;
 
 public class RssSendShuffleDataResponse extends ClientResponse {
 
   private List<Long> successBlockIds;
   private List<Long> failedBlockIds;
+  // shuffleId -> skewed partitionIds reported by shuffle server
+  private Map<Integer, Set<Integer>> skewedPartitions = Maps.newHashMap();
 
   public RssSendShuffleDataResponse(ResponseStatusCode statusCode) {
     super(statusCode);
@@ -44,4 +50,12 @@ public class RssSendShuffleDataResponse extends ClientResponse {
   public void setFailedBlockIds(List<Long> failedBlockIds) {
     this.failedBlockIds = failedBlockIds;
   }
+
+  public Map<Integer, Set<Integer>> getSkewedPartitions() {
+    return skewedPartitions;
+  }
+
+  public void setSkewedPartitions(Map<Integer, Set<Integer>> skewedPartitions) {
+    this.skewedPartitions = skewedPartitions;
+  }
 }
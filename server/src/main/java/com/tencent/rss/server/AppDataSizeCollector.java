@@ -0,0 +1,131 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.server;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Maps;
+import io.prometheus.client.Collector;
+import io.prometheus.client.GaugeMetricFamily;
+
+/**
+ * Export the written and read bytes of the top N apps when the metrics are collected,
+ * apps are ranked by the total bytes, and the app without write or read for the idle timeout is evicted.
+ */
+public class AppDataSizeCollector extends Collector {
+
+  static final String APP_WRITE_DATA = "app_write_data";
+  static final String APP_READ_DATA = "app_read_data";
+  private static final List<String> LABEL_NAMES = Collections.singletonList("app_id");
+
+  private final Map<String, AppDataSize> appDataSizes = Maps.newConcurrentMap();
+  private volatile int topN;
+  private volatile long idleTimeoutMs;
+
+  public AppDataSizeCollector(int topN, long idleTimeoutMs) {
+    this.topN = topN;
+    this.idleTimeoutMs = idleTimeoutMs;
+  }
+
+  public void configure(int topN, long idleTimeoutMs) {
+    this.topN = topN;
+    this.idleTimeoutMs = idleTimeoutMs;
+  }
+
+  public void incWriteSize(String appId, long size) {
+    appDataSizes.computeIfAbsent(appId, key -> new AppDataSize()).incWriteSize(size);
+  }
+
+  public void incReadSize(String appId, long size) {
+    appDataSizes.computeIfAbsent(appId, key -> new AppDataSize()).incReadSize(size);
+  }
+
+  public void removeApp(String appId) {
+    appDataSizes.remove(appId);
+  }
+
+  @Override
+  public List<MetricFamilySamples> collect() {
+    GaugeMetricFamily writeFamily = new GaugeMetricFamily(APP_WRITE_DATA,
+        "Bytes written by the top " + topN + " apps", LABEL_NAMES);
+    GaugeMetricFamily readFamily = new GaugeMetricFamily(APP_READ_DATA,
+        "Bytes read by the top " + topN + " apps", LABEL_NAMES);
+    for (Map.Entry<String, AppDataSize> entry : getTopApps()) {
+      List<String> labelValues = Collections.singletonList(entry.getKey());
+      writeFamily.addMetric(labelValues, entry.getValue().getWriteSize());
+      readFamily.addMetric(labelValues, entry.getValue().getReadSize());
+    }
+    return Arrays.asList(writeFamily, readFamily);
+  }
+
+  @VisibleForTesting
+  List<Map.Entry<String, AppDataSize>> getTopApps() {
+    long now = System.currentTimeMillis();
+    appDataSizes.entrySet().removeIf(entry -> now - entry.getValue().getLastUpdateTime() > idleTimeoutMs);
+    return appDataSizes.entrySet().stream()
+        .sorted(Comparator.comparingLong(
+            (Map.Entry<String, AppDataSize> entry) -> entry.getValue().getTotalSize()).reversed())
+        .limit(topN)
+        .collect(Collectors.toList());
+  }
+
+  @VisibleForTesting
+  int getAppNum() {
+    return appDataSizes.size();
+  }
+
+  static class AppDataSize {
+    private final LongAdder writeSize = new LongAdder();
+    private final LongAdder readSize = new LongAdder();
+    private volatile long lastUpdateTime = System.currentTimeMillis();
+
+    void incWriteSize(long size) {
+      writeSize.add(size);
+      lastUpdateTime = System.currentTimeMillis();
+    }
+
+    void incReadSize(long size) {
+      readSize.add(size);
+      lastUpdateTime = System.currentTimeMillis();
+    }
+
+    long getWriteSize() {
+      return writeSize.sum();
+    }
+
+    long getReadSize() {
+      return readSize.sum();
+    }
+
+    long getTotalSize() {
+      return writeSize.sum() + readSize.sum();
+    }
+
+    long getLastUpdateTime() {
+      return lastUpdateTime;
+    }
+  }
+}
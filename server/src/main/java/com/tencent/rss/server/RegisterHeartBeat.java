@@ -36,6 +36,7 @@ import com.tencent.rss.client.factory.CoordinatorClientFactory;
 import com.tencent.rss.client.request.RssSendHeartBeatRequest;
 import com.tencent.rss.client.response.ResponseStatusCode;
 import com.tencent.rss.client.response.RssSendHeartBeatResponse;
+import com.tencent.rss.common.RemoteStorageWriteInfo;
 
 public class RegisterHeartBeat {
 
@@ -78,7 +79,8 @@ public class RegisterHeartBeat {
             shuffleServer.getAvailableMemory(),
             shuffleServer.getEventNumInFlush(),
             shuffleServer.getTags(),
-            shuffleServer.isHealthy());
+            shuffleServer.isHealthy(),
+            shuffleServer.getRemoteStorageWriteInfos());
       } catch (Exception e) {
         LOG.warn("Error happened when send heart beat to coordinator");
       }
@@ -96,7 +98,8 @@ public class RegisterHeartBeat {
       long availableMemory,
       int eventNumInFlush,
       Set<String> tags,
-      boolean isHealthy) {
+      boolean isHealthy,
+      List<RemoteStorageWriteInfo> remoteStorageWriteInfos) {
     boolean sendSuccessfully = false;
     RssSendHeartBeatRequest request = new RssSendHeartBeatRequest(
         id,
@@ -108,7 +111,8 @@ public class RegisterHeartBeat {
         eventNumInFlush,
         heartBeatTimeout,
         tags,
-        isHealthy);
+        isHealthy,
+        remoteStorageWriteInfos);
     List<Future<RssSendHeartBeatResponse>> respFutures = coordinatorClients
         .stream()
         .map(client -> heartBeatExecutorService.submit(() -> client.sendHeartBeat(request)))
@@ -37,6 +37,8 @@ public class ShuffleDataFlushEvent {
   private final Supplier<Boolean> valid;
   private final ShuffleBuffer shuffleBuffer;
   private final AtomicInteger retryTimes = new AtomicInteger();
+  // the time when the first block of this event is cached
+  private final long cacheTime;
 
   public ShuffleDataFlushEvent(
       long eventId,
@@ -48,6 +50,21 @@ public class ShuffleDataFlushEvent {
       List<ShufflePartitionedBlock> shuffleBlocks,
       Supplier<Boolean> valid,
       ShuffleBuffer shuffleBuffer) {
+    this(eventId, appId, shuffleId, startPartition, endPartition, size, shuffleBlocks, valid, shuffleBuffer,
+        System.currentTimeMillis());
+  }
+
+  public ShuffleDataFlushEvent(
+      long eventId,
+      String appId,
+      int shuffleId,
+      int startPartition,
+      int endPartition,
+      long size,
+      List<ShufflePartitionedBlock> shuffleBlocks,
+      Supplier<Boolean> valid,
+      ShuffleBuffer shuffleBuffer,
+      long cacheTime) {
     this.eventId = eventId;
     this.appId = appId;
     this.shuffleId = shuffleId;
@@ -57,6 +74,7 @@ public class ShuffleDataFlushEvent {
     this.shuffleBlocks = shuffleBlocks;
     this.valid = valid;
     this.shuffleBuffer = shuffleBuffer;
+    this.cacheTime = cacheTime;
   }
 
   public List<ShufflePartitionedBlock> getShuffleBlocks() {
@@ -98,6 +116,10 @@ public class ShuffleDataFlushEvent {
     return valid.get();
   }
 
+  public long getCacheTime() {
+    return cacheTime;
+  }
+
   public int getRetryTimes() {
     return retryTimes.get();
   }
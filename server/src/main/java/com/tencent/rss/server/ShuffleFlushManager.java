@@ -18,14 +18,19 @@
 
 package com.tencent.rss.server;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
 import com.google.common.collect.RangeMap;
@@ -39,9 +44,11 @@ import com.tencent.rss.common.ShufflePartitionedBlock;
 import com.tencent.rss.common.config.RssBaseConf;
 import com.tencent.rss.server.buffer.ShuffleBuffer;
 import com.tencent.rss.server.storage.StorageManager;
+import com.tencent.rss.storage.common.HdfsStorage;
 import com.tencent.rss.storage.common.Storage;
 import com.tencent.rss.storage.handler.api.ShuffleWriteHandler;
 import com.tencent.rss.storage.request.CreateShuffleWriteHandlerRequest;
+import com.tencent.rss.storage.util.StorageType;
 
 public class ShuffleFlushManager {
 
@@ -60,6 +67,10 @@ public class ShuffleFlushManager {
   private Map<String, Map<Integer, RangeMap<Integer, ShuffleWriteHandler>>> handlers = Maps.newConcurrentMap();
   // appId -> shuffleId -> committed shuffle blockIds
   private Map<String, Map<Integer, Roaring64NavigableMap>> committedBlockIds = Maps.newConcurrentMap();
+  // appId -> shuffleId -> number of committed shuffle blocks, it can be read without locking the bitmap
+  private Map<String, Map<Integer, LongAdder>> committedBlockCounts = Maps.newConcurrentMap();
+  // appId -> shuffleId -> commits waiting for blocks to be flushed
+  private Map<String, Map<Integer, List<CommitWaiter>>> commitWaiters = Maps.newConcurrentMap();
   private Runnable processEventThread;
   private final int retryMax;
 
@@ -176,6 +187,11 @@ public class ShuffleFlushManager {
           writeSuccess = storageManager.write(storage, handler, event);
 
           if (writeSuccess) {
+            long finishTime = System.currentTimeMillis();
+            String storageLabel = getStorageLabel(storage);
+            ShuffleServerMetrics.histogramFlushLatency.labels(storageLabel).observe(finishTime - start);
+            ShuffleServerMetrics.histogramCacheToFlushTime.labels(storageLabel)
+                .observe(finishTime - event.getCacheTime());
             updateCommittedBlockIds(event.getAppId(), event.getShuffleId(), blocks);
             break;
           } else {
@@ -204,21 +220,110 @@ public class ShuffleFlushManager {
     }
   }
 
-  private void updateCommittedBlockIds(String appId, int shuffleId, List<ShufflePartitionedBlock> blocks) {
+  private String getStorageLabel(Storage storage) {
+    return storage instanceof HdfsStorage ? StorageType.HDFS.name() : StorageType.LOCALFILE.name();
+  }
+
+  @VisibleForTesting
+  void updateCommittedBlockIds(String appId, int shuffleId, List<ShufflePartitionedBlock> blocks) {
     if (blocks == null || blocks.size() == 0) {
       return;
     }
+    Roaring64NavigableMap bitmap = getOrCreateCommittedBlockIds(appId, shuffleId);
+    long addedNum = 0;
+    synchronized (bitmap) {
+      for (ShufflePartitionedBlock spb : blocks) {
+        // count the block only once even if it is flushed again
+        if (!bitmap.contains(spb.getBlockId())) {
+          bitmap.addLong(spb.getBlockId());
+          addedNum++;
+        }
+      }
+    }
+    getCommittedBlockCount(appId, shuffleId).add(addedNum);
+    checkCommitWaiters(appId, shuffleId);
+  }
+
+  /**
+   * Completes the commit waiters of the shuffle which are satisfied. Besides the flush callback, it's called
+   * when cached blocks are combined or dropped, because these blocks are skipped by the waiters.
+   */
+  public void checkCommitWaiters(String appId, int shuffleId) {
+    Map<Integer, List<CommitWaiter>> shuffleToWaiters = commitWaiters.get(appId);
+    List<CommitWaiter> waiters = shuffleToWaiters == null ? null : shuffleToWaiters.get(shuffleId);
+    if (waiters == null) {
+      return;
+    }
+    LongAdder committedNum = getCommittedBlockCount(appId, shuffleId);
+    List<CommitWaiter> finishedWaiters = Lists.newArrayList();
+    synchronized (waiters) {
+      long currentNum = committedNum.sum();
+      Iterator<CommitWaiter> iterator = waiters.iterator();
+      while (iterator.hasNext()) {
+        CommitWaiter waiter = iterator.next();
+        // the waiter may be completed by timeout already
+        if (waiter.future.isDone() || waiter.isSatisfied(currentNum)) {
+          iterator.remove();
+          finishedWaiters.add(waiter);
+        }
+      }
+    }
+    // complete outside the lock, the callbacks may send the response of commit
+    for (CommitWaiter waiter : finishedWaiters) {
+      waiter.future.complete(null);
+    }
+  }
+
+  /**
+   * Returns a future which is completed when every one of the cachedNum blocks is committed or skipped.
+   * The skipped blocks, i.e. the blocks merged by combiner or dropped as aborted attempts, won't be flushed.
+   * They are counted when the waiter is checked because blocks may be combined or dropped after the commit.
+   */
+  public CompletableFuture<Void> waitForCommittedBlockNum(
+      String appId, int shuffleId, long cachedNum, LongSupplier skippedNum) {
+    LongAdder committedNum = getCommittedBlockCount(appId, shuffleId);
+    List<CommitWaiter> waiters = getCommitWaiters(appId, shuffleId);
+    synchronized (waiters) {
+      CommitWaiter waiter = new CommitWaiter(cachedNum, skippedNum);
+      // the counter is updated before checking the waiters, so the waiter won't be missed
+      if (waiter.isSatisfied(committedNum.sum())) {
+        return CompletableFuture.completedFuture(null);
+      }
+      waiters.add(waiter);
+      return waiter.future;
+    }
+  }
+
+  public long getCommittedBlockNum(String appId, int shuffleId) {
+    Map<Integer, LongAdder> shuffleToCounts = committedBlockCounts.get(appId);
+    if (shuffleToCounts == null) {
+      return 0;
+    }
+    LongAdder committedNum = shuffleToCounts.get(shuffleId);
+    return committedNum == null ? 0 : committedNum.sum();
+  }
+
+  private LongAdder getCommittedBlockCount(String appId, int shuffleId) {
+    committedBlockCounts.putIfAbsent(appId, Maps.newConcurrentMap());
+    Map<Integer, LongAdder> shuffleToCounts = committedBlockCounts.get(appId);
+    shuffleToCounts.putIfAbsent(shuffleId, new LongAdder());
+    return shuffleToCounts.get(shuffleId);
+  }
+
+  private Roaring64NavigableMap getOrCreateCommittedBlockIds(String appId, int shuffleId) {
     if (!committedBlockIds.containsKey(appId)) {
       committedBlockIds.putIfAbsent(appId, Maps.newConcurrentMap());
     }
     Map<Integer, Roaring64NavigableMap> shuffleToBlockIds = committedBlockIds.get(appId);
     shuffleToBlockIds.putIfAbsent(shuffleId, Roaring64NavigableMap.bitmapOf());
-    Roaring64NavigableMap bitmap = shuffleToBlockIds.get(shuffleId);
-    synchronized (bitmap) {
-      for (ShufflePartitionedBlock spb : blocks) {
-        bitmap.addLong(spb.getBlockId());
-      }
-    }
+    return shuffleToBlockIds.get(shuffleId);
+  }
+
+  private List<CommitWaiter> getCommitWaiters(String appId, int shuffleId) {
+    commitWaiters.putIfAbsent(appId, Maps.newConcurrentMap());
+    Map<Integer, List<CommitWaiter>> shuffleToWaiters = commitWaiters.get(appId);
+    shuffleToWaiters.putIfAbsent(shuffleId, Lists.newLinkedList());
+    return shuffleToWaiters.get(shuffleId);
   }
 
   public Roaring64NavigableMap getCommittedBlockIds(String appId, Integer shuffleId) {
@@ -238,6 +343,8 @@ public class ShuffleFlushManager {
   public void removeResources(String appId) {
     handlers.remove(appId);
     committedBlockIds.remove(appId);
+    committedBlockCounts.remove(appId);
+    commitWaiters.remove(appId);
   }
 
   protected void initHadoopConf() {
@@ -321,4 +428,21 @@ public class ShuffleFlushManager {
       return createTimeStamp;
     }
   }
+
+  private static class CommitWaiter {
+    // the number of cached blocks to wait for
+    private final long cachedNum;
+    // the number of blocks which won't be flushed
+    private final LongSupplier skippedNum;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    CommitWaiter(long cachedNum, LongSupplier skippedNum) {
+      this.cachedNum = cachedNum;
+      this.skippedNum = skippedNum;
+    }
+
+    boolean isSatisfied(long committedNum) {
+      return committedNum + skippedNum.getAsLong() >= cachedNum;
+    }
+  }
 }
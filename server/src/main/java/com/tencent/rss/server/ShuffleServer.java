@@ -31,6 +31,7 @@ import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 
 import com.tencent.rss.common.Arguments;
+import com.tencent.rss.common.RemoteStorageWriteInfo;
 import com.tencent.rss.common.metrics.GRPCMetrics;
 import com.tencent.rss.common.metrics.JvmMetrics;
 import com.tencent.rss.common.rpc.ServerInterface;
@@ -166,6 +167,9 @@ public class ShuffleServer {
     LOG.info("Register metrics");
     CollectorRegistry shuffleServerCollectorRegistry = new CollectorRegistry(true);
     ShuffleServerMetrics.register(shuffleServerCollectorRegistry);
+    ShuffleServerMetrics.appDataSizeCollector.configure(
+        shuffleServerConf.getInteger(ShuffleServerConf.SERVER_APP_METRICS_TOP_N),
+        shuffleServerConf.getLong(ShuffleServerConf.SERVER_APP_METRICS_IDLE_TIMEOUT_MS));
     grpcMetrics = new ShuffleServerGrpcMetrics();
     grpcMetrics.register(new CollectorRegistry(true));
     CollectorRegistry jvmCollectorRegistry = new CollectorRegistry(true);
@@ -262,6 +266,10 @@ public class ShuffleServer {
     return storageManager;
   }
 
+  public List<RemoteStorageWriteInfo> getRemoteStorageWriteInfos() {
+    return storageManager.getRemoteStorageWriteInfos();
+  }
+
   public Set<String> getTags() {
     return tags;
   }
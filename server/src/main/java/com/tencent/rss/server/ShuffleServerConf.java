@@ -208,6 +208,20 @@ public class ShuffleServerConf extends RssBaseConf {
       .noDefaultValue()
       .withDescription("The base path of the hdfs storage");
 
+  public static final ConfigOption<Integer> HDFS_WRITER_MAX_OPEN_NUM = ConfigOptions
+      .key("rss.server.hdfs.writer.max.open.num")
+      .intType()
+      .defaultValue(1024)
+      .withDescription("The max number of partition ranges whose hdfs writers are kept open across flushes,"
+          + " writers are closed after every flush if it isn't positive");
+
+  public static final ConfigOption<Long> HDFS_WRITER_IDLE_TIMEOUT_MS = ConfigOptions
+      .key("rss.server.hdfs.writer.idle.timeout.ms")
+      .longType()
+      .checkValue(ConfigUtils.positiveLongValidator, "hdfs writer idle timeout must be positive")
+      .defaultValue(60L * 1000)
+      .withDescription("The opened hdfs writers will be closed if they aren't written for the timeout");
+
   public static final ConfigOption<String> UPLOADER_BASE_PATH = ConfigOptions
       .key("rss.server.uploader.base.path")
       .stringType()
@@ -227,6 +241,35 @@ public class ShuffleServerConf extends RssBaseConf {
       .defaultValue(8L)
       .withDescription("The speed for the uploader");
 
+  public static final ConfigOption<Long> UPLOADER_MAX_BANDWIDTH_MB_PER_SECOND = ConfigOptions
+      .key("rss.server.uploader.max.bandwidth.mb.per.second")
+      .longType()
+      .checkValue(ConfigUtils.non_negativeLongValidator, "uploader max bandwidth must be non-negative")
+      .defaultValue(0L)
+      .withDescription("The total upload bandwidth of all disks in MiB per second, 0 means unlimited");
+
+  public static final ConfigOption<Integer> UPLOADER_SHUFFLE_CONCURRENCY = ConfigOptions
+      .key("rss.server.uploader.shuffle.concurrency")
+      .intType()
+      .checkValue(ConfigUtils.positiveIntegerValidator2, "uploader shuffle concurrency must be positive")
+      .defaultValue(1)
+      .withDescription("The number of chunks a shuffle is split into to be uploaded concurrently");
+
+  public static final ConfigOption<Boolean> UPLOADER_VERIFY_CHECKSUM = ConfigOptions
+      .key("rss.server.uploader.verify.checksum")
+      .booleanType()
+      .defaultValue(false)
+      .withDescription("Verify the crc of every block against the local index file when it's uploaded,"
+          + " the partition whose data is corrupted isn't uploaded");
+
+  public static final ConfigOption<Integer> UPLOADER_RETRY_TIMES = ConfigOptions
+      .key("rss.server.uploader.retry.times")
+      .intType()
+      .checkValue(ConfigUtils.non_negativeIntegerValidator, "uploader retry times must be non-negative")
+      .defaultValue(1)
+      .withDescription("The times to retry the upload of a shuffle if it fails for the remote storage,"
+          + " the retry resumes from the first partition which isn't uploaded");
+
   public static final ConfigOption<Long> DISK_CAPACITY = ConfigOptions
       .key("rss.server.disk.capacity")
       .longType()
@@ -241,6 +284,62 @@ public class ShuffleServerConf extends RssBaseConf {
       .defaultValue(3000L)
       .withDescription("The interval for cleanup");
 
+  public static final ConfigOption<Boolean> LOCALFILE_SEGMENT_LOG_ENABLE = ConfigOptions
+      .key("rss.server.localfile.segment.log.enable")
+      .booleanType()
+      .defaultValue(false)
+      .withDescription("Group the flush events of a shuffle in one disk and append them to one data file,"
+          + " every partition range keeps its own index file next to it. It can't be used with the uploader");
+
+  public static final ConfigOption<String> TMPFS_BASE_PATH = ConfigOptions
+      .key("rss.server.tmpfs.basePath")
+      .stringType()
+      .noDefaultValue()
+      .withDescription("Comma separated tmpfs paths which shuffle data is flushed to before local disks,"
+          + " it is used by MEMORY_TMPFS_LOCALFILE");
+
+  public static final ConfigOption<Long> TMPFS_CAPACITY = ConfigOptions
+      .key("rss.server.tmpfs.capacity")
+      .longType()
+      .checkValue(ConfigUtils.positiveLongValidator, "tmpfs capacity must be positive")
+      .defaultValue(8L * 1024L * 1024L * 1024L)
+      .withDescription("Capacity of every tmpfs path that shuffle server can use");
+
+  public static final ConfigOption<Long> TMPFS_DEMOTE_INTERVAL_MS = ConfigOptions
+      .key("rss.server.tmpfs.demote.interval.ms")
+      .longType()
+      .checkValue(ConfigUtils.positiveLongValidator, "tmpfs demote interval must be positive")
+      .defaultValue(1000L)
+      .withDescription("The interval to check which shuffles in tmpfs should be moved to local disks");
+
+  public static final ConfigOption<Long> TMPFS_DEMOTE_AGE_MS = ConfigOptions
+      .key("rss.server.tmpfs.demote.age.ms")
+      .longType()
+      .checkValue(ConfigUtils.positiveLongValidator, "tmpfs demote age must be positive")
+      .defaultValue(60L * 1000L)
+      .withDescription("Shuffle in tmpfs is moved to local disks if it isn't written for the time (ms)");
+
+  public static final ConfigOption<Long> TMPFS_DEMOTE_SHUFFLE_SIZE = ConfigOptions
+      .key("rss.server.tmpfs.demote.shuffle.size")
+      .longType()
+      .checkValue(ConfigUtils.positiveLongValidator, "tmpfs demote shuffle size must be positive")
+      .defaultValue(256L * 1024L * 1024L)
+      .withDescription("Shuffle in tmpfs is moved to local disks if its size exceeds the threshold");
+
+  public static final ConfigOption<Boolean> SERVER_BUFFER_COMBINE_ENABLE = ConfigOptions
+      .key("rss.server.buffer.combine.enable")
+      .booleanType()
+      .defaultValue(false)
+      .withDescription("Whether to load the combiner registered by client and combine the cached blocks"
+          + " of a task attempt when the attempt reports its shuffle result");
+
+  public static final ConfigOption<Long> SERVER_BUFFER_COMBINE_THRESHOLD_SIZE = ConfigOptions
+      .key("rss.server.buffer.combine.threshold.size")
+      .longType()
+      .checkValue(ConfigUtils.positiveLongValidator, "buffer combine threshold must be positive")
+      .defaultValue(1024L * 1024L)
+      .withDescription("Blocks of a partition are combined only if the buffer size reaches the threshold");
+
   public static final ConfigOption<Long> SHUFFLE_EXPIRED_TIMEOUT_MS = ConfigOptions
       .key("rss.server.shuffle.expired.timeout.ms")
       .longType()
@@ -343,6 +442,49 @@ public class ShuffleServerConf extends RssBaseConf {
       .defaultValue(0L)
       .withDescription("For multistorage, fail times exceed the number, will switch storage");
 
+  public static final ConfigOption<Integer> SERVER_APP_METRICS_TOP_N = ConfigOptions
+      .key("rss.server.app.metrics.topN")
+      .intType()
+      .checkValue(ConfigUtils.positiveIntegerValidator2, "app metrics topN must be positive")
+      .defaultValue(10)
+      .withDescription("Number of apps whose written and read bytes are exported, ranked by the total bytes");
+
+  public static final ConfigOption<Long> SERVER_APP_METRICS_IDLE_TIMEOUT_MS = ConfigOptions
+      .key("rss.server.app.metrics.idle.timeout.ms")
+      .longType()
+      .checkValue(ConfigUtils.positiveLongValidator, "app metrics idle timeout must be positive")
+      .defaultValue(10 * 60 * 1000L)
+      .withDescription("App is removed from the app metrics if it isn't written or read for the timeout (ms)");
+
+  public static final ConfigOption<Long> SERVER_PARTITION_SKEW_THRESHOLD_SIZE = ConfigOptions
+      .key("rss.server.partition.skew.threshold.size")
+      .longType()
+      .checkValue(ConfigUtils.non_negativeLongValidator, "partition skew threshold must be non-negative")
+      .defaultValue(0L)
+      .withDescription("If the data of a partition received by shuffle server exceeds the threshold, "
+          + "client is told to send further blocks of the partition to the spare servers, 0 means disabled");
+
+  public static final ConfigOption<Boolean> SERVER_APP_MEMORY_QUOTA_ENABLE = ConfigOptions
+      .key("rss.server.app.memory.quota.enable")
+      .booleanType()
+      .defaultValue(false)
+      .withDescription("Whether to limit the buffer memory of every app with the hard quota and the fair share");
+
+  public static final ConfigOption<Double> SERVER_APP_MEMORY_HARD_QUOTA_PERCENTAGE = ConfigOptions
+      .key("rss.server.app.memory.hard.quota.percentage")
+      .doubleType()
+      .checkValue(ConfigUtils.percentageDoubleValidator,
+          "The hard quota for app memory percentage must be between 0.0 and 100.0")
+      .defaultValue(100.0)
+      .withDescription("Max percentage of the buffer capacity which can be used by a single app");
+
+  public static final ConfigOption<String> SERVER_APP_MEMORY_WEIGHTS = ConfigOptions
+      .key("rss.server.app.memory.weights")
+      .stringType()
+      .noDefaultValue()
+      .withDescription("Weights of the fair share in the format appIdPrefix=weight,appIdPrefix=weight, "
+          + "the longest matched prefix is used and the weight of other apps is 1.0");
+
   public ShuffleServerConf() {
   }
 
@@ -18,8 +18,10 @@
 
 package com.tencent.rss.server;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -28,6 +30,7 @@ import com.google.protobuf.UnsafeByteOperations;
 import io.grpc.Context;
 import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,7 +41,11 @@ import com.tencent.rss.common.ShuffleIndexResult;
 import com.tencent.rss.common.ShufflePartitionedBlock;
 import com.tencent.rss.common.ShufflePartitionedData;
 import com.tencent.rss.common.config.RssBaseConf;
+import com.tencent.rss.common.util.BlockIdLayout;
+import com.tencent.rss.common.util.RssUtils;
 import com.tencent.rss.proto.RssProtos;
+import com.tencent.rss.proto.RssProtos.AbortTaskAttemptRequest;
+import com.tencent.rss.proto.RssProtos.AbortTaskAttemptResponse;
 import com.tencent.rss.proto.RssProtos.AppHeartBeatRequest;
 import com.tencent.rss.proto.RssProtos.AppHeartBeatResponse;
 import com.tencent.rss.proto.RssProtos.FinishShuffleRequest;
@@ -110,13 +117,29 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
     LOG.info("Get register request for appId[" + appId + "], shuffleId[" + shuffleId + "] with "
         + partitionRanges.size() + " partition ranges");
 
-    StatusCode result = shuffleServer
-        .getShuffleTaskManager()
-        .registerShuffle(appId, shuffleId, partitionRanges);
+    StatusCode result;
+    String msg = "OK";
+    try {
+      BlockIdLayout blockIdLayout = null;
+      if (req.hasBlockIdLayout()) {
+        RssProtos.BlockIdLayout layout = req.getBlockIdLayout();
+        blockIdLayout = BlockIdLayout.from(
+            layout.getSequenceNoBits(), layout.getPartitionIdBits(), layout.getTaskAttemptIdBits());
+      }
+      result = shuffleServer
+          .getShuffleTaskManager()
+          .registerShuffle(appId, shuffleId, partitionRanges, req.getCombinerClass(), req.getSerializerClass(),
+              blockIdLayout, req.getRemoteStoragePath());
+    } catch (IllegalArgumentException e) {
+      result = StatusCode.INTERNAL_ERROR;
+      msg = e.getMessage();
+      LOG.error("Can't register shuffle for appId[" + appId + "], shuffleId[" + shuffleId + "]", e);
+    }
 
     reply = ShuffleRegisterResponse
         .newBuilder()
         .setStatus(valueOf(result))
+        .setRetMsg(msg)
         .build();
     responseObserver.onNext(reply);
     responseObserver.onCompleted();
@@ -137,6 +160,7 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
     String responseMessage = "OK";
     if (req.getShuffleDataCount() > 0) {
       ShuffleServerMetrics.counterTotalReceivedDataSize.inc(requireSize);
+      ShuffleServerMetrics.appDataSizeCollector.incWriteSize(appId, requireSize);
       boolean isPreAllocated = shuffleServer.getShuffleTaskManager().isPreAllocated(requireBufferId);
       if (!isPreAllocated) {
         LOG.warn("Can't find requireBufferId[" + requireBufferId + "] for appId[" + appId
@@ -173,7 +197,17 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
           break;
         }
       }
-      reply = SendShuffleDataResponse.newBuilder().setStatus(valueOf(ret)).setRetMsg(responseMessage).build();
+      SendShuffleDataResponse.Builder builder =
+          SendShuffleDataResponse.newBuilder().setStatus(valueOf(ret)).setRetMsg(responseMessage);
+      if (ret == StatusCode.SUCCESS) {
+        for (ShuffleData shuffleData : req.getShuffleDataList()) {
+          if (shuffleServer.getShuffleTaskManager().isSkewedPartition(
+              appId, shuffleId, shuffleData.getPartitionId())) {
+            builder.addSkewedPartitionIds(shuffleData.getPartitionId());
+          }
+        }
+      }
+      reply = builder.build();
       LOG.debug("Cache Shuffle Data for appId[" + appId + "], shuffleId[" + shuffleId
           + "], cost " + (System.currentTimeMillis() - start)
           + " ms with " + shufflePartitionedData.size() + " blocks and " + requireSize + " bytes");
@@ -229,36 +263,43 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
       StreamObserver<FinishShuffleResponse> responseObserver) {
     String appId = req.getAppId();
     int shuffleId = req.getShuffleId();
-    StatusCode status;
-    String msg = "OK";
     String errorMsg = "Fail to finish shuffle for appId["
         + appId + "], shuffleId[" + shuffleId + "], data may be lost";
+    LOG.info("Get finishShuffle request for appId[" + appId + "], shuffleId[" + shuffleId + "]");
+    CompletableFuture<StatusCode> commitFuture;
     try {
-      LOG.info("Get finishShuffle request for appId[" + appId + "], shuffleId[" + shuffleId + "]");
-      status = shuffleServer.getShuffleTaskManager().commitShuffle(appId, shuffleId);
-      if (status != StatusCode.SUCCESS) {
+      // the response is sent when the data is committed, the grpc thread isn't blocked by the flush
+      commitFuture = shuffleServer.getShuffleTaskManager().commitShuffleAsync(appId, shuffleId);
+    } catch (Exception e) {
+      commitFuture = new CompletableFuture<>();
+      commitFuture.completeExceptionally(e);
+    }
+    commitFuture.whenComplete((commitStatus, e) -> {
+      StatusCode status = commitStatus;
+      String msg = "OK";
+      if (e != null) {
+        status = StatusCode.INTERNAL_ERROR;
+        msg = errorMsg;
+        LOG.error(errorMsg, e);
+      } else if (status != StatusCode.SUCCESS) {
         status = StatusCode.INTERNAL_ERROR;
         msg = errorMsg;
       }
-    } catch (Exception e) {
-      status = StatusCode.INTERNAL_ERROR;
-      msg = errorMsg;
-      LOG.error(errorMsg, e);
-    }
-
-    FinishShuffleResponse response =
-        FinishShuffleResponse
-            .newBuilder()
-            .setStatus(valueOf(status))
-            .setRetMsg(msg).build();
-    responseObserver.onNext(response);
-    responseObserver.onCompleted();
+      FinishShuffleResponse response =
+          FinishShuffleResponse
+              .newBuilder()
+              .setStatus(valueOf(status))
+              .setRetMsg(msg).build();
+      responseObserver.onNext(response);
+      responseObserver.onCompleted();
+    });
   }
 
   @Override
   public void requireBuffer(RequireBufferRequest request,
       StreamObserver<RequireBufferResponse> responseObserver) {
-    long requireBufferId = shuffleServer.getShuffleTaskManager().requireBuffer(request.getRequireSize());
+    long requireBufferId = shuffleServer.getShuffleTaskManager().requireBuffer(
+        request.getAppId(), request.getRequireSize());
     StatusCode status = StatusCode.SUCCESS;
     if (requireBufferId == -1) {
       status = StatusCode.NO_BUFFER;
@@ -311,6 +352,9 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
 
     try {
       LOG.info("Report " + partitionToBlockIds.size() + " blocks as shuffle result for the task of " + requestInfo);
+      // the blocks of the attempt are combined before its block ids are visible to reader
+      shuffleServer.getShuffleTaskManager().combineTaskAttempt(
+          appId, shuffleId, taskAttemptId, partitionToBlockIds.keySet());
       shuffleServer.getShuffleTaskManager().addFinishedBlockIds(appId, shuffleId, partitionToBlockIds, bitmapNum);
     } catch (Exception e) {
       status = StatusCode.INTERNAL_ERROR;
@@ -323,6 +367,31 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
     responseObserver.onCompleted();
   }
 
+  @Override
+  public void abortTaskAttempt(AbortTaskAttemptRequest request,
+      StreamObserver<AbortTaskAttemptResponse> responseObserver) {
+    String appId = request.getAppId();
+    int shuffleId = request.getShuffleId();
+    long taskAttemptId = request.getTaskAttemptId();
+    StatusCode status = StatusCode.SUCCESS;
+    String msg = "OK";
+    String requestInfo = "appId[" + appId + "], shuffleId[" + shuffleId + "], taskAttemptId[" + taskAttemptId + "]";
+
+    try {
+      LOG.info("Abort the task attempt of " + requestInfo);
+      shuffleServer.getShuffleBufferManager().abortTaskAttempt(appId, shuffleId, taskAttemptId);
+    } catch (Exception e) {
+      status = StatusCode.INTERNAL_ERROR;
+      msg = "error happened when abort task attempt, check shuffle server for detail";
+      LOG.error("Error happened when abort task attempt for " + requestInfo, e);
+    }
+
+    AbortTaskAttemptResponse reply =
+        AbortTaskAttemptResponse.newBuilder().setStatus(valueOf(status)).setRetMsg(msg).build();
+    responseObserver.onNext(reply);
+    responseObserver.onCompleted();
+  }
+
   @Override
   public void getShuffleResult(GetShuffleResultRequest request,
       StreamObserver<GetShuffleResultResponse> responseObserver) {
@@ -335,10 +404,12 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
     byte[] serializedBlockIds = null;
     String requestInfo = "appId[" + appId + "], shuffleId[" + shuffleId + "], partitionId[" + partitionId + "]";
     ByteString serializedBlockIdsBytes = ByteString.EMPTY;
+    boolean skewed = false;
 
     try {
       serializedBlockIds = shuffleServer.getShuffleTaskManager().getFinishedBlockIds(
-          appId, shuffleId, partitionId);
+          appId, shuffleId, partitionId, toBitmap(request.getSerializedTaskIdBitmap()));
+      skewed = shuffleServer.getShuffleTaskManager().isSkewedPartition(appId, shuffleId, partitionId);
       if (serializedBlockIds == null) {
         status = StatusCode.INTERNAL_ERROR;
         msg = "Can't get shuffle result for " + requestInfo;
@@ -356,6 +427,7 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
         .setStatus(valueOf(status))
         .setRetMsg(msg)
         .setSerializedBitmap(serializedBlockIdsBytes)
+        .setSkewed(skewed)
         .build();
     responseObserver.onNext(reply);
     responseObserver.onCompleted();
@@ -392,6 +464,9 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
         ShuffleServerMetrics.counterTotalReadTime.inc(readTime);
         ShuffleServerMetrics.counterTotalReadDataSize.inc(sdr.getData().length);
         ShuffleServerMetrics.counterTotalReadLocalDataFileSize.inc(sdr.getData().length);
+        ShuffleServerMetrics.histogramReadLatency.labels(ShuffleServerMetrics.READ_TIER_LOCALFILE_DATA)
+            .observe(readTime);
+        ShuffleServerMetrics.appDataSizeCollector.incReadSize(appId, sdr.getData().length);
         LOG.info("Successfully getShuffleData cost {} ms for shuffle"
             + " data with {}", readTime, requestInfo);
         reply = GetLocalShuffleDataResponse.newBuilder()
@@ -449,12 +524,16 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
       try {
         long start = System.currentTimeMillis();
         ShuffleIndexResult shuffleIndexResult = shuffleServer.getShuffleTaskManager().getShuffleIndex(
-            appId, shuffleId, partitionId, partitionNumPerRange, partitionNum);
+            appId, shuffleId, partitionId, partitionNumPerRange, partitionNum,
+            toBitmap(request.getSerializedTaskIdBitmap()));
         long readTime = System.currentTimeMillis() - start;
 
         byte[] data = shuffleIndexResult.getIndexData();
         ShuffleServerMetrics.counterTotalReadDataSize.inc(data.length);
         ShuffleServerMetrics.counterTotalReadLocalIndexFileSize.inc(data.length);
+        ShuffleServerMetrics.histogramReadLatency.labels(ShuffleServerMetrics.READ_TIER_LOCALFILE_INDEX)
+            .observe(readTime);
+        ShuffleServerMetrics.appDataSizeCollector.incReadSize(appId, data.length);
         GetLocalShuffleIndexResponse.Builder builder = GetLocalShuffleIndexResponse.newBuilder()
             .setStatus(valueOf(status))
             .setRetMsg(msg);
@@ -506,7 +585,9 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
     if (shuffleServer.getShuffleBufferManager().requireReadMemoryWithRetry(readBufferSize)) {
       try {
         ShuffleDataResult shuffleDataResult = shuffleServer.getShuffleTaskManager()
-            .getInMemoryShuffleData(appId, shuffleId, partitionId, blockId, readBufferSize);
+            .getInMemoryShuffleData(appId, shuffleId, partitionId, blockId, readBufferSize,
+                toBitmap(request.getSerializedExpectedBlockIdBitmap()),
+                toBitmap(request.getSerializedTaskIdBitmap()));
         byte[] data = new byte[]{};
         List<BufferSegment> bufferSegments = Lists.newArrayList();
         if (shuffleDataResult != null) {
@@ -514,7 +595,10 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
           bufferSegments = shuffleDataResult.getBufferSegments();
           ShuffleServerMetrics.counterTotalReadDataSize.inc(data.length);
           ShuffleServerMetrics.counterTotalReadMemoryDataSize.inc(data.length);
+          ShuffleServerMetrics.appDataSizeCollector.incReadSize(appId, data.length);
         }
+        ShuffleServerMetrics.histogramReadLatency.labels(ShuffleServerMetrics.READ_TIER_MEMORY)
+            .observe(System.currentTimeMillis() - start);
         LOG.info("Successfully getInMemoryShuffleData cost {} ms with {} bytes shuffle"
             + " data for {}", (System.currentTimeMillis() - start), data.length, requestInfo);
 
@@ -608,6 +692,14 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
     return partitionRanges;
   }
 
+  // empty bytes means the client doesn't filter the data with the bitmap
+  private Roaring64NavigableMap toBitmap(ByteString serializedBitmap) throws IOException {
+    if (serializedBitmap.isEmpty()) {
+      return null;
+    }
+    return RssUtils.deserializeBitMap(serializedBitmap.toByteArray());
+  }
+
   private List<ShuffleDataBlockSegment> toShuffleDataBlockSegments(
       List<BufferSegment> bufferSegments) {
     List<ShuffleDataBlockSegment> shuffleDataBlockSegments = Lists.newArrayList();
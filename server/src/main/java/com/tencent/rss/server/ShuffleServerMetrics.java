@@ -21,6 +21,7 @@ package com.tencent.rss.server;
 import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.Counter;
 import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
 
 import com.tencent.rss.common.metrics.MetricsManager;
 
@@ -55,10 +56,26 @@ public class ShuffleServerMetrics {
   private static final String USED_BUFFER_SIZE = "used_buffer_size";
   private static final String TOTAL_UPLOAD_SIZE = "total_upload_size";
   private static final String TOTAL_UPLOAD_TIME_S = "total_upload_time_s";
+  private static final String TOTAL_TMPFS_DEMOTE_SIZE = "total_tmpfs_demote_size";
   private static final String TOTAL_DROPPED_EVENT_NUM = "total_dropped_event_num";
   private static final String TOTAL_HDFS_WRITE_DATA = "total_hdfs_write_data";
   private static final String TOTAL_LOCALFILE_WRITE_DATA = "total_localfile_write_data";
   private static final String TOTAL_REQUIRE_BUFFER_FAILED = "total_require_buffer_failed";
+  private static final String TOTAL_COMBINED_BLOCK = "total_combined_block";
+  private static final String TOTAL_COMBINE_SAVED_DATA = "total_combine_saved_data";
+  private static final String TOTAL_DROPPED_OBSOLETE_BLOCK = "total_dropped_obsolete_block";
+  private static final String TOTAL_DROPPED_OBSOLETE_DATA = "total_dropped_obsolete_data";
+  private static final String FLUSH_LATENCY_MS = "flush_latency_ms";
+  private static final String CACHE_TO_FLUSH_TIME_MS = "cache_to_flush_time_ms";
+  private static final String READ_LATENCY_MS = "read_latency_ms";
+  private static final String STORAGE_TYPE_LABEL = "storage_type";
+  private static final String TIER_LABEL = "tier";
+  private static final double[] LATENCY_MS_BUCKETS =
+      {1, 5, 10, 50, 100, 500, 1000, 5000, 10000, 30000, 60000, 300000};
+
+  public static final String READ_TIER_MEMORY = "memory";
+  public static final String READ_TIER_LOCALFILE_INDEX = "localfile_index";
+  public static final String READ_TIER_LOCALFILE_DATA = "localfile_data";
 
   public static Counter counterTotalReceivedDataSize;
   public static Counter counterTotalWriteDataSize;
@@ -78,10 +95,15 @@ public class ShuffleServerMetrics {
   public static Counter counterTotalReadTime;
   public static Counter counterTotalUploadSize;
   public static Counter counterTotalUploadTimeS;
+  public static Counter counterTotalTmpfsDemoteSize;
   public static Counter counterTotalDroppedEventNum;
   public static Counter counterTotalHdfsWriteDataSize;
   public static Counter counterTotalLocalFileWriteDataSize;
   public static Counter counterTotalRequireBufferFailed;
+  public static Counter counterTotalCombinedBlockNum;
+  public static Counter counterTotalCombineSavedDataSize;
+  public static Counter counterTotalDroppedObsoleteBlockNum;
+  public static Counter counterTotalDroppedObsoleteDataSize;
 
   public static Gauge gaugeRegisteredShuffle;
   public static Gauge gaugeRegisteredShuffleEngine;
@@ -94,6 +116,11 @@ public class ShuffleServerMetrics {
   public static Gauge gaugeAppNum;
   public static Gauge gaugeTotalPartitionNum;
 
+  public static Histogram histogramFlushLatency;
+  public static Histogram histogramCacheToFlushTime;
+  public static Histogram histogramReadLatency;
+  public static AppDataSizeCollector appDataSizeCollector;
+
   private static MetricsManager metricsManager;
   private static boolean isRegister = false;
 
@@ -132,10 +159,15 @@ public class ShuffleServerMetrics {
     counterTotalReadTime = metricsManager.addCounter(TOTAL_READ_TIME);
     counterTotalUploadSize = metricsManager.addCounter(TOTAL_UPLOAD_SIZE);
     counterTotalUploadTimeS = metricsManager.addCounter(TOTAL_UPLOAD_TIME_S);
+    counterTotalTmpfsDemoteSize = metricsManager.addCounter(TOTAL_TMPFS_DEMOTE_SIZE);
     counterTotalDroppedEventNum = metricsManager.addCounter(TOTAL_DROPPED_EVENT_NUM);
     counterTotalHdfsWriteDataSize = metricsManager.addCounter(TOTAL_HDFS_WRITE_DATA);
     counterTotalLocalFileWriteDataSize = metricsManager.addCounter(TOTAL_LOCALFILE_WRITE_DATA);
     counterTotalRequireBufferFailed = metricsManager.addCounter(TOTAL_REQUIRE_BUFFER_FAILED);
+    counterTotalCombinedBlockNum = metricsManager.addCounter(TOTAL_COMBINED_BLOCK);
+    counterTotalCombineSavedDataSize = metricsManager.addCounter(TOTAL_COMBINE_SAVED_DATA);
+    counterTotalDroppedObsoleteBlockNum = metricsManager.addCounter(TOTAL_DROPPED_OBSOLETE_BLOCK);
+    counterTotalDroppedObsoleteDataSize = metricsManager.addCounter(TOTAL_DROPPED_OBSOLETE_DATA);
 
     gaugeRegisteredShuffle = metricsManager.addGauge(REGISTERED_SHUFFLE);
     gaugeRegisteredShuffleEngine = metricsManager.addGauge(REGISTERED_SHUFFLE_ENGINE);
@@ -147,6 +179,15 @@ public class ShuffleServerMetrics {
     gaugeEventQueueSize = metricsManager.addGauge(EVENT_QUEUE_SIZE);
     gaugeAppNum = metricsManager.addGauge(APP_NUM_WITH_NODE);
     gaugeTotalPartitionNum = metricsManager.addGauge(PARTITION_NUM_WITH_NODE);
+
+    histogramFlushLatency = metricsManager.addHistogram(FLUSH_LATENCY_MS, LATENCY_MS_BUCKETS, STORAGE_TYPE_LABEL);
+    histogramCacheToFlushTime = metricsManager.addHistogram(
+        CACHE_TO_FLUSH_TIME_MS, LATENCY_MS_BUCKETS, STORAGE_TYPE_LABEL);
+    histogramReadLatency = metricsManager.addHistogram(READ_LATENCY_MS, LATENCY_MS_BUCKETS, TIER_LABEL);
+    appDataSizeCollector = new AppDataSizeCollector(
+        ShuffleServerConf.SERVER_APP_METRICS_TOP_N.defaultValue(),
+        ShuffleServerConf.SERVER_APP_METRICS_IDLE_TIMEOUT_MS.defaultValue());
+    appDataSizeCollector.register(metricsManager.getCollectorRegistry());
   }
 
 }
@@ -23,11 +23,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
@@ -35,18 +39,20 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.lang3.StringUtils;
 import org.roaringbitmap.longlong.LongIterator;
 import org.roaringbitmap.longlong.Roaring64NavigableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.tencent.rss.common.PartitionRange;
+import com.tencent.rss.common.ShuffleCombiner;
 import com.tencent.rss.common.ShuffleDataResult;
 import com.tencent.rss.common.ShuffleIndexResult;
 import com.tencent.rss.common.ShufflePartitionedBlock;
 import com.tencent.rss.common.ShufflePartitionedData;
 import com.tencent.rss.common.config.RssBaseConf;
-import com.tencent.rss.common.util.Constants;
+import com.tencent.rss.common.util.BlockIdLayout;
 import com.tencent.rss.common.util.RssUtils;
 import com.tencent.rss.server.buffer.PreAllocatedBufferInfo;
 import com.tencent.rss.server.buffer.ShuffleBufferManager;
@@ -66,7 +72,7 @@ public class ShuffleTaskManager {
   private ShuffleServerConf conf;
   private long appExpiredWithoutHB;
   private long preAllocationExpired;
-  private long commitCheckIntervalMax;
+  private long partitionSkewThreshold;
   // appId -> shuffleId -> blockIds to avoid too many appId
   // store taskAttemptId info to filter speculation task
   // Roaring64NavigableMap instance will cost much memory,
@@ -75,12 +81,19 @@ public class ShuffleTaskManager {
   private Map<String, Map<Integer, Roaring64NavigableMap[]>> partitionsToBlockIds;
   private ShuffleBufferManager shuffleBufferManager;
   private Map<String, Long> appIds = Maps.newConcurrentMap();
+  // appId -> layout of blockId, the application without it uses the default layout
+  private Map<String, BlockIdLayout> blockIdLayouts = Maps.newConcurrentMap();
   // appId -> shuffleId -> commit count
   private Map<String, Map<Long, AtomicInteger>> commitCounts = Maps.newConcurrentMap();
   private Map<String, Map<Integer, Object>> commitLocks = Maps.newConcurrentMap();
   // appId -> shuffleId -> blockIds
   private Map<String, Map<Integer, Roaring64NavigableMap>> cachedBlockIds = Maps.newConcurrentMap();
+  // appId -> shuffleId -> number of cached blockIds, commit compares it with the committed number
+  // instead of copying the bitmaps
+  private Map<String, Map<Integer, LongAdder>> cachedBlockCounts = Maps.newConcurrentMap();
   private Map<Long, PreAllocatedBufferInfo> requireBufferIds = Maps.newConcurrentMap();
+  // appId -> shuffleId -> partitionId -> received data size, it is used to detect skewed partition
+  private Map<String, Map<Integer, Map<Integer, AtomicLong>>> partitionDataSizes = Maps.newConcurrentMap();
   private Runnable clearResourceThread;
   private BlockingQueue<String> expiredAppIdQueue = Queues.newLinkedBlockingQueue();
   // appId -> shuffleId -> serverReadHandler
@@ -96,8 +109,8 @@ public class ShuffleTaskManager {
     this.shuffleBufferManager = shuffleBufferManager;
     this.storageManager = storageManager;
     this.appExpiredWithoutHB = conf.getLong(ShuffleServerConf.SERVER_APP_EXPIRED_WITHOUT_HEARTBEAT);
-    this.commitCheckIntervalMax = conf.getLong(ShuffleServerConf.SERVER_COMMIT_CHECK_INTERVAL_MAX);
     this.preAllocationExpired = conf.getLong(ShuffleServerConf.SERVER_PRE_ALLOCATION_EXPIRED);
+    this.partitionSkewThreshold = conf.get(ShuffleServerConf.SERVER_PARTITION_SKEW_THRESHOLD_SIZE);
     // the thread for checking application status
     this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(
         new ThreadFactoryBuilder().setDaemon(true).setNameFormat("checkResource-%d").build());
@@ -126,10 +139,38 @@ public class ShuffleTaskManager {
   }
 
   public StatusCode registerShuffle(String appId, int shuffleId, List<PartitionRange> partitionRanges) {
+    return registerShuffle(appId, shuffleId, partitionRanges, null, null);
+  }
+
+  public StatusCode registerShuffle(String appId, int shuffleId, List<PartitionRange> partitionRanges,
+      String combinerClass, String serializerClass) {
+    return registerShuffle(appId, shuffleId, partitionRanges, combinerClass, serializerClass, null);
+  }
+
+  public StatusCode registerShuffle(String appId, int shuffleId, List<PartitionRange> partitionRanges,
+      String combinerClass, String serializerClass, BlockIdLayout blockIdLayout) {
+    return registerShuffle(appId, shuffleId, partitionRanges, combinerClass, serializerClass, blockIdLayout, null);
+  }
+
+  public StatusCode registerShuffle(String appId, int shuffleId, List<PartitionRange> partitionRanges,
+      String combinerClass, String serializerClass, BlockIdLayout blockIdLayout, String remoteStoragePath) {
     refreshAppId(appId);
+    if (blockIdLayout != null) {
+      BlockIdLayout registeredLayout = blockIdLayouts.putIfAbsent(appId, blockIdLayout);
+      if (registeredLayout != null && !registeredLayout.equals(blockIdLayout)) {
+        LOG.error("Can't register shuffle for appId[" + appId + "], shuffleId[" + shuffleId + "] with "
+            + blockIdLayout + ", the application is registered with " + registeredLayout);
+        return StatusCode.INTERNAL_ERROR;
+      }
+    }
+    if (!StringUtils.isEmpty(remoteStoragePath)) {
+      storageManager.registerRemoteStorage(appId, remoteStoragePath);
+    }
     partitionsToBlockIds.putIfAbsent(appId, Maps.newConcurrentMap());
+    ShuffleCombiner combiner = shuffleBufferManager.loadCombiner(combinerClass, serializerClass);
     for (PartitionRange partitionRange : partitionRanges) {
-      shuffleBufferManager.registerBuffer(appId, shuffleId, partitionRange.getStart(), partitionRange.getEnd());
+      shuffleBufferManager.registerBuffer(
+          appId, shuffleId, partitionRange.getStart(), partitionRange.getEnd(), combiner);
     }
     return StatusCode.SUCCESS;
   }
@@ -137,7 +178,43 @@ public class ShuffleTaskManager {
   public StatusCode cacheShuffleData(
       String appId, int shuffleId, boolean isPreAllocated, ShufflePartitionedData spd) {
     refreshAppId(appId);
-    return shuffleBufferManager.cacheShuffleData(appId, shuffleId, isPreAllocated, spd);
+    StatusCode ret = shuffleBufferManager.cacheShuffleData(appId, shuffleId, isPreAllocated, spd);
+    if (ret == StatusCode.SUCCESS && partitionSkewThreshold > 0) {
+      updatePartitionDataSize(appId, shuffleId, spd);
+    }
+    return ret;
+  }
+
+  private void updatePartitionDataSize(String appId, int shuffleId, ShufflePartitionedData spd) {
+    long size = 0;
+    for (ShufflePartitionedBlock block : spd.getBlockList()) {
+      size += block.getLength();
+    }
+    Map<Integer, AtomicLong> partitionToSize = partitionDataSizes
+        .computeIfAbsent(appId, key -> Maps.newConcurrentMap())
+        .computeIfAbsent(shuffleId, key -> Maps.newConcurrentMap());
+    long current = partitionToSize.computeIfAbsent(spd.getPartitionId(), key -> new AtomicLong(0L))
+        .addAndGet(size);
+    if (current >= partitionSkewThreshold && current - size < partitionSkewThreshold) {
+      LOG.info("Partition of appId[" + appId + "], shuffleId[" + shuffleId + "], partitionId["
+          + spd.getPartitionId() + "] is skewed with " + current + " bytes");
+    }
+  }
+
+  public boolean isSkewedPartition(String appId, int shuffleId, int partitionId) {
+    if (partitionSkewThreshold <= 0) {
+      return false;
+    }
+    Map<Integer, Map<Integer, AtomicLong>> shuffleIdToPartitions = partitionDataSizes.get(appId);
+    if (shuffleIdToPartitions == null) {
+      return false;
+    }
+    Map<Integer, AtomicLong> partitionToSize = shuffleIdToPartitions.get(shuffleId);
+    if (partitionToSize == null) {
+      return false;
+    }
+    AtomicLong size = partitionToSize.get(partitionId);
+    return size != null && size.get() >= partitionSkewThreshold;
   }
 
   public boolean isPreAllocated(long requireBufferId) {
@@ -149,53 +226,66 @@ public class ShuffleTaskManager {
   }
 
   public StatusCode commitShuffle(String appId, int shuffleId) throws Exception {
+    try {
+      return commitShuffleAsync(appId, shuffleId).get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw cause instanceof Exception ? (Exception) cause : e;
+    }
+  }
+
+  /**
+   * Commits the cached data of the shuffle and returns a future which is completed
+   * when all received blocks are flushed, so no thread is blocked during the flush.
+   */
+  public CompletableFuture<StatusCode> commitShuffleAsync(String appId, int shuffleId) {
     long start = System.currentTimeMillis();
+    long commitTimeout = conf.get(ShuffleServerConf.SERVER_COMMIT_TIMEOUT);
+    CompletableFuture<StatusCode> result = new CompletableFuture<>();
     refreshAppId(appId);
-    Roaring64NavigableMap cachedBlockIds = getCachedBlockIds(appId, shuffleId);
-    Roaring64NavigableMap cloneBlockIds;
+    long cachedNum;
+    CompletableFuture<Void> committed;
     commitLocks.putIfAbsent(appId, Maps.newConcurrentMap());
     Map<Integer, Object> shuffleLevelLocks = commitLocks.get(appId);
     shuffleLevelLocks.putIfAbsent(shuffleId, new Object());
     Object lock = shuffleLevelLocks.get(shuffleId);
     synchronized (lock) {
-      long commitTimeout = conf.get(ShuffleServerConf.SERVER_COMMIT_TIMEOUT);
       if (System.currentTimeMillis() - start > commitTimeout) {
-        throw new RuntimeException("Shuffle data commit timeout for " + commitTimeout + " ms");
-      }
-      byte[] bitmapBytes;
-      synchronized (cachedBlockIds) {
-        bitmapBytes = RssUtils.serializeBitMap(cachedBlockIds);
+        result.completeExceptionally(
+            new RuntimeException("Shuffle data commit timeout for " + commitTimeout + " ms"));
+        return result;
       }
-      cloneBlockIds = RssUtils.deserializeBitMap(bitmapBytes);
-      long expectedCommitted = cloneBlockIds.getLongCardinality();
+      cachedNum = getCachedBlockNum(appId, shuffleId);
       shuffleBufferManager.commitShuffleTask(appId, shuffleId);
-      Roaring64NavigableMap committedBlockIds;
-      Roaring64NavigableMap cloneCommittedBlockIds;
-      long checkInterval = 1000L;
-      while (true) {
-        committedBlockIds = shuffleFlushManager.getCommittedBlockIds(appId, shuffleId);
-        synchronized (committedBlockIds) {
-          bitmapBytes = RssUtils.serializeBitMap(committedBlockIds);
-        }
-        cloneCommittedBlockIds = RssUtils.deserializeBitMap(bitmapBytes);
-        cloneBlockIds.andNot(cloneCommittedBlockIds);
-        if (cloneBlockIds.isEmpty()) {
-          break;
-        }
-        Thread.sleep(checkInterval);
-        if (System.currentTimeMillis() - start > commitTimeout) {
-          throw new RuntimeException("Shuffle data commit timeout for " + commitTimeout + " ms");
-        }
-        LOG.info("Checking commit result for appId[" + appId + "], shuffleId[" + shuffleId
-            + "], expect committed[" + expectedCommitted
-            + "], remain[" + cloneBlockIds.getLongCardinality() + "]");
-        checkInterval = Math.min(checkInterval * 2, commitCheckIntervalMax);
-      }
-      LOG.info("Finish commit for appId[" + appId + "], shuffleId[" + shuffleId
-          + "] with expectedCommitted[" + expectedCommitted + "], cost "
-          + (System.currentTimeMillis() - start) + " ms to check");
+      // blocks merged by combiner or dropped as aborted attempts won't be flushed, they are counted
+      // whenever the waiter is checked because the buffers may be combined or dropped during the wait
+      committed = shuffleFlushManager.waitForCommittedBlockNum(appId, shuffleId, cachedNum,
+          () -> shuffleBufferManager.getCombinedBlockNum(appId, shuffleId)
+              + shuffleBufferManager.getDroppedBlockNum(appId, shuffleId));
     }
-    return StatusCode.SUCCESS;
+    if (!committed.isDone()) {
+      LOG.info("Waiting commit result for appId[" + appId + "], shuffleId[" + shuffleId
+          + "], cached[" + cachedNum + "]");
+      ScheduledFuture<?> timeoutFuture = scheduledExecutorService.schedule(() -> {
+        LOG.warn("Commit timeout for appId[" + appId + "], shuffleId[" + shuffleId
+            + "], cached[" + cachedNum
+            + "], remain[" + getUncommittedBlockIds(appId, shuffleId).getLongCardinality() + "]");
+        result.completeExceptionally(
+            new RuntimeException("Shuffle data commit timeout for " + commitTimeout + " ms"));
+        // let the flush manager drop the waiter
+        committed.cancel(false);
+      }, Math.max(0, commitTimeout - (System.currentTimeMillis() - start)), TimeUnit.MILLISECONDS);
+      committed.whenComplete((v, e) -> timeoutFuture.cancel(false));
+    }
+    committed.whenComplete((v, e) -> {
+      if (e == null) {
+        LOG.info("Finish commit for appId[" + appId + "], shuffleId[" + shuffleId
+            + "] with cached[" + cachedNum + "], cost "
+            + (System.currentTimeMillis() - start) + " ms to check");
+        result.complete(StatusCode.SUCCESS);
+      }
+    });
+    return result;
   }
 
   public void addFinishedBlockIds(
@@ -221,6 +311,10 @@ public class ShuffleTaskManager {
     }
   }
 
+  public void combineTaskAttempt(String appId, int shuffleId, long taskAttemptId, Set<Integer> partitionIds) {
+    shuffleBufferManager.combineTaskAttempt(appId, shuffleId, taskAttemptId, partitionIds);
+  }
+
   public int updateAndGetCommitCount(String appId, long shuffleId) {
     commitCounts.putIfAbsent(appId, Maps.newConcurrentMap());
     Map<Long, AtomicInteger> shuffleCommit = commitCounts.get(appId);
@@ -237,11 +331,48 @@ public class ShuffleTaskManager {
     Map<Integer, Roaring64NavigableMap> shuffleToBlockIds = cachedBlockIds.get(appId);
     shuffleToBlockIds.putIfAbsent(shuffleId, Roaring64NavigableMap.bitmapOf());
     Roaring64NavigableMap bitmap = shuffleToBlockIds.get(shuffleId);
+    long addedNum = 0;
     synchronized (bitmap) {
       for (ShufflePartitionedBlock spb : spbs) {
-        bitmap.addLong(spb.getBlockId());
+        // the block may be sent again by the retry of client
+        if (!bitmap.contains(spb.getBlockId())) {
+          bitmap.addLong(spb.getBlockId());
+          addedNum++;
+        }
       }
     }
+    cachedBlockCounts.putIfAbsent(appId, Maps.newConcurrentMap());
+    Map<Integer, LongAdder> shuffleToCounts = cachedBlockCounts.get(appId);
+    shuffleToCounts.putIfAbsent(shuffleId, new LongAdder());
+    shuffleToCounts.get(shuffleId).add(addedNum);
+  }
+
+  public long getCachedBlockNum(String appId, int shuffleId) {
+    Map<Integer, LongAdder> shuffleToCounts = cachedBlockCounts.get(appId);
+    if (shuffleToCounts == null) {
+      return 0;
+    }
+    LongAdder cachedNum = shuffleToCounts.get(shuffleId);
+    return cachedNum == null ? 0 : cachedNum.sum();
+  }
+
+  /**
+   * Builds the blocks which are cached but not committed yet, it copies the bitmaps
+   * and should only be used for diagnostics.
+   */
+  public Roaring64NavigableMap getUncommittedBlockIds(String appId, int shuffleId) {
+    Roaring64NavigableMap result = Roaring64NavigableMap.bitmapOf();
+    Roaring64NavigableMap cached = getCachedBlockIds(appId, shuffleId);
+    synchronized (cached) {
+      result.or(cached);
+    }
+    Roaring64NavigableMap committed = shuffleFlushManager.getCommittedBlockIds(appId, shuffleId);
+    synchronized (committed) {
+      result.andNot(committed);
+    }
+    result.andNot(shuffleBufferManager.getCombinedBlockIds(appId, shuffleId));
+    result.andNot(shuffleBufferManager.getDroppedBlockIds(appId, shuffleId));
+    return result;
   }
 
   public Roaring64NavigableMap getCachedBlockIds(String appId, int shuffleId) {
@@ -259,17 +390,27 @@ public class ShuffleTaskManager {
   }
 
   public long requireBuffer(int requireSize) {
+    return requireBuffer(null, requireSize);
+  }
+
+  public long requireBuffer(String appId, int requireSize) {
     long requireId = -1;
-    if (shuffleBufferManager.requireMemory(requireSize, true)) {
+    if (shuffleBufferManager.requireMemory(appId, requireSize, true)) {
       requireId = requireBufferId.incrementAndGet();
       requireBufferIds.put(requireId,
-          new PreAllocatedBufferInfo(requireId, System.currentTimeMillis(), requireSize));
+          new PreAllocatedBufferInfo(requireId, System.currentTimeMillis(), requireSize, appId));
     }
     return requireId;
   }
 
   public byte[] getFinishedBlockIds(
       String appId, Integer shuffleId, Integer partitionId) throws IOException {
+    return getFinishedBlockIds(appId, shuffleId, partitionId, null);
+  }
+
+  // only the blockIds written by the task attempts in taskIdBitmap are returned, null means all of them
+  public byte[] getFinishedBlockIds(String appId, Integer shuffleId, Integer partitionId,
+      Roaring64NavigableMap taskIdBitmap) throws IOException {
     refreshAppId(appId);
     Storage storage = storageManager.selectStorage(new ShuffleDataReadEvent(appId, shuffleId, partitionId));
     // update shuffle's timestamp that was recently read.
@@ -288,38 +429,56 @@ public class ShuffleTaskManager {
       return new byte[]{};
     }
 
-    if (partitionId > Constants.MAX_PARTITION_ID) {
+    BlockIdLayout layout = getBlockIdLayout(appId);
+    if (partitionId > layout.getMaxPartitionId()) {
       throw new RuntimeException("Get invalid partitionId[" + partitionId
-          + "] which greater than " + Constants.MAX_PARTITION_ID);
+          + "] which greater than " + layout.getMaxPartitionId());
     }
 
-    return RssUtils.serializeBitMap(getBlockIdsByPartitionId(partitionId, bitmap));
+    Roaring64NavigableMap result = getBlockIdsByPartitionId(partitionId, bitmap, layout, taskIdBitmap);
+    // blocks merged by combiner or dropped as aborted attempts can't be read, remove them to pass the client's check
+    result.andNot(shuffleBufferManager.getCombinedBlockIds(appId, shuffleId));
+    result.andNot(shuffleBufferManager.getDroppedBlockIds(appId, shuffleId));
+    return RssUtils.serializeBitMap(result);
   }
 
-  // partitionId is passed as long to calculate minValue/maxValue
   protected Roaring64NavigableMap getBlockIdsByPartitionId(long partitionId, Roaring64NavigableMap bitmap) {
+    return getBlockIdsByPartitionId(partitionId, bitmap, BlockIdLayout.DEFAULT);
+  }
+
+  protected Roaring64NavigableMap getBlockIdsByPartitionId(
+      long partitionId, Roaring64NavigableMap bitmap, BlockIdLayout layout) {
+    return getBlockIdsByPartitionId(partitionId, bitmap, layout, null);
+  }
+
+  protected Roaring64NavigableMap getBlockIdsByPartitionId(long partitionId, Roaring64NavigableMap bitmap,
+      BlockIdLayout layout, Roaring64NavigableMap taskIdBitmap) {
     Roaring64NavigableMap result = Roaring64NavigableMap.bitmapOf();
     LongIterator iter = bitmap.getLongIterator();
-    long minValue = partitionId << Constants.TASK_ATTEMPT_ID_MAX_LENGTH;
-    long maxValue = Long.MAX_VALUE;
-    if (partitionId < Constants.MAX_PARTITION_ID) {
-      maxValue = (partitionId + 1) << (Constants.TASK_ATTEMPT_ID_MAX_LENGTH);
-    }
-    long mask = (1L << (Constants.TASK_ATTEMPT_ID_MAX_LENGTH + Constants.PARTITION_ID_MAX_LENGTH)) - 1;
     while (iter.hasNext()) {
       long blockId = iter.next();
-      long partitionAndTask = blockId & mask;
-      if (partitionAndTask >= minValue && partitionAndTask < maxValue) {
+      if (layout.getPartitionId(blockId) == partitionId
+          && (taskIdBitmap == null || taskIdBitmap.contains(layout.getTaskAttemptId(blockId)))) {
         result.addLong(blockId);
       }
     }
     return result;
   }
 
+  public BlockIdLayout getBlockIdLayout(String appId) {
+    return blockIdLayouts.getOrDefault(appId, BlockIdLayout.DEFAULT);
+  }
+
   public ShuffleDataResult getInMemoryShuffleData(
       String appId, Integer shuffleId, Integer partitionId, long blockId, int readBufferSize) {
+    return getInMemoryShuffleData(appId, shuffleId, partitionId, blockId, readBufferSize, null, null);
+  }
+
+  public ShuffleDataResult getInMemoryShuffleData(
+      String appId, Integer shuffleId, Integer partitionId, long blockId, int readBufferSize,
+      Roaring64NavigableMap expectBlockIds, Roaring64NavigableMap expectTaskIds) {
     return shuffleBufferManager.getShuffleData(appId,
-        shuffleId, partitionId, blockId, readBufferSize);
+        shuffleId, partitionId, blockId, readBufferSize, expectBlockIds, expectTaskIds);
   }
 
   public ShuffleDataResult getShuffleData(
@@ -346,6 +505,16 @@ public class ShuffleTaskManager {
       Integer partitionId,
       int partitionNumPerRange,
       int partitionNum) {
+    return getShuffleIndex(appId, shuffleId, partitionId, partitionNumPerRange, partitionNum, null);
+  }
+
+  public ShuffleIndexResult getShuffleIndex(
+      String appId,
+      Integer shuffleId,
+      Integer partitionId,
+      int partitionNumPerRange,
+      int partitionNum,
+      Roaring64NavigableMap expectTaskIds) {
     refreshAppId(appId);
     String storageType = conf.getString(RssBaseConf.RSS_STORAGE_TYPE);
     CreateShuffleReadHandlerRequest request = new CreateShuffleReadHandlerRequest();
@@ -358,7 +527,12 @@ public class ShuffleTaskManager {
     request.setRssBaseConf(conf);
 
     Storage storage = storageManager.selectStorage(new ShuffleDataReadEvent(appId, shuffleId, partitionId));
-    return storage.getOrCreateReadHandler(request).getShuffleIndex();
+    ShuffleIndexResult shuffleIndexResult = storage.getOrCreateReadHandler(request).getShuffleIndex();
+    if (expectTaskIds == null || shuffleIndexResult == null || shuffleIndexResult.isEmpty()) {
+      return shuffleIndexResult;
+    }
+    // only return the index segments of the expected tasks, then the client won't read the data of others
+    return new ShuffleIndexResult(RssUtils.filterIndexData(shuffleIndexResult.getIndexData(), expectTaskIds));
   }
 
   public void checkResourceStatus() {
@@ -384,12 +558,16 @@ public class ShuffleTaskManager {
     final long start = System.currentTimeMillis();
     final Map<Integer, Roaring64NavigableMap> shuffleToCachedBlockIds = cachedBlockIds.get(appId);
     appIds.remove(appId);
+    blockIdLayouts.remove(appId);
     partitionsToBlockIds.remove(appId);
     cachedBlockIds.remove(appId);
+    cachedBlockCounts.remove(appId);
     commitCounts.remove(appId);
     commitLocks.remove(appId);
+    partitionDataSizes.remove(appId);
     shuffleBufferManager.removeBuffer(appId);
     shuffleFlushManager.removeResources(appId);
+    ShuffleServerMetrics.appDataSizeCollector.removeApp(appId);
     if (shuffleToCachedBlockIds != null) {
       storageManager.removeResources(appId, shuffleToCachedBlockIds.keySet());
     }
@@ -408,7 +586,7 @@ public class ShuffleTaskManager {
       for (PreAllocatedBufferInfo info : requireBufferIds.values()) {
         if (current - info.getTimestamp() > preAllocationExpired) {
           removeIds.add(info.getRequireId());
-          shuffleBufferManager.releaseMemory(info.getRequireSize(), false, true);
+          shuffleBufferManager.releaseMemory(info.getAppId(), info.getRequireSize(), false, true);
         }
       }
       for (Long requireId : removeIds) {
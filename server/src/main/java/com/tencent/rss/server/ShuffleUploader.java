@@ -51,6 +51,7 @@ import com.tencent.rss.storage.request.CreateShuffleUploadHandlerRequest;
 import com.tencent.rss.storage.util.ShuffleStorageUtils;
 import com.tencent.rss.storage.util.ShuffleUploadResult;
 import com.tencent.rss.storage.util.StorageType;
+import com.tencent.rss.storage.util.UploadRateLimiter;
 
 /**
  * ShuffleUploader contains force mode and normal mode, which is decided by the remain
@@ -81,6 +82,10 @@ public class ShuffleUploader {
   private final long maxShuffleSize;
   private final long maxForceUploadExpireTimeS;
   private final double cleanupThreshold;
+  private final int shuffleConcurrency;
+  private final UploadRateLimiter rateLimiter;
+  private final boolean verifyChecksum;
+  private final int retryTimes;
 
   private final ExecutorService executorService;
   private volatile boolean isStopped;
@@ -99,6 +104,13 @@ public class ShuffleUploader {
     this.maxShuffleSize = builder.maxShuffleSize;
     this.maxForceUploadExpireTimeS = builder.maxForceUploadExpireTimeS;
     this.cleanupThreshold = builder.cleanupThreshold;
+    this.shuffleConcurrency = builder.shuffleConcurrency;
+    this.rateLimiter = builder.rateLimiter;
+    this.verifyChecksum = builder.verifyChecksum;
+    this.retryTimes = builder.retryTimes;
+    if (rateLimiter != null) {
+      rateLimiter.register();
+    }
 
     Runnable runnable = () -> {
       run();
@@ -131,6 +143,10 @@ public class ShuffleUploader {
     private long maxShuffleSize = (long) ByteUnit.MiB.toBytes(256);
     private long maxForceUploadExpireTimeS;
     private double cleanupThreshold;
+    private int shuffleConcurrency = 1;
+    private UploadRateLimiter rateLimiter;
+    private boolean verifyChecksum;
+    private int retryTimes;
 
     public Builder() {
       // use HDFS and not force upload by default
@@ -148,6 +164,9 @@ public class ShuffleUploader {
       uploadCombineThresholdMB = conf.get(ShuffleServerConf.UPLOAD_COMBINE_THRESHOLD_MB);
       referenceUploadSpeedMBS = conf.get(ShuffleServerConf.REFERENCE_UPLOAD_SPEED_MBS);
       cleanupThreshold = conf.get(ShuffleServerConf.CLEANUP_THRESHOLD);
+      shuffleConcurrency = conf.get(ShuffleServerConf.UPLOADER_SHUFFLE_CONCURRENCY);
+      verifyChecksum = conf.get(ShuffleServerConf.UPLOADER_VERIFY_CHECKSUM);
+      retryTimes = conf.get(ShuffleServerConf.UPLOADER_RETRY_TIMES);
 
       hdfsBasePath = conf.get(ShuffleServerConf.UPLOADER_BASE_PATH);
       if (StringUtils.isEmpty(hdfsBasePath)) {
@@ -171,6 +190,12 @@ public class ShuffleUploader {
       return this;
     }
 
+    // the limiter may be shared by the uploaders of all disks
+    public Builder rateLimiter(UploadRateLimiter rateLimiter) {
+      this.rateLimiter = rateLimiter;
+      return this;
+    }
+
     @VisibleForTesting
     Builder maxForceUploadExpireTimeS(long time) {
       this.maxForceUploadExpireTimeS = time;
@@ -251,6 +276,9 @@ public class ShuffleUploader {
                   .hadoopConf(hadoopConf)
                   .hdfsFilePrefix(serverId)
                   .combineUpload(shuffleFileInfo.shouldCombine(uploadCombineThresholdMB))
+                  .rateLimiter(rateLimiter)
+                  .verifyChecksum(verifyChecksum)
+                  .retryTimes(retryTimes)
                   .build();
 
           ShuffleUploadHandler handler = getHandlerFactory().createShuffleUploadHandler(request);
@@ -353,7 +381,7 @@ public class ShuffleUploader {
     } else {
       size = totalSize / uploadThreadNum;
     }
-    long cur = ByteUnit.BYTE.toMiB(size) / referenceUploadSpeedMBS;
+    long cur = ByteUnit.BYTE.toMiB(size) / getExpectedUploadSpeedMBS();
     if (cur <= defaultUploadTimeoutS) {
       cur =  defaultUploadTimeoutS * 2;
     } else {
@@ -368,6 +396,16 @@ public class ShuffleUploader {
     return cur;
   }
 
+  // every upload thread can't be faster than its share of the bandwidth limitation
+  private long getExpectedUploadSpeedMBS() {
+    if (rateLimiter == null) {
+      return referenceUploadSpeedMBS;
+    }
+    long sharedSpeedMBS = ByteUnit.BYTE.toMiB(rateLimiter.getBytesPerSecond())
+        / ((long) rateLimiter.getUploaderNum() * uploadThreadNum);
+    return Math.max(1L, Math.min(referenceUploadSpeedMBS, sharedSpeedMBS));
+  }
+
   @VisibleForTesting
   List<ShuffleFileInfo> selectShuffleFiles(int num, boolean forceUpload) {
     List<ShuffleFileInfo> shuffleFileInfoList = Lists.newLinkedList();
@@ -384,12 +422,17 @@ public class ShuffleUploader {
         LOG.warn("upload shuffle data empty shuffle {} size {} partitions {}", shuffleKey, sz, partitions);
         continue;
       }
+      // split the shuffle into chunks to upload them concurrently
+      long chunkSize = maxShuffleSize;
+      if (shuffleConcurrency > 1) {
+        chunkSize = Math.min(maxShuffleSize, Math.max(1L, sz / shuffleConcurrency));
+      }
       ShuffleFileInfo shuffleFileInfo = new ShuffleFileInfo();
       shuffleFileInfo.setKey(shuffleKey);
       for (int partition : partitions) {
         long size = addPartition(shuffleFileInfo, partition);
         shuffleFileInfo.setSize(shuffleFileInfo.getSize() + size);
-        if (shuffleFileInfo.getSize() > maxShuffleSize) {
+        if (shuffleFileInfo.getSize() > chunkSize) {
           shuffleFileInfoList.add(shuffleFileInfo);
 
           // Restrict the max upload segment to uploadThreadNum to make the
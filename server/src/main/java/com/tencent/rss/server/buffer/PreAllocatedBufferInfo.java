@@ -23,11 +23,17 @@ public class PreAllocatedBufferInfo {
   private long requireId;
   private long timestamp;
   private int requireSize;
+  private String appId;
 
   public PreAllocatedBufferInfo(long requireId, long timestamp, int requireSize) {
+    this(requireId, timestamp, requireSize, null);
+  }
+
+  public PreAllocatedBufferInfo(long requireId, long timestamp, int requireSize, String appId) {
     this.requireId = requireId;
     this.timestamp = timestamp;
     this.requireSize = requireSize;
+    this.appId = appId;
   }
 
   public long getRequireId() {
@@ -41,4 +47,8 @@ public class PreAllocatedBufferInfo {
   public int getRequireSize() {
     return requireSize;
   }
+
+  public String getAppId() {
+    return appId;
+  }
 }
@@ -18,21 +18,28 @@
 
 package com.tencent.rss.server.buffer;
 
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.tencent.rss.common.BufferSegment;
+import com.tencent.rss.common.RssShuffleUtils;
+import com.tencent.rss.common.ShuffleCombiner;
 import com.tencent.rss.common.ShuffleDataResult;
 import com.tencent.rss.common.ShufflePartitionedBlock;
 import com.tencent.rss.common.ShufflePartitionedData;
+import com.tencent.rss.common.util.ChecksumUtils;
 import com.tencent.rss.common.util.Constants;
 import com.tencent.rss.server.ShuffleDataFlushEvent;
 import com.tencent.rss.server.ShuffleFlushManager;
@@ -48,18 +55,36 @@ public class ShuffleBuffer {
   // the strategy ensure that shuffle is in memory or storage
   private List<ShufflePartitionedBlock> blocks;
   private Map<Long, List<ShufflePartitionedBlock>> inFlushBlockMap;
+  // combiner is only set for the buffer of single partition
+  private final ShuffleCombiner combiner;
+  private final long combineThreshold;
+  // the reader may have processed some blocks in buffer, they can't be dropped anymore
+  private boolean isRead = false;
+  // total bytes reduced by combine
+  private long combineSavedLength = 0;
+  // the time when the first block after last flush is cached
+  private long firstCacheTime = 0;
 
   public ShuffleBuffer(long capacity) {
+    this(capacity, null, Long.MAX_VALUE);
+  }
+
+  public ShuffleBuffer(long capacity, ShuffleCombiner combiner, long combineThreshold) {
     this.capacity = capacity;
     this.size = 0;
     this.blocks = new LinkedList<>();
     this.inFlushBlockMap = Maps.newConcurrentMap();
+    this.combiner = combiner;
+    this.combineThreshold = combineThreshold;
   }
 
   public int append(ShufflePartitionedData data) {
     int mSize = 0;
 
     synchronized (this) {
+      if (blocks.isEmpty()) {
+        firstCacheTime = System.currentTimeMillis();
+      }
       for (ShufflePartitionedBlock block : data.getBlockList()) {
         blocks.add(block);
         mSize += block.getSize();
@@ -91,13 +116,98 @@ public class ShuffleBuffer {
         size,
         spBlocks,
         isValid,
-        this);
+        this,
+        firstCacheTime);
     inFlushBlockMap.put(eventId, spBlocks);
     blocks.clear();
     size = 0;
     return event;
   }
 
+  /**
+   * Combine the cached blocks of the task attempt into one block which reuses the ids of its first block,
+   * so the records of its spills are aggregated. It's called when the attempt reports its shuffle result,
+   * the block ids of the attempt aren't exposed to reader yet, and the blocks of other attempts are kept
+   * because only the blocks of the same attempt are always read together. The size of buffer isn't changed
+   * because it is used to release the memory after flush.
+   *
+   * @return ids of the blocks which are merged into others
+   */
+  public synchronized List<Long> combine(long taskAttemptId) {
+    if (combiner == null || size < combineThreshold || blocks.size() < 2) {
+      return Collections.emptyList();
+    }
+    List<ShufflePartitionedBlock> attemptBlocks = Lists.newArrayList();
+    for (ShufflePartitionedBlock block : blocks) {
+      if (block.getTaskAttemptId() == taskAttemptId) {
+        attemptBlocks.add(block);
+      }
+    }
+    if (attemptBlocks.size() < 2) {
+      return Collections.emptyList();
+    }
+    ShufflePartitionedBlock combinedBlock;
+    try {
+      combinedBlock = combineBlocks(attemptBlocks);
+    } catch (Exception e) {
+      LOG.warn("Can't combine " + attemptBlocks.size() + " blocks with " + combiner.getClass().getName()
+          + ", keep them in buffer", e);
+      return Collections.emptyList();
+    }
+    List<ShufflePartitionedBlock> combinedBlocks = new LinkedList<>();
+    List<Long> mergedBlockIds = Lists.newArrayList();
+    for (ShufflePartitionedBlock block : blocks) {
+      if (block == attemptBlocks.get(0)) {
+        combinedBlocks.add(combinedBlock);
+      } else if (block.getTaskAttemptId() == taskAttemptId) {
+        mergedBlockIds.add(block.getBlockId());
+      } else {
+        combinedBlocks.add(block);
+      }
+    }
+    for (ShufflePartitionedBlock block : attemptBlocks) {
+      combineSavedLength += block.getLength();
+    }
+    combineSavedLength -= combinedBlock.getLength();
+    blocks = combinedBlocks;
+    return mergedBlockIds;
+  }
+
+  /**
+   * Drop the cached blocks which match the filter, e.g. the blocks of aborted task attempts.
+   * Different from combine, the size of buffer is reduced and the caller should release the memory.
+   *
+   * @return the dropped blocks
+   */
+  public synchronized List<ShufflePartitionedBlock> dropBlocks(Predicate<ShufflePartitionedBlock> filter) {
+    if (isRead || blocks.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<ShufflePartitionedBlock> droppedBlocks = Lists.newArrayList();
+    Iterator<ShufflePartitionedBlock> iterator = blocks.iterator();
+    while (iterator.hasNext()) {
+      ShufflePartitionedBlock block = iterator.next();
+      if (filter.test(block)) {
+        iterator.remove();
+        droppedBlocks.add(block);
+        size -= block.getSize();
+      }
+    }
+    return droppedBlocks;
+  }
+
+  private ShufflePartitionedBlock combineBlocks(List<ShufflePartitionedBlock> attemptBlocks) {
+    List<byte[]> uncompressedBlocks = Lists.newArrayList();
+    for (ShufflePartitionedBlock block : attemptBlocks) {
+      uncompressedBlocks.add(RssShuffleUtils.decompressData(block.getData(), block.getUncompressLength()));
+    }
+    byte[] uncompressed = combiner.combine(uncompressedBlocks);
+    byte[] compressed = RssShuffleUtils.compressData(uncompressed);
+    ShufflePartitionedBlock firstBlock = attemptBlocks.get(0);
+    return new ShufflePartitionedBlock(compressed.length, uncompressed.length,
+        ChecksumUtils.getCrc32(compressed), firstBlock.getBlockId(), firstBlock.getTaskAttemptId(), compressed);
+  }
+
   public List<ShufflePartitionedBlock> getBlocks() {
     return blocks;
   }
@@ -106,6 +216,10 @@ public class ShuffleBuffer {
     return size;
   }
 
+  public synchronized long getCombineSavedLength() {
+    return combineSavedLength;
+  }
+
   public boolean isFull() {
     return size > capacity;
   }
@@ -124,11 +238,20 @@ public class ShuffleBuffer {
   // todo: if block was flushed, it's possible to get duplicated data
   public synchronized ShuffleDataResult getShuffleData(
       long lastBlockId, int readBufferSize) {
+    return getShuffleData(lastBlockId, readBufferSize, null, null);
+  }
+
+  // the unexpected blocks are skipped without copying their data if expectBlockIds or expectTaskIds
+  // isn't null, eg, the blocks of failed or speculative attempts and the blocks of other map tasks
+  public synchronized ShuffleDataResult getShuffleData(
+      long lastBlockId, int readBufferSize, Roaring64NavigableMap expectBlockIds,
+      Roaring64NavigableMap expectTaskIds) {
+    isRead = true;
     try {
       List<BufferSegment> bufferSegments = Lists.newArrayList();
       List<ShufflePartitionedBlock> readBlocks = Lists.newArrayList();
       updateBufferSegmentsAndResultBlocks(
-          lastBlockId, readBufferSize, bufferSegments, readBlocks);
+          lastBlockId, readBufferSize, expectBlockIds, expectTaskIds, bufferSegments, readBlocks);
       if (!bufferSegments.isEmpty()) {
         int length = calculateDataLength(bufferSegments);
         byte[] data = new byte[length];
@@ -148,6 +271,8 @@ public class ShuffleBuffer {
   private void updateBufferSegmentsAndResultBlocks(
       long lastBlockId,
       long readBufferSize,
+      Roaring64NavigableMap expectBlockIds,
+      Roaring64NavigableMap expectTaskIds,
       List<BufferSegment> bufferSegments,
       List<ShufflePartitionedBlock> resultBlocks) {
     long nextBlockId = lastBlockId;
@@ -163,11 +288,11 @@ public class ShuffleBuffer {
         // update bufferSegments with different strategy according to lastBlockId
         if (nextBlockId == Constants.INVALID_BLOCK_ID) {
           updateSegmentsWithoutBlockId(offset, inFlushBlockMap.get(eventId), readBufferSize,
-              bufferSegments, resultBlocks);
+              expectBlockIds, expectTaskIds, bufferSegments, resultBlocks);
           hasLastBlockId = true;
         } else {
           hasLastBlockId = updateSegmentsWithBlockId(offset, inFlushBlockMap.get(eventId),
-              readBufferSize, nextBlockId, bufferSegments, resultBlocks);
+              readBufferSize, nextBlockId, expectBlockIds, expectTaskIds, bufferSegments, resultBlocks);
           // if last blockId is found, read from begin with next cached blocks
           if (hasLastBlockId) {
             // reset blockId to read from begin in next cached blocks
@@ -185,11 +310,12 @@ public class ShuffleBuffer {
     // try to read from cached blocks which is not in flush queue
     if (blocks.size() > 0 && offset < readBufferSize) {
       if (nextBlockId == Constants.INVALID_BLOCK_ID) {
-        updateSegmentsWithoutBlockId(offset, blocks, readBufferSize, bufferSegments, resultBlocks);
+        updateSegmentsWithoutBlockId(offset, blocks, readBufferSize, expectBlockIds, expectTaskIds,
+            bufferSegments, resultBlocks);
         hasLastBlockId = true;
       } else {
         hasLastBlockId = updateSegmentsWithBlockId(offset, blocks,
-            readBufferSize, nextBlockId, bufferSegments, resultBlocks);
+            readBufferSize, nextBlockId, expectBlockIds, expectTaskIds, bufferSegments, resultBlocks);
       }
     }
     if ((!inFlushBlockMap.isEmpty() || blocks.size() > 0) && offset == 0 && !hasLastBlockId) {
@@ -197,7 +323,7 @@ public class ShuffleBuffer {
       // but there still has data in memory
       // try read again with blockId = Constants.INVALID_BLOCK_ID
       updateBufferSegmentsAndResultBlocks(
-          Constants.INVALID_BLOCK_ID, readBufferSize, bufferSegments, resultBlocks);
+          Constants.INVALID_BLOCK_ID, readBufferSize, expectBlockIds, expectTaskIds, bufferSegments, resultBlocks);
     }
   }
 
@@ -237,11 +363,16 @@ public class ShuffleBuffer {
       int offset,
       List<ShufflePartitionedBlock> cachedBlocks,
       long readBufferSize,
+      Roaring64NavigableMap expectBlockIds,
+      Roaring64NavigableMap expectTaskIds,
       List<BufferSegment> bufferSegments,
       List<ShufflePartitionedBlock> readBlocks) {
     int currentOffset = offset;
     // read from first block
     for (ShufflePartitionedBlock block : cachedBlocks) {
+      if (!isExpectedBlock(block, expectBlockIds, expectTaskIds)) {
+        continue;
+      }
       // add bufferSegment with block
       bufferSegments.add(new BufferSegment(block.getBlockId(), currentOffset, block.getLength(),
           block.getUncompressLength(), block.getCrc(), block.getTaskAttemptId()));
@@ -260,6 +391,8 @@ public class ShuffleBuffer {
       List<ShufflePartitionedBlock> cachedBlocks,
       long readBufferSize,
       long lastBlockId,
+      Roaring64NavigableMap expectBlockIds,
+      Roaring64NavigableMap expectTaskIds,
       List<BufferSegment> bufferSegments,
       List<ShufflePartitionedBlock> readBlocks) {
     int currentOffset = offset;
@@ -273,6 +406,9 @@ public class ShuffleBuffer {
         }
         continue;
       }
+      if (!isExpectedBlock(block, expectBlockIds, expectTaskIds)) {
+        continue;
+      }
       // add bufferSegment with block
       bufferSegments.add(new BufferSegment(block.getBlockId(), currentOffset, block.getLength(),
           block.getUncompressLength(), block.getCrc(), block.getTaskAttemptId()));
@@ -285,4 +421,12 @@ public class ShuffleBuffer {
     }
     return foundBlockId;
   }
+
+  private boolean isExpectedBlock(
+      ShufflePartitionedBlock block,
+      Roaring64NavigableMap expectBlockIds,
+      Roaring64NavigableMap expectTaskIds) {
+    return (expectBlockIds == null || expectBlockIds.contains(block.getBlockId()))
+        && (expectTaskIds == null || expectTaskIds.contains(block.getTaskAttemptId()));
+  }
 }
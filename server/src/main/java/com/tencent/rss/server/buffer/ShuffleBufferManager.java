@@ -25,6 +25,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
@@ -33,10 +34,13 @@ import com.google.common.collect.Range;
 import com.google.common.collect.RangeMap;
 import com.google.common.collect.Sets;
 import com.google.common.collect.TreeRangeMap;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.tencent.rss.common.ShuffleCombiner;
 import com.tencent.rss.common.ShuffleDataResult;
+import com.tencent.rss.common.ShufflePartitionedBlock;
 import com.tencent.rss.common.ShufflePartitionedData;
 import com.tencent.rss.common.util.Constants;
 import com.tencent.rss.common.util.RssUtils;
@@ -56,6 +60,12 @@ public class ShuffleBufferManager {
   private int retryNum;
   private long highWaterMark;
   private long lowWaterMark;
+  private boolean combineEnabled;
+  private long combineThreshold;
+  private boolean appQuotaEnabled;
+  private long appHardQuota;
+  // appId prefix -> weight of the fair share
+  private Map<String, Double> appWeights = Maps.newHashMap();
 
   protected long bufferSize = 0;
   protected AtomicLong preAllocatedSize = new AtomicLong(0L);
@@ -66,6 +76,14 @@ public class ShuffleBufferManager {
   protected Map<String, Map<Integer, RangeMap<Integer, ShuffleBuffer>>> bufferPool;
   // appId -> shuffleId -> shuffle size in buffer
   protected Map<String, Map<Integer, AtomicLong>> shuffleSizeMap = Maps.newConcurrentMap();
+  // appId -> shuffleId -> ids of blocks which are merged into others by combiner
+  protected Map<String, Map<Integer, Roaring64NavigableMap>> combinedBlockIds = Maps.newConcurrentMap();
+  // appId -> shuffleId -> ids of task attempts which are aborted by the writers
+  protected Map<String, Map<Integer, Set<Long>>> abortedTaskAttemptIds = Maps.newConcurrentMap();
+  // appId -> shuffleId -> ids of blocks which are dropped because their task attempts are aborted
+  protected Map<String, Map<Integer, Roaring64NavigableMap>> droppedBlockIds = Maps.newConcurrentMap();
+  // appId -> pre allocated size which isn't cached in buffer yet
+  protected Map<String, AtomicLong> appPreAllocatedSize = Maps.newConcurrentMap();
 
   public ShuffleBufferManager(ShuffleServerConf conf, ShuffleFlushManager shuffleFlushManager) {
     this.capacity = conf.getSizeAsBytes(ShuffleServerConf.SERVER_BUFFER_CAPACITY);
@@ -77,16 +95,52 @@ public class ShuffleBufferManager {
         * conf.get(ShuffleServerConf.SERVER_MEMORY_SHUFFLE_HIGHWATERMARK_PERCENTAGE));
     this.lowWaterMark = (long)(capacity / 100
         * conf.get(ShuffleServerConf.SERVER_MEMORY_SHUFFLE_LOWWATERMARK_PERCENTAGE));
+    this.combineEnabled = conf.get(ShuffleServerConf.SERVER_BUFFER_COMBINE_ENABLE);
+    this.combineThreshold = conf.get(ShuffleServerConf.SERVER_BUFFER_COMBINE_THRESHOLD_SIZE);
+    this.appQuotaEnabled = conf.get(ShuffleServerConf.SERVER_APP_MEMORY_QUOTA_ENABLE);
+    this.appHardQuota = (long)(capacity / 100
+        * conf.get(ShuffleServerConf.SERVER_APP_MEMORY_HARD_QUOTA_PERCENTAGE));
+    parseAppWeights(conf.get(ShuffleServerConf.SERVER_APP_MEMORY_WEIGHTS));
+  }
+
+  private void parseAppWeights(String weights) {
+    if (weights == null || weights.trim().isEmpty()) {
+      return;
+    }
+    for (String item : weights.split(",")) {
+      String[] kv = item.trim().split("=");
+      double weight = -1;
+      if (kv.length == 2 && !kv[0].trim().isEmpty()) {
+        try {
+          weight = Double.parseDouble(kv[1].trim());
+        } catch (NumberFormatException e) {
+          LOG.warn("Can't parse the weight of app memory weight[" + item + "]", e);
+        }
+      }
+      if (weight > 0) {
+        appWeights.put(kv[0].trim(), weight);
+      } else {
+        LOG.warn("Ignore invalid app memory weight[" + item + "]");
+      }
+    }
   }
 
   public StatusCode registerBuffer(String appId, int shuffleId, int startPartition, int endPartition) {
+    return registerBuffer(appId, shuffleId, startPartition, endPartition, null);
+  }
+
+  public StatusCode registerBuffer(String appId, int shuffleId, int startPartition, int endPartition,
+      ShuffleCombiner combiner) {
     bufferPool.putIfAbsent(appId, Maps.newConcurrentMap());
     Map<Integer, RangeMap<Integer, ShuffleBuffer>> shuffleIdToBuffers = bufferPool.get(appId);
     shuffleIdToBuffers.putIfAbsent(shuffleId, TreeRangeMap.create());
     RangeMap<Integer, ShuffleBuffer> bufferRangeMap = shuffleIdToBuffers.get(shuffleId);
     if (bufferRangeMap.get(startPartition) == null) {
       ShuffleServerMetrics.gaugeTotalPartitionNum.inc();
-      bufferRangeMap.put(Range.closed(startPartition, endPartition), new ShuffleBuffer(bufferSize));
+      // blocks don't have partitionId, only the buffer of single partition can be combined
+      ShuffleBuffer buffer = combiner != null && startPartition == endPartition
+          ? new ShuffleBuffer(bufferSize, combiner, combineThreshold) : new ShuffleBuffer(bufferSize);
+      bufferRangeMap.put(Range.closed(startPartition, endPartition), buffer);
     } else {
       LOG.warn("Already register for appId[" + appId + "], shuffleId[" + shuffleId + "], startPartition["
           + startPartition + "], endPartition[" + endPartition + "]");
@@ -95,6 +149,23 @@ public class ShuffleBufferManager {
     return StatusCode.SUCCESS;
   }
 
+  /**
+   * Load the combiner registered by client, null will be returned if combine is disabled
+   * or the combiner can't be loaded, and the shuffle will work without combine.
+   */
+  public ShuffleCombiner loadCombiner(String combinerClass, String serializerClass) {
+    if (!combineEnabled || combinerClass == null || combinerClass.isEmpty()) {
+      return null;
+    }
+    try {
+      return RssUtils.loadExtensions(
+          ShuffleCombiner.class, Lists.newArrayList(combinerClass), serializerClass).get(0);
+    } catch (Exception e) {
+      LOG.warn("Can't load combiner[" + combinerClass + "] with serializer[" + serializerClass + "]", e);
+      return null;
+    }
+  }
+
   public StatusCode cacheShuffleData(String appId, int shuffleId,
       boolean isPreAllocated, ShufflePartitionedData spd) {
     if (!isPreAllocated && isFull()) {
@@ -111,6 +182,9 @@ public class ShuffleBufferManager {
     ShuffleBuffer buffer = entry.getValue();
     int size = buffer.append(spd);
     updateSize(size, isPreAllocated);
+    if (isPreAllocated) {
+      releaseAppPreAllocatedSize(appId, size);
+    }
     updateShuffleSize(appId, shuffleId, size);
     synchronized (this) {
       flushIfNecessary();
@@ -145,6 +219,12 @@ public class ShuffleBufferManager {
   public ShuffleDataResult getShuffleData(
       String appId, int shuffleId, int partitionId, long blockId,
       int readBufferSize) {
+    return getShuffleData(appId, shuffleId, partitionId, blockId, readBufferSize, null, null);
+  }
+
+  public ShuffleDataResult getShuffleData(
+      String appId, int shuffleId, int partitionId, long blockId,
+      int readBufferSize, Roaring64NavigableMap expectBlockIds, Roaring64NavigableMap expectTaskIds) {
     Map.Entry<Range<Integer>, ShuffleBuffer> entry = getShuffleBufferEntry(
         appId, shuffleId, partitionId);
     if (entry == null) {
@@ -155,7 +235,7 @@ public class ShuffleBufferManager {
     if (buffer == null) {
       return null;
     }
-    return buffer.getShuffleData(blockId, readBufferSize);
+    return buffer.getShuffleData(blockId, readBufferSize, expectBlockIds, expectTaskIds);
   }
 
   void flushIfNecessary() {
@@ -179,6 +259,8 @@ public class ShuffleBufferManager {
 
   protected void flushBuffer(ShuffleBuffer buffer, String appId,
       int shuffleId, int startPartition, int endPartition) {
+    // the blocks of aborted attempts may arrive after the abort, they are dropped before flush
+    dropAbortedBlocks(buffer, appId, shuffleId);
     ShuffleDataFlushEvent event =
         buffer.toFlushEvent(appId, shuffleId, startPartition, endPartition,
             () -> bufferPool.containsKey(appId));
@@ -190,6 +272,166 @@ public class ShuffleBufferManager {
     }
   }
 
+  /**
+   * Combine the cached blocks of the task attempt in the reported partitions, it's called before the block ids
+   * of the attempt are added as shuffle result, so the merged block ids are never exposed to reader.
+   */
+  public void combineTaskAttempt(String appId, int shuffleId, long taskAttemptId, Collection<Integer> partitionIds) {
+    if (!combineEnabled) {
+      return;
+    }
+    for (int partitionId : partitionIds) {
+      Entry<Range<Integer>, ShuffleBuffer> entry = getShuffleBufferEntry(appId, shuffleId, partitionId);
+      if (entry != null) {
+        combineBuffer(entry.getValue(), appId, shuffleId, taskAttemptId);
+      }
+    }
+  }
+
+  private void combineBuffer(ShuffleBuffer buffer, String appId, int shuffleId, long taskAttemptId) {
+    long combineSavedLength;
+    List<Long> mergedBlockIds;
+    synchronized (buffer) {
+      combineSavedLength = buffer.getCombineSavedLength();
+      mergedBlockIds = buffer.combine(taskAttemptId);
+      if (!mergedBlockIds.isEmpty()) {
+        addCombinedBlockIds(appId, shuffleId, mergedBlockIds);
+      }
+    }
+    if (!mergedBlockIds.isEmpty()) {
+      ShuffleServerMetrics.counterTotalCombinedBlockNum.inc(mergedBlockIds.size());
+      ShuffleServerMetrics.counterTotalCombineSavedDataSize.inc(
+          buffer.getCombineSavedLength() - combineSavedLength);
+      checkCommitWaiters(appId, shuffleId);
+    }
+  }
+
+  /**
+   * Drop the cached blocks of the task attempt, it's called when the writer aborts the attempt, e.g. the
+   * task is failed or killed as a speculative loser. The aborted attempt never reports shuffle result,
+   * so its blocks won't be read.
+   */
+  public void abortTaskAttempt(String appId, int shuffleId, long taskAttemptId) {
+    Map<Integer, RangeMap<Integer, ShuffleBuffer>> shuffleIdToBuffers = bufferPool.get(appId);
+    if (shuffleIdToBuffers == null) {
+      return;
+    }
+    abortedTaskAttemptIds.computeIfAbsent(appId, key -> Maps.newConcurrentMap())
+        .computeIfAbsent(shuffleId, key -> Sets.newConcurrentHashSet())
+        .add(taskAttemptId);
+    RangeMap<Integer, ShuffleBuffer> buffers = shuffleIdToBuffers.get(shuffleId);
+    if (buffers == null) {
+      return;
+    }
+    for (ShuffleBuffer buffer : buffers.asMapOfRanges().values()) {
+      dropBlocks(buffer, appId, shuffleId, block -> block.getTaskAttemptId() == taskAttemptId);
+    }
+  }
+
+  private void dropAbortedBlocks(ShuffleBuffer buffer, String appId, int shuffleId) {
+    Map<Integer, Set<Long>> shuffleIdToAttempts = abortedTaskAttemptIds.get(appId);
+    Set<Long> abortedAttempts = shuffleIdToAttempts == null ? null : shuffleIdToAttempts.get(shuffleId);
+    if (abortedAttempts == null || abortedAttempts.isEmpty()) {
+      return;
+    }
+    dropBlocks(buffer, appId, shuffleId, block -> abortedAttempts.contains(block.getTaskAttemptId()));
+  }
+
+  private void dropBlocks(ShuffleBuffer buffer, String appId, int shuffleId,
+      Predicate<ShufflePartitionedBlock> filter) {
+    List<ShufflePartitionedBlock> droppedBlocks = buffer.dropBlocks(filter);
+    if (droppedBlocks.isEmpty()) {
+      return;
+    }
+    long droppedSize = 0;
+    List<Long> blockIds = Lists.newArrayList();
+    for (ShufflePartitionedBlock block : droppedBlocks) {
+      droppedSize += block.getSize();
+      blockIds.add(block.getBlockId());
+    }
+    addBlockIds(droppedBlockIds, appId, shuffleId, blockIds);
+    updateShuffleSize(appId, shuffleId, -droppedSize);
+    releaseMemory(droppedSize, false, false);
+    ShuffleServerMetrics.counterTotalDroppedObsoleteBlockNum.inc(droppedBlocks.size());
+    ShuffleServerMetrics.counterTotalDroppedObsoleteDataSize.inc(droppedSize);
+    LOG.info("Drop " + droppedBlocks.size() + " blocks with " + droppedSize + " bytes of aborted task attempts"
+        + " for appId[" + appId + "], shuffleId[" + shuffleId + "]");
+    checkCommitWaiters(appId, shuffleId);
+  }
+
+  // the skipped blocks are counted by the commit waiters, which may be satisfied now
+  private void checkCommitWaiters(String appId, int shuffleId) {
+    if (shuffleFlushManager != null) {
+      shuffleFlushManager.checkCommitWaiters(appId, shuffleId);
+    }
+  }
+
+  private void addCombinedBlockIds(String appId, int shuffleId, List<Long> blockIds) {
+    addBlockIds(combinedBlockIds, appId, shuffleId, blockIds);
+  }
+
+  private void addBlockIds(Map<String, Map<Integer, Roaring64NavigableMap>> appIdToBlockIds,
+      String appId, int shuffleId, List<Long> blockIds) {
+    appIdToBlockIds.putIfAbsent(appId, Maps.newConcurrentMap());
+    Map<Integer, Roaring64NavigableMap> shuffleIdToBlockIds = appIdToBlockIds.get(appId);
+    shuffleIdToBlockIds.putIfAbsent(shuffleId, Roaring64NavigableMap.bitmapOf());
+    Roaring64NavigableMap bitmap = shuffleIdToBlockIds.get(shuffleId);
+    synchronized (bitmap) {
+      for (long blockId : blockIds) {
+        bitmap.addLong(blockId);
+      }
+    }
+  }
+
+  // the returned bitmap is a copy which won't be changed by later combine
+  public Roaring64NavigableMap getCombinedBlockIds(String appId, int shuffleId) {
+    return getBlockIds(combinedBlockIds, appId, shuffleId);
+  }
+
+  // the returned bitmap is a copy which won't be changed by later drop
+  public Roaring64NavigableMap getDroppedBlockIds(String appId, int shuffleId) {
+    return getBlockIds(droppedBlockIds, appId, shuffleId);
+  }
+
+  public long getCombinedBlockNum(String appId, int shuffleId) {
+    return getBlockNum(combinedBlockIds, appId, shuffleId);
+  }
+
+  public long getDroppedBlockNum(String appId, int shuffleId) {
+    return getBlockNum(droppedBlockIds, appId, shuffleId);
+  }
+
+  private long getBlockNum(Map<String, Map<Integer, Roaring64NavigableMap>> appIdToBlockIds,
+      String appId, int shuffleId) {
+    Map<Integer, Roaring64NavigableMap> shuffleIdToBlockIds = appIdToBlockIds.get(appId);
+    if (shuffleIdToBlockIds == null) {
+      return 0;
+    }
+    Roaring64NavigableMap bitmap = shuffleIdToBlockIds.get(shuffleId);
+    if (bitmap == null) {
+      return 0;
+    }
+    synchronized (bitmap) {
+      return bitmap.getLongCardinality();
+    }
+  }
+
+  private Roaring64NavigableMap getBlockIds(Map<String, Map<Integer, Roaring64NavigableMap>> appIdToBlockIds,
+      String appId, int shuffleId) {
+    Roaring64NavigableMap result = Roaring64NavigableMap.bitmapOf();
+    Map<Integer, Roaring64NavigableMap> shuffleIdToBlockIds = appIdToBlockIds.get(appId);
+    if (shuffleIdToBlockIds == null) {
+      return result;
+    }
+    Roaring64NavigableMap bitmap = shuffleIdToBlockIds.get(shuffleId);
+    if (bitmap != null) {
+      synchronized (bitmap) {
+        result.or(bitmap);
+      }
+    }
+    return result;
+  }
+
   public void removeBuffer(String appId) {
     Map<Integer, RangeMap<Integer, ShuffleBuffer>> shuffleIdToBuffers = bufferPool.get(appId);
     if (shuffleIdToBuffers == null) {
@@ -211,15 +453,34 @@ public class ShuffleBufferManager {
     // release memory
     releaseMemory(size, false, false);
     shuffleSizeMap.remove(appId);
+    appPreAllocatedSize.remove(appId);
+    combinedBlockIds.remove(appId);
+    abortedTaskAttemptIds.remove(appId);
+    droppedBlockIds.remove(appId);
     bufferPool.remove(appId);
   }
 
   public synchronized boolean requireMemory(long size, boolean isPreAllocated) {
+    return requireMemory(null, size, isPreAllocated);
+  }
+
+  /**
+   * Require memory for the app. If the app memory quota is enabled, the request is rejected
+   * when the app would exceed the hard quota, or when the server is above the high watermark
+   * and the app would exceed its soft quota, i.e. its weighted max-min fair share.
+   */
+  public synchronized boolean requireMemory(String appId, long size, boolean isPreAllocated) {
+    if (appQuotaEnabled && appId != null && !appId.isEmpty() && !isAppQuotaSatisfied(appId, size)) {
+      return false;
+    }
     if (capacity - usedMemory.get() >= size) {
       usedMemory.addAndGet(size);
       ShuffleServerMetrics.gaugeUsedBufferSize.set(usedMemory.get());
       if (isPreAllocated) {
         requirePreAllocatedSize(size);
+        if (appId != null && !appId.isEmpty()) {
+          appPreAllocatedSize.computeIfAbsent(appId, key -> new AtomicLong(0L)).addAndGet(size);
+        }
       }
       return true;
     }
@@ -229,6 +490,32 @@ public class ShuffleBufferManager {
     return false;
   }
 
+  private boolean isAppQuotaSatisfied(String appId, long size) {
+    long appUsedMemory = getAppUsedMemory(appId) + size;
+    if (appUsedMemory > appHardQuota) {
+      LOG.debug("Require memory failed with " + size + " bytes for appId[" + appId + "], app usedMemory["
+          + appUsedMemory + "] exceeds hard quota[" + appHardQuota + "]");
+      return false;
+    }
+    if (usedMemory.get() + size > highWaterMark) {
+      long fairShare = getFairShares(appId, size).get(appId);
+      if (appUsedMemory > fairShare) {
+        LOG.debug("Require memory failed with " + size + " bytes for appId[" + appId + "], app usedMemory["
+            + appUsedMemory + "] exceeds fair share[" + fairShare + "] above the high watermark");
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public void releaseMemory(String appId, long size,
+      boolean isReleaseFlushMemory, boolean isReleasePreAllocation) {
+    releaseMemory(size, isReleaseFlushMemory, isReleasePreAllocation);
+    if (isReleasePreAllocation) {
+      releaseAppPreAllocatedSize(appId, size);
+    }
+  }
+
   public void releaseMemory(long size, boolean isReleaseFlushMemory, boolean isReleasePreAllocation) {
     if (usedMemory.get() >= size) {
       usedMemory.addAndGet(-size);
@@ -332,6 +619,111 @@ public class ShuffleBufferManager {
     ShuffleServerMetrics.gaugeAllocatedBufferSize.set(preAllocatedSize.get());
   }
 
+  private void releaseAppPreAllocatedSize(String appId, long delta) {
+    if (appId == null) {
+      return;
+    }
+    AtomicLong size = appPreAllocatedSize.get(appId);
+    if (size != null) {
+      size.getAndUpdate(current -> Math.max(0L, current - delta));
+    }
+  }
+
+  // memory of the app includes the data in buffer and the pre allocated size
+  public long getAppUsedMemory(String appId) {
+    long size = 0L;
+    Map<Integer, AtomicLong> shuffleIdToSize = shuffleSizeMap.get(appId);
+    if (shuffleIdToSize != null) {
+      for (AtomicLong shuffleSize : shuffleIdToSize.values()) {
+        size += shuffleSize.get();
+      }
+    }
+    AtomicLong preAllocated = appPreAllocatedSize.get(appId);
+    if (preAllocated != null) {
+      size += preAllocated.get();
+    }
+    return size;
+  }
+
+  double getAppWeight(String appId) {
+    double weight = 1.0;
+    int matchedLength = -1;
+    for (Map.Entry<String, Double> entry : appWeights.entrySet()) {
+      String prefix = entry.getKey();
+      if (appId.startsWith(prefix) && prefix.length() > matchedLength) {
+        weight = entry.getValue();
+        matchedLength = prefix.length();
+      }
+    }
+    return weight;
+  }
+
+  @VisibleForTesting
+  Map<String, Long> getFairShares() {
+    return getFairShares(null, 0L);
+  }
+
+  /**
+   * Calculate the weighted max-min fair share of the high watermark for every active app,
+   * the demand of an app is its used memory plus the required size if it is the requester.
+   * Apps whose demand is less than their weighted share get the demand, the rest of the memory
+   * is shared by the other apps according to the weights.
+   */
+  private Map<String, Long> getFairShares(String requiredAppId, long requiredSize) {
+    Map<String, Long> demands = Maps.newHashMap();
+    for (String appId : Sets.union(shuffleSizeMap.keySet(), appPreAllocatedSize.keySet())) {
+      long demand = getAppUsedMemory(appId);
+      if (demand > 0) {
+        demands.put(appId, demand);
+      }
+    }
+    if (requiredAppId != null) {
+      demands.put(requiredAppId, getAppUsedMemory(requiredAppId) + requiredSize);
+    }
+
+    Map<String, Long> fairShares = Maps.newHashMap();
+    Map<String, Long> unsatisfied = Maps.newHashMap(demands);
+    double remaining = highWaterMark;
+    while (!unsatisfied.isEmpty()) {
+      double totalWeight = 0;
+      for (String appId : unsatisfied.keySet()) {
+        totalWeight += getAppWeight(appId);
+      }
+      double unit = remaining / totalWeight;
+      List<String> satisfied = Lists.newArrayList();
+      for (Map.Entry<String, Long> entry : unsatisfied.entrySet()) {
+        if (entry.getValue() <= unit * getAppWeight(entry.getKey())) {
+          satisfied.add(entry.getKey());
+        }
+      }
+      if (satisfied.isEmpty()) {
+        for (String appId : unsatisfied.keySet()) {
+          fairShares.put(appId, (long) (unit * getAppWeight(appId)));
+        }
+        break;
+      }
+      for (String appId : satisfied) {
+        long demand = unsatisfied.remove(appId);
+        fairShares.put(appId, demand);
+        remaining -= demand;
+      }
+    }
+    return fairShares;
+  }
+
+  private Set<String> getOverQuotaApps() {
+    Set<String> overQuotaApps = Sets.newHashSet();
+    if (!appQuotaEnabled) {
+      return overQuotaApps;
+    }
+    for (Map.Entry<String, Long> entry : getFairShares().entrySet()) {
+      if (getAppUsedMemory(entry.getKey()) > entry.getValue()) {
+        overQuotaApps.add(entry.getKey());
+      }
+    }
+    return overQuotaApps;
+  }
+
   boolean isFull() {
     return usedMemory.get() >= capacity;
   }
@@ -374,10 +766,12 @@ public class ShuffleBufferManager {
     return preAllocatedSize.get();
   }
 
-  // sort for shuffle according to data size, then pick properly data which will be flushed
+  // sort for shuffle according to data size, then pick properly data which will be flushed,
+  // the shuffles of apps which exceed their fair share are picked first
   private Map<String, Set<Integer>> pickFlushedShuffle() {
     // create list for sort
     List<Entry<String, AtomicLong>> sizeList = generateSizeList();
+    Set<String> overQuotaApps = getOverQuotaApps();
     sizeList.sort((entry1, entry2) -> {
       if (entry1 == null && entry2 == null) {
         return 0;
@@ -388,6 +782,11 @@ public class ShuffleBufferManager {
       if (entry2 == null) {
         return -1;
       }
+      boolean isOverQuota1 = overQuotaApps.contains(getAppId(entry1.getKey()));
+      boolean isOverQuota2 = overQuotaApps.contains(getAppId(entry2.getKey()));
+      if (isOverQuota1 != isOverQuota2) {
+        return isOverQuota1 ? -1 : 1;
+      }
       if (entry1.getValue().get() > entry2.getValue().get()) {
         return -1;
       } else if (entry1.getValue().get() == entry2.getValue().get()) {
@@ -434,6 +833,10 @@ public class ShuffleBufferManager {
     return Lists.newArrayList(sizeMap.entrySet());
   }
 
+  private String getAppId(String appIdShuffleIdKey) {
+    return appIdShuffleIdKey.split(Constants.KEY_SPLIT_CHAR)[0];
+  }
+
   private void addPickedShuffle(String key, Map<String, Set<Integer>> pickedShuffle) {
     String[] splits = key.split(Constants.KEY_SPLIT_CHAR);
     String appId = splits[0];
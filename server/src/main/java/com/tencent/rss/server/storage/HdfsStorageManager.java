@@ -18,13 +18,19 @@
 
 package com.tencent.rss.server.storage;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.tencent.rss.common.RemoteStorageWriteInfo;
 import com.tencent.rss.server.Checker;
 import com.tencent.rss.server.ShuffleDataFlushEvent;
 import com.tencent.rss.server.ShuffleDataReadEvent;
@@ -34,6 +40,8 @@ import com.tencent.rss.storage.common.HdfsStorage;
 import com.tencent.rss.storage.common.Storage;
 import com.tencent.rss.storage.factory.ShuffleHandlerFactory;
 import com.tencent.rss.storage.handler.api.ShuffleDeleteHandler;
+import com.tencent.rss.storage.handler.api.ShuffleWriteHandler;
+import com.tencent.rss.storage.handler.impl.HdfsWriterCache;
 import com.tencent.rss.storage.request.CreateShuffleDeleteHandlerRequest;
 import com.tencent.rss.storage.util.StorageType;
 
@@ -42,8 +50,15 @@ public class HdfsStorageManager extends SingleStorageManager {
   private static final Logger LOG = LoggerFactory.getLogger(HdfsStorageManager.class);
 
   private final String storageBasePath;
-  private final HdfsStorage storage;
   private final Configuration hadoopConf;
+  private final HdfsWriterCache writerCache;
+  // the remote storage assigned by coordinator is registered with the shuffle,
+  // apps without assigned remote storage are written to storageBasePath
+  private final Map<String, String> appIdToStoragePath = Maps.newConcurrentMap();
+  private final Map<String, HdfsStorage> pathToStorages = Maps.newConcurrentMap();
+  // cumulative write counters of every remote storage path which are reported to coordinator,
+  // the path is kept as it's assigned by coordinator to match the load with the assignment
+  private final Map<String, WriteCounter> pathToWriteCounters = Maps.newConcurrentMap();
 
   HdfsStorageManager(ShuffleServerConf conf) {
     super(conf);
@@ -56,35 +71,103 @@ public class HdfsStorageManager extends SingleStorageManager {
       throw new IllegalArgumentException("hdfs base path is empty");
     }
     hadoopConf = conf.getHadoopConf();
-    storage = new HdfsStorage(storageBasePath, hadoopConf);
+    int maxOpenWriterNum = conf.get(ShuffleServerConf.HDFS_WRITER_MAX_OPEN_NUM);
+    writerCache = maxOpenWriterNum > 0
+        ? new HdfsWriterCache(maxOpenWriterNum, conf.get(ShuffleServerConf.HDFS_WRITER_IDLE_TIMEOUT_MS)) : null;
+  }
+
+  @Override
+  public void registerRemoteStorage(String appId, String remoteStoragePath) {
+    if (StringUtils.isEmpty(remoteStoragePath)) {
+      return;
+    }
+    String registeredPath = appIdToStoragePath.putIfAbsent(appId, remoteStoragePath);
+    if (registeredPath != null && !registeredPath.equals(remoteStoragePath)) {
+      LOG.warn("Remote storage of appId[" + appId + "] is registered with " + registeredPath
+          + ", ignore " + remoteStoragePath);
+    }
   }
 
   @Override
   public void updateWriteMetrics(ShuffleDataFlushEvent event, long writeTime) {
     super.updateWriteMetrics(event, writeTime);
     ShuffleServerMetrics.counterTotalHdfsWriteDataSize.inc(event.getSize());
+    WriteCounter counter = getWriteCounter(getStoragePath(event.getAppId()));
+    counter.writeBytes.addAndGet(event.getSize());
+    counter.writeTimeMs.addAndGet(writeTime);
+    counter.writeCount.incrementAndGet();
+  }
+
+  @Override
+  public boolean write(Storage storage, ShuffleWriteHandler handler, ShuffleDataFlushEvent event) {
+    boolean writeSuccess = super.write(storage, handler, event);
+    if (!writeSuccess) {
+      getWriteCounter(getStoragePath(event.getAppId())).errorCount.incrementAndGet();
+    }
+    return writeSuccess;
+  }
+
+  @Override
+  public List<RemoteStorageWriteInfo> getRemoteStorageWriteInfos() {
+    List<RemoteStorageWriteInfo> writeInfos = Lists.newArrayList();
+    for (Map.Entry<String, WriteCounter> entry : pathToWriteCounters.entrySet()) {
+      WriteCounter counter = entry.getValue();
+      writeInfos.add(new RemoteStorageWriteInfo(
+          entry.getKey(),
+          counter.writeBytes.get(),
+          counter.writeTimeMs.get(),
+          counter.writeCount.get(),
+          counter.errorCount.get()));
+    }
+    return writeInfos;
   }
 
   @Override
   public Storage selectStorage(ShuffleDataFlushEvent event) {
-    return storage;
+    return getStorage(getStoragePath(event.getAppId()));
   }
 
   @Override
   public Storage selectStorage(ShuffleDataReadEvent event) {
-    return storage;
+    return getStorage(getStoragePath(event.getAppId()));
   }
 
   @Override
   public void removeResources(String appId, Set<Integer> shuffleSet) {
-   storage.removeHandlers(appId);
-   ShuffleDeleteHandler deleteHandler = ShuffleHandlerFactory.getInstance()
-       .createShuffleDeleteHandler(new CreateShuffleDeleteHandlerRequest(StorageType.HDFS.name(), hadoopConf));
-   deleteHandler.delete(new String[] {storageBasePath}, appId);
+    String storagePath = getStoragePath(appId);
+    getStorage(storagePath).removeHandlers(appId);
+    ShuffleDeleteHandler deleteHandler = ShuffleHandlerFactory.getInstance()
+        .createShuffleDeleteHandler(new CreateShuffleDeleteHandlerRequest(StorageType.HDFS.name(), hadoopConf));
+    deleteHandler.delete(new String[] {storagePath}, appId);
+    appIdToStoragePath.remove(appId);
+  }
+
+  @Override
+  public void stop() {
+    pathToStorages.values().forEach(HdfsStorage::close);
   }
 
   @Override
   public Checker getStorageChecker() {
     throw new RuntimeException("Not support storage checker");
   }
+
+  private String getStoragePath(String appId) {
+    return appIdToStoragePath.getOrDefault(appId, storageBasePath);
+  }
+
+  private HdfsStorage getStorage(String storagePath) {
+    return pathToStorages.computeIfAbsent(storagePath, path -> new HdfsStorage(path, hadoopConf, writerCache));
+  }
+
+  private WriteCounter getWriteCounter(String storagePath) {
+    return pathToWriteCounters.computeIfAbsent(storagePath, path -> new WriteCounter());
+  }
+
+  private static class WriteCounter {
+    private final AtomicLong writeBytes = new AtomicLong(0L);
+    private final AtomicLong writeTimeMs = new AtomicLong(0L);
+    private final AtomicLong writeCount = new AtomicLong(0L);
+    private final AtomicLong errorCount = new AtomicLong(0L);
+  }
 }
@@ -50,16 +50,21 @@ public class LocalStorageManager extends SingleStorageManager {
   private final Set<String> corruptedStorages = Sets.newConcurrentHashSet();
 
   LocalStorageManager(ShuffleServerConf conf) {
+    this(conf, conf.getString(ShuffleServerConf.RSS_STORAGE_BASE_PATH),
+        conf.getSizeAsBytes(ShuffleServerConf.DISK_CAPACITY));
+  }
+
+  // the storages may be disks or tmpfs, which are configured separately
+  LocalStorageManager(ShuffleServerConf conf, String storageBasePathStr, long capacity) {
     super(conf);
-    String storageBasePathStr = conf.getString(ShuffleServerConf.RSS_STORAGE_BASE_PATH);
     if (StringUtils.isEmpty(storageBasePathStr)) {
       throw new IllegalArgumentException("Base path dirs must not be empty");
     }
     storageBasePaths = storageBasePathStr.split(",");
     long shuffleExpiredTimeoutMs = conf.get(ShuffleServerConf.SHUFFLE_EXPIRED_TIMEOUT_MS);
-    long capacity = conf.getSizeAsBytes(ShuffleServerConf.DISK_CAPACITY);
     double highWaterMarkOfWrite = conf.get(ShuffleServerConf.HIGH_WATER_MARK_OF_WRITE);
     double lowWaterMarkOfWrite = conf.get(ShuffleServerConf.LOW_WATER_MARK_OF_WRITE);
+    boolean segmentLogEnabled = conf.get(ShuffleServerConf.LOCALFILE_SEGMENT_LOG_ENABLE);
     if (highWaterMarkOfWrite < lowWaterMarkOfWrite) {
       throw new IllegalArgumentException("highWaterMarkOfWrite must be larger than lowWaterMarkOfWrite");
     }
@@ -70,6 +75,7 @@ public class LocalStorageManager extends SingleStorageManager {
           .lowWaterMarkOfWrite(lowWaterMarkOfWrite)
           .highWaterMarkOfWrite(highWaterMarkOfWrite)
           .shuffleExpiredTimeoutMs(shuffleExpiredTimeoutMs)
+          .segmentLogEnabled(segmentLogEnabled)
           .build());
     }
     this.checker = new LocalStorageChecker(conf, localStorages);
@@ -26,6 +26,8 @@ import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.tencent.rss.common.RemoteStorageWriteInfo;
+import com.tencent.rss.common.util.ByteUnit;
 import com.tencent.rss.server.Checker;
 import com.tencent.rss.server.ShuffleDataFlushEvent;
 import com.tencent.rss.server.ShuffleDataReadEvent;
@@ -35,6 +37,7 @@ import com.tencent.rss.storage.common.LocalStorage;
 import com.tencent.rss.storage.common.Storage;
 import com.tencent.rss.storage.handler.api.ShuffleWriteHandler;
 import com.tencent.rss.storage.request.CreateShuffleWriteHandlerRequest;
+import com.tencent.rss.storage.util.UploadRateLimiter;
 
 public class MultiStorageManager implements StorageManager {
 
@@ -57,12 +60,21 @@ public class MultiStorageManager implements StorageManager {
       if (!(warmStorageManager instanceof LocalStorageManager)) {
         throw new IllegalArgumentException("Only LOCALFILE type support upload shuffle");
       }
+      // uploader uploads the data file of every partition range
+      if (conf.get(ShuffleServerConf.LOCALFILE_SEGMENT_LOG_ENABLE)) {
+        throw new IllegalArgumentException("Segment log of LOCALFILE doesn't support upload shuffle");
+      }
       LocalStorageManager localStorageManager = (LocalStorageManager) warmStorageManager;
+      // all disks share the same upload bandwidth
+      long maxUploadBandwidthMBPerSecond = conf.get(ShuffleServerConf.UPLOADER_MAX_BANDWIDTH_MB_PER_SECOND);
+      UploadRateLimiter rateLimiter = maxUploadBandwidthMBPerSecond > 0
+          ? new UploadRateLimiter((long) ByteUnit.MiB.toBytes(maxUploadBandwidthMBPerSecond)) : null;
       for (LocalStorage storage :localStorageManager.getStorages()) {
         uploaders.add(new ShuffleUploader.Builder()
             .configuration(conf)
             .serverId(shuffleServerId)
             .localStorage(storage)
+            .rateLimiter(rateLimiter)
             .build());
       }
     }
@@ -129,6 +141,7 @@ public class MultiStorageManager implements StorageManager {
         uploader.stop();
       }
     }
+    coldStorageManager.stop();
   }
 
   @Override
@@ -136,6 +149,16 @@ public class MultiStorageManager implements StorageManager {
     return warmStorageManager.getStorageChecker();
   }
 
+  @Override
+  public List<RemoteStorageWriteInfo> getRemoteStorageWriteInfos() {
+    return coldStorageManager.getRemoteStorageWriteInfos();
+  }
+
+  @Override
+  public void registerRemoteStorage(String appId, String remoteStoragePath) {
+    coldStorageManager.registerRemoteStorage(appId, remoteStoragePath);
+  }
+
   @Override
   public void removeResources(String appId, Set<Integer> shuffleSet) {
     LOG.info("Start to remove resource of appId: {}, shuffles: {}", appId, shuffleSet.toString());
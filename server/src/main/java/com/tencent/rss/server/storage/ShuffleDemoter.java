@@ -0,0 +1,202 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.server.storage;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.tencent.rss.common.util.Constants;
+import com.tencent.rss.server.ShuffleServerConf;
+import com.tencent.rss.server.ShuffleServerMetrics;
+import com.tencent.rss.storage.common.LocalStorage;
+import com.tencent.rss.storage.util.ShuffleStorageUtils;
+
+/**
+ * ShuffleDemoter moves the shuffles in a tmpfs storage to the local disks, and it works like
+ * ShuffleUploader with the metadata of the local storage. In force mode, which is decided by the
+ * water marks of tmpfs, the largest shuffles are demoted until tmpfs can be written again.
+ * In normal mode, the shuffles which aren't written for the demote age or exceed the demote size
+ * are demoted. The partition ranges of a shuffle are moved to the disks selected by the local
+ * storage manager, so the shuffle can be read and written on disks as if it was never in tmpfs.
+ */
+public class ShuffleDemoter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ShuffleDemoter.class);
+
+  private final LocalStorage tmpfsStorage;
+  private final TmpfsStorageManager storageManager;
+  private final long demoteIntervalMs;
+  private final long demoteAgeMs;
+  private final long demoteShuffleSize;
+  private final Thread daemonThread;
+  private volatile boolean isStopped;
+
+  ShuffleDemoter(ShuffleServerConf conf, LocalStorage tmpfsStorage, TmpfsStorageManager storageManager) {
+    this.tmpfsStorage = tmpfsStorage;
+    this.storageManager = storageManager;
+    this.demoteIntervalMs = conf.get(ShuffleServerConf.TMPFS_DEMOTE_INTERVAL_MS);
+    this.demoteAgeMs = conf.get(ShuffleServerConf.TMPFS_DEMOTE_AGE_MS);
+    this.demoteShuffleSize = conf.getSizeAsBytes(ShuffleServerConf.TMPFS_DEMOTE_SHUFFLE_SIZE);
+    this.daemonThread = new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat(tmpfsStorage.getBasePath() + " - ShuffleDemoter-%d")
+        .build()
+        .newThread(this::run);
+  }
+
+  public void run() {
+    while (!isStopped) {
+      try {
+        long start = System.currentTimeMillis();
+        demote();
+        long demoteTime = System.currentTimeMillis() - start;
+        if (demoteTime < demoteIntervalMs) {
+          Uninterruptibles.sleepUninterruptibly(demoteIntervalMs - demoteTime, TimeUnit.MILLISECONDS);
+        }
+      } catch (Exception e) {
+        LOG.error("{} - demote exception: {}", Thread.currentThread().getName(), ExceptionUtils.getStackTrace(e));
+      }
+    }
+  }
+
+  public void start() {
+    daemonThread.start();
+  }
+
+  public void stop() {
+    isStopped = true;
+    Uninterruptibles.joinUninterruptibly(daemonThread, 5, TimeUnit.SECONDS);
+  }
+
+  @VisibleForTesting
+  void demote() {
+    boolean forceDemote = !tmpfsStorage.canWrite();
+    List<String> shuffleKeys = selectShuffleKeys(forceDemote);
+    for (String shuffleKey : shuffleKeys) {
+      // stop force mode as soon as tmpfs is below the low water mark
+      if (forceDemote && tmpfsStorage.canWrite()) {
+        break;
+      }
+      demoteShuffle(shuffleKey);
+    }
+  }
+
+  @VisibleForTesting
+  List<String> selectShuffleKeys(boolean forceDemote) {
+    if (forceDemote) {
+      // the shuffles are sorted by size desc, and the read status is ignored
+      return tmpfsStorage.getSortedShuffleKeys(false, Integer.MAX_VALUE);
+    }
+    List<String> shuffleKeys = Lists.newArrayList();
+    long now = System.currentTimeMillis();
+    for (String shuffleKey : tmpfsStorage.getShuffleMetaSet()) {
+      long size = tmpfsStorage.getNotUploadedSize(shuffleKey);
+      long lastWriteTs = storageManager.getShuffleLastWriteTs(shuffleKey);
+      if (size <= 0 || lastWriteTs < 0) {
+        continue;
+      }
+      if (size >= demoteShuffleSize || now - lastWriteTs >= demoteAgeMs) {
+        shuffleKeys.add(shuffleKey);
+      }
+    }
+    return shuffleKeys;
+  }
+
+  @VisibleForTesting
+  boolean demoteShuffle(String shuffleKey) {
+    ReadWriteLock lock = tmpfsStorage.getLock(shuffleKey);
+    // the shuffle is being written or removed, try it in the next round
+    if (lock == null || !lock.writeLock().tryLock()) {
+      return false;
+    }
+    long start = System.currentTimeMillis();
+    try {
+      int index = shuffleKey.lastIndexOf(Constants.KEY_SPLIT_CHAR);
+      String appId = shuffleKey.substring(0, index);
+      int shuffleId = Integer.parseInt(shuffleKey.substring(index + 1));
+      File shuffleFolder = new File(
+          ShuffleStorageUtils.getFullShuffleDataFolder(tmpfsStorage.getBasePath(), shuffleKey));
+      File[] rangeFolders = shuffleFolder.listFiles(file -> file.isDirectory());
+
+      // copy all ranges before the metadata is updated, then a failed shuffle can be demoted again
+      Map<LocalStorage, List<Integer>> storageToPartitions = Maps.newHashMap();
+      Map<LocalStorage, Long> storageToSize = Maps.newHashMap();
+      long demotedSize = 0;
+      if (rangeFolders != null) {
+        for (File rangeFolder : rangeFolders) {
+          int[] range = ShuffleStorageUtils.parsePartitionRange(rangeFolder.getName());
+          LocalStorage diskStorage = storageManager.selectDiskStorage(appId, shuffleId, range[0]);
+          File targetFolder = new File(ShuffleStorageUtils.getFullShuffleDataFolder(
+              diskStorage.getBasePath(), shuffleKey), rangeFolder.getName());
+          FileUtils.copyDirectory(rangeFolder, targetFolder);
+          long size = getDataSize(targetFolder);
+          List<Integer> partitions = storageToPartitions.computeIfAbsent(diskStorage, key -> Lists.newArrayList());
+          for (int partition = range[0]; partition <= range[1]; partition++) {
+            partitions.add(partition);
+          }
+          storageToSize.merge(diskStorage, size, Long::sum);
+          demotedSize += size;
+        }
+      }
+      for (Map.Entry<LocalStorage, List<Integer>> entry : storageToPartitions.entrySet()) {
+        LocalStorage diskStorage = entry.getKey();
+        diskStorage.createMetadataIfNotExist(shuffleKey);
+        diskStorage.updateWrite(shuffleKey, storageToSize.get(diskStorage), entry.getValue());
+      }
+      // the following reads and writes of the shuffle go to the local disks
+      storageManager.markDemoted(shuffleKey);
+      FileUtils.deleteDirectory(shuffleFolder);
+      tmpfsStorage.removeResources(shuffleKey);
+      ShuffleServerMetrics.counterTotalTmpfsDemoteSize.inc(demotedSize);
+      LOG.info("Demote shuffle {} with {} bytes from {} cost {} ms", shuffleKey, demotedSize,
+          tmpfsStorage.getBasePath(), System.currentTimeMillis() - start);
+      return true;
+    } catch (Exception e) {
+      LOG.error("Fail to demote shuffle {} from {}", shuffleKey, tmpfsStorage.getBasePath(), e);
+      return false;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private long getDataSize(File rangeFolder) {
+    long size = 0;
+    File[] dataFiles = rangeFolder.listFiles(
+        (dir, name) -> name.endsWith(Constants.SHUFFLE_DATA_FILE_SUFFIX));
+    if (dataFiles != null) {
+      for (File dataFile : dataFiles) {
+        size += dataFile.length();
+      }
+    }
+    return size;
+  }
+}
@@ -18,6 +18,7 @@
 
 package com.tencent.rss.server.storage;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -26,6 +27,7 @@ import com.google.common.util.concurrent.Uninterruptibles;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.tencent.rss.common.RemoteStorageWriteInfo;
 import com.tencent.rss.common.ShufflePartitionedBlock;
 import com.tencent.rss.common.util.RssUtils;
 import com.tencent.rss.server.ShuffleDataFlushEvent;
@@ -128,6 +130,16 @@ public abstract class SingleStorageManager implements StorageManager {
         event.getShuffleId());
   }
 
+  @Override
+  public List<RemoteStorageWriteInfo> getRemoteStorageWriteInfos() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public void registerRemoteStorage(String appId, String remoteStoragePath) {
+    // do nothing
+  }
+
   @Override
   public void start() {
     // do nothing
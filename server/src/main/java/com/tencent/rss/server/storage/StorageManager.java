@@ -18,8 +18,10 @@
 
 package com.tencent.rss.server.storage;
 
+import java.util.List;
 import java.util.Set;
 
+import com.tencent.rss.common.RemoteStorageWriteInfo;
 import com.tencent.rss.server.Checker;
 import com.tencent.rss.server.ShuffleDataFlushEvent;
 import com.tencent.rss.server.ShuffleDataReadEvent;
@@ -41,6 +43,11 @@ public interface StorageManager {
 
   void removeResources(String appId, Set<Integer> shuffleSet);
 
+  // the remote storage path is assigned to the application by coordinator
+  void registerRemoteStorage(String appId, String remoteStoragePath);
+
+  List<RemoteStorageWriteInfo> getRemoteStorageWriteInfos();
+
   void start();
 
   void stop();
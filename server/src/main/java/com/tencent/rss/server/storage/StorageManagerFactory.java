@@ -41,6 +41,8 @@ public class StorageManagerFactory {
         || StorageType.LOCALFILE_HDFS_2.equals(type)
         || StorageType.MEMORY_LOCALFILE_HDFS.equals(type)) {
       return new MultiStorageManager(conf, serverId);
+    } else if (StorageType.MEMORY_TMPFS_LOCALFILE.equals(type)) {
+      return new TmpfsStorageManager(conf);
     } else {
       throw new IllegalArgumentException("unknown storageType was found");
     }
@@ -0,0 +1,206 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.server.storage;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.tencent.rss.common.RemoteStorageWriteInfo;
+import com.tencent.rss.common.util.RssUtils;
+import com.tencent.rss.server.Checker;
+import com.tencent.rss.server.ShuffleDataFlushEvent;
+import com.tencent.rss.server.ShuffleDataReadEvent;
+import com.tencent.rss.server.ShuffleServerConf;
+import com.tencent.rss.storage.common.LocalStorage;
+import com.tencent.rss.storage.common.Storage;
+import com.tencent.rss.storage.handler.api.ShuffleWriteHandler;
+import com.tencent.rss.storage.request.CreateShuffleWriteHandlerRequest;
+
+/**
+ * TmpfsStorageManager flushes shuffle data to tmpfs first, and the shuffles are demoted to
+ * the local disks by ShuffleDemoter when they become old or large, or when tmpfs is short of space.
+ * A shuffle is stored in only one tier at any time, so it is read from the tier it is in.
+ */
+public class TmpfsStorageManager implements StorageManager {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TmpfsStorageManager.class);
+
+  private final LocalStorageManager tmpfsStorageManager;
+  private final LocalStorageManager diskStorageManager;
+  private final List<ShuffleDemoter> demoters = Lists.newArrayList();
+  // shuffles which have been moved to the local disks, they won't be written to tmpfs any more
+  private final Set<String> demotedShuffleKeys = Sets.newConcurrentHashSet();
+  // shuffle key -> the last time the shuffle is written to tmpfs
+  private final Map<String, Long> shuffleLastWriteTs = Maps.newConcurrentMap();
+
+  TmpfsStorageManager(ShuffleServerConf conf) {
+    String tmpfsBasePathStr = conf.get(ShuffleServerConf.TMPFS_BASE_PATH);
+    if (StringUtils.isEmpty(tmpfsBasePathStr)) {
+      throw new IllegalArgumentException("Tmpfs base path dirs must not be empty");
+    }
+    // the shuffle is demoted by moving the folder of every partition range
+    if (conf.get(ShuffleServerConf.LOCALFILE_SEGMENT_LOG_ENABLE)) {
+      throw new IllegalArgumentException("Segment log of LOCALFILE doesn't support tmpfs storage");
+    }
+    tmpfsStorageManager = new LocalStorageManager(
+        conf, tmpfsBasePathStr, conf.getSizeAsBytes(ShuffleServerConf.TMPFS_CAPACITY));
+    diskStorageManager = new LocalStorageManager(conf);
+    for (LocalStorage storage : tmpfsStorageManager.getStorages()) {
+      demoters.add(new ShuffleDemoter(conf, storage, this));
+    }
+  }
+
+  @Override
+  public Storage selectStorage(ShuffleDataFlushEvent event) {
+    return selectStorageManager(event.getAppId(), event.getShuffleId()).selectStorage(event);
+  }
+
+  @Override
+  public Storage selectStorage(ShuffleDataReadEvent event) {
+    return selectStorageManager(event.getAppId(), event.getShuffleId()).selectStorage(event);
+  }
+
+  @Override
+  public boolean write(Storage storage, ShuffleWriteHandler handler, ShuffleDataFlushEvent event) {
+    if (!tmpfsStorageManager.getStorages().contains(storage)) {
+      return diskStorageManager.write(storage, handler, event);
+    }
+    String shuffleKey = RssUtils.generateShuffleKey(event.getAppId(), event.getShuffleId());
+    storage.createMetadataIfNotExist(shuffleKey);
+    // the shared lock keeps the shuffle from being demoted until the data is written
+    if (storage.lockShuffleShared(shuffleKey)) {
+      try {
+        if (!demotedShuffleKeys.contains(shuffleKey)) {
+          shuffleLastWriteTs.put(shuffleKey, System.currentTimeMillis());
+          return tmpfsStorageManager.write(storage, handler, event);
+        }
+      } finally {
+        storage.unlockShuffleShared(shuffleKey);
+      }
+    } else if (!demotedShuffleKeys.contains(shuffleKey)) {
+      // the shuffle was removed, it is handled in the same way as the local disks
+      return tmpfsStorageManager.write(storage, handler, event);
+    }
+    // the shuffle is demoted after tmpfs was selected, write the data to the local disk instead
+    CreateShuffleWriteHandlerRequest request = storage.getCreateWriterHandlerRequest(
+        event.getAppId(),
+        event.getShuffleId(),
+        event.getStartPartition());
+    if (request == null) {
+      return false;
+    }
+    try {
+      storage = diskStorageManager.selectStorage(event);
+      handler = storage.getOrCreateWriteHandler(request);
+    } catch (IOException ioe) {
+      LOG.warn("Create write handler of local disk failed ", ioe);
+      return false;
+    }
+    return diskStorageManager.write(storage, handler, event);
+  }
+
+  @Override
+  public void updateWriteMetrics(ShuffleDataFlushEvent event, long writeTime) {
+    selectStorageManager(event.getAppId(), event.getShuffleId()).updateWriteMetrics(event, writeTime);
+  }
+
+  private StorageManager selectStorageManager(String appId, int shuffleId) {
+    if (demotedShuffleKeys.contains(RssUtils.generateShuffleKey(appId, shuffleId))) {
+      return diskStorageManager;
+    } else {
+      return tmpfsStorageManager;
+    }
+  }
+
+  LocalStorage selectDiskStorage(String appId, int shuffleId, int startPartition) {
+    return (LocalStorage) diskStorageManager.selectStorage(new ShuffleDataReadEvent(appId, shuffleId, startPartition));
+  }
+
+  void markDemoted(String shuffleKey) {
+    demotedShuffleKeys.add(shuffleKey);
+    shuffleLastWriteTs.remove(shuffleKey);
+  }
+
+  @VisibleForTesting
+  boolean isDemoted(String shuffleKey) {
+    return demotedShuffleKeys.contains(shuffleKey);
+  }
+
+  // -1 means the shuffle isn't written to tmpfs
+  long getShuffleLastWriteTs(String shuffleKey) {
+    return shuffleLastWriteTs.getOrDefault(shuffleKey, -1L);
+  }
+
+  @VisibleForTesting
+  List<ShuffleDemoter> getDemoters() {
+    return demoters;
+  }
+
+  @Override
+  public void start() {
+    for (ShuffleDemoter demoter : demoters) {
+      demoter.start();
+    }
+  }
+
+  @Override
+  public void stop() {
+    for (ShuffleDemoter demoter : demoters) {
+      demoter.stop();
+    }
+  }
+
+  @Override
+  public Checker getStorageChecker() {
+    return diskStorageManager.getStorageChecker();
+  }
+
+  @Override
+  public List<RemoteStorageWriteInfo> getRemoteStorageWriteInfos() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public void registerRemoteStorage(String appId, String remoteStoragePath) {
+    // do nothing
+  }
+
+  @Override
+  public void removeResources(String appId, Set<Integer> shuffleSet) {
+    LOG.info("Start to remove resource of appId: {}, shuffles: {}", appId, shuffleSet.toString());
+    tmpfsStorageManager.removeResources(appId, shuffleSet);
+    diskStorageManager.removeResources(appId, shuffleSet);
+    for (Integer shuffleId : shuffleSet) {
+      String shuffleKey = RssUtils.generateShuffleKey(appId, shuffleId);
+      demotedShuffleKeys.remove(shuffleKey);
+      shuffleLastWriteTs.remove(shuffleKey);
+    }
+  }
+}
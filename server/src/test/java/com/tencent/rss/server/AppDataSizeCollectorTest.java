@@ -0,0 +1,80 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import io.prometheus.client.Collector.MetricFamilySamples;
+import org.junit.Test;
+
+public class AppDataSizeCollectorTest {
+
+  @Test
+  public void topNTest() {
+    AppDataSizeCollector collector = new AppDataSizeCollector(2, 60000);
+    collector.incWriteSize("app1", 100);
+    collector.incReadSize("app1", 100);
+    collector.incWriteSize("app2", 300);
+    collector.incWriteSize("app3", 10);
+    collector.incReadSize("app3", 20);
+
+    List<Map.Entry<String, AppDataSizeCollector.AppDataSize>> topApps = collector.getTopApps();
+    assertEquals(2, topApps.size());
+    assertEquals("app2", topApps.get(0).getKey());
+    assertEquals("app1", topApps.get(1).getKey());
+
+    List<MetricFamilySamples> familySamples = collector.collect();
+    assertEquals(2, familySamples.size());
+    for (MetricFamilySamples samples : familySamples) {
+      assertEquals(2, samples.samples.size());
+      for (MetricFamilySamples.Sample sample : samples.samples) {
+        if (sample.labelValues.contains("app1")) {
+          assertEquals(100, sample.value, 0.0);
+        }
+      }
+    }
+
+    collector.removeApp("app2");
+    topApps = collector.getTopApps();
+    assertEquals("app1", topApps.get(0).getKey());
+    assertEquals("app3", topApps.get(1).getKey());
+  }
+
+  @Test
+  public void evictIdleAppTest() throws Exception {
+    AppDataSizeCollector collector = new AppDataSizeCollector(10, 200);
+    collector.incWriteSize("app1", 100);
+    Thread.sleep(300);
+    collector.incWriteSize("app2", 100);
+    // app1 is idle for more than 200ms and is evicted
+    List<Map.Entry<String, AppDataSizeCollector.AppDataSize>> topApps = collector.getTopApps();
+    assertEquals(1, topApps.size());
+    assertEquals("app2", topApps.get(0).getKey());
+    assertEquals(1, collector.getAppNum());
+
+    collector.configure(10, 60000);
+    collector.incReadSize("app1", 10);
+    assertEquals(2, collector.getTopApps().size());
+    assertTrue(collector.collect().get(1).samples.stream().anyMatch(sample -> sample.labelValues.contains("app1")));
+  }
+}
@@ -46,6 +46,7 @@ import java.io.FileNotFoundException;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
@@ -86,8 +87,30 @@ public class ShuffleFlushManagerTest extends HdfsTestBase {
     assertEquals("value", manager.getHadoopConf().get("a.b"));
   }
 
+  @Test
+  public void commitWaiterTest() {
+    StorageManager storageManager =
+        StorageManagerFactory.getInstance().createStorageManager("shuffleServerId", shuffleServerConf);
+    ShuffleFlushManager manager =
+        new ShuffleFlushManager(shuffleServerConf, "shuffleServerId", null, storageManager);
+    String appId = "commitWaiterTest";
+    AtomicLong skippedNum = new AtomicLong(0);
+    manager.updateCommittedBlockIds(appId, 1, createBlock(2, 8));
+    CompletableFuture<Void> committed = manager.waitForCommittedBlockNum(appId, 1, 4, skippedNum::get);
+    assertFalse(committed.isDone());
+    manager.updateCommittedBlockIds(appId, 1, createBlock(1, 8));
+    assertFalse(committed.isDone());
+    // the last cached block is combined or dropped after the waiter is created
+    skippedNum.incrementAndGet();
+    manager.checkCommitWaiters(appId, 1);
+    assertTrue(committed.isDone());
+    assertTrue(manager.waitForCommittedBlockNum(appId, 1, 4, skippedNum::get).isDone());
+  }
+
   @Test
   public void writeTest() throws Exception {
+    double flushNum = getFlushHistogramCount("flush_latency_ms_count");
+    double cacheToFlushNum = getFlushHistogramCount("cache_to_flush_time_ms_count");
     StorageManager storageManager =
         StorageManagerFactory.getInstance().createStorageManager("shuffleServerId", shuffleServerConf);
     ShuffleFlushManager manager =
@@ -113,6 +136,16 @@ public class ShuffleFlushManagerTest extends HdfsTestBase {
     blocks21.addAll(blocks22);
     validate("appId1", 2, 2, blocks21, 1, storageBasePath);
     assertEquals(blocks21.size(), manager.getCommittedBlockIds("appId1", 2).getLongCardinality());
+
+    // every flushed event is observed by the histograms of its storage
+    assertTrue(getFlushHistogramCount("flush_latency_ms_count") >= flushNum + 3);
+    assertTrue(getFlushHistogramCount("cache_to_flush_time_ms_count") >= cacheToFlushNum + 3);
+  }
+
+  private double getFlushHistogramCount(String name) {
+    Double value = ShuffleServerMetrics.getCollectorRegistry().getSampleValue(
+        name, new String[]{"storage_type"}, new String[]{StorageType.HDFS.name()});
+    return value == null ? 0 : value;
   }
 
   @Test
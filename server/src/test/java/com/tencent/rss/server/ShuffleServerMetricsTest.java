@@ -27,13 +27,17 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class ShuffleServerMetricsTest {
 
@@ -53,6 +57,7 @@ public class ShuffleServerMetricsTest {
     ssc.set(ShuffleServerConf.RSS_STORAGE_TYPE, StorageType.LOCALFILE.name());
     ssc.set(ShuffleServerConf.RSS_COORDINATOR_QUORUM, "fake.coordinator:123");
     ssc.set(ShuffleServerConf.SERVER_BUFFER_CAPACITY, 1000L);
+    ssc.set(ShuffleServerConf.SERVER_APP_METRICS_TOP_N, 2);
     shuffleServer = new ShuffleServer(ssc);
     shuffleServer.start();
   }
@@ -76,7 +81,7 @@ public class ShuffleServerMetricsTest {
     ObjectMapper mapper = new ObjectMapper();
     JsonNode actualObj = mapper.readTree(content);
     assertEquals(2, actualObj.size());
-    assertEquals(32, actualObj.get("metrics").size());
+    assertEquals(37, actualObj.get("metrics").size());
   }
 
   @Test
@@ -88,6 +93,47 @@ public class ShuffleServerMetricsTest {
     assertEquals(24, actualObj.get("metrics").size());
   }
 
+  @Test
+  public void testHistogramAndAppMetrics() throws Exception {
+    try {
+      ShuffleServerMetrics.histogramFlushLatency.labels(StorageType.LOCALFILE.name()).observe(10);
+      ShuffleServerMetrics.histogramCacheToFlushTime.labels(StorageType.LOCALFILE.name()).observe(100);
+      ShuffleServerMetrics.histogramReadLatency.labels(ShuffleServerMetrics.READ_TIER_MEMORY).observe(1);
+      ShuffleServerMetrics.appDataSizeCollector.incWriteSize("app1", 100);
+      ShuffleServerMetrics.appDataSizeCollector.incWriteSize("app2", 200);
+      ShuffleServerMetrics.appDataSizeCollector.incWriteSize("app3", 50);
+      ShuffleServerMetrics.appDataSizeCollector.incReadSize("app3", 10);
+
+      String content = TestUtils.httpGetMetrics(SERVER_METRICS_URL);
+      JsonNode actualObj = new ObjectMapper().readTree(content);
+      Set<String> series = new HashSet<>();
+      actualObj.get("metrics").iterator().forEachRemaining(jsonNode -> {
+        String name = jsonNode.get("name").textValue();
+        List<String> labelValues = new ArrayList<>();
+        jsonNode.get("labelValues").iterator().forEachRemaining(value -> labelValues.add(value.textValue()));
+        series.add(name + labelValues);
+        if (name.equals("app_write_data") && labelValues.contains("app2")) {
+          assertEquals(200, jsonNode.get("value").asLong());
+        }
+      });
+      assertTrue(series.contains("flush_latency_ms_count[LOCALFILE]"));
+      assertTrue(series.contains("flush_latency_ms_bucket[LOCALFILE, 10.0]"));
+      assertTrue(series.contains("cache_to_flush_time_ms_sum[LOCALFILE]"));
+      assertTrue(series.contains("read_latency_ms_count[memory]"));
+      // only the top 2 apps are exported
+      assertTrue(series.contains("app_write_data[app2]"));
+      assertTrue(series.contains("app_read_data[app1]"));
+      assertFalse(series.contains("app_write_data[app3]"));
+    } finally {
+      ShuffleServerMetrics.histogramFlushLatency.clear();
+      ShuffleServerMetrics.histogramCacheToFlushTime.clear();
+      ShuffleServerMetrics.histogramReadLatency.clear();
+      for (String appId : new String[]{"app1", "app2", "app3"}) {
+        ShuffleServerMetrics.appDataSizeCollector.removeApp(appId);
+      }
+    }
+  }
+
   @Test
   public void testServerMetricsConcurrently() throws Exception {
     ExecutorService executorService = Executors.newFixedThreadPool(3);
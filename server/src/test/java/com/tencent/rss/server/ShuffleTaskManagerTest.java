@@ -18,7 +18,9 @@
 
 package com.tencent.rss.server;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.RangeMap;
 import com.google.common.collect.Sets;
 import com.tencent.rss.common.BufferSegment;
@@ -26,8 +28,13 @@ import com.tencent.rss.common.PartitionRange;
 import com.tencent.rss.common.ShuffleDataResult;
 import com.tencent.rss.common.ShufflePartitionedBlock;
 import com.tencent.rss.common.ShufflePartitionedData;
+import com.tencent.rss.common.util.BlockIdLayout;
 import com.tencent.rss.common.util.ChecksumUtils;
 import com.tencent.rss.common.util.Constants;
+import com.tencent.rss.common.util.RssUtils;
+import com.tencent.rss.proto.RssProtos;
+import com.tencent.rss.proto.RssProtos.FinishShuffleRequest;
+import com.tencent.rss.proto.RssProtos.FinishShuffleResponse;
 import com.tencent.rss.server.buffer.PreAllocatedBufferInfo;
 import com.tencent.rss.server.buffer.ShuffleBuffer;
 import com.tencent.rss.server.buffer.ShuffleBufferManager;
@@ -35,6 +42,7 @@ import com.tencent.rss.server.storage.StorageManager;
 import com.tencent.rss.storage.HdfsTestBase;
 import com.tencent.rss.storage.handler.impl.HdfsClientReadHandler;
 import com.tencent.rss.storage.util.StorageType;
+import io.grpc.stub.StreamObserver;
 import org.apache.hadoop.conf.Configuration;
 import org.junit.Test;
 import org.roaringbitmap.longlong.Roaring64NavigableMap;
@@ -43,10 +51,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -304,6 +317,129 @@ public class ShuffleTaskManagerTest extends HdfsTestBase {
     assertEquals(Roaring64NavigableMap.bitmapOf(expectedBlockId), resultBlockIds);
   }
 
+  @Test
+  public void multipleBlockIdLayoutsTest() throws Exception {
+    String confFile = ClassLoader.getSystemResource("server.conf").getFile();
+    ShuffleServerConf conf = new ShuffleServerConf(confFile);
+    conf.set(ShuffleServerConf.RSS_STORAGE_BASE_PATH, HDFS_URI + "rss/test");
+    conf.set(ShuffleServerConf.RSS_STORAGE_TYPE, StorageType.HDFS.name());
+    conf.set(ShuffleServerConf.HEALTH_CHECK_ENABLE, false);
+    ShuffleServer shuffleServer = new ShuffleServer(conf);
+    ShuffleTaskManager shuffleTaskManager = shuffleServer.getShuffleTaskManager();
+    int shuffleId = 1;
+    String defaultAppId = "multipleBlockIdLayoutsTest_default";
+    String fittedAppId = "multipleBlockIdLayoutsTest_fitted";
+    BlockIdLayout fittedLayout = BlockIdLayout.forJob(4, 15);
+    List<PartitionRange> partitionRanges = Lists.newArrayList(new PartitionRange(0, 3));
+    assertEquals(StatusCode.SUCCESS, shuffleTaskManager.registerShuffle(
+        defaultAppId, shuffleId, partitionRanges, null, null, null));
+    assertEquals(StatusCode.SUCCESS, shuffleTaskManager.registerShuffle(
+        fittedAppId, shuffleId, partitionRanges, null, null, fittedLayout));
+    assertEquals(BlockIdLayout.DEFAULT, shuffleTaskManager.getBlockIdLayout(defaultAppId));
+    assertEquals(fittedLayout, shuffleTaskManager.getBlockIdLayout(fittedAppId));
+
+    // the application can't change its layout
+    assertEquals(StatusCode.INTERNAL_ERROR, shuffleTaskManager.registerShuffle(
+        fittedAppId, 2, partitionRanges, null, null, BlockIdLayout.DEFAULT));
+    assertEquals(fittedLayout, shuffleTaskManager.getBlockIdLayout(fittedAppId));
+
+    Map<Integer, Roaring64NavigableMap> defaultExpected = Maps.newHashMap();
+    Map<Integer, Roaring64NavigableMap> fittedExpected = Maps.newHashMap();
+    for (int partitionId = 0; partitionId < 4; partitionId++) {
+      long[] defaultBlockIds = new long[32];
+      long[] fittedBlockIds = new long[32];
+      for (int i = 0; i < 32; i++) {
+        defaultBlockIds[i] = BlockIdLayout.DEFAULT.getBlockId(partitionId, i % 16, i / 16);
+        fittedBlockIds[i] = fittedLayout.getBlockId(partitionId, i % 16, i / 16);
+      }
+      defaultExpected.put(partitionId, Roaring64NavigableMap.bitmapOf(defaultBlockIds));
+      fittedExpected.put(partitionId, Roaring64NavigableMap.bitmapOf(fittedBlockIds));
+      shuffleTaskManager.addFinishedBlockIds(
+          defaultAppId, shuffleId, ImmutableMap.of(partitionId, defaultBlockIds), 1);
+      shuffleTaskManager.addFinishedBlockIds(
+          fittedAppId, shuffleId, ImmutableMap.of(partitionId, fittedBlockIds), 1);
+    }
+    for (int partitionId = 0; partitionId < 4; partitionId++) {
+      assertEquals(defaultExpected.get(partitionId), RssUtils.deserializeBitMap(
+          shuffleTaskManager.getFinishedBlockIds(defaultAppId, shuffleId, partitionId)));
+      assertEquals(fittedExpected.get(partitionId), RssUtils.deserializeBitMap(
+          shuffleTaskManager.getFinishedBlockIds(fittedAppId, shuffleId, partitionId)));
+    }
+
+    // only the blockIds written by the given task attempts are returned
+    Roaring64NavigableMap taskIdBitmap = Roaring64NavigableMap.bitmapOf(1, 3);
+    Roaring64NavigableMap expected = Roaring64NavigableMap.bitmapOf(
+        fittedLayout.getBlockId(2, 1, 0), fittedLayout.getBlockId(2, 1, 1),
+        fittedLayout.getBlockId(2, 3, 0), fittedLayout.getBlockId(2, 3, 1));
+    assertEquals(expected, RssUtils.deserializeBitMap(
+        shuffleTaskManager.getFinishedBlockIds(fittedAppId, shuffleId, 2, taskIdBitmap)));
+    assertTrue(RssUtils.deserializeBitMap(shuffleTaskManager.getFinishedBlockIds(
+        fittedAppId, shuffleId, 2, Roaring64NavigableMap.bitmapOf())).isEmpty());
+  }
+
+  @Test
+  public void commitShuffleAsyncTest() throws Exception {
+    String confFile = ClassLoader.getSystemResource("server.conf").getFile();
+    ShuffleServerConf conf = new ShuffleServerConf(confFile);
+    conf.set(ShuffleServerConf.RSS_STORAGE_BASE_PATH, HDFS_URI + "rss/test");
+    conf.set(ShuffleServerConf.RSS_STORAGE_TYPE, StorageType.HDFS.name());
+    conf.set(ShuffleServerConf.SERVER_COMMIT_TIMEOUT, 10000L);
+    conf.set(ShuffleServerConf.HEALTH_CHECK_ENABLE, false);
+    ShuffleServer shuffleServer = new ShuffleServer(conf);
+    ShuffleFlushManager shuffleFlushManager = shuffleServer.getShuffleFlushManager();
+    ShuffleTaskManager shuffleTaskManager = shuffleServer.getShuffleTaskManager();
+    String appId = "commitShuffleAsyncTest";
+    int shuffleId = 1;
+    shuffleTaskManager.registerShuffle(appId, shuffleId, Lists.newArrayList(new PartitionRange(1, 1)));
+    ShufflePartitionedBlock[] blocks = createBlock(3, 10);
+    shuffleTaskManager.updateCachedBlockIds(appId, shuffleId, blocks);
+    // the block sent again is counted once
+    shuffleTaskManager.updateCachedBlockIds(appId, shuffleId, new ShufflePartitionedBlock[]{blocks[0]});
+    assertEquals(3, shuffleTaskManager.getCachedBlockNum(appId, shuffleId));
+
+    // the blocks aren't flushed yet, the commit returns without waiting for them
+    CompletableFuture<StatusCode> future = shuffleTaskManager.commitShuffleAsync(appId, shuffleId);
+    assertFalse(future.isDone());
+    AtomicReference<FinishShuffleResponse> responseRef = new AtomicReference<>();
+    new ShuffleServerGrpcService(shuffleServer).finishShuffle(
+        FinishShuffleRequest.newBuilder().setAppId(appId).setShuffleId(shuffleId).build(),
+        new StreamObserver<FinishShuffleResponse>() {
+          @Override
+          public void onNext(FinishShuffleResponse response) {
+            responseRef.set(response);
+          }
+
+          @Override
+          public void onError(Throwable t) {
+          }
+
+          @Override
+          public void onCompleted() {
+          }
+        });
+    // the grpc thread isn't blocked by the flush
+    assertNull(responseRef.get());
+
+    // simulate the slow flush
+    shuffleFlushManager.updateCommittedBlockIds(appId, shuffleId, Lists.newArrayList(blocks[0], blocks[1]));
+    Thread.sleep(100);
+    assertFalse(future.isDone());
+    assertNull(responseRef.get());
+    assertEquals(2, shuffleFlushManager.getCommittedBlockNum(appId, shuffleId));
+    assertEquals(Roaring64NavigableMap.bitmapOf(blocks[2].getBlockId()),
+        shuffleTaskManager.getUncommittedBlockIds(appId, shuffleId));
+    // the block flushed again is counted once
+    shuffleFlushManager.updateCommittedBlockIds(appId, shuffleId, Lists.newArrayList(blocks[0]));
+    assertEquals(2, shuffleFlushManager.getCommittedBlockNum(appId, shuffleId));
+    assertFalse(future.isDone());
+    shuffleFlushManager.updateCommittedBlockIds(appId, shuffleId, Lists.newArrayList(blocks[2]));
+    assertEquals(StatusCode.SUCCESS, future.get(1, TimeUnit.SECONDS));
+    assertEquals(RssProtos.StatusCode.SUCCESS, responseRef.get().getStatus());
+
+    // the committed blocks don't need to be waited for
+    assertTrue(shuffleTaskManager.commitShuffleAsync(appId, shuffleId).isDone());
+  }
+
   // copy from ClientUtils
   private Long getBlockId(long partitionId, long taskAttemptId, long atomicInt) {
     return (atomicInt << (Constants.PARTITION_ID_MAX_LENGTH + Constants.TASK_ATTEMPT_ID_MAX_LENGTH))
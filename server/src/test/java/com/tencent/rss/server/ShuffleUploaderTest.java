@@ -26,6 +26,7 @@ import com.tencent.rss.storage.common.ShuffleFileInfo;
 import com.tencent.rss.storage.common.StorageReadMetrics;
 import com.tencent.rss.storage.factory.ShuffleUploadHandlerFactory;
 import com.tencent.rss.storage.handler.api.ShuffleUploadHandler;
+import com.tencent.rss.storage.util.ShuffleStorageUtils;
 import com.tencent.rss.storage.util.ShuffleUploadResult;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -36,6 +37,7 @@ import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
 import com.tencent.rss.storage.util.StorageType;
+import com.tencent.rss.storage.util.UploadRateLimiter;
 import org.apache.hadoop.conf.Configuration;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -689,6 +691,101 @@ public class ShuffleUploaderTest  {
     assertEquals(0, storage.getExpiredShuffleKeys().size());
   }
 
+  @Test
+  public void calculateUploadTimeWithRateLimiterTest() {
+    LocalStorage mockLocalStorage = mock(LocalStorage.class);
+    when(mockLocalStorage.getBasePath()).thenReturn(base.getAbsolutePath());
+    ShuffleServerConf conf = new ShuffleServerConf();
+    conf.setInteger(ShuffleServerConf.UPLOADER_THREAD_NUM, 2);
+    conf.setLong(ShuffleServerConf.REFERENCE_UPLOAD_SPEED_MBS, 128);
+    conf.setString(ShuffleServerConf.UPLOAD_STORAGE_TYPE, StorageType.HDFS.name());
+    conf.setString(ShuffleServerConf.UPLOADER_BASE_PATH, "hdfs://base");
+    UploadRateLimiter rateLimiter = new UploadRateLimiter(256L * 1024 * 1024);
+    ShuffleUploader shuffleUploader = new ShuffleUploader.Builder()
+        .localStorage(mockLocalStorage)
+        .configuration(conf)
+        .rateLimiter(rateLimiter)
+        .maxForceUploadExpireTimeS(100)
+        .build();
+    // the only uploader has 128MB/s for every thread
+    assertEquals(6, shuffleUploader.calculateUploadTime(0, 6 * 128 * 1024 * 1024, false));
+
+    new ShuffleUploader.Builder()
+        .localStorage(mockLocalStorage)
+        .configuration(conf)
+        .rateLimiter(rateLimiter)
+        .build();
+    // two uploaders share the bandwidth, every thread has 64MB/s
+    assertEquals(12, shuffleUploader.calculateUploadTime(0, 6 * 128 * 1024 * 1024, false));
+    assertEquals(100, shuffleUploader.calculateUploadTime(0, 60L * 128 * 1024 * 1024, true));
+  }
+
+  @Test
+  public void rateLimitedUploadTest() throws Exception {
+    File storageDir = tmpDir.newFolder("rateLimitedUploadTest");
+    File remoteDir = tmpDir.newFolder("rateLimitedUploadRemote");
+    ShuffleServerConf conf = new ShuffleServerConf();
+    conf.setInteger(ShuffleServerConf.UPLOADER_THREAD_NUM, 1);
+    conf.setLong(ShuffleServerConf.UPLOAD_COMBINE_THRESHOLD_MB, 32);
+    conf.setLong(ShuffleServerConf.REFERENCE_UPLOAD_SPEED_MBS, 8);
+    conf.setString(ShuffleServerConf.UPLOAD_STORAGE_TYPE, StorageType.HDFS.name());
+    // local file system takes the place of hdfs
+    conf.setString(ShuffleServerConf.UPLOADER_BASE_PATH, "file://" + remoteDir.getAbsolutePath());
+    LocalStorage localStorage = LocalStorage.newBuilder()
+        .capacity(100L * 1024 * 1024)
+        .basePath(storageDir.getAbsolutePath())
+        .highWaterMarkOfWrite(95)
+        .lowWaterMarkOfWrite(80)
+        .shuffleExpiredTimeoutMs(1000)
+        .build();
+    int rate = 512 * 1024;
+    ShuffleUploader uploader = new ShuffleUploader.Builder()
+        .localStorage(localStorage)
+        .configuration(conf)
+        .serverId("test")
+        .rateLimiter(new UploadRateLimiter(rate))
+        .maxForceUploadExpireTimeS(10)
+        .build();
+
+    String[] shuffleKeys = {"app/1", "app/2", "app/3"};
+    int[] sizes = {100 * 1024, 300 * 1024, 200 * 1024};
+    for (int i = 0; i < shuffleKeys.length; i++) {
+      String shuffleKey = shuffleKeys[i];
+      File dataFile = new File(ShuffleStorageUtils.generateDataFileName(
+          ShuffleStorageUtils.generateAbsoluteFilePrefix(storageDir.getAbsolutePath(), shuffleKey, 1, "test")));
+      File indexFile = new File(ShuffleStorageUtils.generateIndexFileName(
+          ShuffleStorageUtils.generateAbsoluteFilePrefix(storageDir.getAbsolutePath(), shuffleKey, 1, "test")));
+      dataFile.getParentFile().mkdirs();
+      writeFile(dataFile, sizes[i]);
+      writeFile(indexFile, 40);
+      localStorage.createMetadataIfNotExist(shuffleKey);
+      localStorage.updateWrite(shuffleKey, sizes[i], Lists.newArrayList(1));
+      localStorage.prepareStartRead(shuffleKey);
+    }
+
+    // the largest shuffle is uploaded first
+    long start = System.currentTimeMillis();
+    uploader.upload();
+    assertTrue(localStorage.getNotUploadedPartitions("app/2").isEmpty());
+    assertFalse(localStorage.getNotUploadedPartitions("app/3").isEmpty());
+    assertFalse(localStorage.getNotUploadedPartitions("app/1").isEmpty());
+    uploader.upload();
+    assertTrue(localStorage.getNotUploadedPartitions("app/3").isEmpty());
+    assertFalse(localStorage.getNotUploadedPartitions("app/1").isEmpty());
+    uploader.upload();
+    assertTrue(localStorage.getNotUploadedPartitions("app/1").isEmpty());
+    long duration = System.currentTimeMillis() - start;
+
+    // the first acquire of the limiter isn't throttled, and the rest data can't be faster than the rate
+    long throttledSize = 600 * 1024 - 4096;
+    assertTrue(duration >= throttledSize * 1000 / rate - 50);
+    for (String shuffleKey : shuffleKeys) {
+      File[] remoteDataFiles = new File(remoteDir, shuffleKey + "/combine")
+          .listFiles((dir, name) -> name.endsWith(".data"));
+      assertEquals(1, remoteDataFiles.length);
+    }
+  }
+
   private void writeFile(File f, int size) {
     byte[] data1 = new byte[size];
     new Random().nextBytes(data1);
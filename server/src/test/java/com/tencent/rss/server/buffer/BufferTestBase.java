@@ -18,12 +18,16 @@
 
 package com.tencent.rss.server.buffer;
 
+import com.tencent.rss.common.RssShuffleUtils;
+import com.tencent.rss.common.ShuffleCombiner;
 import com.tencent.rss.common.ShufflePartitionedBlock;
 import com.tencent.rss.common.ShufflePartitionedData;
 import com.tencent.rss.common.util.ChecksumUtils;
 import com.tencent.rss.server.ShuffleServerMetrics;
 
+import java.util.List;
 import java.util.Random;
+import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class BufferTestBase {
@@ -48,4 +52,31 @@ public abstract class BufferTestBase {
     return data;
   }
 
+  protected ShufflePartitionedData createCompressedData(
+      int partitionId, long blockId, long taskAttemptId, byte[] data) {
+    byte[] compressed = RssShuffleUtils.compressData(data);
+    ShufflePartitionedBlock block = new ShufflePartitionedBlock(compressed.length, data.length,
+        ChecksumUtils.getCrc32(compressed), blockId, taskAttemptId, compressed);
+    return new ShufflePartitionedData(partitionId, new ShufflePartitionedBlock[]{block});
+  }
+
+  // every byte is a record, and the same records are merged
+  public static class DistinctCombiner implements ShuffleCombiner {
+
+    @Override
+    public byte[] combine(List<byte[]> blocks) {
+      TreeSet<Byte> records = new TreeSet<>();
+      for (byte[] block : blocks) {
+        for (byte record : block) {
+          records.add(record);
+        }
+      }
+      byte[] result = new byte[records.size()];
+      int i = 0;
+      for (Byte record : records) {
+        result[i++] = record;
+      }
+      return result;
+    }
+  }
 }
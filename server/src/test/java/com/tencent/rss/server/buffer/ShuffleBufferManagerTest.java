@@ -18,11 +18,16 @@
 
 package com.tencent.rss.server.buffer;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.RangeMap;
+import com.google.common.collect.Sets;
 import com.google.common.io.Files;
+import com.tencent.rss.common.ShuffleCombiner;
 import com.tencent.rss.common.ShuffleDataResult;
+import com.tencent.rss.common.ShufflePartitionedBlock;
 import com.tencent.rss.common.ShufflePartitionedData;
 import com.tencent.rss.common.util.Constants;
+import com.tencent.rss.server.ShuffleDataFlushEvent;
 import com.tencent.rss.server.ShuffleFlushManager;
 import com.tencent.rss.server.ShuffleServer;
 import com.tencent.rss.server.ShuffleServerConf;
@@ -33,15 +38,20 @@ import com.tencent.rss.server.storage.StorageManagerFactory;
 import com.tencent.rss.storage.util.StorageType;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
 import java.io.File;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -328,6 +338,107 @@ public class ShuffleBufferManagerTest extends BufferTestBase {
   }
 
   @Test
+  public void combineTest() {
+    String appId = "combineTest";
+    String combinerClass = DistinctCombiner.class.getName();
+    // combine is disabled by default
+    assertNull(shuffleBufferManager.loadCombiner(combinerClass, null));
+
+    conf.set(ShuffleServerConf.SERVER_BUFFER_COMBINE_ENABLE, true);
+    conf.set(ShuffleServerConf.SERVER_BUFFER_COMBINE_THRESHOLD_SIZE, 1L);
+    shuffleBufferManager = new ShuffleBufferManager(conf, mockShuffleFlushManager);
+    assertNull(shuffleBufferManager.loadCombiner("com.tencent.rss.NotExistCombiner", null));
+    ShuffleCombiner combiner = shuffleBufferManager.loadCombiner(combinerClass, "unused.Serializer");
+    assertTrue(combiner instanceof DistinctCombiner);
+
+    shuffleBufferManager.registerBuffer(appId, 1, 0, 0, combiner);
+    // blocks in buffer of multiple partitions can't be combined
+    shuffleBufferManager.registerBuffer(appId, 1, 1, 2, combiner);
+    shuffleBufferManager.cacheShuffleData(appId, 1, false, createCompressedData(0, 1L, 1L, new byte[]{1, 2}));
+    shuffleBufferManager.cacheShuffleData(appId, 1, false, createCompressedData(0, 2L, 1L, new byte[]{2, 3}));
+    shuffleBufferManager.cacheShuffleData(appId, 1, false, createCompressedData(0, 3L, 2L, new byte[]{2, 3}));
+    shuffleBufferManager.cacheShuffleData(appId, 1, false, createCompressedData(1, 4L, 1L, new byte[]{1, 2}));
+    shuffleBufferManager.cacheShuffleData(appId, 1, false, createCompressedData(1, 5L, 1L, new byte[]{2, 3}));
+    long usedMemory = shuffleBufferManager.getUsedMemory();
+    double savedSize = ShuffleServerMetrics.counterTotalCombineSavedDataSize.get();
+
+    // only blocks of the reported task attempt are combined
+    shuffleBufferManager.combineTaskAttempt(appId, 1, 1L, Sets.newHashSet(0, 1));
+    Roaring64NavigableMap combinedBlockIds = shuffleBufferManager.getCombinedBlockIds(appId, 1);
+    assertEquals(1, combinedBlockIds.getLongCardinality());
+    assertTrue(combinedBlockIds.contains(2L));
+    assertEquals(1, shuffleBufferManager.getCombinedBlockNum(appId, 1));
+    assertEquals(0, shuffleBufferManager.getCombinedBlockIds(appId, 2).getLongCardinality());
+    assertTrue(ShuffleServerMetrics.counterTotalCombineSavedDataSize.get() > savedSize);
+
+    // flush doesn't combine blocks, and memory is released with the size before combine
+    shuffleBufferManager.cacheShuffleData(appId, 1, false, createCompressedData(0, 6L, 2L, new byte[]{1, 2}));
+    usedMemory = shuffleBufferManager.getUsedMemory();
+    shuffleBufferManager.commitShuffleTask(appId, 1);
+    assertEquals(1, shuffleBufferManager.getCombinedBlockNum(appId, 1));
+    assertEquals(usedMemory, shuffleBufferManager.getInFlushSize());
+    verify(mockShuffleFlushManager, times(2)).addToFlushQueue(any());
+    // blocks of the task attempt which are flushed already aren't combined
+    shuffleBufferManager.combineTaskAttempt(appId, 1, 2L, Sets.newHashSet(0));
+    assertEquals(1, shuffleBufferManager.getCombinedBlockNum(appId, 1));
+
+    // combine is disabled
+    conf.set(ShuffleServerConf.SERVER_BUFFER_COMBINE_ENABLE, false);
+    ShuffleBufferManager disabledManager = new ShuffleBufferManager(conf, mockShuffleFlushManager);
+    disabledManager.registerBuffer(appId, 1, 0, 0, combiner);
+    disabledManager.cacheShuffleData(appId, 1, false, createCompressedData(0, 1L, 1L, new byte[]{1, 2}));
+    disabledManager.cacheShuffleData(appId, 1, false, createCompressedData(0, 2L, 1L, new byte[]{2, 3}));
+    disabledManager.combineTaskAttempt(appId, 1, 1L, Sets.newHashSet(0));
+    assertEquals(0, disabledManager.getCombinedBlockNum(appId, 1));
+
+    shuffleBufferManager.removeBuffer(appId);
+    assertEquals(0, shuffleBufferManager.getCombinedBlockIds(appId, 1).getLongCardinality());
+  }
+
+  @Test
+  public void abortTaskAttemptTest() {
+    String appId = "abortTaskAttemptTest";
+    shuffleBufferManager.registerBuffer(appId, 1, 0, 0);
+    // attempt 1 and the speculative attempt 2 are of the same map task, attempt 3 is of another one
+    ShufflePartitionedData attempt1Block1 = createCompressedData(0, 1L, 1L, new byte[]{1, 2});
+    ShufflePartitionedData attempt2Block1 = createCompressedData(0, 2L, 2L, new byte[]{1, 2});
+    ShufflePartitionedData attempt3Block1 = createCompressedData(0, 3L, 3L, new byte[]{3, 4});
+    ShufflePartitionedData attempt1Block2 = createCompressedData(0, 4L, 1L, new byte[]{5, 6});
+    shuffleBufferManager.cacheShuffleData(appId, 1, false, attempt1Block1);
+    shuffleBufferManager.cacheShuffleData(appId, 1, false, attempt2Block1);
+    shuffleBufferManager.cacheShuffleData(appId, 1, false, attempt3Block1);
+    shuffleBufferManager.cacheShuffleData(appId, 1, false, attempt1Block2);
+    long usedMemory = shuffleBufferManager.getUsedMemory();
+    long droppedSize = attempt1Block1.getBlockList()[0].getSize() + attempt1Block2.getBlockList()[0].getSize();
+
+    // the attempt 1 is killed as speculative loser, its blocks are dropped and memory is released at once
+    shuffleBufferManager.abortTaskAttempt(appId, 1, 1L);
+    assertEquals(Roaring64NavigableMap.bitmapOf(1L, 4L), shuffleBufferManager.getDroppedBlockIds(appId, 1));
+    assertEquals(2, shuffleBufferManager.getDroppedBlockNum(appId, 1));
+    assertEquals(usedMemory - droppedSize, shuffleBufferManager.getUsedMemory());
+
+    // the block of the aborted attempt which arrives late is dropped before flush
+    ShufflePartitionedData attempt1Block3 = createCompressedData(0, 5L, 1L, new byte[]{7, 8});
+    shuffleBufferManager.cacheShuffleData(appId, 1, false, attempt1Block3);
+    shuffleBufferManager.commitShuffleTask(appId, 1);
+    ArgumentCaptor<ShuffleDataFlushEvent> captor = ArgumentCaptor.forClass(ShuffleDataFlushEvent.class);
+    verify(mockShuffleFlushManager, times(1)).addToFlushQueue(captor.capture());
+    List<ShufflePartitionedBlock> flushedBlocks = captor.getValue().getShuffleBlocks();
+    assertEquals(Lists.newArrayList(attempt2Block1.getBlockList()[0], attempt3Block1.getBlockList()[0]),
+        flushedBlocks);
+    assertEquals(Roaring64NavigableMap.bitmapOf(1L, 4L, 5L), shuffleBufferManager.getDroppedBlockIds(appId, 1));
+    assertEquals(usedMemory - droppedSize, shuffleBufferManager.getInFlushSize());
+
+    // abort of unknown app is ignored
+    shuffleBufferManager.abortTaskAttempt("unknownApp", 1, 1L);
+    assertEquals(0, shuffleBufferManager.getDroppedBlockNum("unknownApp", 1));
+
+    shuffleBufferManager.removeBuffer(appId);
+    assertEquals(0, shuffleBufferManager.getDroppedBlockIds(appId, 1).getLongCardinality());
+    assertEquals(0, shuffleBufferManager.getDroppedBlockNum(appId, 1));
+  }
+
+    @Test
   public void bufferSizeTest() throws Exception {
     ShuffleServer mockShuffleServer = mock(ShuffleServer.class);
     StorageManager storageManager = StorageManagerFactory.getInstance().createStorageManager("serverId", conf);
@@ -384,6 +495,101 @@ public class ShuffleBufferManagerTest extends BufferTestBase {
     assertEquals(1, shuffleBufferManager.getBufferPool().keySet().size());
   }
 
+  @Test
+  public void appMemoryQuotaTest() {
+    // capacity is 500, high watermark is 400, and single app can't use more than 350
+    conf.set(ShuffleServerConf.SERVER_APP_MEMORY_QUOTA_ENABLE, true);
+    conf.set(ShuffleServerConf.SERVER_APP_MEMORY_HARD_QUOTA_PERCENTAGE, 70.0);
+    conf.set(ShuffleServerConf.SERVER_APP_MEMORY_WEIGHTS, "quotaTestApp3=2");
+    shuffleBufferManager = new ShuffleBufferManager(conf, mockShuffleFlushManager);
+    String appId1 = "quotaTestApp1";
+    String appId2 = "quotaTestApp2";
+    String appId3 = "quotaTestApp3";
+
+    // app1 can borrow the free memory below the high watermark, but not beyond the hard quota
+    assertTrue(shuffleBufferManager.requireMemory(appId1, 100, true));
+    assertTrue(shuffleBufferManager.requireMemory(appId1, 100, true));
+    assertTrue(shuffleBufferManager.requireMemory(appId1, 100, true));
+    assertFalse(shuffleBufferManager.requireMemory(appId1, 60, true));
+    assertTrue(shuffleBufferManager.requireMemory(appId1, 40, true));
+    assertTrue(shuffleBufferManager.requireMemory(appId2, 50, true));
+    assertEquals(390, shuffleBufferManager.getUsedMemory());
+
+    // above the high watermark, app3 is still under its fair share
+    assertTrue(shuffleBufferManager.requireMemory(appId3, 50, true));
+    // app1 is under the hard quota, but it is over the fair share [400 - 50 - 50 = 300]
+    assertFalse(shuffleBufferManager.requireMemory(appId1, 10, true));
+    assertTrue(shuffleBufferManager.requireMemory(appId2, 50, true));
+    assertTrue(shuffleBufferManager.requireMemory(appId3, 10, true));
+    assertEquals(500, shuffleBufferManager.getUsedMemory());
+    assertFalse(shuffleBufferManager.requireMemory(appId3, 1, true));
+
+    // app2 and app3 get their demand, app1 gets the rest of the high watermark
+    assertEquals(340, shuffleBufferManager.getAppUsedMemory(appId1));
+    assertEquals(100, shuffleBufferManager.getAppUsedMemory(appId2));
+    assertEquals(60, shuffleBufferManager.getAppUsedMemory(appId3));
+    Map<String, Long> fairShares = shuffleBufferManager.getFairShares();
+    assertEquals(240, fairShares.get(appId1).longValue());
+    assertEquals(100, fairShares.get(appId2).longValue());
+    assertEquals(60, fairShares.get(appId3).longValue());
+
+    // expired pre allocation of app1 is released, but it is still over the fair share
+    shuffleBufferManager.releaseMemory(appId1, 100, false, true);
+    assertEquals(240, shuffleBufferManager.getAppUsedMemory(appId1));
+    assertFalse(shuffleBufferManager.requireMemory(appId1, 10, true));
+
+    // app2 is finished, app3 with weight 2 gets 2/3 of the high watermark
+    shuffleBufferManager.releaseMemory(appId2, 100, false, true);
+    assertEquals(0, shuffleBufferManager.getAppUsedMemory(appId2));
+    assertTrue(shuffleBufferManager.requireMemory(appId3, 100, true));
+    assertTrue(shuffleBufferManager.requireMemory(appId3, 50, true));
+    assertEquals(210, shuffleBufferManager.getAppUsedMemory(appId3));
+    fairShares = shuffleBufferManager.getFairShares();
+    assertEquals(190, fairShares.get(appId1).longValue());
+    assertEquals(210, fairShares.get(appId3).longValue());
+    assertFalse(fairShares.containsKey(appId2));
+    assertFalse(shuffleBufferManager.requireMemory(appId1, 10, true));
+
+    // pre allocated memory is moved to buffer after data is cached
+    shuffleBufferManager.registerBuffer(appId3, 1, 0, 0);
+    shuffleBufferManager.cacheShuffleData(appId3, 1, true, createData(0, 18));
+    assertEquals(210, shuffleBufferManager.getAppUsedMemory(appId3));
+    assertEquals(50, shuffleBufferManager.getShuffleSizeMap().get(appId3).get(1).get());
+    shuffleBufferManager.removeBuffer(appId3);
+    assertEquals(0, shuffleBufferManager.getAppUsedMemory(appId3));
+  }
+
+  @Test
+  public void appMemoryQuotaFlushTest() {
+    conf.set(ShuffleServerConf.SERVER_APP_MEMORY_QUOTA_ENABLE, true);
+    shuffleBufferManager = new ShuffleBufferManager(conf, mockShuffleFlushManager);
+    String appId1 = "quotaFlushTestApp1";
+    String appId2 = "quotaFlushTestApp2";
+    String appId3 = "quotaFlushTestApp3";
+    for (int shuffleId = 1; shuffleId <= 5; shuffleId++) {
+      shuffleBufferManager.registerBuffer(appId1, shuffleId, 0, 0);
+    }
+    shuffleBufferManager.registerBuffer(appId2, 1, 0, 0);
+    shuffleBufferManager.registerBuffer(appId3, 1, 0, 0);
+
+    shuffleBufferManager.cacheShuffleData(appId2, 1, false, createData(0, 98));
+    shuffleBufferManager.cacheShuffleData(appId3, 1, false, createData(0, 48));
+    for (int shuffleId = 1; shuffleId <= 4; shuffleId++) {
+      shuffleBufferManager.cacheShuffleData(appId1, shuffleId, false, createData(0, 8));
+    }
+    verify(mockShuffleFlushManager, times(0)).addToFlushQueue(any());
+    // app1 uses 200 with the fair share 190, app2 uses 130 and app3 uses 80,
+    // flush is triggered and the small shuffles of app1 are picked before the bigger one of app3
+    shuffleBufferManager.cacheShuffleData(appId1, 5, false, createData(0, 8));
+    verify(mockShuffleFlushManager, times(6)).addToFlushQueue(any());
+    for (int shuffleId = 1; shuffleId <= 5; shuffleId++) {
+      assertEquals(0, shuffleBufferManager.getShuffleBuffer(appId1, shuffleId, 0).getBlocks().size());
+    }
+    assertEquals(0, shuffleBufferManager.getShuffleBuffer(appId2, 1, 0).getBlocks().size());
+    assertEquals(1, shuffleBufferManager.getShuffleBuffer(appId3, 1, 0).getBlocks().size());
+    assertEquals(80, shuffleBufferManager.getAppUsedMemory(appId3));
+  }
+
   private void waitForFlush(ShuffleFlushManager shuffleFlushManager,
       String appId, int shuffleId, int expectedBlockNum) throws Exception {
     int retry = 0;
@@ -20,12 +20,15 @@ package com.tencent.rss.server.buffer;
 
 import com.google.common.collect.Lists;
 import com.tencent.rss.common.BufferSegment;
+import com.tencent.rss.common.RssShuffleUtils;
 import com.tencent.rss.common.ShuffleDataResult;
 import com.tencent.rss.common.ShufflePartitionedBlock;
 import com.tencent.rss.common.ShufflePartitionedData;
+import com.tencent.rss.common.util.ChecksumUtils;
 import com.tencent.rss.common.util.Constants;
 import com.tencent.rss.server.ShuffleDataFlushEvent;
 import org.junit.Test;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
@@ -431,6 +434,99 @@ public class ShuffleBufferTest extends BufferTestBase {
     assertArrayEquals(expectedData, sdr.getData());
   }
 
+  @Test
+  public void getShuffleDataWithTaskIdsTest() {
+    ShuffleBuffer shuffleBuffer = new ShuffleBuffer(1000);
+    ShufflePartitionedData spd1 = createCompressedData(1, 1001, 1L, new byte[]{1, 2, 3});
+    ShufflePartitionedData spd2 = createCompressedData(1, 1002, 2L, new byte[]{4, 5});
+    ShufflePartitionedData spd3 = createCompressedData(1, 1003, 1L, new byte[]{6, 7});
+    ShufflePartitionedData spd4 = createCompressedData(1, 1004, 3L, new byte[]{8});
+    shuffleBuffer.append(spd1);
+    shuffleBuffer.append(spd2);
+    shuffleBuffer.append(spd3);
+    shuffleBuffer.append(spd4);
+    shuffleBuffer.toFlushEvent("appId", 0, 0, 1, null);
+    ShufflePartitionedData spd5 = createCompressedData(1, 1005, 2L, new byte[]{9});
+    ShufflePartitionedData spd6 = createCompressedData(1, 1006, 1L, new byte[]{10, 11});
+    shuffleBuffer.append(spd5);
+    shuffleBuffer.append(spd6);
+
+    // only the blocks of task 1 are returned, both from the in flush blocks and the cached blocks
+    Roaring64NavigableMap expectTaskIds = Roaring64NavigableMap.bitmapOf(1L);
+    ShuffleDataResult sdr = shuffleBuffer.getShuffleData(Constants.INVALID_BLOCK_ID, 1000, null, expectTaskIds);
+    compareBufferSegment(Lists.newArrayList(spd1.getBlockList()[0], spd3.getBlockList()[0],
+        spd6.getBlockList()[0]), sdr.getBufferSegments(), 0, 3);
+    assertArrayEquals(getExpectedData(spd1, spd3, spd6), sdr.getData());
+
+    // read block by block with lastBlockId, the skipped blocks are not counted in the read buffer
+    sdr = shuffleBuffer.getShuffleData(Constants.INVALID_BLOCK_ID, 1, null, expectTaskIds);
+    assertEquals(1, sdr.getBufferSegments().size());
+    assertEquals(1001, sdr.getBufferSegments().get(0).getBlockId());
+    sdr = shuffleBuffer.getShuffleData(1001, 1, null, expectTaskIds);
+    assertEquals(1, sdr.getBufferSegments().size());
+    assertEquals(1003, sdr.getBufferSegments().get(0).getBlockId());
+    sdr = shuffleBuffer.getShuffleData(1003, 1, null, expectTaskIds);
+    assertEquals(1, sdr.getBufferSegments().size());
+    assertEquals(1006, sdr.getBufferSegments().get(0).getBlockId());
+    assertArrayEquals(getExpectedData(spd6), sdr.getData());
+    sdr = shuffleBuffer.getShuffleData(1006, 1, null, expectTaskIds);
+    assertTrue(sdr.isEmpty());
+
+    // no block matches the expected tasks
+    sdr = shuffleBuffer.getShuffleData(
+        Constants.INVALID_BLOCK_ID, 1000, null, Roaring64NavigableMap.bitmapOf(4L));
+    assertTrue(sdr.isEmpty());
+
+    // all the blocks are returned without the expected tasks
+    sdr = shuffleBuffer.getShuffleData(Constants.INVALID_BLOCK_ID, 1000, null, null);
+    assertEquals(6, sdr.getBufferSegments().size());
+    assertArrayEquals(getExpectedData(spd1, spd2, spd3, spd4, spd5, spd6), sdr.getData());
+  }
+
+  @Test
+  public void getShuffleDataWithSpeculativeAttemptsTest() {
+    ShuffleBuffer shuffleBuffer = new ShuffleBuffer(1000);
+    // map task 0 has the original attempt 1 and the speculative attempt 2 with the same data,
+    // map task 1 has the failed attempt 3 and the succeeded attempt 4
+    byte[] mapOutput = new byte[]{1, 2, 3, 4};
+    ShufflePartitionedData attempt1Block1 = createCompressedData(1, 2001, 1L, mapOutput);
+    ShufflePartitionedData attempt2Block1 = createCompressedData(1, 2002, 2L, mapOutput);
+    ShufflePartitionedData attempt3Block1 = createCompressedData(1, 2003, 3L, new byte[]{5, 6});
+    ShufflePartitionedData attempt1Block2 = createCompressedData(1, 2004, 1L, mapOutput);
+    ShufflePartitionedData attempt4Block1 = createCompressedData(1, 2005, 4L, new byte[]{5, 6});
+    ShufflePartitionedData attempt2Block2 = createCompressedData(1, 2006, 2L, mapOutput);
+    shuffleBuffer.append(attempt1Block1);
+    shuffleBuffer.append(attempt2Block1);
+    shuffleBuffer.append(attempt3Block1);
+    shuffleBuffer.toFlushEvent("appId", 0, 0, 1, null);
+    shuffleBuffer.append(attempt1Block2);
+    shuffleBuffer.append(attempt4Block1);
+    shuffleBuffer.append(attempt2Block2);
+
+    // the speculative attempt 2 wins, only the blocks reported by attempt 2 and attempt 4 are expected
+    Roaring64NavigableMap expectBlockIds = Roaring64NavigableMap.bitmapOf(2002, 2005, 2006);
+    ShuffleDataResult sdr = shuffleBuffer.getShuffleData(Constants.INVALID_BLOCK_ID, 1000, expectBlockIds, null);
+    compareBufferSegment(Lists.newArrayList(attempt2Block1.getBlockList()[0], attempt4Block1.getBlockList()[0],
+        attempt2Block2.getBlockList()[0]), sdr.getBufferSegments(), 0, 3);
+    assertArrayEquals(getExpectedData(attempt2Block1, attempt4Block1, attempt2Block2), sdr.getData());
+
+    // page the data with lastBlockId, the duplicated blocks are never returned
+    sdr = shuffleBuffer.getShuffleData(2002, 1, expectBlockIds, null);
+    assertEquals(1, sdr.getBufferSegments().size());
+    assertEquals(2005, sdr.getBufferSegments().get(0).getBlockId());
+    sdr = shuffleBuffer.getShuffleData(2005, 1, expectBlockIds, null);
+    assertEquals(1, sdr.getBufferSegments().size());
+    assertEquals(2006, sdr.getBufferSegments().get(0).getBlockId());
+    assertTrue(shuffleBuffer.getShuffleData(2006, 1, expectBlockIds, null).isEmpty());
+
+    // both the block ids and the task ids are checked
+    sdr = shuffleBuffer.getShuffleData(
+        Constants.INVALID_BLOCK_ID, 1000, expectBlockIds, Roaring64NavigableMap.bitmapOf(4L));
+    assertEquals(1, sdr.getBufferSegments().size());
+    assertEquals(2005, sdr.getBufferSegments().get(0).getBlockId());
+    assertArrayEquals(getExpectedData(attempt4Block1), sdr.getData());
+  }
+
   private byte[] getExpectedData(ShufflePartitionedData... spds ) {
     int size = 0;
     for (ShufflePartitionedData spd : spds) {
@@ -446,6 +542,79 @@ public class ShuffleBufferTest extends BufferTestBase {
     return expectedData;
   }
 
+  @Test
+  public void combineTest() {
+    ShuffleBuffer shuffleBuffer = new ShuffleBuffer(1000, new DistinctCombiner(), 10);
+    shuffleBuffer.append(createCompressedData(1, 1, 1L, new byte[]{1, 2, 3}));
+    shuffleBuffer.append(createCompressedData(1, 2, 2L, new byte[]{1, 2}));
+    shuffleBuffer.append(createCompressedData(1, 3, 1L, new byte[]{3, 4}));
+    shuffleBuffer.append(createCompressedData(1, 4, 1L, new byte[]{2, 5}));
+    shuffleBuffer.append(createCompressedData(1, 5, 3L, new byte[]{2, 5}));
+    long size = shuffleBuffer.getSize();
+
+    // only blocks of the task attempt are combined, blocks of other attempts are kept
+    List<Long> mergedBlockIds = shuffleBuffer.combine(1L);
+    assertEquals(Lists.newArrayList(3L, 4L), mergedBlockIds);
+    // size is kept to release the memory after flush
+    assertEquals(size, shuffleBuffer.getSize());
+    List<ShufflePartitionedBlock> blocks = shuffleBuffer.getBlocks();
+    assertEquals(3, blocks.size());
+    ShufflePartitionedBlock combinedBlock = blocks.get(0);
+    assertEquals(1L, combinedBlock.getBlockId());
+    assertEquals(1L, combinedBlock.getTaskAttemptId());
+    assertEquals(5, combinedBlock.getUncompressLength());
+    assertEquals(ChecksumUtils.getCrc32(combinedBlock.getData()), combinedBlock.getCrc());
+    assertArrayEquals(new byte[]{1, 2, 3, 4, 5},
+        RssShuffleUtils.decompressData(combinedBlock.getData(), combinedBlock.getUncompressLength()));
+    assertEquals(2L, blocks.get(1).getBlockId());
+    assertEquals(5L, blocks.get(2).getBlockId());
+    assertTrue(shuffleBuffer.getCombineSavedLength() > 0);
+
+    // blocks of the task attempt are combined already
+    assertTrue(shuffleBuffer.combine(1L).isEmpty());
+    // single block of task attempt isn't combined
+    assertTrue(shuffleBuffer.combine(2L).isEmpty());
+    assertEquals(3, shuffleBuffer.getBlocks().size());
+
+    // blocks in flush aren't combined
+    shuffleBuffer = new ShuffleBuffer(1000, new DistinctCombiner(), 10);
+    shuffleBuffer.append(createCompressedData(1, 6, 1L, new byte[]{1, 2, 3}));
+    shuffleBuffer.toFlushEvent("appId", 0, 1, 1, null);
+    shuffleBuffer.append(createCompressedData(1, 7, 1L, new byte[]{3, 4}));
+    assertTrue(shuffleBuffer.combine(1L).isEmpty());
+
+    // size is less than threshold
+    shuffleBuffer = new ShuffleBuffer(1000, new DistinctCombiner(), 1000);
+    shuffleBuffer.append(createCompressedData(1, 9, 1L, new byte[]{1, 2, 3}));
+    shuffleBuffer.append(createCompressedData(1, 10, 1L, new byte[]{3, 4}));
+    assertTrue(shuffleBuffer.combine(1L).isEmpty());
+  }
+
+  @Test
+  public void dropBlocksTest() {
+    ShuffleBuffer shuffleBuffer = new ShuffleBuffer(1000);
+    ShufflePartitionedData spd1 = createCompressedData(1, 1, 1L, new byte[]{1, 2});
+    ShufflePartitionedData spd2 = createCompressedData(1, 2, 2L, new byte[]{3, 4});
+    ShufflePartitionedData spd3 = createCompressedData(1, 3, 1L, new byte[]{5, 6});
+    shuffleBuffer.append(spd1);
+    shuffleBuffer.append(spd2);
+    shuffleBuffer.append(spd3);
+    long size = shuffleBuffer.getSize();
+
+    List<ShufflePartitionedBlock> droppedBlocks = shuffleBuffer.dropBlocks(block -> block.getTaskAttemptId() == 1L);
+    assertEquals(Lists.newArrayList(spd1.getBlockList()[0], spd3.getBlockList()[0]), droppedBlocks);
+    // size is reduced, different from combine
+    assertEquals(size - spd1.getBlockList()[0].getSize() - spd3.getBlockList()[0].getSize(),
+        shuffleBuffer.getSize());
+    assertEquals(Lists.newArrayList(spd2.getBlockList()[0]), shuffleBuffer.getBlocks());
+    assertTrue(shuffleBuffer.dropBlocks(block -> block.getTaskAttemptId() == 1L).isEmpty());
+
+    // read buffer won't be changed because reader may have processed some blocks
+    shuffleBuffer.getShuffleData(Constants.INVALID_BLOCK_ID, 1000);
+    assertTrue(shuffleBuffer.dropBlocks(block -> true).isEmpty());
+    assertEquals(1, shuffleBuffer.getBlocks().size());
+  }
+
   private void compareBufferSegment(List<ShufflePartitionedBlock> blocks,
       List<BufferSegment> bufferSegments, int startBlockIndex, int expectedBlockNum) {
     int segmentIndex = 0;
@@ -0,0 +1,84 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.server.storage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.Lists;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.tencent.rss.common.RemoteStorageWriteInfo;
+import com.tencent.rss.common.ShufflePartitionedBlock;
+import com.tencent.rss.server.ShuffleDataFlushEvent;
+import com.tencent.rss.server.ShuffleDataReadEvent;
+import com.tencent.rss.server.ShuffleServerConf;
+import com.tencent.rss.server.ShuffleServerMetrics;
+import com.tencent.rss.storage.common.Storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class HdfsStorageManagerTest {
+
+  @BeforeClass
+  public static void setUp() {
+    ShuffleServerMetrics.register();
+  }
+
+  @Test
+  public void remoteStorageWriteInfoTest() {
+    ShuffleServerConf conf = new ShuffleServerConf();
+    conf.setString(ShuffleServerConf.HDFS_BASE_PATH, "hdfs://ns0/rss");
+    HdfsStorageManager manager = new HdfsStorageManager(conf);
+    // the load is reported under the path assigned by coordinator,
+    // the apps without assigned path are written to the path of server
+    manager.registerRemoteStorage("app1", "hdfs://ns1/rss");
+    manager.registerRemoteStorage("app2", "");
+
+    ShuffleDataFlushEvent event1 = createEvent("app1", 100);
+    ShuffleDataFlushEvent event2 = createEvent("app2", 300);
+    manager.updateWriteMetrics(event1, 10);
+    manager.updateWriteMetrics(event1, 20);
+    manager.updateWriteMetrics(event2, 30);
+
+    Map<String, RemoteStorageWriteInfo> writeInfos = manager.getRemoteStorageWriteInfos().stream()
+        .collect(Collectors.toMap(RemoteStorageWriteInfo::getPath, info -> info));
+    assertEquals(2, writeInfos.size());
+    assertEquals(200, writeInfos.get("hdfs://ns1/rss").getWriteBytes());
+    assertEquals(30, writeInfos.get("hdfs://ns1/rss").getWriteTimeMs());
+    assertEquals(2, writeInfos.get("hdfs://ns1/rss").getWriteCount());
+    assertEquals(300, writeInfos.get("hdfs://ns0/rss").getWriteBytes());
+    assertEquals(1, writeInfos.get("hdfs://ns0/rss").getWriteCount());
+
+    Storage storage1 = manager.selectStorage(event1);
+    assertSame(storage1, manager.selectStorage(new ShuffleDataReadEvent("app1", 1, 1)));
+    assertNotSame(storage1, manager.selectStorage(event2));
+    manager.stop();
+  }
+
+  private ShuffleDataFlushEvent createEvent(String appId, long size) {
+    List<ShufflePartitionedBlock> blocks = Lists.newArrayList(
+        new ShufflePartitionedBlock((int) size, (int) size, 1, 1, 1L, new byte[(int) size]));
+    return new ShuffleDataFlushEvent(1, appId, 1, 1, 1, size, blocks, null, null);
+  }
+}
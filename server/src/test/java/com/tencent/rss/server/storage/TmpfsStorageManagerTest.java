@@ -0,0 +1,191 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.server.storage;
+
+import java.io.File;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.tencent.rss.common.ShufflePartitionedBlock;
+import com.tencent.rss.common.util.RssUtils;
+import com.tencent.rss.server.ShuffleDataFlushEvent;
+import com.tencent.rss.server.ShuffleDataReadEvent;
+import com.tencent.rss.server.ShuffleServerConf;
+import com.tencent.rss.server.ShuffleServerMetrics;
+import com.tencent.rss.storage.common.LocalStorage;
+import com.tencent.rss.storage.common.Storage;
+import com.tencent.rss.storage.handler.api.ShuffleWriteHandler;
+import com.tencent.rss.storage.request.CreateShuffleWriteHandlerRequest;
+import com.tencent.rss.storage.util.ShuffleStorageUtils;
+import com.tencent.rss.storage.util.StorageType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TmpfsStorageManagerTest {
+
+  @ClassRule
+  public static final TemporaryFolder tmpDir = new TemporaryFolder();
+
+  @BeforeClass
+  public static void setUp() {
+    ShuffleServerMetrics.register();
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    tmpDir.delete();
+  }
+
+  @Test
+  public void demoteShuffleTest() throws Exception {
+    File tmpfs = tmpDir.newFolder("tmpfs");
+    File disk = tmpDir.newFolder("disk");
+    ShuffleServerConf conf = createConf(tmpfs, disk);
+    // the shuffle is demoted by size only
+    conf.setLong(ShuffleServerConf.TMPFS_DEMOTE_AGE_MS, 60L * 1000L);
+    conf.setLong(ShuffleServerConf.TMPFS_DEMOTE_SHUFFLE_SIZE, 150L);
+    TmpfsStorageManager manager = new TmpfsStorageManager(conf);
+    ShuffleDemoter demoter = manager.getDemoters().get(0);
+    String shuffleKey = RssUtils.generateShuffleKey("app1", 1);
+
+    Storage tmpfsStorage = write(manager, createEvent(1, 100));
+    assertEquals(tmpfs.getAbsolutePath(), ((LocalStorage) tmpfsStorage).getBasePath());
+    File tmpfsRangeFolder = getRangeFolder(tmpfs, 1);
+    assertEquals(100, getDataFile(tmpfsRangeFolder).length());
+    assertTrue(demoter.selectShuffleKeys(false).isEmpty());
+
+    write(manager, createEvent(2, 100));
+    assertEquals(200, getDataFile(tmpfsRangeFolder).length());
+    assertEquals(Lists.newArrayList(shuffleKey), demoter.selectShuffleKeys(false));
+
+    demoter.demote();
+    assertTrue(manager.isDemoted(shuffleKey));
+    assertFalse(tmpfsRangeFolder.exists());
+    File diskRangeFolder = getRangeFolder(disk, 1);
+    assertEquals(200, getDataFile(diskRangeFolder).length());
+    assertEquals(0, ((LocalStorage) tmpfsStorage).getDiskSize());
+    Storage diskStorage = manager.selectStorage(new ShuffleDataReadEvent("app1", 1, 1));
+    assertNotSame(tmpfsStorage, diskStorage);
+    assertEquals(200, ((LocalStorage) diskStorage).getDiskSize());
+
+    // the following data is appended to the demoted files on disk
+    assertSame(diskStorage, write(manager, createEvent(3, 100)));
+    assertEquals(300, getDataFile(diskRangeFolder).length());
+    assertFalse(tmpfsRangeFolder.exists());
+
+    // the data is written to disk even if tmpfs was selected before the shuffle was demoted
+    ShuffleDataFlushEvent event = createEvent(4, 100);
+    ShuffleWriteHandler tmpfsHandler = tmpfsStorage.getOrCreateWriteHandler(createRequest(event));
+    assertTrue(manager.write(tmpfsStorage, tmpfsHandler, event));
+    assertEquals(400, getDataFile(diskRangeFolder).length());
+    assertFalse(tmpfsRangeFolder.exists());
+  }
+
+  @Test
+  public void forceDemoteTest() throws Exception {
+    File tmpfs = tmpDir.newFolder("tmpfs2");
+    File disk = tmpDir.newFolder("disk2");
+    ShuffleServerConf conf = createConf(tmpfs, disk);
+    conf.setLong(ShuffleServerConf.TMPFS_CAPACITY, 1000L);
+    TmpfsStorageManager manager = new TmpfsStorageManager(conf);
+    ShuffleDemoter demoter = manager.getDemoters().get(0);
+
+    LocalStorage tmpfsStorage = (LocalStorage) write(manager, createEvent(1, 500));
+    assertTrue(tmpfsStorage.canWrite());
+    write(manager, createEvent(2, 500));
+    assertFalse(tmpfsStorage.canWrite());
+    // the shuffle isn't old or large, but tmpfs is above the high water mark
+    assertTrue(demoter.selectShuffleKeys(false).isEmpty());
+    demoter.demote();
+    assertTrue(manager.isDemoted(RssUtils.generateShuffleKey("app1", 1)));
+    assertTrue(tmpfsStorage.canWrite());
+    assertEquals(1000, getDataFile(getRangeFolder(disk, 1)).length());
+  }
+
+  @Test
+  public void skipShuffleInWritingTest() throws Exception {
+    File tmpfs = tmpDir.newFolder("tmpfs3");
+    File disk = tmpDir.newFolder("disk3");
+    ShuffleServerConf conf = createConf(tmpfs, disk);
+    conf.setLong(ShuffleServerConf.TMPFS_DEMOTE_AGE_MS, 1L);
+    TmpfsStorageManager manager = new TmpfsStorageManager(conf);
+    ShuffleDemoter demoter = manager.getDemoters().get(0);
+    String shuffleKey = RssUtils.generateShuffleKey("app1", 1);
+
+    Storage tmpfsStorage = write(manager, createEvent(1, 100));
+    Thread.sleep(10);
+    assertEquals(Lists.newArrayList(shuffleKey), demoter.selectShuffleKeys(false));
+    // the shuffle can't be demoted while it is written
+    assertTrue(tmpfsStorage.lockShuffleShared(shuffleKey));
+    assertFalse(demoter.demoteShuffle(shuffleKey));
+    assertFalse(manager.isDemoted(shuffleKey));
+    tmpfsStorage.unlockShuffleShared(shuffleKey);
+    assertTrue(demoter.demoteShuffle(shuffleKey));
+    assertTrue(manager.isDemoted(shuffleKey));
+    assertEquals(100, getDataFile(getRangeFolder(disk, 1)).length());
+  }
+
+  private ShuffleServerConf createConf(File tmpfs, File disk) {
+    ShuffleServerConf conf = new ShuffleServerConf();
+    conf.setString(ShuffleServerConf.RSS_STORAGE_TYPE, StorageType.MEMORY_TMPFS_LOCALFILE.name());
+    conf.setString(ShuffleServerConf.RSS_STORAGE_BASE_PATH, disk.getAbsolutePath());
+    conf.setLong(ShuffleServerConf.DISK_CAPACITY, 1024L * 1024L);
+    conf.setString(ShuffleServerConf.TMPFS_BASE_PATH, tmpfs.getAbsolutePath());
+    conf.setLong(ShuffleServerConf.TMPFS_CAPACITY, 1024L * 1024L);
+    return conf;
+  }
+
+  private ShuffleDataFlushEvent createEvent(long blockId, int length) {
+    List<ShufflePartitionedBlock> blocks = Lists.newArrayList(
+        new ShufflePartitionedBlock(length, length, 1, blockId, 1L, new byte[length]));
+    return new ShuffleDataFlushEvent(blockId, "app1", 1, 1, 1, length, blocks, null, null);
+  }
+
+  private CreateShuffleWriteHandlerRequest createRequest(ShuffleDataFlushEvent event) {
+    return new CreateShuffleWriteHandlerRequest(StorageType.MEMORY_TMPFS_LOCALFILE.name(), event.getAppId(),
+        event.getShuffleId(), event.getStartPartition(), event.getEndPartition(), new String[0], "test", null, 1);
+  }
+
+  // write the event in the same way as ShuffleFlushManager
+  private Storage write(TmpfsStorageManager manager, ShuffleDataFlushEvent event) throws Exception {
+    Storage storage = manager.selectStorage(event);
+    ShuffleWriteHandler handler = storage.getOrCreateWriteHandler(createRequest(event));
+    assertTrue(manager.write(storage, handler, event));
+    return storage;
+  }
+
+  private File getRangeFolder(File basePath, int partition) {
+    return new File(ShuffleStorageUtils.getFullShuffleDataFolder(basePath.getAbsolutePath(),
+        ShuffleStorageUtils.getShuffleDataPath("app1", 1, partition, partition)));
+  }
+
+  private File getDataFile(File rangeFolder) {
+    return new File(rangeFolder, ShuffleStorageUtils.generateDataFileName("test"));
+  }
+}
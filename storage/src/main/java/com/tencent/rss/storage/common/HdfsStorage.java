@@ -23,6 +23,7 @@ import org.apache.hadoop.conf.Configuration;
 import com.tencent.rss.storage.handler.api.ServerReadHandler;
 import com.tencent.rss.storage.handler.api.ShuffleWriteHandler;
 import com.tencent.rss.storage.handler.impl.HdfsShuffleWriteHandler;
+import com.tencent.rss.storage.handler.impl.HdfsWriterCache;
 import com.tencent.rss.storage.request.CreateShuffleReadHandlerRequest;
 import com.tencent.rss.storage.request.CreateShuffleWriteHandlerRequest;
 
@@ -30,10 +31,17 @@ public class HdfsStorage extends AbstractStorage {
 
   private final String storagePath;
   private final Configuration conf;
+  // writers are kept open across flushes if writerCache isn't null
+  private final HdfsWriterCache writerCache;
 
   public HdfsStorage(String path, Configuration conf) {
+    this(path, conf, null);
+  }
+
+  public HdfsStorage(String path, Configuration conf, HdfsWriterCache writerCache) {
     this.storagePath = path;
     this.conf = conf;
+    this.writerCache = writerCache;
   }
 
   @Override
@@ -81,7 +89,8 @@ public class HdfsStorage extends AbstractStorage {
           request.getEndPartition(),
           storagePath,
           request.getFileNamePrefix(),
-          request.getConf()
+          request.getConf(),
+          writerCache
       );
     } catch (Exception e) {
       throw new RuntimeException(e);
@@ -97,4 +106,18 @@ public class HdfsStorage extends AbstractStorage {
   public void createMetadataIfNotExist(String shuffleKey) {
     // do nothing
   }
+
+  @Override
+  public void removeHandlers(String appId) {
+    if (writerCache != null) {
+      writerCache.closeHandlers(appId);
+    }
+    super.removeHandlers(appId);
+  }
+
+  public void close() {
+    if (writerCache != null) {
+      writerCache.close();
+    }
+  }
 }
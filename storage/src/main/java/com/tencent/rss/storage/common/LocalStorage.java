@@ -21,24 +21,30 @@ package com.tencent.rss.storage.common;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Supplier;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
 import org.apache.commons.io.FileUtils;
 import org.roaringbitmap.RoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.tencent.rss.common.util.Constants;
 import com.tencent.rss.common.util.RssUtils;
 import com.tencent.rss.storage.handler.api.ServerReadHandler;
 import com.tencent.rss.storage.handler.api.ShuffleWriteHandler;
+import com.tencent.rss.storage.handler.impl.LocalFileSegmentLog;
 import com.tencent.rss.storage.handler.impl.LocalFileServerReadHandler;
 import com.tencent.rss.storage.handler.impl.LocalFileWriteHandler;
 import com.tencent.rss.storage.request.CreateShuffleReadHandlerRequest;
 import com.tencent.rss.storage.request.CreateShuffleWriteHandlerRequest;
+import com.tencent.rss.storage.util.ShuffleStorageUtils;
 
 public class LocalStorage extends AbstractStorage {
 
@@ -52,6 +58,9 @@ public class LocalStorage extends AbstractStorage {
   private final double lowWaterMarkOfWrite;
   private final long shuffleExpiredTimeoutMs;
   private final Queue<String> expiredShuffleKeys = Queues.newLinkedBlockingQueue();
+  private final boolean segmentLogEnabled;
+  // shuffle key -> data file shared by all partition ranges of the shuffle
+  private final Map<String, LocalFileSegmentLog> segmentLogs = Maps.newConcurrentMap();
 
   private LocalStorageMeta metaData = new LocalStorageMeta();
   private boolean isSpaceEnough = true;
@@ -66,6 +75,7 @@ public class LocalStorage extends AbstractStorage {
     this.lowWaterMarkOfWrite = builder.lowWaterMarkOfWrite;
     this.capacity = builder.capacity;
     this.shuffleExpiredTimeoutMs = builder.shuffleExpiredTimeoutMs;
+    this.segmentLogEnabled = builder.segmentLogEnabled;
 
     File baseFolder = new File(basePath);
     try {
@@ -137,15 +147,61 @@ public class LocalStorage extends AbstractStorage {
 
   @Override
   ShuffleWriteHandler newWriteHandler(CreateShuffleWriteHandlerRequest request) {
+    Supplier<LocalFileSegmentLog> segmentLogSupplier = null;
+    if (segmentLogEnabled) {
+      // the log is closed and removed with the shuffle, so the handler must get it for every write
+      String shuffleKey = RssUtils.generateShuffleKey(request.getAppId(), request.getShuffleId());
+      File logFile = new File(ShuffleStorageUtils.getFullShuffleDataFolder(basePath, shuffleKey),
+          LocalFileSegmentLog.FILE_NAME);
+      segmentLogSupplier = () -> getOrCreateSegmentLog(shuffleKey, logFile);
+    }
     return new LocalFileWriteHandler(request.getAppId(),
         request.getShuffleId(),
         request.getStartPartition(),
         request.getEndPartition(),
         basePath,
-        request.getFileNamePrefix()
+        request.getFileNamePrefix(),
+        segmentLogSupplier
     );
   }
 
+  // The log is created under the shuffle lock which removeResources holds to close it, and only if
+  // the shuffle metadata and folder still exist, so a flush racing with the removal of the shuffle
+  // can't recreate a log which is never closed in a deleted folder.
+  private LocalFileSegmentLog getOrCreateSegmentLog(String shuffleKey, File logFile) {
+    ReadWriteLock lock = getLock(shuffleKey);
+    if (lock == null) {
+      return null;
+    }
+    lock.readLock().lock();
+    try {
+      if (lock != getLock(shuffleKey) || !logFile.getParentFile().exists()) {
+        return null;
+      }
+      return segmentLogs.computeIfAbsent(shuffleKey, key -> new LocalFileSegmentLog(logFile));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void removeHandlers(String appId) {
+    super.removeHandlers(appId);
+    String prefix = appId + Constants.KEY_SPLIT_CHAR;
+    for (String shuffleKey : segmentLogs.keySet()) {
+      if (shuffleKey.startsWith(prefix)) {
+        closeSegmentLog(shuffleKey);
+      }
+    }
+  }
+
+  private void closeSegmentLog(String shuffleKey) {
+    LocalFileSegmentLog segmentLog = segmentLogs.remove(shuffleKey);
+    if (segmentLog != null) {
+      segmentLog.close();
+    }
+  }
+
   @Override
   protected ServerReadHandler newReadHandler(CreateShuffleReadHandlerRequest request) {
     return new LocalFileServerReadHandler(
@@ -250,6 +306,7 @@ public class LocalStorage extends AbstractStorage {
       try {
         metaData.updateDiskSize(-metaData.getShuffleSize(shuffleKey));
         metaData.remoteShuffle(shuffleKey);
+        closeSegmentLog(shuffleKey);
         LOG.info("Finish remove resource of {}, disk size is {} and {} shuffle metadata",
             shuffleKey, metaData.getDiskSize(), metaData.getShuffleMetaSet().size());
       } catch (Exception e) {
@@ -306,6 +363,7 @@ public class LocalStorage extends AbstractStorage {
     private String basePath;
     private long cleanIntervalMs;
     private long shuffleExpiredTimeoutMs;
+    private boolean segmentLogEnabled;
 
     private Builder() {
     }
@@ -345,6 +403,11 @@ public class LocalStorage extends AbstractStorage {
       return this;
     }
 
+    public Builder segmentLogEnabled(boolean segmentLogEnabled) {
+      this.segmentLogEnabled = segmentLogEnabled;
+      return this;
+    }
+
     public LocalStorage build() {
       return new LocalStorage(this);
     }
@@ -18,16 +18,18 @@
 
 package com.tencent.rss.storage.common;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.stream.Collectors;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.roaringbitmap.RoaringBitmap;
 import org.slf4j.Logger;
@@ -45,27 +47,26 @@ public class LocalStorageMeta {
   private static final Logger LOG = LoggerFactory.getLogger(LocalStorageMeta.class);
   private final AtomicLong size = new AtomicLong(0L);
   private final Map<String, ShuffleMeta> shuffleMetaMap = Maps.newConcurrentMap();
+  // shuffles ordered by size desc, it is updated with the shuffle size instead of sorting all shuffles
+  private final NavigableSet<SizeIndex> sortedShuffles = new ConcurrentSkipListSet<>(
+      Comparator.comparingLong((SizeIndex index) -> index.size).reversed().thenComparing(index -> index.shuffleKey));
 
-  // todo: add ut
   public List<String> getSortedShuffleKeys(boolean checkRead, int hint) {
     // Filter the unread shuffle is checkRead is true
     // Filter the remain size is 0
-    List<Map.Entry<String, ShuffleMeta>> shuffleMetaList = shuffleMetaMap
-        .entrySet()
-        .stream()
-        .filter(e -> (!checkRead || e.getValue().isStartRead.get()) && e.getValue().getNotUploadedSize() > 0)
-        .collect(Collectors.toList());
-
-      shuffleMetaList.sort((Entry<String, ShuffleMeta> o1, Entry<String, ShuffleMeta> o2) -> {
-        long sz1 = o1.getValue().getSize().longValue();
-        long sz2 = o2.getValue().getSize().longValue();
-        return -Long.compare(sz1, sz2);
-      });
-
-    return shuffleMetaList
-        .subList(0, Math.min(shuffleMetaList.size(), hint))
-        .stream()
-        .map(Entry::getKey).collect(Collectors.toList());
+    List<String> shuffleKeys = Lists.newArrayList();
+    for (SizeIndex index : sortedShuffles) {
+      if (shuffleKeys.size() >= hint) {
+        break;
+      }
+      ShuffleMeta shuffleMeta = shuffleMetaMap.get(index.shuffleKey);
+      if (shuffleMeta != null
+          && (!checkRead || shuffleMeta.isStartRead())
+          && shuffleMeta.getNotUploadedSize() > 0) {
+        shuffleKeys.add(index.shuffleKey);
+      }
+    }
+    return shuffleKeys;
   }
 
   public RoaringBitmap getNotUploadedPartitions(String shuffleKey) {
@@ -99,7 +100,18 @@ public class LocalStorageMeta {
 
   public long updateShuffleSize(String shuffleId, long delta) {
     ShuffleMeta shuffleMeta = getShuffleMeta(shuffleId);
-    return shuffleMeta == null ? 0 : shuffleMeta.getSize().addAndGet(delta);
+    if (shuffleMeta == null) {
+      return 0;
+    }
+    synchronized (shuffleMeta) {
+      long size = shuffleMeta.getSize().addAndGet(delta);
+      if (shuffleMeta.sizeIndex != null) {
+        sortedShuffles.remove(shuffleMeta.sizeIndex);
+        shuffleMeta.sizeIndex = new SizeIndex(shuffleId, size);
+        sortedShuffles.add(shuffleMeta.sizeIndex);
+      }
+      return size;
+    }
   }
 
   public long updateUploadedShuffleSize(String shuffleKey, long delta) {
@@ -145,7 +157,15 @@ public class LocalStorageMeta {
   }
 
   public void remoteShuffle(String shuffleKey) {
-    shuffleMetaMap.remove(shuffleKey);
+    ShuffleMeta shuffleMeta = shuffleMetaMap.remove(shuffleKey);
+    if (shuffleMeta != null) {
+      synchronized (shuffleMeta) {
+        if (shuffleMeta.sizeIndex != null) {
+          sortedShuffles.remove(shuffleMeta.sizeIndex);
+          shuffleMeta.sizeIndex = null;
+        }
+      }
+    }
   }
 
   public AtomicLong getDiskSize() {
@@ -181,6 +201,13 @@ public class LocalStorageMeta {
     ShuffleMeta meta = new ShuffleMeta();
     ShuffleMeta oldMeta = shuffleMetaMap.putIfAbsent(shuffleKey, meta);
     if (oldMeta == null) {
+      synchronized (meta) {
+        // the shuffle may be removed concurrently
+        if (shuffleMetaMap.get(shuffleKey) == meta) {
+          meta.sizeIndex = new SizeIndex(shuffleKey, meta.getSize().get());
+          sortedShuffles.add(meta.sizeIndex);
+        }
+      }
       LOG.info("Create metadata of shuffle {}.", shuffleKey);
     }
   }
@@ -219,6 +246,8 @@ public class LocalStorageMeta {
     private final AtomicBoolean isStartRead = new AtomicBoolean(false);
     private final RoaringBitmap uploadedPartitionBitmap = RoaringBitmap.bitmapOf();
     private AtomicLong lastReadTs = new AtomicLong(-1L);
+    // current entry in sortedShuffles, null if the shuffle is removed
+    private SizeIndex sizeIndex;
 
     public AtomicLong getSize() {
       return size;
@@ -253,4 +282,14 @@ public class LocalStorageMeta {
       return lock;
     }
   }
+
+  private static class SizeIndex {
+    private final String shuffleKey;
+    private final long size;
+
+    SizeIndex(String shuffleKey, long size) {
+      this.shuffleKey = shuffleKey;
+      this.size = size;
+    }
+  }
 }
@@ -74,7 +74,7 @@ public class ShuffleHandlerFactory {
       return new LocalFileQuorumClientReadHandler(request.getAppId(), request.getShuffleId(), request.getPartitionId(),
           request.getIndexReadLimit(), request.getPartitionNumPerRange(), request.getPartitionNum(),
           request.getReadBufferSize(), request.getExpectBlockIds(), request.getProcessBlockIds(),
-          shuffleServerClients);
+          shuffleServerClients, request.getExpectTaskIds());
     } else if (StorageType.LOCALFILE_HDFS.name().equals(request.getStorageType())) {
       List<ShuffleServerInfo> shuffleServerInfoList = request.getShuffleServerInfoList();
       List<ShuffleServerClient> shuffleServerClients = shuffleServerInfoList.stream().map(
@@ -92,7 +92,8 @@ public class ShuffleHandlerFactory {
             request.getReadBufferSize(),
             request.getExpectBlockIds(),
             request.getProcessBlockIds(),
-            shuffleServerClients);
+            shuffleServerClients,
+            request.getExpectTaskIds());
       }, () -> {
         return new HdfsClientReadHandler(
             request.getAppId(),
@@ -125,7 +126,8 @@ public class ShuffleHandlerFactory {
           request.getReadBufferSize(),
           request.getExpectBlockIds(),
           request.getProcessBlockIds(),
-          shuffleServerClients);
+          shuffleServerClients,
+          request.getExpectTaskIds());
       }, () -> {
         return new HdfsClientReadHandler(
             request.getAppId(),
@@ -153,7 +155,9 @@ public class ShuffleHandlerFactory {
             request.getStorageBasePath(),
             request.getHadoopConf());
       });
-    } else if (StorageType.MEMORY_LOCALFILE.name().equals(request.getStorageType())) {
+    } else if (StorageType.MEMORY_LOCALFILE.name().equals(request.getStorageType())
+        || StorageType.MEMORY_TMPFS_LOCALFILE.name().equals(request.getStorageType())) {
+      // the shuffle server reads the data from tmpfs or local disk, where the shuffle is stored at present
       List<ShuffleServerInfo> shuffleServerInfoList = request.getShuffleServerInfoList();
       List<ShuffleServerClient> shuffleServerClients = shuffleServerInfoList.stream().map(
           ssi -> ShuffleServerClientFactory.getInstance().getShuffleServerClient(
@@ -164,12 +168,14 @@ public class ShuffleHandlerFactory {
           request.getShuffleId(),
           request.getPartitionId(),
           request.getReadBufferSize(),
-          shuffleServerClients);
+          shuffleServerClients,
+          request.getExpectBlockIds(),
+          request.getExpectTaskIds());
       ClientReadHandler localClientReadHandler = new LocalFileQuorumClientReadHandler(request.getAppId(),
           request.getShuffleId(), request.getPartitionId(), request.getIndexReadLimit(),
           request.getPartitionNumPerRange(), request.getPartitionNum(),
           request.getReadBufferSize(), request.getExpectBlockIds(), request.getProcessBlockIds(),
-          shuffleServerClients);
+          shuffleServerClients, request.getExpectTaskIds());
       return new ComposedClientReadHandler(memoryClientReadHandler, localClientReadHandler);
     } else if (StorageType.MEMORY_HDFS.name().equals(request.getStorageType())) {
       List<ShuffleServerInfo> shuffleServerInfoList = request.getShuffleServerInfoList();
@@ -183,7 +189,9 @@ public class ShuffleHandlerFactory {
           request.getShuffleId(),
           request.getPartitionId(),
           request.getReadBufferSize(),
-          shuffleServerClients);
+          shuffleServerClients,
+          request.getExpectBlockIds(),
+          request.getExpectTaskIds());
       }, () -> {
         return new HdfsClientReadHandler(
             request.getAppId(),
@@ -210,13 +218,15 @@ public class ShuffleHandlerFactory {
             request.getShuffleId(),
             request.getPartitionId(),
             request.getReadBufferSize(),
-            shuffleServerClients);
+            shuffleServerClients,
+            request.getExpectBlockIds(),
+            request.getExpectTaskIds());
       }, () -> {
         return new LocalFileQuorumClientReadHandler(request.getAppId(),
             request.getShuffleId(), request.getPartitionId(), request.getIndexReadLimit(),
             request.getPartitionNumPerRange(), request.getPartitionNum(),
             request.getReadBufferSize(), request.getExpectBlockIds(), request.getProcessBlockIds(),
-            shuffleServerClients);
+            shuffleServerClients, request.getExpectTaskIds());
       }, () -> {
         return  new HdfsClientReadHandler(
             request.getAppId(),
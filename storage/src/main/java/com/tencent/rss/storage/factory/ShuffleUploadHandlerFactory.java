@@ -47,7 +47,10 @@ public class ShuffleUploadHandlerFactory {
           request.getHadoopConf(),
           request.getHdfsFilePrefix(),
           request.getBufferSize(),
-          request.getCombineUpload());
+          request.getCombineUpload(),
+          request.getRateLimiter(),
+          request.getVerifyChecksum(),
+          request.getRetryTimes());
     } else {
       throw new RuntimeException("Unsupported remote storage type " + request.getRemoteStorageType().name());
     }
@@ -25,6 +25,7 @@ import org.roaringbitmap.longlong.Roaring64NavigableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.tencent.rss.common.BufferSegment;
 import com.tencent.rss.common.ShuffleDataResult;
 import com.tencent.rss.common.ShuffleDataSegment;
 import com.tencent.rss.common.ShuffleIndexResult;
@@ -38,6 +39,10 @@ public abstract class DataSkippableReadHandler extends AbstractClientReadHandler
 
   protected Roaring64NavigableMap expectBlockIds;
   protected Roaring64NavigableMap processBlockIds;
+  // the following segments are coalesced into one read if the gap between them isn't larger than
+  // coalesceGapSize and the coalesced length isn't larger than coalesceMaxSize, 0 means disabled
+  protected long coalesceGapSize = 0;
+  protected long coalesceMaxSize = 0;
 
   public DataSkippableReadHandler(
     String appId,
@@ -59,35 +64,101 @@ public abstract class DataSkippableReadHandler extends AbstractClientReadHandler
   protected abstract ShuffleDataResult readShuffleData(ShuffleDataSegment segment);
 
   public ShuffleDataResult readShuffleData() {
+    ShuffleDataSegment segment = nextShuffleDataSegment(null);
+    if (segment == null) {
+      return null;
+    }
+    return readShuffleData(segment);
+  }
+
+  /**
+   * Read the index and split it into segments if it isn't done yet.
+   *
+   * @return false if there is no index data
+   */
+  public boolean initShuffleDataSegments() {
     if (shuffleDataSegments.isEmpty()) {
       ShuffleIndexResult shuffleIndexResult = readShuffleIndex();
       if (shuffleIndexResult == null || shuffleIndexResult.isEmpty()) {
-        return null;
+        return false;
       }
 
       shuffleDataSegments = RssUtils.transIndexDataToSegments(shuffleIndexResult, readBufferSize);
     }
+    return true;
+  }
+
+  /**
+   * Move to the next segment which has expected and unprocessed blocks.
+   *
+   * @param skipBlockIds blocks which are treated as processed, eg, they are being read by others, can be null
+   * @return null if there is no segment to read
+   */
+  public ShuffleDataSegment nextShuffleDataSegment(Roaring64NavigableMap skipBlockIds) {
+    if (!initShuffleDataSegments()) {
+      return null;
+    }
 
     // We should skip unexpected and processed segments when handler is read
-    ShuffleDataResult result = null;
     while (segmentIndex < shuffleDataSegments.size()) {
       ShuffleDataSegment segment = shuffleDataSegments.get(segmentIndex);
-      Roaring64NavigableMap blocksOfSegment = Roaring64NavigableMap.bitmapOf();
-      segment.getBufferSegments().forEach(block -> blocksOfSegment.addLong(block.getBlockId()));
-      // skip unexpected blockIds
-      blocksOfSegment.and(expectBlockIds);
-      if (!blocksOfSegment.isEmpty()) {
-        // skip processed blockIds
-        blocksOfSegment.or(processBlockIds);
-        blocksOfSegment.xor(processBlockIds);
-        if (!blocksOfSegment.isEmpty()) {
-          result = readShuffleData(segment);
-          segmentIndex++;
-          break;
-        }
-      }
       segmentIndex++;
+      if (hasBlocksToRead(segment, skipBlockIds)) {
+        return coalesceMaxSize > 0 ? coalesceSegments(segment, skipBlockIds) : segment;
+      }
+    }
+    return null;
+  }
+
+  private boolean hasBlocksToRead(ShuffleDataSegment segment, Roaring64NavigableMap skipBlockIds) {
+    Roaring64NavigableMap blocksOfSegment = Roaring64NavigableMap.bitmapOf();
+    segment.getBufferSegments().forEach(block -> blocksOfSegment.addLong(block.getBlockId()));
+    // skip unexpected blockIds
+    blocksOfSegment.and(expectBlockIds);
+    if (blocksOfSegment.isEmpty()) {
+      return false;
+    }
+    // skip processed blockIds
+    blocksOfSegment.andNot(processBlockIds);
+    if (skipBlockIds != null) {
+      blocksOfSegment.andNot(skipBlockIds);
+    }
+    return !blocksOfSegment.isEmpty();
+  }
+
+  /**
+   * Plan one read for the first segment and the following nearby segments which should be read.
+   * The skipped segments and the gaps between them are read as holes which aren't referred by any block.
+   */
+  private ShuffleDataSegment coalesceSegments(ShuffleDataSegment first, Roaring64NavigableMap skipBlockIds) {
+    List<ShuffleDataSegment> coalesced = Lists.newArrayList(first);
+    long end = first.getOffset() + first.getLength();
+    for (int i = segmentIndex; i < shuffleDataSegments.size(); i++) {
+      ShuffleDataSegment segment = shuffleDataSegments.get(i);
+      long gap = segment.getOffset() - end;
+      long segmentEnd = segment.getOffset() + segment.getLength();
+      if (gap < 0 || gap > coalesceGapSize
+          || segmentEnd - first.getOffset() > Math.min(coalesceMaxSize, Integer.MAX_VALUE)) {
+        break;
+      }
+      if (hasBlocksToRead(segment, skipBlockIds)) {
+        coalesced.add(segment);
+        end = segmentEnd;
+        // the skipped segments before it are consumed too
+        segmentIndex = i + 1;
+      }
+    }
+    if (coalesced.size() == 1) {
+      return first;
+    }
+    List<BufferSegment> bufferSegments = Lists.newArrayList();
+    for (ShuffleDataSegment segment : coalesced) {
+      int shift = (int) (segment.getOffset() - first.getOffset());
+      for (BufferSegment bs : segment.getBufferSegments()) {
+        bufferSegments.add(new BufferSegment(bs.getBlockId(), bs.getOffset() + shift, bs.getLength(),
+            bs.getUncompressLength(), bs.getCrc(), bs.getTaskAttemptId()));
+      }
     }
-    return result;
+    return new ShuffleDataSegment(first.getOffset(), (int) (end - first.getOffset()), bufferSegments);
   }
 }
@@ -19,10 +19,17 @@
 package com.tencent.rss.storage.handler.impl;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
@@ -33,6 +40,8 @@ import org.slf4j.LoggerFactory;
 
 import com.tencent.rss.common.BufferSegment;
 import com.tencent.rss.common.ShuffleDataResult;
+import com.tencent.rss.common.ShuffleDataSegment;
+import com.tencent.rss.common.exception.RssException;
 import com.tencent.rss.common.util.Constants;
 import com.tencent.rss.storage.util.ShuffleStorageUtils;
 
@@ -40,6 +49,17 @@ public class HdfsClientReadHandler extends AbstractClientReadHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(HdfsClientReadHandler.class);
 
+  // the options are read from the hadoop conf, eg, spark.hadoop.rss.client.read.hdfs.parallelism for spark,
+  // files are opened and read one by one if the parallelism is 1
+  public static final String READ_PARALLELISM = "rss.client.read.hdfs.parallelism";
+  public static final int READ_PARALLELISM_DEFAULT = 4;
+  // max size of the segments which are being read or waiting to be consumed
+  public static final String READ_MAX_INFLIGHT_SIZE = "rss.client.read.hdfs.max.inflight.size";
+  public static final long READ_MAX_INFLIGHT_SIZE_DEFAULT = 128L * 1024 * 1024;
+
+  private static final ExecutorService READ_EXECUTOR = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("hdfs-client-read-%d").build());
+
   protected final int partitionNumPerRange;
   protected final int partitionNum;
   protected final int readBufferSize;
@@ -49,6 +69,13 @@ public class HdfsClientReadHandler extends AbstractClientReadHandler {
   protected final Configuration hadoopConf;
   protected final List<HdfsShuffleReadHandler> readHandlers = Lists.newArrayList();
   private int readHandlerIndex;
+  private final int readParallelism;
+  private final long readMaxInflightSize;
+  // reads are returned in the order of submission, it's the same as the sequential read
+  private final Deque<PendingRead> pendingReads = new ArrayDeque<>();
+  private long inflightSize = 0L;
+  // blocks which are being read, they are skipped when choosing the next segments
+  private final Roaring64NavigableMap scheduledBlockIds = Roaring64NavigableMap.bitmapOf();
 
   private long readBlockNum = 0L;
   private long readLength = 0L;
@@ -77,6 +104,13 @@ public class HdfsClientReadHandler extends AbstractClientReadHandler {
     this.storageBasePath = storageBasePath;
     this.hadoopConf = hadoopConf;
     this.readHandlerIndex = 0;
+    if (hadoopConf != null) {
+      this.readParallelism = Math.max(1, hadoopConf.getInt(READ_PARALLELISM, READ_PARALLELISM_DEFAULT));
+      this.readMaxInflightSize = hadoopConf.getLong(READ_MAX_INFLIGHT_SIZE, READ_MAX_INFLIGHT_SIZE_DEFAULT);
+    } else {
+      this.readParallelism = READ_PARALLELISM_DEFAULT;
+      this.readMaxInflightSize = READ_MAX_INFLIGHT_SIZE_DEFAULT;
+    }
   }
 
   protected void init(String fullShufflePath) {
@@ -100,22 +134,67 @@ public class HdfsClientReadHandler extends AbstractClientReadHandler {
       return;
     }
 
-    if (indexFiles != null && indexFiles.length != 0) {
-      for (FileStatus status : indexFiles) {
-        LOG.info("Find index file for shuffleId[" + shuffleId + "], partitionId["
-            + partitionId + "] " + status.getPath());
-        String filePrefix = getFileNamePrefix(status.getPath().toUri().toString());
-        try {
-          HdfsShuffleReadHandler handler = new HdfsShuffleReadHandler(
-              appId, shuffleId, partitionId, filePrefix,
-              readBufferSize, expectBlockIds, processBlockIds, hadoopConf);
+    addReadHandlers(indexFiles);
+  }
+
+  protected void addReadHandlers(FileStatus[] indexFiles) {
+    if (indexFiles == null || indexFiles.length == 0) {
+      return;
+    }
+    List<String> filePrefixes = Lists.newArrayList();
+    for (FileStatus status : indexFiles) {
+      LOG.info("Find index file for shuffleId[" + shuffleId + "], partitionId["
+          + partitionId + "] " + status.getPath());
+      filePrefixes.add(getFileNamePrefix(status.getPath().toUri().toString()));
+    }
+    if (readParallelism > 1 && filePrefixes.size() > 1) {
+      // open the files and read their index in parallel, every file costs several round trips
+      int taskNum = Math.min(readParallelism, filePrefixes.size());
+      List<Future<List<HdfsShuffleReadHandler>>> futures = Lists.newArrayList();
+      for (int i = 0; i < taskNum; i++) {
+        final int taskIndex = i;
+        futures.add(READ_EXECUTOR.submit(() -> {
+          List<HdfsShuffleReadHandler> handlers = Lists.newArrayList();
+          for (int j = taskIndex; j < filePrefixes.size(); j += taskNum) {
+            HdfsShuffleReadHandler handler = createReadHandler(filePrefixes.get(j));
+            if (handler != null) {
+              handler.initShuffleDataSegments();
+              handlers.add(handler);
+            }
+          }
+          return handlers;
+        }));
+      }
+      for (Future<List<HdfsShuffleReadHandler>> future : futures) {
+        List<HdfsShuffleReadHandler> handlers = getResult(future);
+        if (handlers != null) {
+          readHandlers.addAll(handlers);
+        }
+      }
+    } else {
+      for (String filePrefix : filePrefixes) {
+        HdfsShuffleReadHandler handler = createReadHandler(filePrefix);
+        if (handler != null) {
           readHandlers.add(handler);
-        } catch (Exception e) {
-          LOG.warn("Can't create ShuffleReaderHandler for " + filePrefix, e);
         }
       }
-      readHandlers.sort(Comparator.comparing(HdfsShuffleReadHandler::getFilePrefix));
     }
+    readHandlers.sort(Comparator.comparing(HdfsShuffleReadHandler::getFilePrefix));
+  }
+
+  private HdfsShuffleReadHandler createReadHandler(String filePrefix) {
+    try {
+      return createHdfsShuffleReadHandler(filePrefix);
+    } catch (Exception e) {
+      LOG.warn("Can't create ShuffleReaderHandler for " + filePrefix, e);
+      return null;
+    }
+  }
+
+  protected HdfsShuffleReadHandler createHdfsShuffleReadHandler(String filePrefix) throws IOException {
+    return new HdfsShuffleReadHandler(
+        appId, shuffleId, partitionId, filePrefix,
+        readBufferSize, expectBlockIds, processBlockIds, hadoopConf);
   }
 
   @Override
@@ -128,6 +207,10 @@ public class HdfsClientReadHandler extends AbstractClientReadHandler {
       init(fullShufflePath);
     }
 
+    if (readParallelism > 1) {
+      return readShuffleDataInParallel();
+    }
+
     if (readHandlerIndex >= readHandlers.size()) {
       return new ShuffleDataResult();
     }
@@ -147,6 +230,88 @@ public class HdfsClientReadHandler extends AbstractClientReadHandler {
     return shuffleDataResult;
   }
 
+  /**
+   * Segments are chosen in the caller's thread with the same order as the sequential read,
+   * because processBlockIds is updated by the caller and it isn't thread safe.
+   * Only the data is read by the background threads.
+   */
+  private ShuffleDataResult readShuffleDataInParallel() {
+    while (true) {
+      submitReads();
+      PendingRead pendingRead = pendingReads.poll();
+      if (pendingRead == null) {
+        return new ShuffleDataResult();
+      }
+      inflightSize -= pendingRead.length;
+      ShuffleDataResult shuffleDataResult = getResult(pendingRead.future);
+      if (shuffleDataResult != null) {
+        submitReads();
+        return shuffleDataResult;
+      }
+      // the rest of the file is treated as corrupted like the sequential read
+      abandonReads(pendingRead.handler);
+      unscheduleBlocks(pendingRead);
+    }
+  }
+
+  private void submitReads() {
+    while (pendingReads.size() < readParallelism && readHandlerIndex < readHandlers.size()) {
+      // at least one segment is read whatever the segment size is
+      if (!pendingReads.isEmpty() && inflightSize >= readMaxInflightSize) {
+        return;
+      }
+      HdfsShuffleReadHandler handler = readHandlers.get(readHandlerIndex);
+      ShuffleDataSegment segment = handler.nextShuffleDataSegment(scheduledBlockIds);
+      if (segment == null) {
+        readHandlerIndex++;
+        continue;
+      }
+      for (BufferSegment bs : segment.getBufferSegments()) {
+        scheduledBlockIds.addLong(bs.getBlockId());
+      }
+      Future<ShuffleDataResult> future = READ_EXECUTOR.submit(() -> handler.readShuffleData(segment));
+      pendingReads.add(new PendingRead(handler, segment, future));
+      inflightSize += segment.getLength();
+    }
+  }
+
+  private void abandonReads(HdfsShuffleReadHandler handler) {
+    LOG.warn("Skip the rest of file {}.data because of the failed read", handler.getFilePrefix());
+    pendingReads.removeIf(pendingRead -> {
+      if (pendingRead.handler != handler) {
+        return false;
+      }
+      pendingRead.future.cancel(false);
+      inflightSize -= pendingRead.length;
+      unscheduleBlocks(pendingRead);
+      return true;
+    });
+    if (readHandlerIndex < readHandlers.size() && readHandlers.get(readHandlerIndex) == handler) {
+      readHandlerIndex++;
+    }
+  }
+
+  // the blocks may be found in the other files
+  private void unscheduleBlocks(PendingRead pendingRead) {
+    for (BufferSegment bs : pendingRead.segment.getBufferSegments()) {
+      scheduledBlockIds.removeLong(bs.getBlockId());
+    }
+  }
+
+  private <T> T getResult(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new RssException("Interrupted when reading shuffle data for appId[" + appId
+          + "], shuffleId[" + shuffleId + "], partitionId[" + partitionId + "]");
+    } catch (ExecutionException ee) {
+      LOG.warn("Error happened when reading shuffle data for appId[" + appId
+          + "], shuffleId[" + shuffleId + "], partitionId[" + partitionId + "]", ee.getCause());
+      return null;
+    }
+  }
+
   protected String getFileNamePrefix(String fileName) {
     int point = fileName.lastIndexOf(".");
     return fileName.substring(0, point);
@@ -154,6 +319,10 @@ public class HdfsClientReadHandler extends AbstractClientReadHandler {
 
   @Override
   public synchronized void close() {
+    for (PendingRead pendingRead : pendingReads) {
+      pendingRead.future.cancel(false);
+    }
+    pendingReads.clear();
     for (HdfsShuffleReadHandler handler : readHandlers) {
       handler.close();
     }
@@ -182,4 +351,18 @@ public class HdfsClientReadHandler extends AbstractClientReadHandler {
     LOG.info("Client read " + readBlockNum + " blocks,"
         + " bytes:" +  readLength + "  uncompressed bytes:" + readUncompressLength);
   }
+
+  private static class PendingRead {
+    private final HdfsShuffleReadHandler handler;
+    private final ShuffleDataSegment segment;
+    private final Future<ShuffleDataResult> future;
+    private final long length;
+
+    PendingRead(HdfsShuffleReadHandler handler, ShuffleDataSegment segment, Future<ShuffleDataResult> future) {
+      this.handler = handler;
+      this.segment = segment;
+      this.future = future;
+      this.length = segment.getLength();
+    }
+  }
 }
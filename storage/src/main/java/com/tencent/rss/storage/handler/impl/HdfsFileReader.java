@@ -59,9 +59,9 @@ public class HdfsFileReader implements FileReader, Closeable {
 
   public byte[] read(long offset, int length) {
     try {
-      fsDataInputStream.seek(offset);
+      // positional read, one call for the coalesced segments
       byte[] buf = new byte[length];
-      fsDataInputStream.readFully(buf);
+      fsDataInputStream.readFully(offset, buf);
       return buf;
     } catch (Exception e) {
       LOG.warn("Can't read data for path:" + path + " with offset["
@@ -19,22 +19,26 @@
 package com.tencent.rss.storage.handler.impl;
 
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
+import java.util.zip.CRC32;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.tencent.rss.common.util.ChecksumUtils;
 import com.tencent.rss.storage.common.FileBasedShuffleSegment;
 import com.tencent.rss.storage.util.ShuffleStorageUtils;
+import com.tencent.rss.storage.util.UploadRateLimiter;
 
 public class HdfsFileWriter implements Closeable {
 
@@ -44,6 +48,8 @@ public class HdfsFileWriter implements Closeable {
   private Configuration hadoopConf;
   private FSDataOutputStream fsDataOutputStream;
   private long nextOffset;
+  // reused by the copies and transfers of uploader
+  private byte[] copyBuffer;
 
   public HdfsFileWriter(Path path, Configuration hadoopConf) throws IOException, IllegalStateException {
     // init fsDataOutputStream
@@ -135,6 +141,13 @@ public class HdfsFileWriter implements Closeable {
     }
   }
 
+  // make the written data visible to the new readers without closing the stream
+  public void hflush() throws IOException {
+    if (fsDataOutputStream != null) {
+      fsDataOutputStream.hflush();
+    }
+  }
+
   @Override
   public synchronized void close() throws IOException {
     if (fsDataOutputStream != null) {
@@ -143,8 +156,85 @@ public class HdfsFileWriter implements Closeable {
   }
 
   public long copy(FileInputStream inputStream, int bufferSize) throws IOException {
+    return copy(inputStream, bufferSize, null);
+  }
+
+  public long copy(FileInputStream inputStream, int bufferSize, UploadRateLimiter rateLimiter) throws IOException {
     long start = fsDataOutputStream.getPos();
-    IOUtils.copyBytes(inputStream, fsDataOutputStream, bufferSize);
+    if (copyBuffer == null || copyBuffer.length != bufferSize) {
+      copyBuffer = new byte[bufferSize];
+    }
+    int len = inputStream.read(copyBuffer);
+    while (len >= 0) {
+      if (rateLimiter != null) {
+        rateLimiter.acquire(len);
+      }
+      fsDataOutputStream.write(copyBuffer, 0, len);
+      len = inputStream.read(copyBuffer);
+    }
     return fsDataOutputStream.getPos() - start;
   }
+
+  /**
+   * Transfer count bytes from the position of the local file by FileChannel.transferTo. The jdk reads
+   * the file into its cached direct buffer, and the bytes are copied to a reusable buffer of bufferSize
+   * which is written to the stream, so no buffer is allocated for every file. The crc32 is updated
+   * with the transferred bytes if it isn't null.
+   */
+  public long transferFrom(FileChannel channel, long position, long count, int bufferSize,
+      CRC32 crc32, UploadRateLimiter rateLimiter) throws IOException {
+    if (copyBuffer == null || copyBuffer.length != bufferSize) {
+      copyBuffer = new byte[bufferSize];
+    }
+    WritableByteChannel target = new StreamChannel(crc32, rateLimiter);
+    long start = fsDataOutputStream.getPos();
+    long transferred = 0;
+    while (transferred < count) {
+      long len = channel.transferTo(position + transferred, count - transferred, target);
+      if (len <= 0) {
+        throw new EOFException("Unexpected end of file when transfer " + count + " bytes from " + position
+            + " to " + path);
+      }
+      transferred += len;
+    }
+    nextOffset = fsDataOutputStream.getPos();
+    return nextOffset - start;
+  }
+
+  private class StreamChannel implements WritableByteChannel {
+
+    private final CRC32 crc32;
+    private final UploadRateLimiter rateLimiter;
+
+    StreamChannel(CRC32 crc32, UploadRateLimiter rateLimiter) {
+      this.crc32 = crc32;
+      this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      int written = src.remaining();
+      while (src.hasRemaining()) {
+        int len = Math.min(src.remaining(), copyBuffer.length);
+        src.get(copyBuffer, 0, len);
+        if (rateLimiter != null) {
+          rateLimiter.acquire(len);
+        }
+        if (crc32 != null) {
+          crc32.update(copyBuffer, 0, len);
+        }
+        fsDataOutputStream.write(copyBuffer, 0, len);
+      }
+      return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
 }
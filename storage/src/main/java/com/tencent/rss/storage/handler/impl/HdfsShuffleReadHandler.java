@@ -19,6 +19,7 @@
 package com.tencent.rss.storage.handler.impl;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.hadoop.conf.Configuration;
@@ -30,6 +31,7 @@ import org.slf4j.LoggerFactory;
 import com.tencent.rss.common.ShuffleDataResult;
 import com.tencent.rss.common.ShuffleDataSegment;
 import com.tencent.rss.common.ShuffleIndexResult;
+import com.tencent.rss.storage.common.FileBasedShuffleSegment;
 import com.tencent.rss.storage.util.ShuffleStorageUtils;
 
 /**
@@ -39,9 +41,16 @@ import com.tencent.rss.storage.util.ShuffleStorageUtils;
 public class HdfsShuffleReadHandler extends DataSkippableReadHandler {
   private static final Logger LOG = LoggerFactory.getLogger(HdfsShuffleReadHandler.class);
 
+  // nearby segments are coalesced into one positional read, it's disabled if the max size is 0
+  public static final String READ_COALESCE_MAX_SIZE = "rss.client.read.hdfs.coalesce.max.size";
+  public static final long READ_COALESCE_MAX_SIZE_DEFAULT = 0L;
+  public static final String READ_COALESCE_GAP_SIZE = "rss.client.read.hdfs.coalesce.gap.size";
+  public static final long READ_COALESCE_GAP_SIZE_DEFAULT = 1024L * 1024;
+
   protected final String filePrefix;
   protected final HdfsFileReader indexReader;
-  protected final HdfsFileReader dataReader;
+  protected final Configuration conf;
+  protected HdfsFileReader dataReader;
 
   public HdfsShuffleReadHandler(
       String appId,
@@ -54,6 +63,11 @@ public class HdfsShuffleReadHandler extends DataSkippableReadHandler {
       Configuration conf) throws IOException {
     super(appId, shuffleId, partitionId, readBufferSize, expectBlockIds, processBlockIds);
     this.filePrefix = filePrefix;
+    this.conf = conf;
+    if (conf != null) {
+      this.coalesceMaxSize = conf.getLong(READ_COALESCE_MAX_SIZE, READ_COALESCE_MAX_SIZE_DEFAULT);
+      this.coalesceGapSize = conf.getLong(READ_COALESCE_GAP_SIZE, READ_COALESCE_GAP_SIZE_DEFAULT);
+    }
     this.indexReader = createHdfsReader(ShuffleStorageUtils.generateIndexFileName(filePrefix), conf);
     this.dataReader = createHdfsReader(ShuffleStorageUtils.generateDataFileName(filePrefix), conf);
   }
@@ -63,6 +77,12 @@ public class HdfsShuffleReadHandler extends DataSkippableReadHandler {
     long start = System.currentTimeMillis();
     try {
       byte[] indexData = indexReader.read();
+      // the file may be still written by shuffle server, ignore the incomplete segment at the end
+      int completeLength = indexData.length - indexData.length % FileBasedShuffleSegment.SEGMENT_SIZE;
+      if (completeLength != indexData.length) {
+        LOG.info("Ignore incomplete index data of {}.index, length {}", filePrefix, indexData.length);
+        indexData = Arrays.copyOf(indexData, completeLength);
+      }
       LOG.info("Read index files {}.index for {} ms", filePrefix, System.currentTimeMillis() - start);
       return new ShuffleIndexResult(indexData);
     } catch (Exception e) {
@@ -71,8 +91,9 @@ public class HdfsShuffleReadHandler extends DataSkippableReadHandler {
     return new ShuffleIndexResult();
   }
 
+  // segments of the same file may be read by different threads, the data reader can't be shared by them
   @Override
-  protected ShuffleDataResult readShuffleData(ShuffleDataSegment shuffleDataSegment) {
+  protected synchronized ShuffleDataResult readShuffleData(ShuffleDataSegment shuffleDataSegment) {
     // Here we make an assumption that the rest of the file is corrupted, if an unexpected data is read.
     int expectedLength = shuffleDataSegment.getLength();
     if (expectedLength <= 0) {
@@ -99,6 +120,11 @@ public class HdfsShuffleReadHandler extends DataSkippableReadHandler {
 
   protected byte[] readShuffleData(long offset, int expectedLength) {
     byte[] data = dataReader.read(offset, expectedLength);
+    if (data.length != expectedLength) {
+      // the data file is still written by shuffle server and it was shorter when the reader was opened,
+      // reopen it to see the data which is referred by the index
+      data = reopenDataReader().read(offset, expectedLength);
+    }
     if (data.length != expectedLength) {
       LOG.warn("Fail to read expected[{}] data, actual[{}] from file {}.data",
           expectedLength, data.length, filePrefix);
@@ -123,6 +149,17 @@ public class HdfsShuffleReadHandler extends DataSkippableReadHandler {
     }
   }
 
+  private synchronized HdfsFileReader reopenDataReader() {
+    try {
+      HdfsFileReader newReader = createHdfsReader(ShuffleStorageUtils.generateDataFileName(filePrefix), conf);
+      dataReader.close();
+      dataReader = newReader;
+    } catch (Exception e) {
+      LOG.warn("Fail to reopen data file {}.data", filePrefix, e);
+    }
+    return dataReader;
+  }
+
   protected HdfsFileReader createHdfsReader(
       String fileName, Configuration hadoopConf) throws IOException, IllegalStateException {
     Path path = new Path(fileName);
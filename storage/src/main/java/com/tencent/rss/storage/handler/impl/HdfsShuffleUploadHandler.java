@@ -19,22 +19,30 @@
 package com.tencent.rss.storage.handler.impl;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.ChecksumException;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.tencent.rss.storage.common.FileBasedShuffleSegment;
 import com.tencent.rss.storage.handler.api.ShuffleUploadHandler;
 import com.tencent.rss.storage.util.ShuffleStorageUtils;
 import com.tencent.rss.storage.util.ShuffleUploadResult;
+import com.tencent.rss.storage.util.UploadRateLimiter;
 
 /**
  *  Handler to upload local files to hdfs, it has two mode combine and not combine,
@@ -51,6 +59,9 @@ public class HdfsShuffleUploadHandler implements ShuffleUploadHandler {
   private final FileSystem fileSystem;
   private final int buffSize;
   private final boolean combineUpload;
+  private final UploadRateLimiter rateLimiter;
+  private final boolean verifyChecksum;
+  private final int retryTimes;
   private static final AtomicLong sequenceId = new AtomicLong(0);
 
   public HdfsShuffleUploadHandler(
@@ -59,6 +70,28 @@ public class HdfsShuffleUploadHandler implements ShuffleUploadHandler {
       String hdfsFilePrefixBase,
       int buffSize,
       boolean combineUpload) throws IOException, IllegalStateException {
+    this(baseHdfsPath, hadoopConf, hdfsFilePrefixBase, buffSize, combineUpload, null);
+  }
+
+  public HdfsShuffleUploadHandler(
+      String baseHdfsPath,
+      Configuration hadoopConf,
+      String hdfsFilePrefixBase,
+      int buffSize,
+      boolean combineUpload,
+      UploadRateLimiter rateLimiter) throws IOException, IllegalStateException {
+    this(baseHdfsPath, hadoopConf, hdfsFilePrefixBase, buffSize, combineUpload, rateLimiter, false, 0);
+  }
+
+  public HdfsShuffleUploadHandler(
+      String baseHdfsPath,
+      Configuration hadoopConf,
+      String hdfsFilePrefixBase,
+      int buffSize,
+      boolean combineUpload,
+      UploadRateLimiter rateLimiter,
+      boolean verifyChecksum,
+      int retryTimes) throws IOException, IllegalStateException {
     this.baseHdfsPath = baseHdfsPath;
     this.hadoopConf = hadoopConf;
     this.hdfsFilePrefixBase = hdfsFilePrefixBase + "-" + sequenceId.incrementAndGet()
@@ -66,6 +99,9 @@ public class HdfsShuffleUploadHandler implements ShuffleUploadHandler {
     this.fileSystem = getFileSystem();
     this.buffSize = buffSize;
     this.combineUpload = combineUpload;
+    this.rateLimiter = rateLimiter;
+    this.verifyChecksum = verifyChecksum;
+    this.retryTimes = retryTimes;
   }
 
   // Upload data files and index files to remote storage by reading files one by one and
@@ -78,11 +114,11 @@ public class HdfsShuffleUploadHandler implements ShuffleUploadHandler {
       List<Integer> partitions) {
     ShuffleUploadResult shuffleUploadResult;
     if (combineUpload) {
-      shuffleUploadResult = uploadInternal(dataFiles, indexFiles, partitions);
+      shuffleUploadResult = uploadWithRetry(dataFiles, indexFiles, partitions);
     } else {
       List<ShuffleUploadResult> results = Lists.newLinkedList();
       for (int i = 0; i < partitions.size(); ++i) {
-        ShuffleUploadResult cur = uploadInternal(
+        ShuffleUploadResult cur = uploadWithRetry(
             dataFiles.subList(i, i + 1),
             indexFiles.subList(i, i + 1),
             partitions.subList(i, i + 1));
@@ -115,38 +151,81 @@ public class HdfsShuffleUploadHandler implements ShuffleUploadHandler {
     }
   }
 
+  // The uploaded partitions are the checkpoint of the batch. If the upload fails for the remote storage,
+  // retry from the first partition which isn't uploaded, so the uploaded partitions aren't uploaded again
+  // and the rest of the batch doesn't wait for the next round of the uploader.
+  private ShuffleUploadResult uploadWithRetry(
+      List<File> dataFiles,
+      List<File> indexFiles,
+      List<Integer> partitions) {
+    List<ShuffleUploadResult> results = Lists.newLinkedList();
+    int checkpoint = 0;
+    for (int i = 0; i <= retryTimes && checkpoint < partitions.size(); i++) {
+      UploadProgress progress = new UploadProgress();
+      ShuffleUploadResult cur = uploadInternal(
+          dataFiles.subList(checkpoint, dataFiles.size()),
+          indexFiles.subList(checkpoint, indexFiles.size()),
+          partitions.subList(checkpoint, partitions.size()),
+          progress);
+      if (cur != null) {
+        results.add(cur);
+        checkpoint += cur.getPartitions().size();
+      }
+      if (!progress.resumable || checkpoint >= partitions.size() || i == retryTimes) {
+        break;
+      }
+      // the files of the failed attempt have the same name as the files of the retry if nothing is uploaded
+      if (cur == null && !deleteUploadedFiles(partitions.get(checkpoint))) {
+        break;
+      }
+      LOG.warn("Retry to upload {} partitions from partition {} of {}",
+          partitions.size() - checkpoint, partitions.get(checkpoint), baseHdfsPath);
+    }
+    return ShuffleUploadResult.merge(results);
+  }
+
   // Use best-effort strategy to upload files one by one using the sequence of the partitions,
   // break the upload loop once encounter error and return the upload result.
-  @VisibleForTesting
-  ShuffleUploadResult uploadInternal(
+  private ShuffleUploadResult uploadInternal(
       List<File> dataFiles,
       List<File> indexFiles,
-      List<Integer> partitions) {
+      List<Integer> partitions,
+      UploadProgress progress) {
     // upload data files
     List<Long> fileSize = Lists.newLinkedList();
 
     String dataFileName = generateDataFileName(partitions.get(0));
     try (HdfsFileWriter writer = new HdfsFileWriter(new Path(baseHdfsPath, dataFileName), hadoopConf)) {
-      for (File file : dataFiles) {
+      for (int i = 0; i < dataFiles.size(); i++) {
+        File file = dataFiles.get(i);
         if (!file.exists() || file.length() == 0) {
           LOG.error("Fail to upload data file {}, for it do not exist or length is 0", file.getAbsolutePath());
           break;
         }
+        if (verifyChecksum && !indexFiles.get(i).exists()) {
+          LOG.error("Fail to verify data file {}, for index file do not exist", file.getAbsolutePath());
+          break;
+        }
 
         try {
-          long sz = ShuffleStorageUtils.uploadFile(file, writer, buffSize);
+          long sz = uploadDataFile(file, indexFiles.get(i), writer);
           if (sz == 0) {
             LOG.error("Fail to upload data file {} upload size is 0", file.getAbsolutePath());
             break;
           }
           fileSize.add(sz);
+        } catch (ChecksumException e) {
+          LOG.error("Fail to verify data file {}, for {}", file.getAbsolutePath(), e.getMessage());
+          break;
         } catch (IOException e) {
           LOG.error("Fail to upload data file {}, for {}", file.getAbsolutePath(), e.getMessage());
+          progress.resumable = true;
           break;
         }
       }
     } catch (IOException | IllegalStateException e) {
       LOG.error("Fail to create data output stream {}, {}", dataFileName, e.getMessage());
+      progress.resumable = true;
       return null;
     }
 
@@ -166,6 +245,7 @@ public class HdfsShuffleUploadHandler implements ShuffleUploadHandler {
         writer.writeHeader(effectivePartitions, sizes, fileSize);
       } catch (IOException e) {
         LOG.error("Fail to write header to index output stream {}, {}", indexFileName, ExceptionUtils.getStackTrace(e));
+        progress.resumable = true;
         return null;
       }
 
@@ -175,17 +255,19 @@ public class HdfsShuffleUploadHandler implements ShuffleUploadHandler {
           continue;
         }
 
-        try {
-          ShuffleStorageUtils.uploadFile(file, writer, buffSize);
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+          writer.transferFrom(channel, 0, channel.size(), buffSize, null, rateLimiter);
           ++num;
         } catch (IOException e) {
           LOG.error("Fail to upload index file {}, for {}", file.getAbsolutePath(), ExceptionUtils.getStackTrace(e));
+          progress.resumable = true;
           break;
         }
       }
 
     } catch (IOException | IllegalStateException e) {
       LOG.error("Fail to create index output stream {}, {}", indexFileName, ExceptionUtils.getStackTrace(e));
+      progress.resumable = true;
       return null;
     }
 
@@ -198,6 +280,68 @@ public class HdfsShuffleUploadHandler implements ShuffleUploadHandler {
     }
   }
 
+  // Transfer the local data file to the stream without copying it through a new heap buffer. If verifyChecksum
+  // is true, the crc of every block is checked against the local index file and the corrupted data is rejected.
+  private long uploadDataFile(File dataFile, File indexFile, HdfsFileWriter writer) throws IOException {
+    try (FileChannel channel = new FileInputStream(dataFile).getChannel()) {
+      long size = channel.size();
+      if (!verifyChecksum) {
+        return writer.transferFrom(channel, 0, size, buffSize, null, rateLimiter);
+      }
+      CRC32 crc32 = new CRC32();
+      long offset = 0;
+      for (FileBasedShuffleSegment segment : readIndexFile(indexFile)) {
+        if (segment.getOffset() != offset || offset + segment.getLength() > size) {
+          throw new ChecksumException("Block " + segment.getBlockId() + " in index file " + indexFile
+              + " doesn't match the data file", offset);
+        }
+        crc32.reset();
+        writer.transferFrom(channel, offset, segment.getLength(), buffSize, crc32, rateLimiter);
+        if (crc32.getValue() != segment.getCrc()) {
+          throw new ChecksumException("Checksum of block " + segment.getBlockId() + " is " + crc32.getValue()
+              + ", but it's " + segment.getCrc() + " in index file " + indexFile, offset);
+        }
+        offset += segment.getLength();
+      }
+      if (offset != size) {
+        throw new ChecksumException("Data file has " + size + " bytes, but " + offset
+            + " bytes are in index file " + indexFile, offset);
+      }
+      return size;
+    }
+  }
+
+  private List<FileBasedShuffleSegment> readIndexFile(File indexFile) throws IOException {
+    byte[] indexData = Files.readAllBytes(indexFile.toPath());
+    if (indexData.length % FileBasedShuffleSegment.SEGMENT_SIZE != 0) {
+      throw new ChecksumException("Incomplete index file " + indexFile + " with length " + indexData.length,
+          indexData.length);
+    }
+    List<FileBasedShuffleSegment> segments = Lists.newArrayList();
+    ByteBuffer byteBuffer = ByteBuffer.wrap(indexData);
+    while (byteBuffer.hasRemaining()) {
+      long offset = byteBuffer.getLong();
+      int length = byteBuffer.getInt();
+      int uncompressLength = byteBuffer.getInt();
+      long crc = byteBuffer.getLong();
+      long blockId = byteBuffer.getLong();
+      long taskAttemptId = byteBuffer.getLong();
+      segments.add(new FileBasedShuffleSegment(blockId, offset, length, uncompressLength, crc, taskAttemptId));
+    }
+    return segments;
+  }
+
+  private boolean deleteUploadedFiles(int partition) {
+    try {
+      fileSystem.delete(new Path(baseHdfsPath, generateDataFileName(partition)), false);
+      fileSystem.delete(new Path(baseHdfsPath, generateIndexFileName(partition)), false);
+      return true;
+    } catch (IOException e) {
+      LOG.error("Fail to delete the uploaded files of partition {} in {}, {}", partition, baseHdfsPath, e.getMessage());
+      return false;
+    }
+  }
+
   // The partition files may be more than 10K, which is not suitable to list entire shuffle dir,
   // so we upload files to $BASE/$APPID/$SHUFFLEID/combine if combineUpload is true and upload
   // files to $BASE/$APPID/$SHUFFLEID/ if combineUpload is false.
@@ -266,4 +410,9 @@ public class HdfsShuffleUploadHandler implements ShuffleUploadHandler {
   public String getBaseHdfsPath() {
     return baseHdfsPath;
   }
+
+  private static class UploadProgress {
+    // the upload failed for the remote storage, so the rest of the partitions can be uploaded by a retry
+    private boolean resumable = false;
+  }
 }
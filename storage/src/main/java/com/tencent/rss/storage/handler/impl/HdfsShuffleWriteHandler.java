@@ -19,6 +19,7 @@
 package com.tencent.rss.storage.handler.impl;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -35,15 +36,24 @@ import com.tencent.rss.storage.common.FileBasedShuffleSegment;
 import com.tencent.rss.storage.handler.api.ShuffleWriteHandler;
 import com.tencent.rss.storage.util.ShuffleStorageUtils;
 
+/**
+ * HdfsShuffleWriteHandler writes the blocks of a partition range to a data file and an index file.
+ * If writerCache is set, the writers are kept open across flushes and the written data is made
+ * visible by hflush, otherwise the writers are closed after every write.
+ */
 public class HdfsShuffleWriteHandler implements ShuffleWriteHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(HdfsShuffleWriteHandler.class);
 
   private Configuration hadoopConf;
+  private String appId;
   private String basePath;
   private String fileNamePrefix;
   private Lock writeLock = new ReentrantLock();
   private int failTimes = 0;
+  private final HdfsWriterCache writerCache;
+  private HdfsFileWriter dataWriter;
+  private HdfsFileWriter indexWriter;
 
   public HdfsShuffleWriteHandler(
       String appId,
@@ -53,8 +63,22 @@ public class HdfsShuffleWriteHandler implements ShuffleWriteHandler {
       String storageBasePath,
       String fileNamePrefix,
       Configuration hadoopConf) throws IOException, IllegalStateException {
+    this(appId, shuffleId, startPartition, endPartition, storageBasePath, fileNamePrefix, hadoopConf, null);
+  }
+
+  public HdfsShuffleWriteHandler(
+      String appId,
+      int shuffleId,
+      int startPartition,
+      int endPartition,
+      String storageBasePath,
+      String fileNamePrefix,
+      Configuration hadoopConf,
+      HdfsWriterCache writerCache) throws IOException, IllegalStateException {
     this.hadoopConf = hadoopConf;
+    this.appId = appId;
     this.fileNamePrefix = fileNamePrefix;
+    this.writerCache = writerCache;
     this.basePath = ShuffleStorageUtils.getFullShuffleDataFolder(storageBasePath,
         ShuffleStorageUtils.getShuffleDataPath(appId, shuffleId, startPartition, endPartition));
     initialize();
@@ -82,18 +106,15 @@ public class HdfsShuffleWriteHandler implements ShuffleWriteHandler {
   public void write(
       List<ShufflePartitionedBlock> shuffleBlocks) throws IOException, IllegalStateException {
     final long start = System.currentTimeMillis();
-    HdfsFileWriter dataWriter = null;
-    HdfsFileWriter indexWriter = null;
+    boolean keepOpen = writerCache != null;
+    List<HdfsShuffleWriteHandler> evictedHandlers = Collections.emptyList();
     writeLock.lock();
     try {
       try {
         final long ss = System.currentTimeMillis();
-        // Write to HDFS will be failed with lease problem, and can't write the same file again
-        // change the prefix of file name if write failed before
-        String dataFileName = ShuffleStorageUtils.generateDataFileName(fileNamePrefix + "_" + failTimes);
-        String indexFileName = ShuffleStorageUtils.generateIndexFileName(fileNamePrefix + "_" + failTimes);
-        dataWriter = createWriter(dataFileName);
-        indexWriter = createWriter(indexFileName);
+        if (dataWriter == null || indexWriter == null) {
+          openWriters();
+        }
         for (ShufflePartitionedBlock block : shuffleBlocks) {
           long blockId = block.getBlockId();
           long crc = block.getCrc();
@@ -104,6 +125,11 @@ public class HdfsShuffleWriteHandler implements ShuffleWriteHandler {
               blockId, startOffset, block.getLength(), block.getUncompressLength(), crc, block.getTaskAttemptId());
           indexWriter.writeIndex(segment);
         }
+        if (keepOpen) {
+          // data must be visible before the index which refers to it
+          dataWriter.hflush();
+          indexWriter.hflush();
+        }
         LOG.debug(
             "Write handler inside cost {} ms for {}",
             (System.currentTimeMillis() - ss),
@@ -111,18 +137,21 @@ public class HdfsShuffleWriteHandler implements ShuffleWriteHandler {
       } catch (Exception e) {
         LOG.warn("Write failed with " + shuffleBlocks.size() + " blocks for " + fileNamePrefix + "_" + failTimes, e);
         failTimes++;
+        keepOpen = false;
         throw new RuntimeException(e);
       } finally {
-        if (dataWriter != null) {
-          dataWriter.close();
-        }
-        if (indexWriter != null) {
-          indexWriter.close();
+        if (keepOpen) {
+          evictedHandlers = writerCache.touch(this, System.currentTimeMillis());
+        } else {
+          closeWritersInternal();
         }
       }
     } finally {
       writeLock.unlock();
     }
+    if (!evictedHandlers.isEmpty()) {
+      writerCache.closeEvictedHandlers(evictedHandlers);
+    }
     LOG.debug(
         "Write handler outside write {} blocks cost {} ms for {}",
         shuffleBlocks.size(),
@@ -130,6 +159,49 @@ public class HdfsShuffleWriteHandler implements ShuffleWriteHandler {
         fileNamePrefix);
   }
 
+  private void openWriters() throws IOException, IllegalStateException {
+    // Write to HDFS will be failed with lease problem, and can't write the same file again
+    // change the prefix of file name if write failed before
+    String dataFileName = ShuffleStorageUtils.generateDataFileName(fileNamePrefix + "_" + failTimes);
+    String indexFileName = ShuffleStorageUtils.generateIndexFileName(fileNamePrefix + "_" + failTimes);
+    dataWriter = createWriter(dataFileName);
+    indexWriter = createWriter(indexFileName);
+  }
+
+  // close the opened writers, they will be opened again with append mode if there is new data
+  public void closeWriters() {
+    writeLock.lock();
+    try {
+      closeWritersInternal();
+      // update the cache under the write lock, otherwise a concurrent write may reopen the writers
+      // and touch the cache before this handler is removed, and the opened writers are never closed
+      if (writerCache != null) {
+        writerCache.remove(this);
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private void closeWritersInternal() {
+    if (dataWriter != null) {
+      try {
+        dataWriter.close();
+      } catch (IOException e) {
+        LOG.warn("Fail to close data writer for " + fileNamePrefix + "_" + failTimes, e);
+      }
+      dataWriter = null;
+    }
+    if (indexWriter != null) {
+      try {
+        indexWriter.close();
+      } catch (IOException e) {
+        LOG.warn("Fail to close index writer for " + fileNamePrefix + "_" + failTimes, e);
+      }
+      indexWriter = null;
+    }
+  }
+
   private HdfsFileWriter createWriter(String fileName) throws IOException, IllegalStateException {
     Path path = new Path(basePath, fileName);
     HdfsFileWriter writer = new HdfsFileWriter(path, hadoopConf);
@@ -140,4 +212,17 @@ public class HdfsShuffleWriteHandler implements ShuffleWriteHandler {
   public void setFailTimes(int failTimes) {
     this.failTimes = failTimes;
   }
+
+  @VisibleForTesting
+  boolean isWriterOpened() {
+    return dataWriter != null && indexWriter != null;
+  }
+
+  public String getAppId() {
+    return appId;
+  }
+
+  public String getFileNamePrefix() {
+    return fileNamePrefix;
+  }
 }
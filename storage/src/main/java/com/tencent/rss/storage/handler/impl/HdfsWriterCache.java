@@ -0,0 +1,149 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.storage.handler.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HdfsWriterCache tracks the HdfsShuffleWriteHandlers which keep their writers open across flushes.
+ * The least recently written handler is closed if there are too many opened handlers, and the handler
+ * which isn't written for idleTimeoutMs is closed by a daemon thread.
+ * A handler updates the cache while holding its write lock, so the cache always matches whether
+ * its writers are open. Handlers are always closed without holding the lock of cache or the write
+ * lock of another handler.
+ */
+public class HdfsWriterCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HdfsWriterCache.class);
+
+  private final int maxOpenHandlers;
+  private final long idleTimeoutMs;
+  // access order, the eldest one is the least recently written handler
+  private final LinkedHashMap<HdfsShuffleWriteHandler, Long> openedHandlers =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private final ScheduledExecutorService idleCheckExecutor;
+
+  public HdfsWriterCache(int maxOpenHandlers, long idleTimeoutMs) {
+    if (maxOpenHandlers <= 0) {
+      throw new IllegalArgumentException("Max opened handlers must be positive");
+    }
+    this.maxOpenHandlers = maxOpenHandlers;
+    this.idleTimeoutMs = idleTimeoutMs;
+    if (idleTimeoutMs > 0) {
+      idleCheckExecutor = Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("HdfsWriterIdleChecker-%d").build());
+      long interval = Math.max(1L, idleTimeoutMs / 2);
+      idleCheckExecutor.scheduleAtFixedRate(
+          () -> closeIdleHandlers(System.currentTimeMillis()), interval, interval, TimeUnit.MILLISECONDS);
+    } else {
+      idleCheckExecutor = null;
+    }
+  }
+
+  // called by the handler with opened writers while holding its write lock, the returned handlers
+  // are evicted and should be closed by closeEvictedHandlers after the write lock is released
+  synchronized List<HdfsShuffleWriteHandler> touch(HdfsShuffleWriteHandler handler, long writeTs) {
+    List<HdfsShuffleWriteHandler> evictedHandlers = Lists.newArrayList();
+    openedHandlers.put(handler, writeTs);
+    Iterator<HdfsShuffleWriteHandler> iterator = openedHandlers.keySet().iterator();
+    while (openedHandlers.size() > maxOpenHandlers && iterator.hasNext()) {
+      HdfsShuffleWriteHandler eldest = iterator.next();
+      if (eldest != handler) {
+        iterator.remove();
+        evictedHandlers.add(eldest);
+      }
+    }
+    return evictedHandlers;
+  }
+
+  void closeEvictedHandlers(List<HdfsShuffleWriteHandler> evictedHandlers) {
+    for (HdfsShuffleWriteHandler evictedHandler : evictedHandlers) {
+      LOG.debug("Close writers of {} for too many opened writers", evictedHandler.getFileNamePrefix());
+      evictedHandler.closeWriters();
+    }
+  }
+
+  // called by the handler which closes its writers while holding its write lock
+  synchronized void remove(HdfsShuffleWriteHandler handler) {
+    openedHandlers.remove(handler);
+  }
+
+  @VisibleForTesting
+  void closeIdleHandlers(long now) {
+    List<HdfsShuffleWriteHandler> idleHandlers = Lists.newArrayList();
+    synchronized (this) {
+      Iterator<Map.Entry<HdfsShuffleWriteHandler, Long>> iterator = openedHandlers.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<HdfsShuffleWriteHandler, Long> entry = iterator.next();
+        if (now - entry.getValue() >= idleTimeoutMs) {
+          iterator.remove();
+          idleHandlers.add(entry.getKey());
+        }
+      }
+    }
+    for (HdfsShuffleWriteHandler idleHandler : idleHandlers) {
+      LOG.debug("Close writers of {} for idle", idleHandler.getFileNamePrefix());
+      idleHandler.closeWriters();
+    }
+  }
+
+  public void closeHandlers(String appId) {
+    List<HdfsShuffleWriteHandler> appHandlers = Lists.newArrayList();
+    synchronized (this) {
+      Iterator<HdfsShuffleWriteHandler> iterator = openedHandlers.keySet().iterator();
+      while (iterator.hasNext()) {
+        HdfsShuffleWriteHandler handler = iterator.next();
+        if (handler.getAppId().equals(appId)) {
+          iterator.remove();
+          appHandlers.add(handler);
+        }
+      }
+    }
+    appHandlers.forEach(HdfsShuffleWriteHandler::closeWriters);
+  }
+
+  public void close() {
+    if (idleCheckExecutor != null) {
+      idleCheckExecutor.shutdownNow();
+    }
+    List<HdfsShuffleWriteHandler> handlers;
+    synchronized (this) {
+      handlers = Lists.newArrayList(openedHandlers.keySet());
+      openedHandlers.clear();
+    }
+    handlers.forEach(HdfsShuffleWriteHandler::closeWriters);
+  }
+
+  @VisibleForTesting
+  synchronized int getOpenedHandlerNum() {
+    return openedHandlers.size();
+  }
+}
@@ -37,6 +37,7 @@ public class LocalFileClientReadHandler extends DataSkippableReadHandler {
   private final int partitionNumPerRange;
   private final int partitionNum;
   private ShuffleServerClient shuffleServerClient;
+  private Roaring64NavigableMap expectTaskIds;
 
   LocalFileClientReadHandler(
       String appId,
@@ -48,18 +49,21 @@ public class LocalFileClientReadHandler extends DataSkippableReadHandler {
       int readBufferSize,
       Roaring64NavigableMap expectBlockIds,
       Roaring64NavigableMap processBlockIds,
-      ShuffleServerClient shuffleServerClient) {
+      ShuffleServerClient shuffleServerClient,
+      Roaring64NavigableMap expectTaskIds) {
     super(appId, shuffleId, partitionId, readBufferSize, expectBlockIds, processBlockIds);
     this.shuffleServerClient = shuffleServerClient;
     this.partitionNumPerRange = partitionNumPerRange;
     this.partitionNum = partitionNum;
+    this.expectTaskIds = expectTaskIds;
   }
 
   @Override
   public ShuffleIndexResult readShuffleIndex() {
     ShuffleIndexResult shuffleIndexResult = null;
+    // the server only returns the index segments of the expected tasks if expectTaskIds is set
     RssGetShuffleIndexRequest request = new RssGetShuffleIndexRequest(
-        appId, shuffleId, partitionId, partitionNumPerRange, partitionNum);
+        appId, shuffleId, partitionId, partitionNumPerRange, partitionNum, expectTaskIds);
     try {
       shuffleIndexResult = shuffleServerClient.getShuffleIndex(request).getShuffleIndexResult();
     } catch (Exception e) {
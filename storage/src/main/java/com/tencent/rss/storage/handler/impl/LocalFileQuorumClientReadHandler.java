@@ -51,6 +51,22 @@ public class LocalFileQuorumClientReadHandler extends AbstractClientReadHandler
     Roaring64NavigableMap expectBlockIds,
     Roaring64NavigableMap processBlockIds,
     List<ShuffleServerClient> shuffleServerClients) {
+    this(appId, shuffleId, partitionId, indexReadLimit, partitionNumPerRange, partitionNum, readBufferSize,
+        expectBlockIds, processBlockIds, shuffleServerClients, null);
+  }
+
+  public LocalFileQuorumClientReadHandler(
+    String appId,
+    int shuffleId,
+    int partitionId,
+    int indexReadLimit,
+    int partitionNumPerRange,
+    int partitionNum,
+    int readBufferSize,
+    Roaring64NavigableMap expectBlockIds,
+    Roaring64NavigableMap processBlockIds,
+    List<ShuffleServerClient> shuffleServerClients,
+    Roaring64NavigableMap expectTaskIds) {
       this.appId = appId;
       this.shuffleId = shuffleId;
       this.partitionId = partitionId;
@@ -66,7 +82,8 @@ public class LocalFileQuorumClientReadHandler extends AbstractClientReadHandler
           readBufferSize,
           expectBlockIds,
           processBlockIds,
-          client
+          client,
+          expectTaskIds
         ));
       }
   }
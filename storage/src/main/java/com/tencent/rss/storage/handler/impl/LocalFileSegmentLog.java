@@ -0,0 +1,189 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.storage.handler.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.tencent.rss.common.ShufflePartitionedBlock;
+import com.tencent.rss.common.util.Constants;
+import com.tencent.rss.storage.common.FileBasedShuffleSegment;
+
+/**
+ * LocalFileSegmentLog is the data file shared by all partition ranges of a shuffle in one disk.
+ * Flush events which arrive while a previous group is being written are grouped, and the blocks of
+ * the whole group are appended by one gathering write, the index entries of a partition range in
+ * the group are appended to its index file by one write too. The data file is kept open until the
+ * shuffle is removed, and the index files are put next to it, so no folder is created per range.
+ */
+public class LocalFileSegmentLog implements Closeable {
+
+  public static final String FILE_NAME = "segment" + Constants.SHUFFLE_DATA_FILE_SUFFIX;
+  private static final Logger LOG = LoggerFactory.getLogger(LocalFileSegmentLog.class);
+
+  private final File file;
+  private final Queue<PendingAppend> pendingAppends = Queues.newConcurrentLinkedQueue();
+  private FileChannel fileChannel;
+  private boolean closed = false;
+
+  public LocalFileSegmentLog(File file) {
+    this.file = file;
+  }
+
+  // the index file of a partition range in the shuffle folder, eg, 0-9.index
+  public static File getIndexFile(File shuffleFolder, String rangeFolderName) {
+    return new File(shuffleFolder, rangeFolderName + Constants.SHUFFLE_INDEX_FILE_SUFFIX);
+  }
+
+  public void append(File indexFile, List<ShufflePartitionedBlock> blocks) throws IOException {
+    PendingAppend append = new PendingAppend(indexFile, blocks);
+    pendingAppends.offer(append);
+    synchronized (this) {
+      // the appends queued while the lock was held are written by the first thread which gets it
+      if (!append.done) {
+        appendGroup();
+      }
+    }
+    if (append.exception != null) {
+      throw append.exception;
+    }
+  }
+
+  private void appendGroup() {
+    List<PendingAppend> group = Lists.newArrayList();
+    PendingAppend pending;
+    while ((pending = pendingAppends.poll()) != null) {
+      group.add(pending);
+    }
+    try {
+      long offset = appendData(group);
+      // the data of a range is readable only after its index is written, so a failed index write
+      // fails the appends of that range only
+      Map<File, List<PendingAppend>> indexFileToAppends = Maps.newLinkedHashMap();
+      for (PendingAppend append : group) {
+        indexFileToAppends.computeIfAbsent(append.indexFile, key -> Lists.newArrayList()).add(append);
+        append.offset = offset;
+        offset += append.length;
+      }
+      for (Map.Entry<File, List<PendingAppend>> entry : indexFileToAppends.entrySet()) {
+        try {
+          appendIndex(entry.getKey(), entry.getValue());
+        } catch (IOException e) {
+          entry.getValue().forEach(append -> append.exception = e);
+        }
+      }
+    } catch (IOException e) {
+      group.forEach(append -> append.exception = e);
+    } finally {
+      group.forEach(append -> append.done = true);
+    }
+  }
+
+  // return the offset of the first block in the log
+  private long appendData(List<PendingAppend> group) throws IOException {
+    if (closed) {
+      throw new IOException("Segment log " + file.getAbsolutePath() + " is closed");
+    }
+    if (fileChannel == null) {
+      fileChannel = FileChannel.open(file.toPath(),
+          StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+    long startOffset = fileChannel.size();
+    List<ByteBuffer> buffers = Lists.newArrayList();
+    long total = 0;
+    for (PendingAppend append : group) {
+      for (ShufflePartitionedBlock block : append.blocks) {
+        byte[] data = block.getData() == null ? new byte[0] : block.getData();
+        buffers.add(ByteBuffer.wrap(data));
+        append.length += data.length;
+      }
+      total += append.length;
+    }
+    ByteBuffer[] bufferArray = buffers.toArray(new ByteBuffer[0]);
+    long written = 0;
+    while (written < total) {
+      written += fileChannel.write(bufferArray);
+    }
+    return startOffset;
+  }
+
+  private void appendIndex(File indexFile, List<PendingAppend> appends) throws IOException {
+    int blockNum = appends.stream().mapToInt(append -> append.blocks.size()).sum();
+    ByteBuffer indexBuffer = ByteBuffer.allocate(blockNum * FileBasedShuffleSegment.SEGMENT_SIZE);
+    for (PendingAppend append : appends) {
+      long offset = append.offset;
+      for (ShufflePartitionedBlock block : append.blocks) {
+        indexBuffer.putLong(offset);
+        indexBuffer.putInt(block.getLength());
+        indexBuffer.putInt(block.getUncompressLength());
+        indexBuffer.putLong(block.getCrc());
+        indexBuffer.putLong(block.getBlockId());
+        indexBuffer.putLong(block.getTaskAttemptId());
+        offset += block.getData() == null ? 0 : block.getData().length;
+      }
+    }
+    try (LocalFileWriter indexWriter = new LocalFileWriter(indexFile)) {
+      indexWriter.writeData(indexBuffer.array());
+    }
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (fileChannel != null) {
+      try {
+        fileChannel.close();
+      } catch (IOException e) {
+        LOG.warn("Fail to close segment log " + file.getAbsolutePath(), e);
+      }
+      fileChannel = null;
+    }
+  }
+
+  private static class PendingAppend {
+    private final File indexFile;
+    private final List<ShufflePartitionedBlock> blocks;
+    private long offset;
+    private long length;
+    private boolean done = false;
+    private IOException exception;
+
+    PendingAppend(File indexFile, List<ShufflePartitionedBlock> blocks) {
+      this.indexFile = indexFile;
+      this.blocks = blocks;
+    }
+  }
+}
@@ -80,6 +80,13 @@ public class LocalFileServerReadHandler implements ServerReadHandler {
 
     File baseFolder = new File(fullShufflePath);
     if (!baseFolder.exists()) {
+      // data of the partition range is in the segment log shared by the shuffle
+      File segmentLogIndexFile = LocalFileSegmentLog.getIndexFile(baseFolder.getParentFile(), baseFolder.getName());
+      if (segmentLogIndexFile.exists()) {
+        indexFileName = segmentLogIndexFile.getAbsolutePath();
+        dataFileName = new File(baseFolder.getParentFile(), LocalFileSegmentLog.FILE_NAME).getAbsolutePath();
+        return;
+      }
       // the partition doesn't exist in this base folder, skip
       throw new RuntimeException("Can't find folder " + fullShufflePath);
     }
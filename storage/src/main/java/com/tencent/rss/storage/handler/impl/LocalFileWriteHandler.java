@@ -21,6 +21,7 @@ package com.tencent.rss.storage.handler.impl;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.function.Supplier;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.slf4j.Logger;
@@ -37,6 +38,9 @@ public class LocalFileWriteHandler implements ShuffleWriteHandler {
 
   private String fileNamePrefix;
   private String basePath;
+  // data is appended to the log shared by the shuffle if it isn't null
+  private final Supplier<LocalFileSegmentLog> segmentLogSupplier;
+  private File segmentLogIndexFile;
 
   public LocalFileWriteHandler(
       String appId,
@@ -45,9 +49,30 @@ public class LocalFileWriteHandler implements ShuffleWriteHandler {
       int endPartition,
       String storageBasePath,
       String fileNamePrefix) {
+    this(appId, shuffleId, startPartition, endPartition, storageBasePath, fileNamePrefix, null);
+  }
+
+  public LocalFileWriteHandler(
+      String appId,
+      int shuffleId,
+      int startPartition,
+      int endPartition,
+      String storageBasePath,
+      String fileNamePrefix,
+      Supplier<LocalFileSegmentLog> segmentLogSupplier) {
     this.fileNamePrefix = fileNamePrefix;
-    this.basePath = ShuffleStorageUtils.getFullShuffleDataFolder(storageBasePath,
+    this.segmentLogSupplier = segmentLogSupplier;
+    String rangeFolder = ShuffleStorageUtils.getFullShuffleDataFolder(storageBasePath,
         ShuffleStorageUtils.getShuffleDataPath(appId, shuffleId, startPartition, endPartition));
+    if (segmentLogSupplier == null) {
+      this.basePath = rangeFolder;
+    } else {
+      // the index file is put next to the segment log in the shuffle folder instead of the range folder
+      File rangeFolderFile = new File(rangeFolder);
+      this.basePath = rangeFolderFile.getParent();
+      this.segmentLogIndexFile = LocalFileSegmentLog.getIndexFile(
+          rangeFolderFile.getParentFile(), rangeFolderFile.getName());
+    }
     createBasePath();
   }
 
@@ -98,6 +123,21 @@ public class LocalFileWriteHandler implements ShuffleWriteHandler {
       return;
     }
 
+    if (segmentLogSupplier != null) {
+      LocalFileSegmentLog segmentLog = segmentLogSupplier.get();
+      if (segmentLog == null) {
+        LOG.warn("Segment log of {} don't exist, the app or shuffle may be deleted", baseFolder.getAbsolutePath());
+        return;
+      }
+      long startTime = System.currentTimeMillis();
+      segmentLog.append(segmentLogIndexFile, shuffleBlocks);
+      LOG.debug(
+          "Write handler write {} blocks to segment log cost {} ms",
+          shuffleBlocks.size(),
+          (System.currentTimeMillis() - startTime));
+      return;
+    }
+
     long accessTime = System.currentTimeMillis();
     String dataFileName = ShuffleStorageUtils.generateDataFileName(fileNamePrefix);
     String indexFileName = ShuffleStorageUtils.generateIndexFileName(fileNamePrefix);
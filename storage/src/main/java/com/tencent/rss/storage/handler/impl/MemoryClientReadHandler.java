@@ -20,6 +20,7 @@ package com.tencent.rss.storage.handler.impl;
 
 import java.util.List;
 
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,6 +37,8 @@ public class MemoryClientReadHandler extends AbstractClientReadHandler {
   private static final Logger LOG = LoggerFactory.getLogger(MemoryQuorumClientReadHandler.class);
   private long lastBlockId = Constants.INVALID_BLOCK_ID;
   private ShuffleServerClient shuffleServerClient;
+  private Roaring64NavigableMap expectBlockIds;
+  private Roaring64NavigableMap expectTaskIds;
 
   public MemoryClientReadHandler(
       String appId,
@@ -43,19 +46,33 @@ public class MemoryClientReadHandler extends AbstractClientReadHandler {
       int partitionId,
       int readBufferSize,
       ShuffleServerClient shuffleServerClient) {
+    this(appId, shuffleId, partitionId, readBufferSize, shuffleServerClient, null, null);
+  }
+
+  public MemoryClientReadHandler(
+      String appId,
+      int shuffleId,
+      int partitionId,
+      int readBufferSize,
+      ShuffleServerClient shuffleServerClient,
+      Roaring64NavigableMap expectBlockIds,
+      Roaring64NavigableMap expectTaskIds) {
     this.appId = appId;
     this.shuffleId = shuffleId;
     this.partitionId = partitionId;
     this.readBufferSize = readBufferSize;
     this.shuffleServerClient = shuffleServerClient;
+    this.expectBlockIds = expectBlockIds;
+    this.expectTaskIds = expectTaskIds;
   }
 
   @Override
   public ShuffleDataResult readShuffleData() {
     ShuffleDataResult result = null;
 
+    // the server skips the unexpected blocks, eg, the blocks of failed or speculative attempts
     RssGetInMemoryShuffleDataRequest request = new RssGetInMemoryShuffleDataRequest(
-      appId,shuffleId, partitionId, lastBlockId, readBufferSize);
+      appId,shuffleId, partitionId, lastBlockId, readBufferSize, expectBlockIds, expectTaskIds);
 
     try {
       RssGetInMemoryShuffleDataResponse response =
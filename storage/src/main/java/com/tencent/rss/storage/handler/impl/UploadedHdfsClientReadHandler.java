@@ -19,7 +19,6 @@
 package com.tencent.rss.storage.handler.impl;
 
 import java.io.IOException;
-import java.util.Comparator;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
@@ -83,22 +82,14 @@ public class UploadedHdfsClientReadHandler extends HdfsClientReadHandler {
       return;
     }
 
-    if (indexFiles != null && indexFiles.length != 0) {
-      for (FileStatus status : indexFiles) {
-        LOG.info("Find index file for shuffleId[" + shuffleId + "], partitionId["
-            + partitionId + "] " + status.getPath());
-        String fileNamePrefix = getFileNamePrefix(status.getPath().toUri().toString());
-        try {
-          HdfsShuffleReadHandler handler = new UploadedStorageHdfsShuffleReadHandler(
-              appId, shuffleId, partitionId, fileNamePrefix, readBufferSize,
-              expectBlockIds, processBlockIds, hadoopConf);
-          readHandlers.add(handler);
-        } catch (Exception e) {
-          LOG.warn("Can't create ShuffleReaderHandler for " + fileNamePrefix, e);
-        }
-      }
-      readHandlers.sort(Comparator.comparing(HdfsShuffleReadHandler::getFilePrefix));
-    }
+    addReadHandlers(indexFiles);
+  }
+
+  @Override
+  protected HdfsShuffleReadHandler createHdfsShuffleReadHandler(String filePrefix) throws IOException {
+    return new UploadedStorageHdfsShuffleReadHandler(
+        appId, shuffleId, partitionId, filePrefix, readBufferSize,
+        expectBlockIds, processBlockIds, hadoopConf);
   }
 
   @Override
@@ -42,6 +42,7 @@ public class CreateShuffleReadHandlerRequest {
   private List<ShuffleServerInfo> shuffleServerInfoList;
   private Roaring64NavigableMap expectBlockIds;
   private Roaring64NavigableMap processBlockIds;
+  private Roaring64NavigableMap expectTaskIds;
 
   public CreateShuffleReadHandlerRequest() {
   }
@@ -157,4 +158,12 @@ public class CreateShuffleReadHandlerRequest {
   public Roaring64NavigableMap getProcessBlockIds() {
     return processBlockIds;
   }
+
+  public void setExpectTaskIds(Roaring64NavigableMap expectTaskIds) {
+    this.expectTaskIds = expectTaskIds;
+  }
+
+  public Roaring64NavigableMap getExpectTaskIds() {
+    return expectTaskIds;
+  }
 }
@@ -21,6 +21,7 @@ package com.tencent.rss.storage.request;
 import org.apache.hadoop.conf.Configuration;
 
 import com.tencent.rss.storage.util.StorageType;
+import com.tencent.rss.storage.util.UploadRateLimiter;
 
 /**
  * CreateShuffleUploadHandlerRequest is used to hold the parameters to create remote storage for shuffle uploader.
@@ -34,6 +35,9 @@ public class CreateShuffleUploadHandlerRequest {
   private final Configuration hadoopConf;
   private final int bufferSize;
   private final boolean combineUpload;
+  private final UploadRateLimiter rateLimiter;
+  private final boolean verifyChecksum;
+  private final int retryTimes;
 
   public StorageType getRemoteStorageType() {
     return remoteStorageType;
@@ -63,6 +67,18 @@ public class CreateShuffleUploadHandlerRequest {
     return combineUpload;
   }
 
+  public UploadRateLimiter getRateLimiter() {
+    return rateLimiter;
+  }
+
+  public boolean getVerifyChecksum() {
+    return verifyChecksum;
+  }
+
+  public int getRetryTimes() {
+    return retryTimes;
+  }
+
   public static class Builder {
     private StorageType remoteStorageType;
     private String shuffleKey;
@@ -71,6 +87,9 @@ public class CreateShuffleUploadHandlerRequest {
     private Configuration hadoopConf;
     private int bufferSize;
     private boolean combineUpload;
+    private UploadRateLimiter rateLimiter;
+    private boolean verifyChecksum;
+    private int retryTimes;
 
     public Builder() {
       // use HDFS by default, we may use COS, OZONE in the future
@@ -114,6 +133,21 @@ public class CreateShuffleUploadHandlerRequest {
       return this;
     }
 
+    public Builder rateLimiter(UploadRateLimiter rateLimiter) {
+      this.rateLimiter = rateLimiter;
+      return this;
+    }
+
+    public Builder verifyChecksum(boolean verifyChecksum) {
+      this.verifyChecksum = verifyChecksum;
+      return this;
+    }
+
+    public Builder retryTimes(int retryTimes) {
+      this.retryTimes = retryTimes;
+      return this;
+    }
+
     public CreateShuffleUploadHandlerRequest build() throws IllegalArgumentException {
       validate();
       return new CreateShuffleUploadHandlerRequest(this);
@@ -141,6 +175,10 @@ public class CreateShuffleUploadHandlerRequest {
         if (bufferSize <= 1024) {
           throw new IllegalArgumentException("Buffer size must be larger than 1K");
         }
+
+        if (retryTimes < 0) {
+          throw new IllegalArgumentException("Retry times must be non-negative");
+        }
       }
     }
 
@@ -154,5 +192,8 @@ public class CreateShuffleUploadHandlerRequest {
     this.hadoopConf = builder.hadoopConf;
     this.bufferSize = builder.bufferSize;
     this.combineUpload = builder.combineUpload;
+    this.rateLimiter = builder.rateLimiter;
+    this.verifyChecksum = builder.verifyChecksum;
+    this.retryTimes = builder.retryTimes;
   }
 }
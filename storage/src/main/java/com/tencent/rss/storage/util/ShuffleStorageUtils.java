@@ -198,6 +198,15 @@ public class ShuffleStorageUtils {
     return range;
   }
 
+  // parse the folder name generated by getShuffleDataPath, eg, 0-9 is parsed to [0, 9]
+  public static int[] parsePartitionRange(String rangeFolderName) {
+    String[] splits = rangeFolderName.split(HDFS_DIRNAME_SEPARATOR);
+    if (splits.length != 2) {
+      throw new IllegalArgumentException("Invalid partition range folder " + rangeFolderName);
+    }
+    return new int[]{Integer.parseInt(splits[0]), Integer.parseInt(splits[1])};
+  }
+
   public static int getStorageIndex(int max, String appId, int shuffleId, int startPartition) {
     String hash = appId + "_" + shuffleId + "_" + startPartition;
     int index = MurmurHash.getInstance().hash(hash.getBytes()) % max;
@@ -232,8 +241,13 @@ public class ShuffleStorageUtils {
   }
 
   public static long uploadFile(File file, HdfsFileWriter writer, int bufferSize) throws IOException {
+    return uploadFile(file, writer, bufferSize, null);
+  }
+
+  public static long uploadFile(
+      File file, HdfsFileWriter writer, int bufferSize, UploadRateLimiter rateLimiter) throws IOException {
     try (FileInputStream inputStream = new FileInputStream(file)) {
-      return writer.copy(inputStream, bufferSize);
+      return writer.copy(inputStream, bufferSize, rateLimiter);
     } catch (IOException e) {
       LOG.error("Fail to upload file {}, {}", file.getAbsolutePath(), e);
       throw new IOException(e);
@@ -245,6 +259,7 @@ public class ShuffleStorageUtils {
         || StorageType.LOCALFILE_HDFS.name().equals(storageType)
         || StorageType.LOCALFILE_HDFS_2.name().equals(storageType)
         || StorageType.MEMORY_LOCALFILE.name().equals(storageType)
-        || StorageType.MEMORY_LOCALFILE_HDFS.name().equals(storageType);
+        || StorageType.MEMORY_LOCALFILE_HDFS.name().equals(storageType)
+        || StorageType.MEMORY_TMPFS_LOCALFILE.name().equals(storageType);
   }
 }
@@ -25,5 +25,6 @@ public enum StorageType {
   LOCALFILE_HDFS_2,
   MEMORY_LOCALFILE,
   MEMORY_HDFS,
-  MEMORY_LOCALFILE_HDFS
+  MEMORY_LOCALFILE_HDFS,
+  MEMORY_TMPFS_LOCALFILE
 }
@@ -0,0 +1,61 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.storage.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Token bucket of upload bandwidth, one byte is one permit. It is shared by the uploaders
+ * of all local disks, so the total upload bandwidth of shuffle server is capped.
+ */
+public class UploadRateLimiter {
+
+  private final long bytesPerSecond;
+  private final RateLimiter rateLimiter;
+  private final AtomicInteger uploaderNum = new AtomicInteger(0);
+
+  public UploadRateLimiter(long bytesPerSecond) {
+    if (bytesPerSecond <= 0) {
+      throw new IllegalArgumentException("Upload bandwidth must be positive");
+    }
+    this.bytesPerSecond = bytesPerSecond;
+    this.rateLimiter = RateLimiter.create(bytesPerSecond);
+  }
+
+  public void acquire(int bytes) {
+    if (bytes > 0) {
+      rateLimiter.acquire(bytes);
+    }
+  }
+
+  // uploader which shares the bandwidth should register itself to estimate its share of bandwidth
+  public void register() {
+    uploaderNum.incrementAndGet();
+  }
+
+  public long getBytesPerSecond() {
+    return bytesPerSecond;
+  }
+
+  public int getUploaderNum() {
+    return Math.max(1, uploaderNum.get());
+  }
+}
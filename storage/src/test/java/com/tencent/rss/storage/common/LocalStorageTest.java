@@ -164,4 +164,37 @@ public class LocalStorageTest {
     assertEquals(2, item.getSortedShuffleKeys(false, 2).size());
     assertEquals(2, item.getSortedShuffleKeys(false, 3).size());
   }
+
+  @Test
+  public void sortedShuffleKeysTest() {
+    LocalStorage item = LocalStorage.newBuilder().basePath(testBaseDir.getAbsolutePath())
+        .cleanupThreshold(50)
+        .highWaterMarkOfWrite(95)
+        .lowWaterMarkOfWrite(80)
+        .capacity(1000)
+        .cleanIntervalMs(5000)
+        .build();
+    item.createMetadataIfNotExist("key1");
+    item.createMetadataIfNotExist("key2");
+    item.createMetadataIfNotExist("key3");
+    item.updateWrite("key1", 10, Lists.newArrayList(1));
+    item.updateWrite("key2", 30, Lists.newArrayList(1));
+    item.updateWrite("key3", 20, Lists.newArrayList(1));
+    assertEquals(Lists.newArrayList("key2", "key3", "key1"), item.getSortedShuffleKeys(false, 3));
+    assertEquals(Lists.newArrayList("key2", "key3"), item.getSortedShuffleKeys(false, 2));
+
+    // the order is updated with the size of shuffle
+    item.updateWrite("key1", 40, Lists.newArrayList(2));
+    assertEquals(Lists.newArrayList("key1", "key2", "key3"), item.getSortedShuffleKeys(false, 3));
+
+    // uploaded shuffle is skipped
+    item.updateUploadedShuffle("key1", 50, Lists.newArrayList(1, 2));
+    assertEquals(Lists.newArrayList("key2", "key3"), item.getSortedShuffleKeys(false, 3));
+
+    item.removeResources("key2");
+    assertEquals(Lists.newArrayList("key3"), item.getSortedShuffleKeys(false, 3));
+    item.createMetadataIfNotExist("key2");
+    item.updateWrite("key2", 5, Lists.newArrayList(1));
+    assertEquals(Lists.newArrayList("key3", "key2"), item.getSortedShuffleKeys(false, 3));
+  }
 }
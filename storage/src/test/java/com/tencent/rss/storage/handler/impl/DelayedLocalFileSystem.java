@@ -0,0 +1,113 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.storage.handler.impl;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSInputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+
+/**
+ * Raw local file system which simulates the latency of remote storage for open and read,
+ * it also records the max number of the concurrent operations and the number of reads.
+ */
+public class DelayedLocalFileSystem extends RawLocalFileSystem {
+
+  private static volatile long delayMs = 0;
+  private static final AtomicInteger RUNNING = new AtomicInteger(0);
+  private static final AtomicInteger MAX_RUNNING = new AtomicInteger(0);
+  private static final AtomicInteger READ_COUNT = new AtomicInteger(0);
+
+  public static void reset(long delay) {
+    delayMs = delay;
+    RUNNING.set(0);
+    MAX_RUNNING.set(0);
+    READ_COUNT.set(0);
+  }
+
+  public static int getMaxRunning() {
+    return MAX_RUNNING.get();
+  }
+
+  public static int getReadCount() {
+    return READ_COUNT.get();
+  }
+
+  private static void delay() throws IOException {
+    int running = RUNNING.incrementAndGet();
+    MAX_RUNNING.accumulateAndGet(running, Math::max);
+    try {
+      Thread.sleep(delayMs);
+    } catch (InterruptedException e) {
+      throw new IOException(e);
+    } finally {
+      RUNNING.decrementAndGet();
+    }
+  }
+
+  @Override
+  public FSDataInputStream open(Path f, int bufferSize) throws IOException {
+    delay();
+    return new FSDataInputStream(new DelayedInputStream(super.open(f, bufferSize)));
+  }
+
+  private static class DelayedInputStream extends FSInputStream {
+
+    private final FSDataInputStream in;
+
+    DelayedInputStream(FSDataInputStream in) {
+      this.in = in;
+    }
+
+    @Override
+    public void seek(long pos) throws IOException {
+      in.seek(pos);
+    }
+
+    @Override
+    public long getPos() throws IOException {
+      return in.getPos();
+    }
+
+    @Override
+    public boolean seekToNewSource(long targetPos) throws IOException {
+      return in.seekToNewSource(targetPos);
+    }
+
+    @Override
+    public int read() throws IOException {
+      return in.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      READ_COUNT.incrementAndGet();
+      delay();
+      return in.read(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
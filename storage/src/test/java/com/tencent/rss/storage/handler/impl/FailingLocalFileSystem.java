@@ -0,0 +1,76 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.storage.handler.impl;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.hadoop.util.Progressable;
+
+/**
+ * Raw local file system which fails the write once the given number of bytes are written
+ * to the created files, the failure is injected only once.
+ */
+public class FailingLocalFileSystem extends RawLocalFileSystem {
+
+  // negative means no failure will be injected
+  private static final AtomicLong REMAINING_BYTES = new AtomicLong(-1);
+
+  public static void failAfter(long bytes) {
+    REMAINING_BYTES.set(bytes);
+  }
+
+  @Override
+  public FSDataOutputStream create(Path f, boolean overwrite, int bufferSize,
+      short replication, long blockSize, Progressable progress) throws IOException {
+    FSDataOutputStream out = super.create(f, overwrite, bufferSize, replication, blockSize, progress);
+    return new FSDataOutputStream(new FailingOutputStream(out), statistics);
+  }
+
+  private static class FailingOutputStream extends FilterOutputStream {
+
+    FailingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      long remaining = REMAINING_BYTES.get();
+      if (remaining >= 0) {
+        if (remaining < len) {
+          REMAINING_BYTES.set(-1);
+          out.write(b, off, (int) remaining);
+          throw new IOException("Injected failure of the write");
+        }
+        REMAINING_BYTES.addAndGet(-len);
+      }
+      out.write(b, off, len);
+    }
+  }
+}
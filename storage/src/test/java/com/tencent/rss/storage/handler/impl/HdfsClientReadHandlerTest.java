@@ -18,14 +18,18 @@
 
 package com.tencent.rss.storage.handler.impl;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.tencent.rss.common.BufferSegment;
 import com.tencent.rss.common.ShuffleDataResult;
 import com.tencent.rss.storage.HdfsShuffleHandlerTestBase;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
 import org.junit.Test;
 import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
@@ -106,4 +110,69 @@ public class HdfsClientReadHandlerTest extends HdfsShuffleHandlerTestBase {
       fail(e.getMessage());
     }
   }
+
+  @Test
+  public void parallelReadTest() throws Exception {
+    Configuration localConf = new Configuration();
+    localConf.setClass("fs.file.impl", DelayedLocalFileSystem.class, FileSystem.class);
+    localConf.setBoolean("fs.file.impl.disable.cache", true);
+    String basePath = "file://" + tmpDir.newFolder("parallelReadTest").getAbsolutePath();
+    HdfsShuffleWriteHandler writeHandler =
+        new HdfsShuffleWriteHandler("appId", 0, 1, 1, basePath, "test", localConf);
+    Map<Long, byte[]> expectedData = Maps.newHashMap();
+    // one file per server and fail times
+    for (int i = 0; i < 6; i++) {
+      writeHandler.setFailTimes(i);
+      writeTestData(writeHandler, 10, 3, 0, expectedData);
+    }
+
+    DelayedLocalFileSystem.reset(20);
+    localConf.setInt(HdfsClientReadHandler.READ_PARALLELISM, 1);
+    long start = System.currentTimeMillis();
+    List<Long> sequentialBlockIds = readAll(basePath, localConf, expectedData);
+    long sequentialCost = System.currentTimeMillis() - start;
+    assertEquals(1, DelayedLocalFileSystem.getMaxRunning());
+
+    DelayedLocalFileSystem.reset(20);
+    localConf.setInt(HdfsClientReadHandler.READ_PARALLELISM, 4);
+    start = System.currentTimeMillis();
+    List<Long> parallelBlockIds = readAll(basePath, localConf, expectedData);
+    long parallelCost = System.currentTimeMillis() - start;
+    assertTrue(DelayedLocalFileSystem.getMaxRunning() > 1);
+    assertTrue(DelayedLocalFileSystem.getMaxRunning() <= 4);
+    // blocks are returned with the same order
+    assertEquals(sequentialBlockIds, parallelBlockIds);
+    assertTrue(parallelCost < sequentialCost);
+
+    // the memory cap limits the inflight segments, at least one segment is read at a time
+    DelayedLocalFileSystem.reset(0);
+    localConf.setLong(HdfsClientReadHandler.READ_MAX_INFLIGHT_SIZE, 1);
+    assertEquals(sequentialBlockIds, readAll(basePath, localConf, expectedData));
+  }
+
+  private List<Long> readAll(String basePath, Configuration hadoopConf, Map<Long, byte[]> expectedData) {
+    Roaring64NavigableMap expectBlockIds = Roaring64NavigableMap.bitmapOf();
+    expectedData.keySet().forEach(expectBlockIds::addLong);
+    Roaring64NavigableMap processBlockIds = Roaring64NavigableMap.bitmapOf();
+    HdfsClientReadHandler handler = new HdfsClientReadHandler("appId", 0, 1, 1024 * 1024, 1, 10, 13,
+        expectBlockIds, processBlockIds, basePath, hadoopConf);
+    List<Long> blockIds = Lists.newArrayList();
+    try {
+      ShuffleDataResult sdr = handler.readShuffleData();
+      while (!sdr.isEmpty()) {
+        checkData(sdr, expectedData);
+        // processed blocks are updated by the caller like the shuffle read client
+        for (BufferSegment bs : sdr.getBufferSegments()) {
+          blockIds.add(bs.getBlockId());
+          processBlockIds.addLong(bs.getBlockId());
+        }
+        sdr = handler.readShuffleData();
+      }
+    } finally {
+      handler.close();
+    }
+    assertEquals(expectedData.keySet(), Sets.newHashSet(blockIds));
+    assertEquals(expectedData.size(), blockIds.size());
+    return blockIds;
+  }
 }
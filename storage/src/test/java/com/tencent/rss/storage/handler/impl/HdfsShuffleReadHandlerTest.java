@@ -20,6 +20,7 @@ package com.tencent.rss.storage.handler.impl;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import com.google.common.collect.Maps;
@@ -31,6 +32,8 @@ import com.tencent.rss.storage.util.ShuffleStorageUtils;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
 import org.junit.Test;
 import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
@@ -90,4 +93,72 @@ public class HdfsShuffleReadHandlerTest extends HdfsShuffleHandlerTestBase {
       fail(e.getMessage());
     }
   }
+
+  @Test
+  public void coalesceReadTest() throws Exception {
+    Configuration localConf = new Configuration();
+    localConf.setClass("fs.file.impl", DelayedLocalFileSystem.class, FileSystem.class);
+    localConf.setBoolean("fs.file.impl.disable.cache", true);
+    String basePath = "file://" + tmpDir.newFolder("coalesceReadTest").getAbsolutePath();
+    HdfsShuffleWriteHandler writeHandler =
+        new HdfsShuffleWriteHandler("appId", 0, 1, 1, basePath, "test", localConf);
+    Map<Long, byte[]> writtenData = Maps.newHashMap();
+    writeTestData(writeHandler, 200, 10, 0, writtenData);
+    String fileNamePrefix = ShuffleStorageUtils.getFullShuffleDataFolder(basePath,
+        ShuffleStorageUtils.getShuffleDataPathWithRange("appId", 0, 1, 1, 10)) + "/test_0";
+    // skip the blocks randomly, eg, they are from the tasks which aren't needed
+    Random random = new Random(7);
+    Set<Long> expectedBlockIds = Sets.newHashSet();
+    for (long blockId : writtenData.keySet()) {
+      if (random.nextInt(3) == 0) {
+        expectedBlockIds.add(blockId);
+      }
+    }
+
+    DelayedLocalFileSystem.reset(0);
+    assertEquals(expectedBlockIds, readExpectedBlocks(fileNamePrefix, localConf, writtenData, expectedBlockIds));
+    int readsWithoutCoalesce = DelayedLocalFileSystem.getReadCount();
+
+    // only the adjacent segments are coalesced
+    localConf.setLong(HdfsShuffleReadHandler.READ_COALESCE_MAX_SIZE, 200);
+    localConf.setLong(HdfsShuffleReadHandler.READ_COALESCE_GAP_SIZE, 0);
+    DelayedLocalFileSystem.reset(0);
+    assertEquals(expectedBlockIds, readExpectedBlocks(fileNamePrefix, localConf, writtenData, expectedBlockIds));
+    int readsWithAdjacentCoalesce = DelayedLocalFileSystem.getReadCount();
+
+    // the skipped segments are read as holes
+    localConf.setLong(HdfsShuffleReadHandler.READ_COALESCE_GAP_SIZE, 100);
+    DelayedLocalFileSystem.reset(0);
+    assertEquals(expectedBlockIds, readExpectedBlocks(fileNamePrefix, localConf, writtenData, expectedBlockIds));
+    int readsWithGapCoalesce = DelayedLocalFileSystem.getReadCount();
+
+    assertTrue(readsWithAdjacentCoalesce < readsWithoutCoalesce);
+    assertTrue(readsWithGapCoalesce < readsWithAdjacentCoalesce);
+  }
+
+  private Set<Long> readExpectedBlocks(String fileNamePrefix, Configuration hadoopConf,
+      Map<Long, byte[]> writtenData, Set<Long> expectedBlockIds) throws Exception {
+    Roaring64NavigableMap expectBlockIds = Roaring64NavigableMap.bitmapOf();
+    expectedBlockIds.forEach(expectBlockIds::addLong);
+    Roaring64NavigableMap processBlockIds = Roaring64NavigableMap.bitmapOf();
+    HdfsShuffleReadHandler handler = new HdfsShuffleReadHandler("appId", 0, 1, fileNamePrefix,
+        20, expectBlockIds, processBlockIds, hadoopConf);
+    Set<Long> actualBlockIds = Sets.newHashSet();
+    try {
+      ShuffleDataResult sdr = handler.readShuffleData();
+      while (sdr != null) {
+        checkData(sdr, writtenData);
+        for (BufferSegment bs : sdr.getBufferSegments()) {
+          processBlockIds.addLong(bs.getBlockId());
+          if (expectedBlockIds.contains(bs.getBlockId())) {
+            assertTrue(actualBlockIds.add(bs.getBlockId()));
+          }
+        }
+        sdr = handler.readShuffleData();
+      }
+    } finally {
+      handler.close();
+    }
+    return actualBlockIds;
+  }
 }
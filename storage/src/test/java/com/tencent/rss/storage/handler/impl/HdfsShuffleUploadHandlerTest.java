@@ -18,14 +18,17 @@
 
 package com.tencent.rss.storage.handler.impl;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import com.google.common.collect.Lists;
+import com.google.common.primitives.Bytes;
 import com.tencent.rss.common.util.ChecksumUtils;
 import com.tencent.rss.storage.HdfsTestBase;
+import com.tencent.rss.storage.common.FileBasedShuffleSegment;
 import com.tencent.rss.storage.util.ShuffleStorageUtils;
 import com.tencent.rss.storage.util.ShuffleUploadResult;
 import java.io.EOFException;
@@ -33,11 +36,16 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.junit.Rule;
 import org.junit.Test;
@@ -458,4 +466,124 @@ public class HdfsShuffleUploadHandlerTest extends HdfsTestBase {
       fail(e.getMessage());
     }
   }
+
+  @Test
+  public void uploadResumeTest() throws Exception {
+    Configuration localConf = new Configuration();
+    localConf.setClass("fs.file.impl", FailingLocalFileSystem.class, FileSystem.class);
+    localConf.setBoolean("fs.file.impl.disable.cache", true);
+    String basePath = "file://" + tmpDir.newFolder("uploadResumeTest").getAbsolutePath();
+    FileSystem localFs = new Path(basePath).getFileSystem(localConf);
+    List<File> dataFiles = Lists.newArrayList();
+    List<File> indexFiles = Lists.newArrayList();
+    List<byte[]> data = Lists.newArrayList();
+    for (int i = 1; i <= 3; i++) {
+      dataFiles.add(File.createTempFile("uploadResumeTest" + i, ".data", tmpDir.getRoot()));
+      indexFiles.add(File.createTempFile("uploadResumeTest" + i, ".index", tmpDir.getRoot()));
+      data.add(writePartition(dataFiles.get(i - 1), indexFiles.get(i - 1), i, 100));
+    }
+
+    // the upload stops at the 2nd partition without retry
+    FailingLocalFileSystem.failAfter(150);
+    HdfsShuffleUploadHandler handler = new HdfsShuffleUploadHandler(
+        basePath, localConf, "uploadResumeTest", 4096, true, null, true, 0);
+    ShuffleUploadResult result = handler.upload(dataFiles, indexFiles, Lists.newArrayList(1, 2, 3));
+    assertEquals(100L, result.getSize());
+    assertEquals(Lists.newArrayList(1), result.getPartitions());
+
+    // the retry resumes from the 2nd partition, the 1st partition isn't uploaded again
+    FailingLocalFileSystem.failAfter(150);
+    handler = new HdfsShuffleUploadHandler(basePath, localConf, "uploadResumeTest", 4096, true, null, true, 1);
+    result = handler.upload(dataFiles, indexFiles, Lists.newArrayList(1, 2, 3));
+    assertEquals(600L, result.getSize());
+    assertEquals(Lists.newArrayList(1, 2, 3), result.getPartitions());
+    String filePrefix = basePath + "/combine/" + handler.getHdfsFilePrefixBase();
+    try (FSDataInputStream indexStream = localFs.open(new Path(filePrefix + "-1.index"))) {
+      assertEquals(1, indexStream.readInt());
+      assertEquals(1, indexStream.readInt());
+      assertEquals(FileBasedShuffleSegment.SEGMENT_SIZE, indexStream.readLong());
+      assertEquals(100L, indexStream.readLong());
+    }
+    try (FSDataInputStream indexStream = localFs.open(new Path(filePrefix + "-2.index"))) {
+      assertEquals(2, indexStream.readInt());
+      assertEquals(2, indexStream.readInt());
+      assertEquals(2 * FileBasedShuffleSegment.SEGMENT_SIZE, indexStream.readLong());
+      assertEquals(200L, indexStream.readLong());
+      assertEquals(3, indexStream.readInt());
+      assertEquals(3 * FileBasedShuffleSegment.SEGMENT_SIZE, indexStream.readLong());
+      assertEquals(300L, indexStream.readLong());
+    }
+    assertArrayEquals(Bytes.concat(data.get(1), data.get(2)), readFile(localFs, filePrefix + "-2.data"));
+
+    // nothing is uploaded by the failed attempt, the retry replaces its files
+    FailingLocalFileSystem.failAfter(50);
+    handler = new HdfsShuffleUploadHandler(basePath, localConf, "uploadResumeTest", 4096, true, null, true, 1);
+    result = handler.upload(dataFiles, indexFiles, Lists.newArrayList(1, 2, 3));
+    assertEquals(600L, result.getSize());
+    assertEquals(Lists.newArrayList(1, 2, 3), result.getPartitions());
+    filePrefix = basePath + "/combine/" + handler.getHdfsFilePrefixBase();
+    assertArrayEquals(Bytes.concat(data.get(0), data.get(1), data.get(2)), readFile(localFs, filePrefix + "-1.data"));
+    assertEquals(ShuffleStorageUtils.getIndexFileHeaderLen(3) + 6 * FileBasedShuffleSegment.SEGMENT_SIZE,
+        localFs.getFileStatus(new Path(filePrefix + "-1.index")).getLen());
+  }
+
+  @Test
+  public void verifyChecksumTest() throws Exception {
+    String basePath = "file://" + tmpDir.newFolder("verifyChecksumTest").getAbsolutePath();
+    List<File> dataFiles = Lists.newArrayList();
+    List<File> indexFiles = Lists.newArrayList();
+    for (int i = 1; i <= 3; i++) {
+      dataFiles.add(File.createTempFile("verifyChecksumTest" + i, ".data", tmpDir.getRoot()));
+      indexFiles.add(File.createTempFile("verifyChecksumTest" + i, ".index", tmpDir.getRoot()));
+      writePartition(dataFiles.get(i - 1), indexFiles.get(i - 1), 3, 100);
+    }
+    // corrupt the 2nd block of the 2nd partition
+    try (RandomAccessFile file = new RandomAccessFile(dataFiles.get(1), "rw")) {
+      file.seek(150);
+      int b = file.read();
+      file.seek(150);
+      file.write(b ^ 0xFF);
+    }
+
+    HdfsShuffleUploadHandler handler = new HdfsShuffleUploadHandler(
+        basePath, new Configuration(), "verifyChecksumTest", 4096, true, null, true, 1);
+    ShuffleUploadResult result = handler.upload(dataFiles, indexFiles, Lists.newArrayList(1, 2, 3));
+    assertEquals(300L, result.getSize());
+    assertEquals(Lists.newArrayList(1), result.getPartitions());
+
+    handler = new HdfsShuffleUploadHandler(
+        basePath, new Configuration(), "verifyChecksumTest", 4096, true, null, false, 1);
+    result = handler.upload(dataFiles, indexFiles, Lists.newArrayList(1, 2, 3));
+    assertEquals(900L, result.getSize());
+    assertEquals(Lists.newArrayList(1, 2, 3), result.getPartitions());
+  }
+
+  private byte[] writePartition(File dataFile, File indexFile, int blockNum, int blockSize) throws IOException {
+    byte[] data = new byte[blockNum * blockSize];
+    new Random().nextBytes(data);
+    ByteBuffer index = ByteBuffer.allocate(blockNum * FileBasedShuffleSegment.SEGMENT_SIZE);
+    for (int i = 0; i < blockNum; i++) {
+      index.putLong((long) i * blockSize);
+      index.putInt(blockSize);
+      index.putInt(blockSize);
+      index.putLong(ChecksumUtils.getCrc32(data, i * blockSize, blockSize));
+      index.putLong(i);
+      index.putLong(0L);
+    }
+    try (OutputStream out = new FileOutputStream(dataFile)) {
+      out.write(data);
+    }
+    try (OutputStream out = new FileOutputStream(indexFile)) {
+      out.write(index.array());
+    }
+    return data;
+  }
+
+  private byte[] readFile(FileSystem fileSystem, String path) throws IOException {
+    byte[] data = new byte[(int) fileSystem.getFileStatus(new Path(path)).getLen()];
+    try (FSDataInputStream in = fileSystem.open(new Path(path))) {
+      in.readFully(data);
+    }
+    return data;
+  }
 }
@@ -0,0 +1,235 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.storage.handler.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import com.tencent.rss.common.BufferSegment;
+import com.tencent.rss.common.ShuffleDataResult;
+import com.tencent.rss.common.ShufflePartitionedBlock;
+import com.tencent.rss.common.util.ChecksumUtils;
+import com.tencent.rss.storage.util.ShuffleStorageUtils;
+
+public class HdfsWriterCacheTest {
+
+  @ClassRule
+  public static final TemporaryFolder tmpDir = new TemporaryFolder();
+  private static final AtomicLong BLOCK_ID = new AtomicLong(0);
+  private static Configuration conf;
+
+  @BeforeClass
+  public static void setUp() {
+    conf = new Configuration();
+    // checksum file system can't flush the partial chunk, use the raw local file system instead of hdfs
+    conf.setClass("fs.file.impl", RawLocalFileSystem.class, FileSystem.class);
+    conf.setBoolean("fs.file.impl.disable.cache", true);
+  }
+
+  @Test
+  public void keepWritersOpenTest() throws Exception {
+    String basePath = "file://" + tmpDir.newFolder("keepWritersOpenTest").getAbsolutePath();
+    HdfsWriterCache writerCache = new HdfsWriterCache(10, 0);
+    HdfsShuffleWriteHandler writeHandler =
+        new HdfsShuffleWriteHandler("appId", 0, 1, 1, basePath, "test", conf, writerCache);
+    Map<Long, byte[]> expectedData = Maps.newLinkedHashMap();
+    writeBlocks(writeHandler, 3, 20, expectedData);
+    writeBlocks(writeHandler, 5, 30, expectedData);
+    assertTrue(writeHandler.isWriterOpened());
+    assertEquals(1, writerCache.getOpenedHandlerNum());
+
+    // data is visible before the writers are closed
+    String filePrefix = ShuffleStorageUtils.getFullShuffleDataFolder(basePath,
+        ShuffleStorageUtils.getShuffleDataPathWithRange("appId", 0, 1, 1, 10)) + "/test_0";
+    assertEquals(expectedData, readAll(filePrefix, expectedData));
+
+    // the reader can see the data which is written after it is opened
+    Roaring64NavigableMap expectBlockIds = Roaring64NavigableMap.bitmapOf();
+    HdfsShuffleReadHandler readHandler = new HdfsShuffleReadHandler("appId", 0, 1, filePrefix,
+        1024 * 1024, expectBlockIds, Roaring64NavigableMap.bitmapOf(), conf);
+    writeBlocks(writeHandler, 2, 10, expectedData);
+    expectedData.keySet().forEach(expectBlockIds::addLong);
+    assertEquals(expectedData, readAll(readHandler, expectedData));
+
+    // the writers are opened again with append mode after they are closed
+    writeHandler.closeWriters();
+    assertFalse(writeHandler.isWriterOpened());
+    assertEquals(0, writerCache.getOpenedHandlerNum());
+    writeBlocks(writeHandler, 2, 10, expectedData);
+    assertTrue(writeHandler.isWriterOpened());
+    assertEquals(expectedData, readAll(filePrefix, expectedData));
+
+    // all data is written to the same files
+    File dataFolder = new File(filePrefix.substring("file://".length())).getParentFile();
+    assertEquals(2, dataFolder.list().length);
+    writerCache.close();
+    assertFalse(writeHandler.isWriterOpened());
+  }
+
+  @Test
+  public void maxOpenAndIdleTest() throws Exception {
+    String basePath = "file://" + tmpDir.newFolder("maxOpenAndIdleTest").getAbsolutePath();
+    HdfsWriterCache writerCache = new HdfsWriterCache(2, 60000);
+    List<HdfsShuffleWriteHandler> handlers = Lists.newArrayList();
+    for (int i = 0; i < 3; i++) {
+      HdfsShuffleWriteHandler writeHandler =
+          new HdfsShuffleWriteHandler("appId" + (i % 2), 0, i, i, basePath, "test", conf, writerCache);
+      writeBlocks(writeHandler, 1, 10, Maps.newHashMap());
+      handlers.add(writeHandler);
+    }
+    // the least recently written handler is closed
+    assertEquals(2, writerCache.getOpenedHandlerNum());
+    assertFalse(handlers.get(0).isWriterOpened());
+    assertTrue(handlers.get(1).isWriterOpened());
+    assertTrue(handlers.get(2).isWriterOpened());
+
+    writeBlocks(handlers.get(0), 1, 10, Maps.newHashMap());
+    assertTrue(handlers.get(0).isWriterOpened());
+    assertFalse(handlers.get(1).isWriterOpened());
+    assertTrue(handlers.get(2).isWriterOpened());
+
+    writerCache.closeIdleHandlers(System.currentTimeMillis());
+    assertEquals(2, writerCache.getOpenedHandlerNum());
+    writerCache.closeHandlers("appId0");
+    assertEquals(0, writerCache.getOpenedHandlerNum());
+    assertFalse(handlers.get(0).isWriterOpened());
+    assertFalse(handlers.get(2).isWriterOpened());
+
+    writeBlocks(handlers.get(1), 1, 10, Maps.newHashMap());
+    assertEquals(1, writerCache.getOpenedHandlerNum());
+    writerCache.closeIdleHandlers(System.currentTimeMillis() + 60000);
+    assertEquals(0, writerCache.getOpenedHandlerNum());
+    assertFalse(handlers.get(1).isWriterOpened());
+    writerCache.close();
+  }
+
+  @Test
+  public void concurrentWriteAndCloseTest() throws Exception {
+    String basePath = "file://" + tmpDir.newFolder("concurrentWriteAndCloseTest").getAbsolutePath();
+    HdfsWriterCache writerCache = new HdfsWriterCache(10, 0);
+    HdfsShuffleWriteHandler writeHandler =
+        new HdfsShuffleWriteHandler("appId", 0, 1, 1, basePath, "test", conf, writerCache);
+    Map<Long, byte[]> expectedData = Maps.newConcurrentMap();
+    List<Thread> threads = Lists.newArrayList();
+    List<Throwable> errors = Lists.newCopyOnWriteArrayList();
+    for (int i = 0; i < 2; i++) {
+      threads.add(new Thread(() -> {
+        try {
+          for (int j = 0; j < 100; j++) {
+            writeBlocks(writeHandler, 1, 10, expectedData);
+          }
+        } catch (Throwable e) {
+          errors.add(e);
+        }
+      }));
+    }
+    threads.add(new Thread(() -> {
+      for (int j = 0; j < 100; j++) {
+        writeHandler.closeWriters();
+      }
+    }));
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(errors.isEmpty());
+    // the cache tracks the handler as long as its writers are opened, so they can be closed by the cache
+    assertEquals(writeHandler.isWriterOpened() ? 1 : 0, writerCache.getOpenedHandlerNum());
+    writerCache.close();
+    assertFalse(writeHandler.isWriterOpened());
+    String filePrefix = ShuffleStorageUtils.getFullShuffleDataFolder(basePath,
+        ShuffleStorageUtils.getShuffleDataPathWithRange("appId", 0, 1, 1, 10)) + "/test_0";
+    assertEquals(expectedData.size(), readAll(filePrefix, expectedData).size());
+  }
+
+  @Test
+  public void incompleteIndexTest() throws Exception {
+    String basePath = "file://" + tmpDir.newFolder("incompleteIndexTest").getAbsolutePath();
+    HdfsWriterCache writerCache = new HdfsWriterCache(10, 0);
+    HdfsShuffleWriteHandler writeHandler =
+        new HdfsShuffleWriteHandler("appId", 0, 1, 1, basePath, "test", conf, writerCache);
+    Map<Long, byte[]> expectedData = Maps.newLinkedHashMap();
+    writeBlocks(writeHandler, 3, 20, expectedData);
+    String filePrefix = ShuffleStorageUtils.getFullShuffleDataFolder(basePath,
+        ShuffleStorageUtils.getShuffleDataPathWithRange("appId", 0, 1, 1, 10)) + "/test_0";
+    // simulate the index which is being written
+    try (HdfsFileWriter indexWriter = new HdfsFileWriter(
+        new Path(ShuffleStorageUtils.generateIndexFileName(filePrefix)), conf)) {
+      indexWriter.writeData(new byte[17]);
+    }
+    assertEquals(expectedData, readAll(filePrefix, expectedData));
+    writerCache.close();
+  }
+
+  private void writeBlocks(
+      HdfsShuffleWriteHandler writeHandler, int num, int length, Map<Long, byte[]> expectedData) throws Exception {
+    List<ShufflePartitionedBlock> blocks = Lists.newArrayList();
+    for (int i = 0; i < num; i++) {
+      byte[] buf = new byte[length];
+      new Random().nextBytes(buf);
+      long blockId = BLOCK_ID.incrementAndGet();
+      blocks.add(new ShufflePartitionedBlock(length, length, ChecksumUtils.getCrc32(buf), blockId, 0, buf));
+      expectedData.put(blockId, buf);
+    }
+    writeHandler.write(blocks);
+  }
+
+  private Map<Long, byte[]> readAll(String filePrefix, Map<Long, byte[]> expectedData) throws Exception {
+    Roaring64NavigableMap expectBlockIds = Roaring64NavigableMap.bitmapOf();
+    expectedData.keySet().forEach(expectBlockIds::addLong);
+    return readAll(new HdfsShuffleReadHandler("appId", 0, 1, filePrefix,
+        1024 * 1024, expectBlockIds, Roaring64NavigableMap.bitmapOf(), conf), expectedData);
+  }
+
+  private Map<Long, byte[]> readAll(HdfsShuffleReadHandler readHandler, Map<Long, byte[]> expectedData) {
+    Map<Long, byte[]> actualData = Maps.newLinkedHashMap();
+    ShuffleDataResult result = readHandler.readShuffleData();
+    while (result != null && !result.isEmpty()) {
+      for (BufferSegment bufferSegment : result.getBufferSegments()) {
+        byte[] block = new byte[bufferSegment.getLength()];
+        System.arraycopy(result.getData(), bufferSegment.getOffset(), block, 0, block.length);
+        assertArrayEquals(expectedData.get(bufferSegment.getBlockId()), block);
+        actualData.put(bufferSegment.getBlockId(), expectedData.get(bufferSegment.getBlockId()));
+      }
+      result = readHandler.readShuffleData();
+    }
+    readHandler.close();
+    return actualData;
+  }
+}
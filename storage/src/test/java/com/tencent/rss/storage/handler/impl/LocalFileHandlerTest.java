@@ -35,8 +35,10 @@ import com.tencent.rss.common.ShufflePartitionedBlock;
 import com.tencent.rss.common.config.RssBaseConf;
 import com.tencent.rss.common.util.ChecksumUtils;
 import com.tencent.rss.common.util.RssUtils;
+import com.tencent.rss.storage.common.LocalStorage;
 import com.tencent.rss.storage.handler.api.ServerReadHandler;
 import com.tencent.rss.storage.handler.api.ShuffleWriteHandler;
+import com.tencent.rss.storage.request.CreateShuffleWriteHandlerRequest;
 import com.tencent.rss.storage.util.ShuffleStorageUtils;
 import java.io.File;
 import java.io.IOException;
@@ -44,6 +46,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 import org.junit.Test;
 
@@ -129,6 +134,101 @@ public class LocalFileHandlerTest {
   }
 
 
+  @Test
+  public void segmentLogTest() throws Exception {
+    File tmpDir = Files.createTempDir();
+    tmpDir.deleteOnExit();
+    String basePath = new File(tmpDir, "data").getAbsolutePath();
+    LocalStorage storage = LocalStorage.newBuilder()
+        .basePath(basePath)
+        .capacity(1024L * 1024L)
+        .highWaterMarkOfWrite(95)
+        .lowWaterMarkOfWrite(80)
+        .segmentLogEnabled(true)
+        .build();
+    storage.createMetadataIfNotExist("appId/0");
+    ShuffleWriteHandler writeHandler1 = storage.getOrCreateWriteHandler(new CreateShuffleWriteHandlerRequest(
+        "LOCALFILE", "appId", 0, 1, 1, new String[] {basePath}, "pre", null, 1));
+    ShuffleWriteHandler writeHandler2 = storage.getOrCreateWriteHandler(new CreateShuffleWriteHandlerRequest(
+        "LOCALFILE", "appId", 0, 2, 2, new String[] {basePath}, "pre", null, 1));
+
+    Map<Long, byte[]> expectedData = Maps.newHashMap();
+    Set<Long> expectedBlockIds1 = Sets.newHashSet();
+    Set<Long> expectedBlockIds2 = Sets.newHashSet();
+    writeTestData(writeHandler1, 2, 32, expectedData, expectedBlockIds1);
+    writeTestData(writeHandler2, 3, 32, expectedData, expectedBlockIds2);
+    writeTestData(writeHandler1, 1, 16, expectedData, expectedBlockIds1);
+    writeTestData(writeHandler2, 2, 48, expectedData, expectedBlockIds2);
+
+    // all partition ranges share one data file, and every range keeps its own index file next to it
+    File shuffleFolder = new File(ShuffleStorageUtils.getFullShuffleDataFolder(basePath, "appId/0"));
+    assertEquals(2 * 32 + 3 * 32 + 16 + 2 * 48, new File(shuffleFolder, "segment.data").length());
+    assertEquals(Sets.newHashSet("segment.data", "1-1.index", "2-2.index"),
+        Sets.newHashSet(shuffleFolder.list()));
+
+    LocalFileServerReadHandler readHandler1 = new LocalFileServerReadHandler("appId", 0, 1, 1, 10, basePath);
+    LocalFileServerReadHandler readHandler2 = new LocalFileServerReadHandler("appId", 0, 2, 1, 10, basePath);
+    validateResult(readHandler1, expectedBlockIds1, expectedData);
+    validateResult(readHandler2, expectedBlockIds2, expectedData);
+    // the data of a range isn't continuous in the log, so a read buffer bigger than one event must be split
+    List<ShuffleDataSegment> segments = RssUtils.transIndexDataToSegments(readIndex(readHandler1), 1024 * 1024);
+    assertEquals(2, segments.size());
+    validateResult(readHandler1, expectedBlockIds1, expectedData, 1024 * 1024);
+    validateResult(readHandler2, expectedBlockIds2, expectedData, 1024 * 1024);
+
+    // the log isn't recreated after the shuffle is removed, and is reopened once the shuffle is written again
+    storage.removeResources("appId/0");
+    writeTestData(writeHandler1, 1, 32, Maps.newHashMap(), Sets.newHashSet());
+    validateResult(readHandler1, expectedBlockIds1, expectedData);
+    storage.createMetadataIfNotExist("appId/0");
+    writeTestData(writeHandler1, 1, 32, expectedData, expectedBlockIds1);
+    validateResult(readHandler1, expectedBlockIds1, expectedData);
+    storage.removeHandlers("appId");
+  }
+
+  @Test
+  public void segmentLogConcurrentWriteTest() throws Exception {
+    File tmpDir = Files.createTempDir();
+    tmpDir.deleteOnExit();
+    String basePath = new File(tmpDir, "data").getAbsolutePath();
+    LocalStorage storage = LocalStorage.newBuilder()
+        .basePath(basePath)
+        .capacity(1024L * 1024L)
+        .segmentLogEnabled(true)
+        .build();
+    storage.createMetadataIfNotExist("appId/0");
+    int partitionNum = 10;
+    Map<Long, byte[]> expectedData = Maps.newConcurrentMap();
+    List<Set<Long>> expectedBlockIds = Lists.newArrayList();
+    ExecutorService executorService = Executors.newFixedThreadPool(partitionNum);
+    List<Future<Void>> futures = Lists.newArrayList();
+    for (int partition = 0; partition < partitionNum; partition++) {
+      ShuffleWriteHandler writeHandler = storage.getOrCreateWriteHandler(new CreateShuffleWriteHandlerRequest(
+          "LOCALFILE", "appId", 0, partition, partition, new String[] {basePath}, "pre", null, 1));
+      Set<Long> blockIds = Sets.newConcurrentHashSet();
+      expectedBlockIds.add(blockIds);
+      futures.add(executorService.submit(() -> {
+        for (int i = 0; i < 50; i++) {
+          writeTestData(writeHandler, 2, 64, expectedData, blockIds);
+        }
+        return null;
+      }));
+    }
+    for (Future<Void> future : futures) {
+      future.get();
+    }
+    executorService.shutdownNow();
+
+    File shuffleFolder = new File(ShuffleStorageUtils.getFullShuffleDataFolder(basePath, "appId/0"));
+    assertEquals(partitionNum * 50 * 2 * 64, new File(shuffleFolder, "segment.data").length());
+    for (int partition = 0; partition < partitionNum; partition++) {
+      LocalFileServerReadHandler readHandler =
+          new LocalFileServerReadHandler("appId", 0, partition, 1, partitionNum, basePath);
+      validateResult(readHandler, expectedBlockIds.get(partition), expectedData, 1024 * 1024);
+    }
+    storage.removeHandlers("appId");
+  }
+
   private void writeTestData(
       ShuffleWriteHandler writeHandler,
       int num, int length,
@@ -149,7 +249,12 @@ public class LocalFileHandlerTest {
 
   protected void validateResult(ServerReadHandler readHandler, Set<Long> expectedBlockIds,
       Map<Long, byte[]> expectedData) {
-    List<ShuffleDataResult> shuffleDataResults = readAll(readHandler);
+    validateResult(readHandler, expectedBlockIds, expectedData, 32);
+  }
+
+  private void validateResult(ServerReadHandler readHandler, Set<Long> expectedBlockIds,
+      Map<Long, byte[]> expectedData, int readBufferSize) {
+    List<ShuffleDataResult> shuffleDataResults = readAll(readHandler, readBufferSize);
     Set<Long> actualBlockIds = Sets.newHashSet();
     for (ShuffleDataResult sdr : shuffleDataResults) {
       byte[] buffer = sdr.getData();
@@ -166,9 +271,9 @@ public class LocalFileHandlerTest {
     assertEquals(expectedBlockIds, actualBlockIds);
   }
 
-  private List<ShuffleDataResult> readAll(ServerReadHandler readHandler) {
+  private List<ShuffleDataResult> readAll(ServerReadHandler readHandler, int readBufferSize) {
     ShuffleIndexResult shuffleIndexResult = readIndex(readHandler);
-    return readData(readHandler, shuffleIndexResult);
+    return readData(readHandler, shuffleIndexResult, readBufferSize);
   }
 
   private ShuffleIndexResult readIndex(ServerReadHandler readHandler) {
@@ -177,13 +282,18 @@ public class LocalFileHandlerTest {
   }
 
   private List<ShuffleDataResult> readData(ServerReadHandler readHandler, ShuffleIndexResult shuffleIndexResult) {
+    return readData(readHandler, shuffleIndexResult, 32);
+  }
+
+  private List<ShuffleDataResult> readData(
+      ServerReadHandler readHandler, ShuffleIndexResult shuffleIndexResult, int readBufferSize) {
     List<ShuffleDataResult> shuffleDataResults = Lists.newLinkedList();
     if (shuffleIndexResult == null || shuffleIndexResult.isEmpty()) {
       return shuffleDataResults;
     }
 
     List<ShuffleDataSegment> shuffleDataSegments =
-        RssUtils.transIndexDataToSegments(shuffleIndexResult, 32);
+        RssUtils.transIndexDataToSegments(shuffleIndexResult, readBufferSize);
 
     for (ShuffleDataSegment shuffleDataSegment : shuffleDataSegments) {
       byte[] shuffleData =
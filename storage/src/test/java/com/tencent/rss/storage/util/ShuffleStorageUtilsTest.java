@@ -266,4 +266,21 @@ public class ShuffleStorageUtilsTest {
     assertEquals(0, range[0]);
     assertEquals(2, range[1]);
   }
+
+  @Test
+  public void parsePartitionRangeTest() {
+    int[] range = ShuffleStorageUtils.parsePartitionRange("3-5");
+    assertEquals(3, range[0]);
+    assertEquals(5, range[1]);
+    String path = ShuffleStorageUtils.getShuffleDataPath("appId", 0, 10, 19);
+    range = ShuffleStorageUtils.parsePartitionRange(path.substring(path.lastIndexOf('/') + 1));
+    assertEquals(10, range[0]);
+    assertEquals(19, range[1]);
+    try {
+      ShuffleStorageUtils.parsePartitionRange("combine");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("Invalid partition range folder"));
+    }
+  }
 }
@@ -0,0 +1,69 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.tools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Keep all latencies of every rpc, load generator runs for minutes at most,
+ * so the samples are small enough to be sorted for the exact percentiles.
+ */
+public class LatencyRecorder {
+
+  private final Map<String, List<Long>> latencies = Maps.newConcurrentMap();
+
+  public void record(String name, long startNanos) {
+    long latency = System.nanoTime() - startNanos;
+    List<Long> samples = latencies.computeIfAbsent(name, key -> Collections.synchronizedList(new ArrayList<>()));
+    samples.add(latency);
+  }
+
+  public List<String> report() {
+    List<String> lines = new ArrayList<>();
+    lines.add(String.format("%-24s %10s %12s %12s %12s", "rpc", "count", "p50(ms)", "p99(ms)", "max(ms)"));
+    for (String name : new TreeSet<>(latencies.keySet())) {
+      List<Long> samples;
+      List<Long> recorded = latencies.get(name);
+      synchronized (recorded) {
+        samples = new ArrayList<>(recorded);
+      }
+      Collections.sort(samples);
+      lines.add(String.format("%-24s %10d %12.3f %12.3f %12.3f", name, samples.size(),
+          toMillis(percentile(samples, 0.5)), toMillis(percentile(samples, 0.99)),
+          toMillis(samples.get(samples.size() - 1))));
+    }
+    return lines;
+  }
+
+  static long percentile(List<Long> sortedSamples, double percentile) {
+    int index = (int) Math.ceil(percentile * sortedSamples.size()) - 1;
+    return sortedSamples.get(Math.max(0, Math.min(index, sortedSamples.size() - 1)));
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+}
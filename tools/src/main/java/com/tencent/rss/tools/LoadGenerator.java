@@ -0,0 +1,393 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.tools;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import com.tencent.rss.client.impl.ShuffleReadClientImpl;
+import com.tencent.rss.client.impl.ShuffleWriteClientImpl;
+import com.tencent.rss.client.response.CompressedShuffleBlock;
+import com.tencent.rss.client.response.SendShuffleDataResult;
+import com.tencent.rss.client.util.ClientType;
+import com.tencent.rss.client.util.ClientUtils;
+import com.tencent.rss.common.PartitionRange;
+import com.tencent.rss.common.ShuffleAssignmentsInfo;
+import com.tencent.rss.common.ShuffleBlockInfo;
+import com.tencent.rss.common.ShuffleServerInfo;
+import com.tencent.rss.common.util.ChecksumUtils;
+import com.tencent.rss.common.util.Constants;
+import com.tencent.rss.coordinator.CoordinatorConf;
+import com.tencent.rss.coordinator.CoordinatorServer;
+import com.tencent.rss.server.ShuffleServer;
+import com.tencent.rss.server.ShuffleServerConf;
+
+/**
+ * Start a coordinator and shuffle servers in process, write and read one shuffle with the rss client,
+ * then report the throughput, the latency of rpc and the memory high water marks of shuffle servers, eg,
+ * java -jar rss-tools.jar --servers 3 --maps 100 --partitions 500 --block-sizes 1024,65536
+ */
+public class LoadGenerator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LoadGenerator.class);
+  private static final String LOCALHOST = "127.0.0.1";
+  private static final int SHUFFLE_ID = 0;
+  private static final long MEMORY_SAMPLE_INTERVAL_MS = 50;
+
+  private final LoadGeneratorArguments arguments;
+  private final LatencyRecorder latencyRecorder = new LatencyRecorder();
+  private final List<ShuffleServer> shuffleServers = Lists.newArrayList();
+  private final String appId = "loadGenerator_" + System.currentTimeMillis();
+  private CoordinatorServer coordinator;
+  private File basePath;
+  private boolean isTempBasePath;
+  private ShuffleWriteClientImpl writeClient;
+  private ScheduledExecutorService memorySampler;
+  private long[] usedMemoryHighWater;
+  private long[] preAllocatedMemoryHighWater;
+  private long[] inFlushSizeHighWater;
+  private long heapUsedHighWater;
+
+  public LoadGenerator(LoadGeneratorArguments arguments) {
+    this.arguments = arguments;
+  }
+
+  public static void main(String[] args) throws Exception {
+    LoadGeneratorArguments arguments = new LoadGeneratorArguments();
+    CommandLine commandLine = new CommandLine(arguments);
+    commandLine.parseArgs(args);
+    LoadGenerator loadGenerator = new LoadGenerator(arguments);
+    try {
+      loadGenerator.startServers();
+      loadGenerator.run();
+    } finally {
+      loadGenerator.stop();
+    }
+    // grpc and jetty threads are not daemon
+    System.exit(0);
+  }
+
+  public void startServers() throws Exception {
+    if (arguments.getBasePath() == null) {
+      basePath = Files.createTempDir();
+      isTempBasePath = true;
+    } else {
+      basePath = new File(arguments.getBasePath());
+    }
+    CoordinatorConf coordinatorConf = new CoordinatorConf();
+    coordinatorConf.setInteger(CoordinatorConf.RPC_SERVER_PORT, arguments.getCoordinatorPort());
+    coordinatorConf.setInteger(CoordinatorConf.JETTY_HTTP_PORT, arguments.getJettyPort());
+    coordinatorConf.setInteger(CoordinatorConf.COORDINATOR_SHUFFLE_NODES_MAX, arguments.getServerNum());
+    coordinator = new CoordinatorServer(coordinatorConf);
+    coordinator.start();
+
+    for (int i = 0; i < arguments.getServerNum(); i++) {
+      ShuffleServer shuffleServer = new ShuffleServer(createShuffleServerConf(i));
+      shuffleServer.start();
+      shuffleServers.add(shuffleServer);
+    }
+    // wait until all shuffle servers are registered to coordinator
+    long start = System.currentTimeMillis();
+    while (coordinator.getClusterManager().getNodesNum() < arguments.getServerNum()) {
+      if (System.currentTimeMillis() - start > TimeUnit.MINUTES.toMillis(1)) {
+        throw new RuntimeException("Shuffle servers aren't registered to coordinator in 1 minute");
+      }
+      Thread.sleep(100);
+    }
+    LOG.info("Started coordinator and {} shuffle servers with base path {}", arguments.getServerNum(), basePath);
+  }
+
+  private ShuffleServerConf createShuffleServerConf(int index) {
+    ShuffleServerConf serverConf = arguments.getServerConfFile() == null
+        ? new ShuffleServerConf() : new ShuffleServerConf(arguments.getServerConfFile());
+    List<String> storagePaths = Lists.newArrayList();
+    for (int i = 0; i < 2; i++) {
+      storagePaths.add(new File(basePath, "server" + index + "/data" + i).getAbsolutePath());
+    }
+    serverConf.setInteger(ShuffleServerConf.RPC_SERVER_PORT, arguments.getServerPort() + index);
+    serverConf.setInteger(ShuffleServerConf.JETTY_HTTP_PORT, arguments.getJettyPort() + index + 1);
+    serverConf.setString(ShuffleServerConf.RSS_COORDINATOR_QUORUM, LOCALHOST + ":" + arguments.getCoordinatorPort());
+    serverConf.setString(ShuffleServerConf.RSS_STORAGE_TYPE, arguments.getStorageType());
+    serverConf.setString(ShuffleServerConf.RSS_STORAGE_BASE_PATH, String.join(",", storagePaths));
+    serverConf.setLong(ShuffleServerConf.SERVER_BUFFER_CAPACITY, arguments.getBufferCapacity());
+    serverConf.setLong(ShuffleServerConf.SERVER_READ_BUFFER_CAPACITY, arguments.getBufferCapacity() / 2);
+    serverConf.setLong(ShuffleServerConf.SERVER_HEARTBEAT_DELAY, 100L);
+    serverConf.setLong(ShuffleServerConf.SERVER_HEARTBEAT_INTERVAL, 1000L);
+    serverConf.setBoolean(ShuffleServerConf.HEALTH_CHECK_ENABLE, false);
+    return serverConf;
+  }
+
+  public void run() throws Exception {
+    writeClient = new ShuffleWriteClientImpl(ClientType.GRPC.name(), 3, 1000, 1,
+        arguments.getReplica(), arguments.getReplica(), 1);
+    writeClient.registerCoordinators(LOCALHOST + ":" + arguments.getCoordinatorPort());
+    startMemorySampler();
+
+    long start = System.nanoTime();
+    ShuffleAssignmentsInfo assignments = writeClient.getShuffleAssignments(appId, SHUFFLE_ID,
+        arguments.getPartitionNum(), 1, Sets.newHashSet(Constants.SHUFFLE_SERVER_VERSION));
+    latencyRecorder.record("getShuffleAssignments", start);
+    for (Map.Entry<ShuffleServerInfo, List<PartitionRange>> entry
+        : assignments.getServerToPartitionRanges().entrySet()) {
+      start = System.nanoTime();
+      writeClient.registerShuffle(entry.getKey(), appId, SHUFFLE_ID, entry.getValue());
+      latencyRecorder.record("registerShuffle", start);
+    }
+    Map<Integer, List<ShuffleServerInfo>> partitionToServers = assignments.getPartitionToServers();
+
+    long writeStart = System.nanoTime();
+    long writtenBytes = write(partitionToServers);
+    long writeNanos = System.nanoTime() - writeStart;
+    start = System.nanoTime();
+    writeClient.sendCommit(Sets.newHashSet(assignments.getServerToPartitionRanges().keySet()),
+        appId, SHUFFLE_ID, arguments.getMapNum());
+    latencyRecorder.record("sendCommit", start);
+
+    long readStart = System.nanoTime();
+    long readBytes = read(partitionToServers);
+    long readNanos = System.nanoTime() - readStart;
+    memorySampler.shutdownNow();
+    writeClient.close();
+
+    report(writtenBytes, writeNanos, readBytes, readNanos);
+  }
+
+  private long write(Map<Integer, List<ShuffleServerInfo>> partitionToServers) throws Exception {
+    Map<Integer, byte[]> sizeToData = Maps.newHashMap();
+    Map<Integer, Long> sizeToCrc = Maps.newHashMap();
+    Random random = new Random();
+    for (int blockSize : arguments.getBlockSizes()) {
+      byte[] data = new byte[blockSize];
+      random.nextBytes(data);
+      sizeToData.put(blockSize, data);
+      sizeToCrc.put(blockSize, ChecksumUtils.getCrc32(data));
+    }
+    AtomicLong writtenBytes = new AtomicLong(0);
+    ExecutorService executor = Executors.newFixedThreadPool(arguments.getWriteThreadNum(),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("load-writer-%d").build());
+    try {
+      List<Future<?>> futures = Lists.newArrayList();
+      for (int mapIndex = 0; mapIndex < arguments.getMapNum(); mapIndex++) {
+        final long taskAttemptId = mapIndex;
+        futures.add(executor.submit(() -> {
+          writtenBytes.addAndGet(writeMap(taskAttemptId, partitionToServers, sizeToData, sizeToCrc));
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return writtenBytes.get();
+  }
+
+  private long writeMap(
+      long taskAttemptId,
+      Map<Integer, List<ShuffleServerInfo>> partitionToServers,
+      Map<Integer, byte[]> sizeToData,
+      Map<Integer, Long> sizeToCrc) {
+    int[] blockSizes = arguments.getBlockSizes();
+    Map<Integer, List<Long>> partitionToBlockIds = Maps.newHashMap();
+    List<ShuffleBlockInfo> batch = Lists.newArrayList();
+    long batchSize = 0;
+    long writtenBytes = 0;
+    int blockIndex = 0;
+    for (int seqNo = 0; seqNo < arguments.getBlocksPerPartition(); seqNo++) {
+      for (int partitionId = 0; partitionId < arguments.getPartitionNum(); partitionId++) {
+        int blockSize = blockSizes[blockIndex++ % blockSizes.length];
+        long blockId = ClientUtils.getBlockId(partitionId, taskAttemptId, seqNo);
+        batch.add(new ShuffleBlockInfo(SHUFFLE_ID, partitionId, blockId, blockSize, sizeToCrc.get(blockSize),
+            sizeToData.get(blockSize), partitionToServers.get(partitionId), blockSize, blockSize, taskAttemptId));
+        partitionToBlockIds.computeIfAbsent(partitionId, key -> Lists.newArrayList()).add(blockId);
+        batchSize += blockSize;
+        if (batchSize >= arguments.getSendBatchSize()) {
+          sendShuffleData(batch);
+          writtenBytes += batchSize;
+          batch = Lists.newArrayList();
+          batchSize = 0;
+        }
+      }
+    }
+    if (!batch.isEmpty()) {
+      sendShuffleData(batch);
+      writtenBytes += batchSize;
+    }
+    long start = System.nanoTime();
+    writeClient.reportShuffleResult(partitionToServers, appId, SHUFFLE_ID, taskAttemptId,
+        partitionToBlockIds, arguments.getReplica());
+    latencyRecorder.record("reportShuffleResult", start);
+    return writtenBytes;
+  }
+
+  private void sendShuffleData(List<ShuffleBlockInfo> blocks) {
+    long start = System.nanoTime();
+    SendShuffleDataResult result = writeClient.sendShuffleData(appId, blocks);
+    latencyRecorder.record("sendShuffleData", start);
+    if (!result.getFailedBlockIds().isEmpty()) {
+      throw new RuntimeException("Send shuffle data failed for " + result.getFailedBlockIds().size() + " blocks");
+    }
+  }
+
+  private long read(Map<Integer, List<ShuffleServerInfo>> partitionToServers) throws Exception {
+    Roaring64NavigableMap taskIdBitmap = Roaring64NavigableMap.bitmapOf();
+    for (long taskAttemptId = 0; taskAttemptId < arguments.getMapNum(); taskAttemptId++) {
+      taskIdBitmap.addLong(taskAttemptId);
+    }
+    AtomicLong readBytes = new AtomicLong(0);
+    ExecutorService executor = Executors.newFixedThreadPool(arguments.getReadThreadNum(),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("load-reader-%d").build());
+    try {
+      List<Future<?>> futures = Lists.newArrayList();
+      for (int partitionId = 0; partitionId < arguments.getPartitionNum(); partitionId++) {
+        final int readPartitionId = partitionId;
+        futures.add(executor.submit(() -> {
+          readBytes.addAndGet(readPartition(readPartitionId, partitionToServers.get(readPartitionId), taskIdBitmap));
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return readBytes.get();
+  }
+
+  private long readPartition(
+      int partitionId,
+      List<ShuffleServerInfo> shuffleServerInfos,
+      Roaring64NavigableMap taskIdBitmap) {
+    long start = System.nanoTime();
+    Roaring64NavigableMap blockIdBitmap = writeClient.getShuffleResult(ClientType.GRPC.name(),
+        Sets.newHashSet(shuffleServerInfos), appId, SHUFFLE_ID, partitionId);
+    latencyRecorder.record("getShuffleResult", start);
+    ShuffleReadClientImpl readClient = new ShuffleReadClientImpl(arguments.getStorageType(), appId, SHUFFLE_ID,
+        partitionId, 1000, 1, arguments.getPartitionNum(), arguments.getReadBufferSize(), "",
+        blockIdBitmap, taskIdBitmap, shuffleServerInfos, new Configuration());
+    long readBytes = 0;
+    byte[] lastReadBuffer = null;
+    try {
+      while (true) {
+        start = System.nanoTime();
+        CompressedShuffleBlock block = readClient.readShuffleBlockData();
+        if (block == null) {
+          break;
+        }
+        ByteBuffer byteBuffer = block.getByteBuffer();
+        // blocks share the read buffer until the next rpc to get shuffle data
+        if (byteBuffer.array() != lastReadBuffer) {
+          latencyRecorder.record("getShuffleData", start);
+          lastReadBuffer = byteBuffer.array();
+        }
+        readBytes += byteBuffer.remaining();
+      }
+      readClient.checkProcessedBlockIds();
+    } finally {
+      readClient.close();
+    }
+    return readBytes;
+  }
+
+  private void startMemorySampler() {
+    int serverNum = shuffleServers.size();
+    usedMemoryHighWater = new long[serverNum];
+    preAllocatedMemoryHighWater = new long[serverNum];
+    inFlushSizeHighWater = new long[serverNum];
+    memorySampler = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("memory-sampler").build());
+    memorySampler.scheduleAtFixedRate(() -> {
+      synchronized (this) {
+        for (int i = 0; i < serverNum; i++) {
+          ShuffleServer shuffleServer = shuffleServers.get(i);
+          usedMemoryHighWater[i] = Math.max(usedMemoryHighWater[i], shuffleServer.getUsedMemory());
+          preAllocatedMemoryHighWater[i] = Math.max(preAllocatedMemoryHighWater[i],
+              shuffleServer.getPreAllocatedMemory());
+          inFlushSizeHighWater[i] = Math.max(inFlushSizeHighWater[i],
+              shuffleServer.getShuffleBufferManager().getInFlushSize());
+        }
+        heapUsedHighWater = Math.max(heapUsedHighWater,
+            ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+      }
+    }, 0, MEMORY_SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+  }
+
+  private synchronized void report(long writtenBytes, long writeNanos, long readBytes, long readNanos) {
+    List<String> lines = Lists.newArrayList();
+    lines.add(String.format("servers=%d, maps=%d, partitions=%d, blocksPerPartition=%d, storageType=%s",
+        arguments.getServerNum(), arguments.getMapNum(), arguments.getPartitionNum(),
+        arguments.getBlocksPerPartition(), arguments.getStorageType()));
+    lines.add(String.format("write: %d bytes in %.3f s, %.2f MB/s",
+        writtenBytes, writeNanos / 1e9, toMBPerSecond(writtenBytes, writeNanos)));
+    lines.add(String.format("read: %d bytes in %.3f s, %.2f MB/s",
+        readBytes, readNanos / 1e9, toMBPerSecond(readBytes, readNanos)));
+    lines.addAll(latencyRecorder.report());
+    lines.add(String.format("%-24s %16s %16s %16s", "server", "usedMemory", "preAllocated", "inFlush"));
+    for (int i = 0; i < shuffleServers.size(); i++) {
+      lines.add(String.format("%-24s %16d %16d %16d", shuffleServers.get(i).getId(),
+          usedMemoryHighWater[i], preAllocatedMemoryHighWater[i], inFlushSizeHighWater[i]));
+    }
+    lines.add(String.format("jvm heap used high water: %d", heapUsedHighWater));
+    for (String line : lines) {
+      System.out.println(line);
+    }
+  }
+
+  private static double toMBPerSecond(long bytes, long nanos) {
+    return nanos == 0 ? 0 : bytes / 1024.0 / 1024.0 / (nanos / 1e9);
+  }
+
+  public void stop() throws Exception {
+    for (ShuffleServer shuffleServer : shuffleServers) {
+      shuffleServer.stopServer();
+    }
+    if (coordinator != null) {
+      coordinator.stopServer();
+    }
+    if (isTempBasePath) {
+      FileUtils.deleteDirectory(basePath);
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Tencent is pleased to support the open source community by making
+ * Firestorm-Spark remote shuffle server available. 
+ *
+ * Copyright (C) 2021 THL A29 Limited, a Tencent company.  All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * https://opensource.org/licenses/Apache-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.tencent.rss.tools;
+
+import picocli.CommandLine.Option;
+
+public class LoadGeneratorArguments {
+
+  @Option(names = {"--servers"}, defaultValue = "2", description = "number of shuffle servers")
+  private int serverNum;
+
+  @Option(names = {"--maps"}, defaultValue = "20", description = "number of map tasks")
+  private int mapNum;
+
+  @Option(names = {"--partitions"}, defaultValue = "100", description = "number of partitions")
+  private int partitionNum;
+
+  @Option(names = {"--block-sizes"}, split = ",", defaultValue = "32768",
+      description = "block sizes in bytes, blocks of a map use them in turn")
+  private int[] blockSizes;
+
+  @Option(names = {"--blocks-per-partition"}, defaultValue = "1",
+      description = "number of blocks written by every map for every partition")
+  private int blocksPerPartition;
+
+  @Option(names = {"--send-batch-size"}, defaultValue = "1048576",
+      description = "max bytes of blocks sent in one sendShuffleData")
+  private long sendBatchSize;
+
+  @Option(names = {"--write-threads"}, defaultValue = "4", description = "number of maps running concurrently")
+  private int writeThreadNum;
+
+  @Option(names = {"--read-threads"}, defaultValue = "4",
+      description = "number of partitions read concurrently")
+  private int readThreadNum;
+
+  @Option(names = {"--read-buffer-size"}, defaultValue = "14680064", description = "read buffer size of client")
+  private int readBufferSize;
+
+  @Option(names = {"--replica"}, defaultValue = "1", description = "replica of shuffle data")
+  private int replica;
+
+  @Option(names = {"--storage-type"}, defaultValue = "MEMORY_LOCALFILE", description = "storage type")
+  private String storageType;
+
+  @Option(names = {"--buffer-capacity"}, defaultValue = "1073741824",
+      description = "buffer capacity of every shuffle server")
+  private long bufferCapacity;
+
+  @Option(names = {"--base-path"}, description = "base path of shuffle servers, default is a temp directory")
+  private String basePath;
+
+  @Option(names = {"--server-conf"}, description = "config file of shuffle servers, ports and paths are overwritten")
+  private String serverConfFile;
+
+  @Option(names = {"--coordinator-port"}, defaultValue = "19999", description = "rpc port of coordinator")
+  private int coordinatorPort;
+
+  @Option(names = {"--server-port"}, defaultValue = "20001",
+      description = "rpc port of the first shuffle server, the others use the following ports")
+  private int serverPort;
+
+  @Option(names = {"--jetty-port"}, defaultValue = "19998",
+      description = "http port of coordinator, shuffle servers use the following ports")
+  private int jettyPort;
+
+  public int getServerNum() {
+    return serverNum;
+  }
+
+  public int getMapNum() {
+    return mapNum;
+  }
+
+  public int getPartitionNum() {
+    return partitionNum;
+  }
+
+  public int[] getBlockSizes() {
+    return blockSizes;
+  }
+
+  public int getBlocksPerPartition() {
+    return blocksPerPartition;
+  }
+
+  public long getSendBatchSize() {
+    return sendBatchSize;
+  }
+
+  public int getWriteThreadNum() {
+    return writeThreadNum;
+  }
+
+  public int getReadThreadNum() {
+    return readThreadNum;
+  }
+
+  public int getReadBufferSize() {
+    return readBufferSize;
+  }
+
+  public int getReplica() {
+    return replica;
+  }
+
+  public String getStorageType() {
+    return storageType;
+  }
+
+  public long getBufferCapacity() {
+    return bufferCapacity;
+  }
+
+  public String getBasePath() {
+    return basePath;
+  }
+
+  public String getServerConfFile() {
+    return serverConfFile;
+  }
+
+  public int getCoordinatorPort() {
+    return coordinatorPort;
+  }
+
+  public int getServerPort() {
+    return serverPort;
+  }
+
+  public int getJettyPort() {
+    return jettyPort;
+  }
+}